@@ -0,0 +1,233 @@
+package uva.tds.ejecutores;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+import uva.tds.entidades.Carta;
+import uva.tds.entidades.EventoPartida;
+import uva.tds.entidades.Jugada;
+import uva.tds.entidades.Jugador;
+import uva.tds.entidades.Partida;
+import uva.tds.entidades.Ronda;
+import uva.tds.entidades.Turno;
+import uva.tds.servicios.GestorPartida;
+
+/**
+ * Ejecuta una partida de Escoba aplicando sus eventos (repartos, cartas jugadas
+ * y avances de ronda) a un GestorPartida a medida que llegan, sin necesitar la
+ * partida completa en memoria. Los eventos pueden venir de un Iterator o de un
+ * Flow.Publisher, de forma que la validación se solapa con la lectura o la
+ * recepción de la partida y una partida a medias se puede ir comprobando
+ * conforme avanza.
+ *
+ * El número de rondas y de turnos lo marcan los propios eventos. Al finalizar,
+ * la partida tiene que haber repartido la baraja entera.
+ *
+ * Como Flow.Subscriber pide los eventos de uno en uno, y el resultado se
+ * obtiene con {@link #getResultado()}. Cada ejecutor ejecuta una sola partida.
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+public class EjecutorEventosPartida implements Flow.Subscriber<EventoPartida> {
+
+    private final GestorPartida gestor;
+    private final CompletableFuture<GestorPartida> resultado = new CompletableFuture<>();
+    private int eventosAplicados;
+    private boolean finalizada;
+    private Flow.Subscription suscripcion;
+
+    /**
+     * Crea el ejecutor de una partida entre dos jugadores.
+     *
+     * @param jugador1 nombre del primer jugador
+     * @param jugador2 nombre del segundo jugador
+     * @throws IllegalArgumentException si algún nombre es nulo o vacío
+     */
+    public EjecutorEventosPartida(String jugador1, String jugador2) {
+        this.gestor = new GestorPartida(new Jugador(jugador1), new Jugador(jugador2));
+    }
+
+    /**
+     * Aplica el siguiente evento de la partida.
+     *
+     * @param evento evento a aplicar
+     * @throws IllegalArgumentException si evento es null o no es válido en el
+     * estado actual de la partida
+     * @throws IllegalStateException si la partida ya ha finalizado o el evento no
+     * es válido en el estado actual de la partida
+     */
+    public void aplicar(EventoPartida evento) {
+        if (evento == null) throw new IllegalArgumentException("El evento no puede ser nulo");
+        if (finalizada) throw new IllegalStateException("La partida ya ha finalizado");
+        evento.aplicar(gestor);
+        eventosAplicados++;
+    }
+
+    /**
+     * Aplica todos los eventos del iterador y finaliza la partida.
+     *
+     * @param eventos eventos de la partida, en orden
+     * @return gestor con el estado final de la partida
+     * @throws IllegalArgumentException si eventos es null, si algún evento no es
+     * válido o si la partida no está completa
+     * @throws IllegalStateException si algún evento no es válido o la partida no
+     * termina en un estado válido
+     */
+    public GestorPartida ejecutar(Iterator<EventoPartida> eventos) {
+        if (eventos == null) throw new IllegalArgumentException("Los eventos no pueden ser nulos");
+        while (eventos.hasNext()) {
+            aplicar(eventos.next());
+        }
+        return finalizar();
+    }
+
+    /**
+     * Finaliza la partida una vez aplicados todos sus eventos: reparte las cartas
+     * que quedan en la mesa y comprueba el estado final.
+     *
+     * @return gestor con el estado final de la partida
+     * @throws IllegalArgumentException si quedan cartas de la baraja por repartir
+     * @throws IllegalStateException si la partida ya ha finalizado o no termina
+     * en un estado válido
+     */
+    public GestorPartida finalizar() {
+        if (finalizada) throw new IllegalStateException("La partida ya ha finalizado");
+        int pendientes = gestor.getBaraja().getNumeroDeCartas();
+        if (pendientes > 0) {
+            throw new IllegalArgumentException("La partida está incompleta: quedan " + pendientes
+                    + " cartas por repartir");
+        }
+        gestor.finalizarPartida();
+        finalizada = true;
+        resultado.complete(gestor);
+        return gestor;
+    }
+
+    /**
+     * Obtiene el estado de la partida con los eventos aplicados hasta ahora.
+     * Permite comprobar una partida a medias.
+     *
+     * @return gestor de la partida
+     */
+    public GestorPartida getGestor() {
+        return gestor;
+    }
+
+    /**
+     * Obtiene el número de eventos aplicados.
+     *
+     * @return número de eventos aplicados
+     */
+    public int getEventosAplicados() {
+        return eventosAplicados;
+    }
+
+    /**
+     * Resultado de la ejecución cuando los eventos llegan por un Flow.Publisher:
+     * se completa con el estado final al recibir onComplete, o con la excepción
+     * del primer evento no válido o del publicador.
+     *
+     * @return futuro con el gestor de la partida finalizada
+     */
+    public CompletableFuture<GestorPartida> getResultado() {
+        return resultado;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (this.suscripcion != null) {
+            subscription.cancel();
+            return;
+        }
+        this.suscripcion = subscription;
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(EventoPartida evento) {
+        if (resultado.isDone()) {
+            return;
+        }
+        try {
+            aplicar(evento);
+        } catch (RuntimeException e) {
+            suscripcion.cancel();
+            resultado.completeExceptionally(e);
+            return;
+        }
+        suscripcion.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        resultado.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        if (resultado.isDone()) {
+            return;
+        }
+        try {
+            finalizar();
+        } catch (RuntimeException e) {
+            resultado.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Recorre los eventos de una partida ya construida: el reparto inicial, las
+     * jugadas de cada ronda y, entre rondas, el avance y el reparto de la
+     * siguiente. Los eventos se crean a medida que se piden.
+     *
+     * @param partida partida a recorrer
+     * @return iterador sobre los eventos de la partida
+     * @throws IllegalArgumentException si partida es null
+     */
+    public static Iterator<EventoPartida> eventosDe(Partida partida) {
+        if (partida == null) throw new IllegalArgumentException("La partida no puede ser nula");
+        return new Iterator<>() {
+            private final List<Ronda> rondas = partida.getRondas();
+            private final ArrayList<ArrayList<Carta>> manos1 = partida.getManosJugador1();
+            private final ArrayList<ArrayList<Carta>> manos2 = partida.getManosJugador2();
+            private final List<EventoPartida> pendientes = new ArrayList<>(List.of(EventoPartida.repartoInicial(
+                    manos1.get(0), manos2.get(0), partida.getMesaInicial())));
+            private int ronda;
+            private Iterator<Turno> turnos = rondas.isEmpty() ? null : rondas.get(0).getTurnos().iterator();
+
+            @Override
+            public boolean hasNext() {
+                if (!pendientes.isEmpty()) {
+                    return true;
+                }
+                while (turnos != null && !turnos.hasNext()) {
+                    ronda++;
+                    if (ronda < rondas.size()) {
+                        pendientes.add(EventoPartida.avanzarRonda());
+                        pendientes.add(EventoPartida.repartoRonda(manos1.get(ronda), manos2.get(ronda)));
+                        turnos = rondas.get(ronda).getTurnos().iterator();
+                    } else {
+                        turnos = null;
+                    }
+                }
+                return !pendientes.isEmpty() || turnos != null;
+            }
+
+            @Override
+            public EventoPartida next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                if (!pendientes.isEmpty()) {
+                    return pendientes.remove(0);
+                }
+                Jugada jugada = turnos.next().getJugada();
+                if (jugada == null) throw new IllegalArgumentException("La partida contiene un turno sin jugada");
+                return EventoPartida.jugarCarta(jugada.getJuega(), jugada.getCaptura());
+            }
+        };
+    }
+}
@@ -3,16 +3,22 @@ package uva.tds.ejecutores;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
 import uva.tds.entidades.Carta;
+import uva.tds.entidades.EventoPartida;
 import uva.tds.entidades.Jugada;
 import uva.tds.entidades.Partida;
 import uva.tds.entidades.Ronda;
@@ -188,23 +194,7 @@ public class LectorPartidaJSON {
      * @return Lista de nombres de los jugadores.
      */
     public ArrayList<String> extraerNombresJugadores() {
-
-        ArrayList<String> nombres = new ArrayList<>();
-        JSONObject manos = partidaJSON.getJSONObject("partida")
-                       .getJSONArray("rondas")
-                       .getJSONObject(0)
-                       .getJSONObject("inicio")
-                       .getJSONObject("manos");   
-        for(String nombre : manos.keySet()){
-            nombres.add(nombre);
-        }
-
-         if (nombres.size() != 2) {
-            throw new IllegalArgumentException(
-                    "El JSON debe contener exactamente 2 jugadores en 'manos' de la primera ronda");
-        }
-        
-        return nombres;
+        return nombresJugadores(partidaJSON.getJSONObject("partida").getJSONArray("rondas").getJSONObject(0));
     }
 
     /**
@@ -304,4 +294,181 @@ public class LectorPartidaJSON {
         return new Jugada(juega, captura, resultante);
     }
 
+    /**
+     * Recorre los eventos de la partida (reparto inicial, jugadas, avances de
+     * ronda y repartos) convirtiendo cada ronda y jugada del JSON solo cuando se
+     * pide, de modo que la partida se puede ir validando mientras se convierte
+     * con un EjecutorEventosPartida. La conversión es perezosa, pero el fichero
+     * ya se ha leído entero al crear el lector; para no cargarlo en memoria se
+     * usa {@link #leerEventos(Reader)}. No limita el número de rondas ni de
+     * jugadas. El primer jugador es el primero de extraerNombresJugadores().
+     *
+     * @return Iterador sobre los eventos de la partida.
+     * @throws IllegalArgumentException Si el JSON no contiene exactamente 2 jugadores.
+     */
+    public Iterator<EventoPartida> extraerEventos() {
+        return eventos(partidaJSON.getJSONObject("partida").getJSONArray("rondas").iterator(),
+                extraerNombresJugadores());
+    }
+
+    /**
+     * Recorre los eventos de una partida leyendo el JSON a medida que se piden:
+     * solo se analiza la ronda en curso, así que la memoria no depende del
+     * tamaño del fichero y una partida se puede empezar a validar antes de
+     * haberla recibido entera. Las claves que no son "partida" ni "rondas" se
+     * saltan, y lo que haya después de la última ronda no se llega a leer.
+     * Los nombres de los jugadores se toman de las manos de la primera ronda,
+     * igual que en extraerNombresJugadores(). El lector no se cierra.
+     *
+     * @param entrada Texto JSON de la partida.
+     * @return Iterador sobre los eventos de la partida.
+     * @throws IllegalArgumentException Si entrada es nula o si la primera ronda
+     * no contiene exactamente 2 jugadores.
+     * @throws JSONException Si el JSON no tiene el formato de una partida o no se
+     * puede leer; los errores de las rondas posteriores se lanzan al pedir sus
+     * eventos.
+     */
+    public static Iterator<EventoPartida> leerEventos(Reader entrada) {
+        if (entrada == null) {
+            throw new IllegalArgumentException("La entrada no puede ser nula");
+        }
+        return eventos(new RondasJSON(new JSONTokener(entrada)), null);
+    }
+
+    private static Iterator<EventoPartida> eventos(Iterator<Object> rondas, List<String> jugadores) {
+        return new Iterator<>() {
+            private List<String> nombres = jugadores;
+            private int ronda = -1;
+            private JSONArray jugadas;
+            private int jugada;
+            private boolean rondaAvanzada;
+
+            @Override
+            public boolean hasNext() {
+                return (jugadas != null && jugada < jugadas.length()) || rondas.hasNext();
+            }
+
+            @Override
+            public EventoPartida next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                if (jugadas != null && jugada < jugadas.length()) {
+                    JSONObject jugadaObj = jugadas.getJSONObject(jugada++);
+                    return EventoPartida.jugarCarta(AdaptadorCartaJson.parse(jugadaObj.getString("juega")),
+                            convertirCartas(jugadaObj.getJSONArray("captura")));
+                }
+                if (ronda >= 0 && !rondaAvanzada) {
+                    // primero se avanza de ronda y en la siguiente llamada se reparte
+                    rondaAvanzada = true;
+                    return EventoPartida.avanzarRonda();
+                }
+                Object siguiente = rondas.next();
+                if (!(siguiente instanceof JSONObject)) {
+                    throw new JSONException("La ronda " + (ronda + 2) + " no es un objeto JSON");
+                }
+                JSONObject rondaObj = (JSONObject) siguiente;
+                ronda++;
+                if (nombres == null) {
+                    nombres = nombresJugadores(rondaObj);
+                }
+                JSONObject inicio = rondaObj.getJSONObject("inicio");
+                JSONObject manos = inicio.getJSONObject("manos");
+                ArrayList<Carta> mano1 = convertirCartas(manos.getJSONArray(nombres.get(0)));
+                ArrayList<Carta> mano2 = convertirCartas(manos.getJSONArray(nombres.get(1)));
+                jugadas = rondaObj.getJSONArray("jugadas");
+                jugada = 0;
+                rondaAvanzada = false;
+                if (ronda == 0) {
+                    return EventoPartida.repartoInicial(mano1, mano2,
+                            convertirCartas(inicio.getJSONArray("mesa_inicial")));
+                }
+                return EventoPartida.repartoRonda(mano1, mano2);
+            }
+        };
+    }
+
+    private static ArrayList<String> nombresJugadores(JSONObject primeraRonda) {
+        ArrayList<String> nombres = new ArrayList<>(
+                primeraRonda.getJSONObject("inicio").getJSONObject("manos").keySet());
+        if (nombres.size() != 2) {
+            throw new IllegalArgumentException(
+                    "El JSON debe contener exactamente 2 jugadores en 'manos' de la primera ronda");
+        }
+        return nombres;
+    }
+
+    private static ArrayList<Carta> convertirCartas(JSONArray cartasJSON) {
+        ArrayList<Carta> cartas = new ArrayList<>();
+        for (int i = 0; i < cartasJSON.length(); i++) {
+            cartas.add(AdaptadorCartaJson.parse(cartasJSON.getString(i)));
+        }
+        return cartas;
+    }
+
+    /**
+     * Rondas del array partida.rondas, analizadas de una en una conforme se
+     * piden con un JSONTokener.
+     */
+    private static final class RondasJSON implements Iterator<Object> {
+
+        private final JSONTokener tokener;
+        private boolean terminadas;
+
+        RondasJSON(JSONTokener tokener) {
+            this.tokener = tokener;
+            buscarClave("partida");
+            buscarClave("rondas");
+            if (tokener.nextClean() != '[') {
+                throw tokener.syntaxError("Las rondas tienen que ser un array");
+            }
+            terminadas = tokener.nextClean() == ']';
+            if (!terminadas) {
+                tokener.back();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !terminadas;
+        }
+
+        @Override
+        public Object next() {
+            if (terminadas) throw new NoSuchElementException();
+            Object ronda = tokener.nextValue();
+            char separador = tokener.nextClean();
+            if (separador == ']') {
+                terminadas = true;
+            } else if (separador != ',') {
+                throw tokener.syntaxError("Se esperaba ',' o ']' después de una ronda");
+            }
+            return ronda;
+        }
+
+        /**
+         * Entra en el objeto que empieza en la posición actual y se detiene justo
+         * antes del valor de la clave dada, saltando los valores anteriores.
+         */
+        private void buscarClave(String clave) {
+            if (tokener.nextClean() != '{') {
+                throw tokener.syntaxError("Se esperaba un objeto con la clave '" + clave + "'");
+            }
+            char c = tokener.nextClean();
+            while (c != '}') {
+                tokener.back();
+                String actual = tokener.nextValue().toString();
+                if (tokener.nextClean() != ':') {
+                    throw tokener.syntaxError("Se esperaba ':' después de la clave '" + actual + "'");
+                }
+                if (clave.equals(actual)) {
+                    return;
+                }
+                tokener.nextValue();
+                c = tokener.nextClean();
+                if (c == ',') {
+                    c = tokener.nextClean();
+                }
+            }
+            throw new JSONException("El JSON no contiene la clave '" + clave + "'");
+        }
+    }
 }
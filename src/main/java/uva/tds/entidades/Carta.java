@@ -5,8 +5,13 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Immutable;
+
 /**
  * Representa una carta de la baraja española de 40 cartas utilizada en el juego
  * de la escoba.
@@ -17,10 +22,13 @@ import javax.persistence.Table;
  */
 @Entity
 @Table(name = "cartas")
+@Immutable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "cartas")
 public class Carta {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "carta_seq")
+    @SequenceGenerator(name = "carta_seq", sequenceName = "cartas_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "palo", nullable = false, length = 8)
@@ -0,0 +1,149 @@
+package uva.tds.entidades;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+/**
+ * Estadísticas acumuladas de un jugador (partidas jugadas, ganadas, perdidas y
+ * guindis). Se mantienen de forma incremental cada vez que se guarda, actualiza o
+ * elimina una partida, de forma que consultarlas no depende del número de
+ * partidas almacenadas.
+ *
+ * Las partidas sin resumen completo solo cuentan como jugadas. Un empate cuenta
+ * como partida perdida para ambos jugadores.
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+@Entity
+@Table(name = "estadisticas_jugador", indexes = {
+        @Index(name = "idx_estadisticas_ganadas", columnList = "ganadas DESC, nombre ASC") })
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "estadisticas")
+public class EstadisticasJugador {
+
+    @Id
+    @Column(name = "nombre", nullable = false, length = 100)
+    private String nombre;
+
+    @Column(name = "jugadas", nullable = false)
+    private int jugadas;
+
+    @Column(name = "ganadas", nullable = false)
+    private int ganadas;
+
+    @Column(name = "perdidas", nullable = false)
+    private int perdidas;
+
+    @Column(name = "guindis", nullable = false)
+    private int guindis;
+
+    public EstadisticasJugador() { }
+
+    /**
+     * Crea las estadísticas vacías de un jugador.
+     *
+     * @param nombre Nombre del jugador.
+     * @throws IllegalArgumentException si el nombre es nulo o vacío.
+     */
+    public EstadisticasJugador(String nombre) {
+        if (nombre == null || nombre.isEmpty()) throw new IllegalArgumentException("El nombre no puede ser nulo o vacío");
+        this.nombre = nombre;
+    }
+
+    public String getNombre() { return nombre; }
+    public int getJugadas() { return jugadas; }
+    public int getGanadas() { return ganadas; }
+    public int getPerdidas() { return perdidas; }
+    public int getGuindis() { return guindis; }
+
+    /**
+     * Suma a las estadísticas el resultado de una partida del jugador.
+     *
+     * @param partida Partida en la que participa el jugador.
+     * @throws IllegalArgumentException si la partida es nula.
+     */
+    public void sumarPartida(Partida partida) {
+        acumular(ResultadoPartida.de(partida), 1);
+    }
+
+    /**
+     * Resta de las estadísticas el resultado de una partida del jugador (por
+     * ejemplo, al eliminarla o antes de actualizarla).
+     *
+     * @param partida Partida en la que participa el jugador.
+     * @throws IllegalArgumentException si la partida es nula.
+     */
+    public void restarPartida(Partida partida) {
+        acumular(ResultadoPartida.de(partida), -1);
+    }
+
+    /**
+     * Suma a las estadísticas el resultado de una partida obtenido por
+     * proyección, sin necesidad de cargar la partida.
+     *
+     * @param resultado Resultado de una partida en la que participa el jugador.
+     * @throws IllegalArgumentException si el resultado es nulo.
+     */
+    public void sumarResultado(ResultadoPartida resultado) {
+        acumular(resultado, 1);
+    }
+
+    /**
+     * Resta de las estadísticas el resultado de una partida obtenido por
+     * proyección, sin necesidad de cargar la partida.
+     *
+     * @param resultado Resultado de una partida en la que participa el jugador.
+     * @throws IllegalArgumentException si el resultado es nulo.
+     */
+    public void restarResultado(ResultadoPartida resultado) {
+        acumular(resultado, -1);
+    }
+
+    /**
+     * Suma a las estadísticas las de otro conjunto de partidas del mismo
+     * jugador (por ejemplo, las de otra partición del repositorio).
+     *
+     * @param otras Estadísticas del jugador en otras partidas.
+     * @throws IllegalArgumentException si otras es nulo o es de otro jugador.
+     */
+    public void sumarEstadisticas(EstadisticasJugador otras) {
+        if (otras == null) throw new IllegalArgumentException("Las estadísticas no pueden ser nulas");
+        if (!nombre.equals(otras.nombre)) {
+            throw new IllegalArgumentException("Las estadísticas son de otro jugador");
+        }
+        jugadas += otras.jugadas;
+        ganadas += otras.ganadas;
+        perdidas += otras.perdidas;
+        guindis += otras.guindis;
+    }
+
+    /**
+     * Aplica la contribución del resultado con el signo indicado. Si el jugador
+     * no participa en la partida no se modifica nada.
+     */
+    private void acumular(ResultadoPartida resultado, int signo) {
+        if (resultado == null) throw new IllegalArgumentException("El resultado no puede ser nulo");
+        if (!nombre.equals(resultado.getJugador1()) && !nombre.equals(resultado.getJugador2())) {
+            return;
+        }
+
+        jugadas += signo;
+        if (!resultado.isCompleta()) {
+            return;
+        }
+        if (nombre.equals(resultado.getGanador())) {
+            ganadas += signo;
+        } else {
+            perdidas += signo;
+        }
+        if (resultado.isGuindis(nombre)) {
+            guindis += signo;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package uva.tds.entidades;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import uva.tds.servicios.GestorPartida;
+
+/**
+ * Operación sobre una partida en curso: un reparto, una carta jugada o el paso
+ * a la ronda siguiente. Aplicar en orden los eventos de una partida sobre un
+ * GestorPartida nuevo reconstruye su estado.
+ *
+ * Los eventos son inmutables.
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+public final class EventoPartida {
+
+    /**
+     * Tipos de evento, uno por cada operación de GestorPartida que cambia el
+     * estado de la partida.
+     */
+    public enum Tipo {
+        /** {@link GestorPartida#repartoInicial} */
+        REPARTO_INICIAL,
+        /** {@link GestorPartida#repartoRonda} */
+        REPARTO_RONDA,
+        /** {@link GestorPartida#jugarCarta} */
+        JUGAR_CARTA,
+        /** {@link GestorPartida#avanzarRonda} */
+        AVANZAR_RONDA
+    }
+
+    private final Tipo tipo;
+    private final List<Carta> cartasJugador1;
+    private final List<Carta> cartasJugador2;
+    private final List<Carta> cartasMesa;
+    private final Carta carta;
+    private final List<Carta> capturas;
+
+    private EventoPartida(Tipo tipo, List<Carta> cartasJugador1, List<Carta> cartasJugador2,
+            List<Carta> cartasMesa, Carta carta, List<Carta> capturas) {
+        this.tipo = tipo;
+        this.cartasJugador1 = List.copyOf(cartasJugador1);
+        this.cartasJugador2 = List.copyOf(cartasJugador2);
+        this.cartasMesa = List.copyOf(cartasMesa);
+        this.carta = carta;
+        this.capturas = List.copyOf(capturas);
+    }
+
+    /**
+     * Crea el evento del reparto inicial.
+     *
+     * @param cartasJugador1 cartas repartidas al jugador 1
+     * @param cartasJugador2 cartas repartidas al jugador 2
+     * @param cartasMesa     cartas iniciales de la mesa
+     * @return evento del reparto inicial
+     * @throws IllegalArgumentException si alguna lista es null o contiene null
+     */
+    public static EventoPartida repartoInicial(List<Carta> cartasJugador1, List<Carta> cartasJugador2,
+            List<Carta> cartasMesa) {
+        validarCartas(cartasJugador1);
+        validarCartas(cartasJugador2);
+        validarCartas(cartasMesa);
+        return new EventoPartida(Tipo.REPARTO_INICIAL, cartasJugador1, cartasJugador2, cartasMesa, null, List.of());
+    }
+
+    /**
+     * Crea el evento del reparto de una ronda posterior a la primera.
+     *
+     * @param cartasJugador1 cartas repartidas al jugador 1
+     * @param cartasJugador2 cartas repartidas al jugador 2
+     * @return evento del reparto
+     * @throws IllegalArgumentException si alguna lista es null o contiene null
+     */
+    public static EventoPartida repartoRonda(List<Carta> cartasJugador1, List<Carta> cartasJugador2) {
+        validarCartas(cartasJugador1);
+        validarCartas(cartasJugador2);
+        return new EventoPartida(Tipo.REPARTO_RONDA, cartasJugador1, cartasJugador2, List.of(), null, List.of());
+    }
+
+    /**
+     * Crea el evento de una carta jugada por el jugador que tiene el turno.
+     *
+     * @param carta    carta jugada
+     * @param capturas cartas de la mesa que se capturan (vacía si no se captura)
+     * @return evento de la jugada
+     * @throws IllegalArgumentException si carta o capturas son null, o si
+     *                                  capturas contiene null
+     */
+    public static EventoPartida jugarCarta(Carta carta, List<Carta> capturas) {
+        if (carta == null) {
+            throw new IllegalArgumentException("La carta no puede ser nula");
+        }
+        validarCartas(capturas);
+        return new EventoPartida(Tipo.JUGAR_CARTA, List.of(), List.of(), List.of(), carta, capturas);
+    }
+
+    /**
+     * Crea el evento del paso a la ronda siguiente (o del final de la partida).
+     *
+     * @return evento del avance de ronda
+     */
+    public static EventoPartida avanzarRonda() {
+        return new EventoPartida(Tipo.AVANZAR_RONDA, List.of(), List.of(), List.of(), null, List.of());
+    }
+
+    /**
+     * Aplica el evento sobre un gestor de partida.
+     *
+     * @param gestor gestor de la partida
+     * @throws IllegalArgumentException si gestor es null, o si el evento no es
+     *                                  válido en el estado del gestor
+     * @throws IllegalStateException    si el evento no es válido en el estado
+     *                                  del gestor
+     */
+    public void aplicar(GestorPartida gestor) {
+        if (gestor == null) {
+            throw new IllegalArgumentException("El gestor no puede ser nulo");
+        }
+        switch (tipo) {
+            case REPARTO_INICIAL:
+                gestor.repartoInicial(getCartasJugador1(), getCartasJugador2(), getCartasMesa());
+                break;
+            case REPARTO_RONDA:
+                gestor.repartoRonda(getCartasJugador1(), getCartasJugador2());
+                break;
+            case JUGAR_CARTA:
+                gestor.jugarCarta(carta, getCapturas());
+                break;
+            default:
+                gestor.avanzarRonda();
+        }
+    }
+
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    public ArrayList<Carta> getCartasJugador1() {
+        return new ArrayList<>(cartasJugador1);
+    }
+
+    public ArrayList<Carta> getCartasJugador2() {
+        return new ArrayList<>(cartasJugador2);
+    }
+
+    public ArrayList<Carta> getCartasMesa() {
+        return new ArrayList<>(cartasMesa);
+    }
+
+    /**
+     * Devuelve la carta jugada.
+     *
+     * @return carta jugada, o null si el evento no es de tipo JUGAR_CARTA
+     */
+    public Carta getCarta() {
+        return carta;
+    }
+
+    public ArrayList<Carta> getCapturas() {
+        return new ArrayList<>(capturas);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null || getClass() != obj.getClass())
+            return false;
+        EventoPartida other = (EventoPartida) obj;
+        return tipo == other.tipo && cartasJugador1.equals(other.cartasJugador1)
+                && cartasJugador2.equals(other.cartasJugador2) && cartasMesa.equals(other.cartasMesa)
+                && Objects.equals(carta, other.carta) && capturas.equals(other.capturas);
+    }
+
+    /**
+     * Carta no redefine hashCode, así que solo se usan el tipo y los tamaños de
+     * las listas (coherente con equals).
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(tipo, cartasJugador1.size(), cartasJugador2.size(), cartasMesa.size(), capturas.size());
+    }
+
+    @Override
+    public String toString() {
+        switch (tipo) {
+            case REPARTO_INICIAL:
+                return tipo + " " + cartasJugador1 + " " + cartasJugador2 + " " + cartasMesa;
+            case REPARTO_RONDA:
+                return tipo + " " + cartasJugador1 + " " + cartasJugador2;
+            case JUGAR_CARTA:
+                return tipo + " " + carta + " " + capturas;
+            default:
+                return tipo.toString();
+        }
+    }
+
+    private static void validarCartas(List<Carta> cartas) {
+        if (cartas == null) {
+            throw new IllegalArgumentException("Las listas de cartas no pueden ser nulas");
+        }
+        for (Carta c : cartas) {
+            if (c == null) {
+                throw new IllegalArgumentException("Las listas de cartas no pueden contener nulos");
+            }
+        }
+    }
+}
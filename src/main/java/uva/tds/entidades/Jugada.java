@@ -9,6 +9,7 @@ import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
@@ -27,7 +28,8 @@ import javax.persistence.Table;
 @Table(name = "jugadas")
 public class Jugada {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "jugada_seq")
+    @SequenceGenerator(name = "jugada_seq", sequenceName = "jugadas_seq", allocationSize = 50)
     private Long id;
 
     // carta que se juega
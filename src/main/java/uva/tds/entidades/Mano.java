@@ -7,6 +7,7 @@ import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
@@ -21,7 +22,8 @@ import javax.persistence.Entity;
 public class Mano {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "mano_seq")
+    @SequenceGenerator(name = "mano_seq", sequenceName = "manos_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "numero_ronda", nullable = false)
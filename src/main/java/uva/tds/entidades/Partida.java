@@ -2,20 +2,30 @@ package uva.tds.entidades;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.persistence.FetchType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
+import javax.persistence.OrderBy;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+
 /**
  * Representación de una partida (puede contener tanto la información detallada
  * de jugadas como un resumen de resultados). 
@@ -24,13 +34,23 @@ import javax.persistence.Entity;
  * @author Elisa Martínez Lafuente
  */
 @Entity
-@Table(name = "partidas")
+@Table(name = "partidas", indexes = {
+        @Index(name = "idx_partidas_fecha", columnList = "fecha"),
+        @Index(name = "idx_partidas_jugador1_fecha", columnList = "jugador1, fecha"),
+        @Index(name = "idx_partidas_jugador2_fecha", columnList = "jugador2, fecha") })
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "partidas")
+@DynamicUpdate
 public class Partida {
 
     @Id
     @Column(name = "id", nullable = false, length = 100)
     private String id;
 
+    // Control de concurrencia optimista: null mientras la partida no se ha guardado
+    @Version
+    @Column(name = "version")
+    private Integer version;
+
     @Column(name = "fecha")
     private LocalDate fecha;
 
@@ -44,13 +64,15 @@ public class Partida {
     @JoinTable(name = "partida_mesa",
         joinColumns = { @JoinColumn(name = "partida_id") },
         inverseJoinColumns = { @JoinColumn(name = "carta_id") })
-    private List<Carta> mesaInicial;
+    private List<Carta> mesaInicial = new ArrayList<>();
 
     @OneToMany(mappedBy = "partida", cascade = CascadeType.ALL, orphanRemoval = true)
-    private List<Mano> manosJugadores;
+    @OrderBy("numeroRonda ASC")
+    private List<Mano> manosJugadores = new ArrayList<>();
 
     @OneToMany(mappedBy = "partida", cascade = CascadeType.ALL, orphanRemoval = true)
-    private List<Ronda> rondas;
+    @OrderBy("numero ASC")
+    private List<Ronda> rondas = new ArrayList<>();
 
     @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
     @JoinColumn(name = "resumen_id")
@@ -121,6 +143,91 @@ public class Partida {
         return (rondas == null) ? new ArrayList<>() : new ArrayList<>(rondas);
     }
 
+    /**
+     * Indica si las rondas de la partida están cargadas. Una partida leída solo
+     * con su resumen (PerfilCarga.RESUMEN o las consultas de partidas) no las
+     * tiene y, fuera de la sesión que la cargó, no se pueden leer.
+     * @return true si se pueden recorrer las rondas
+     */
+    public boolean isRondasCargadas() {
+        return Hibernate.isInitialized(rondas);
+    }
+
+    /**
+     * Devuelve una copia de las manos (entidades Mano) de ambos jugadores.
+     * @return manos de los jugadores
+     */
+    public List<Mano> getManosJugadores() {
+        return (manosJugadores == null) ? new ArrayList<>() : new ArrayList<>(manosJugadores);
+    }
+
+    /**
+     * Crea una copia de la partida que se puede modificar sin afectar a esta:
+     * la versión, los jugadores, las listas de mesa, manos y rondas y el resumen
+     * son propios de la copia. Las cartas, manos y rondas, que no cambian una vez
+     * creadas, se comparten. Las colecciones que no se cargaron de la base de
+     * datos siguen sin cargar en la copia.
+     * @return copia de la partida
+     */
+    public Partida copiar() {
+        Partida copia = new Partida();
+        copia.id = this.id;
+        copia.version = this.version;
+        copia.fecha = this.fecha;
+        copia.jugador1 = this.jugador1;
+        copia.jugador2 = this.jugador2;
+        copia.mesaInicial = copiarLista(this.mesaInicial);
+        copia.manosJugadores = copiarLista(this.manosJugadores);
+        copia.rondas = copiarLista(this.rondas);
+        if (this.resumen != null) {
+            copia.resumen = this.resumen.copiarPara(this.resumen.getId(), this.resumen.getFecha());
+            copia.resumen.setVersion(this.resumen.getVersion());
+        }
+        return copia;
+    }
+
+    /**
+     * Crea una copia de la partida como si nunca se hubiera guardado: sin versión
+     * y con cartas, manos, rondas, turnos, jugadas y resumen nuevos, sin los
+     * identificadores que les haya asignado la base de datos. Sirve para volver
+     * a guardar una partida cuya transacción se ha deshecho después de
+     * persistirla. La partida tiene que tener cargadas todas sus colecciones.
+     * @return copia de la partida sin guardar
+     */
+    public Partida copiarComoNueva() {
+        Partida copia = new Partida();
+        copia.id = this.id;
+        copia.fecha = this.fecha;
+        copia.jugador1 = this.jugador1;
+        copia.jugador2 = this.jugador2;
+        // Una misma carta puede aparecer en varias listas: se copia una sola vez
+        Map<Carta, Carta> cartas = new IdentityHashMap<>();
+        copia.mesaInicial = copiarCartas(this.mesaInicial, cartas);
+        if (this.manosJugadores != null) {
+            for (Mano mano : this.manosJugadores) {
+                Mano nueva = new Mano(mano.getNumeroRonda(), mano.getNombreJugador(),
+                        copiarCartas(mano.getCartas(), cartas));
+                nueva.setPartida(copia);
+                copia.manosJugadores.add(nueva);
+            }
+        }
+        List<Ronda> rondasCopiadas = new ArrayList<>();
+        for (Ronda ronda : getRondas()) {
+            List<Turno> turnos = new ArrayList<>();
+            for (Turno turno : ronda.getTurnos()) {
+                Jugada jugada = turno.getJugada();
+                turnos.add(new Turno(turno.getNumero(), new Jugada(copiarCarta(jugada.getJuega(), cartas),
+                        copiarCartas(jugada.getCaptura(), cartas), copiarCartas(jugada.getMesaResultante(), cartas))));
+            }
+            rondasCopiadas.add(new Ronda(ronda.getNumero(), turnos));
+        }
+        copia.anadirRondas(rondasCopiadas);
+        if (this.resumen != null) {
+            copia.resumen = this.resumen.copiarPara(this.resumen.getId(), this.resumen.getFecha());
+        }
+        return copia;
+    }
+
     /**
      * Añade los nombres de los jugadores a la partida.
      * @param nombres lista con los nombres de los jugadores
@@ -167,6 +274,9 @@ public class Partida {
     public void anadirRondas(List<Ronda> rondas) {
         if (rondas == null) throw new IllegalArgumentException("Las rondas no pueden ser nulas");
         this.rondas = new ArrayList<>(rondas);
+        for (Ronda ronda : this.rondas) {
+            ronda.setPartida(this);
+        }
     }
 
     /**
@@ -272,6 +382,24 @@ public class Partida {
 
     public String getGanador() { requireResumen(); return this.resumen.getGanador(); }
 
+    /**
+     * Devuelve la versión de la partida con la que se leyó o guardó por última
+     * vez.
+     * @return versión de la partida, o null si nunca se ha guardado
+     */
+    public Integer getVersion() {
+        return version;
+    }
+
+    /**
+     * Establece la versión de la partida. Solo debe usarlo el repositorio para
+     * reflejar la versión guardada en la base de datos.
+     * @param version versión guardada de la partida
+     */
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
     /**
      * Permite obtener el ResumenPartida asociado (si existe).
      * @return ResumenPartida o null si no se han establecido resultados.
@@ -337,4 +465,23 @@ public class Partida {
         return resultado;
     }
 
+    private static <T> List<T> copiarLista(List<T> lista) {
+        if (lista == null) return new ArrayList<>();
+        return Hibernate.isInitialized(lista) ? new ArrayList<>(lista) : lista;
+    }
+
+    private static List<Carta> copiarCartas(List<Carta> lista, Map<Carta, Carta> copias) {
+        List<Carta> resultado = new ArrayList<>();
+        if (lista != null) {
+            for (Carta carta : lista) {
+                resultado.add(copiarCarta(carta, copias));
+            }
+        }
+        return resultado;
+    }
+
+    private static Carta copiarCarta(Carta carta, Map<Carta, Carta> copias) {
+        return copias.computeIfAbsent(carta, original -> new Carta(original.getPalo(), original.getIndice()));
+    }
+
 }
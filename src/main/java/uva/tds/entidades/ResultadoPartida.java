@@ -0,0 +1,110 @@
+package uva.tds.entidades;
+
+import java.time.LocalDate;
+
+/**
+ * Resultado de una partida: solo los datos de la partida y del resumen
+ * necesarios para las estadísticas de los jugadores, sin mesa, manos ni rondas.
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+public class ResultadoPartida {
+
+    private final String id;
+    private final LocalDate fecha;
+    private final String jugador1;
+    private final String jugador2;
+    private final boolean completa;
+    private final int puntosJugador1;
+    private final int puntosJugador2;
+    private final boolean guindisJugador1;
+    private final boolean guindisJugador2;
+
+    /**
+     * Constructor de ResultadoPartida.
+     *
+     * @param id              Identificador de la partida.
+     * @param fecha           Fecha en la que se jugó la partida.
+     * @param jugador1        Nombre del primer jugador.
+     * @param jugador2        Nombre del segundo jugador.
+     * @param completa        Si la partida tiene un resumen completo.
+     * @param puntosJugador1  Puntos del primer jugador.
+     * @param puntosJugador2  Puntos del segundo jugador.
+     * @param guindisJugador1 Si el primer jugador consiguió las guindis.
+     * @param guindisJugador2 Si el segundo jugador consiguió las guindis.
+     */
+    public ResultadoPartida(String id, LocalDate fecha, String jugador1, String jugador2, boolean completa,
+            int puntosJugador1, int puntosJugador2, boolean guindisJugador1, boolean guindisJugador2) {
+        this.id = id;
+        this.fecha = fecha;
+        this.jugador1 = jugador1;
+        this.jugador2 = jugador2;
+        this.completa = completa;
+        this.puntosJugador1 = puntosJugador1;
+        this.puntosJugador2 = puntosJugador2;
+        this.guindisJugador1 = guindisJugador1;
+        this.guindisJugador2 = guindisJugador2;
+    }
+
+    /**
+     * Obtiene el resultado de una partida completa ya cargada en memoria.
+     *
+     * @param partida Partida de la que se obtiene el resultado.
+     * @return Resultado de la partida (incompleta si no tiene resumen completo).
+     * @throws IllegalArgumentException si la partida es nula.
+     */
+    public static ResultadoPartida de(Partida partida) {
+        if (partida == null) throw new IllegalArgumentException("La partida no puede ser nula");
+        ResumenPartida resumen = partida.getResumenPartida();
+        if (resumen == null) {
+            return new ResultadoPartida(partida.getId(), partida.getFecha(), partida.getJugador1(),
+                    partida.getJugador2(), false, 0, 0, false, false);
+        }
+        return new ResultadoPartida(partida.getId(), partida.getFecha(), partida.getJugador1(),
+                partida.getJugador2(), resumen.isCompleta(), resumen.getPuntosJugador1(),
+                resumen.getPuntosJugador2(), resumen.isGuindisJugador1(), resumen.isGuindisJugador2());
+    }
+
+    public String getId() { return id; }
+    public LocalDate getFecha() { return fecha; }
+    public String getJugador1() { return jugador1; }
+    public String getJugador2() { return jugador2; }
+    public boolean isCompleta() { return completa; }
+    public int getPuntosJugador1() { return puntosJugador1; }
+    public int getPuntosJugador2() { return puntosJugador2; }
+    public boolean isGuindisJugador1() { return guindisJugador1; }
+    public boolean isGuindisJugador2() { return guindisJugador2; }
+
+    /**
+     * Obtiene el ganador de la partida.
+     *
+     * @return nombre del ganador, o null si hay empate
+     * @throws IllegalStateException si la partida no está completa
+     */
+    public String getGanador() {
+        if (!completa) {
+            throw new IllegalStateException("No se puede obtener el ganador de una partida incompleta");
+        }
+        if (puntosJugador1 == puntosJugador2) {
+            return null;
+        }
+        return (puntosJugador1 > puntosJugador2) ? jugador1 : jugador2;
+    }
+
+    /**
+     * Indica si el jugador dado consiguió las guindis en la partida.
+     *
+     * @param nombreJugador nombre del jugador
+     * @return true si el jugador participa y consiguió las guindis
+     */
+    public boolean isGuindis(String nombreJugador) {
+        if (nombreJugador == null) {
+            return false;
+        }
+        if (nombreJugador.equals(jugador1)) {
+            return guindisJugador1;
+        }
+        return nombreJugador.equals(jugador2) && guindisJugador2;
+    }
+}
@@ -5,7 +5,13 @@ import java.time.LocalDate;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Table;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 
 /**
  * Representa una partida de escoba entre dos jugadores.
@@ -16,18 +22,30 @@ import javax.persistence.Table;
  * @author Elisa Martínez Lafuente
  */
 @Entity
-@Table(name = "resumen_partida")
+@Table(name = "resumen_partida", indexes = {
+        @Index(name = "idx_resumen_completa_ganador", columnList = "completa, ganador") })
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "resumenes")
+@DynamicUpdate
 public class ResumenPartida {
 
     @Id
     @Column(name = "id", nullable = false, length = 100)
     private String id;
 
+    // Control de concurrencia optimista: null mientras el resumen no se ha guardado
+    @Version
+    @Column(name = "version")
+    private Integer version;
+
     private LocalDate fecha;
     private String jugador1;
     private String jugador2;
     private boolean completa;
 
+    // Se guarda para poder agrupar por ganador en la base de datos (null si hay empate)
+    @Column(name = "ganador")
+    private String ganador;
+
     private int puntosJugador1;
     private int puntosJugador2;
 
@@ -80,6 +98,18 @@ public class ResumenPartida {
      */
     public LocalDate getFecha() { return this.fecha; }
 
+    /**
+     * Obtiene la versión del resumen con la que se leyó o guardó por última vez
+     * (null si nunca se ha guardado).
+     */
+    public Integer getVersion() { return this.version; }
+
+    /**
+     * Establece la versión del resumen. Solo debe usarlo el repositorio para
+     * reflejar la versión guardada en la base de datos.
+     */
+    public void setVersion(Integer version) { this.version = version; }
+
     /**
      * Obtiene el nombre del primer jugador.
      */
@@ -185,6 +215,11 @@ public class ResumenPartida {
         if (j1 == null || j2 == null) throw new IllegalArgumentException("Jugadores no pueden ser nulos");
         this.puntosJugador1 = puntos1;
         this.puntosJugador2 = puntos2;
+        if (puntos1 != puntos2) {
+            this.ganador = (puntos1 > puntos2) ? jugador1 : jugador2;
+        } else {
+            this.ganador = null;
+        }
 
         this.escobasJugador1 = j1.getEscobas();
         this.escobasJugador2 = j2.getEscobas();
@@ -204,6 +239,34 @@ public class ResumenPartida {
         marcarComoCompleta();
     }
 
+    /**
+     * Crea el resumen de otra partida con los mismos jugadores y resultados que
+     * este (por ejemplo, de una partida idéntica subida dos veces).
+     *
+     * @param id    Identificador de la otra partida.
+     * @param fecha Fecha de la otra partida.
+     * @return Nuevo resumen, sin versión, con los resultados de este.
+     * @throws IllegalArgumentException si el id es nulo o vacío o la fecha es nula.
+     */
+    public ResumenPartida copiarPara(String id, LocalDate fecha) {
+        ResumenPartida copia = new ResumenPartida(id, fecha, jugador1, jugador2);
+        copia.completa = completa;
+        copia.ganador = ganador;
+        copia.puntosJugador1 = puntosJugador1;
+        copia.puntosJugador2 = puntosJugador2;
+        copia.escobasJugador1 = escobasJugador1;
+        copia.escobasJugador2 = escobasJugador2;
+        copia.orosJugador1 = orosJugador1;
+        copia.orosJugador2 = orosJugador2;
+        copia.sietesJugador1 = sietesJugador1;
+        copia.sietesJugador2 = sietesJugador2;
+        copia.guindisJugador1 = guindisJugador1;
+        copia.guindisJugador2 = guindisJugador2;
+        copia.cartasCapturadasJugador1 = cartasCapturadasJugador1;
+        copia.cartasCapturadasJugador2 = cartasCapturadasJugador2;
+        return copia;
+    }
+
     /**
      * Marca la partida como completa.
      */
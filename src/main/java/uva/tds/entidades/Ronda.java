@@ -7,11 +7,13 @@ import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
+import javax.persistence.OrderBy;
 import javax.persistence.Table;
 import javax.persistence.CascadeType;
 import javax.persistence.Entity;
@@ -28,7 +30,8 @@ import javax.persistence.Entity;
 public class Ronda {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ronda_seq")
+    @SequenceGenerator(name = "ronda_seq", sequenceName = "rondas_seq", allocationSize = 50)
     private Long id;
 
     private int numero;
@@ -38,6 +41,7 @@ public class Ronda {
     private Partida partida;
 
     @OneToMany(mappedBy = "ronda", cascade = CascadeType.ALL, orphanRemoval = true) // si creas, eliminas o actualizas una Ronda, se hace lo mismo con los Turnos asociados
+    @OrderBy("numero ASC")
     private List<Turno> turnos = new ArrayList<>();
 
     // mesa inicial de la ronda: ManyToMany hacia Carta (tabla ronda_mesa)
@@ -64,6 +68,9 @@ public class Ronda {
         } else {
             this.turnos = new ArrayList<>(turnos);
         }
+        for (Turno turno : this.turnos) {
+            turno.setRonda(this);
+        }
     }
 
     /**
@@ -84,4 +91,13 @@ public class Ronda {
         return new ArrayList<>(turnos);
     }
 
+    /**
+     * Asocia la ronda a la partida a la que pertenece (lado propietario de la relación).
+     * 
+     * @param partida La partida a la que pertenece la ronda.
+     */
+    public void setPartida(Partida partida) {
+        this.partida = partida;
+    }
+
 }
\ No newline at end of file
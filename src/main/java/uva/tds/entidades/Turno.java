@@ -6,6 +6,7 @@ import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToOne;
@@ -23,7 +24,8 @@ import javax.persistence.Table;
 public class Turno {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "turno_seq")
+    @SequenceGenerator(name = "turno_seq", sequenceName = "turnos_seq", allocationSize = 50)
     private Long id;
 
     private int numero;
@@ -68,4 +70,13 @@ public class Turno {
     public Jugada getJugada() {
         return jugada;
     }
+
+    /**
+     * Asocia el turno a la ronda a la que pertenece (lado propietario de la relación).
+     * 
+     * @param ronda La ronda a la que pertenece el turno.
+     */
+    public void setRonda(Ronda ronda) {
+        this.ronda = ronda;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package uva.tds.interfaces;
+
+/**
+ * Excepción que indica que una partida no se ha podido actualizar porque otro
+ * proceso la ha modificado desde que se leyó (su versión ya no coincide con la
+ * guardada). La operación puede repetirse leyendo de nuevo la partida, por
+ * ejemplo con uva.tds.servicios.ReintentoOptimista.
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+public class PartidaModificadaException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String identificador;
+
+    /**
+     * Constructor de la excepción.
+     *
+     * @param identificador identificador de la partida que no se ha podido
+     *                      actualizar
+     * @param causa         excepción original, o null
+     */
+    public PartidaModificadaException(String identificador, Throwable causa) {
+        super("La partida " + identificador + " ha sido modificada por otro proceso", causa);
+        this.identificador = identificador;
+    }
+
+    /**
+     * Devuelve el identificador de la partida que no se ha podido actualizar.
+     *
+     * @return identificador de la partida
+     */
+    public String getIdentificador() {
+        return identificador;
+    }
+}
@@ -0,0 +1,24 @@
+package uva.tds.interfaces;
+
+/**
+ * Perfiles de carga de una partida desde el repositorio. Permiten a quien llama
+ * indicar qué parte de la partida necesita, de forma que no se lea de la base de
+ * datos más de lo imprescindible.
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+public enum PerfilCarga {
+
+    /**
+     * Solo los datos de la partida (id, fecha y jugadores) y su resumen. La mesa
+     * inicial, las manos y las rondas no están disponibles.
+     */
+    RESUMEN,
+
+    /**
+     * La partida completa (mesa inicial, manos, rondas, turnos y jugadas), lista
+     * para ser reproducida.
+     */
+    REPRODUCCION
+}
@@ -1,6 +1,11 @@
 package uva.tds.interfaces;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
+import uva.tds.entidades.EstadisticasJugador;
 import uva.tds.entidades.Partida;
 
 /**
@@ -22,17 +27,34 @@ public interface RepositorioPartida {
     public void guardar(Partida partida);
 
     /**
-     * Actualiza una partida en el repositorio.
+     * Guarda varias partidas en una única transacción: o se guardan todas o no se
+     * guarda ninguna.
+     * 
+     * @param partidas Las partidas a guardar
+     * @throws IllegalArgumentException si partidas es null o contiene algún null
+     * @throws IllegalStateException    si alguna partida tiene el mismo
+     *                                  identificador que otra del lote o que una
+     *                                  ya guardada, o si falla la escritura
+     */
+    public void guardarLote(List<Partida> partidas);
+
+    /**
+     * Actualiza una partida en el repositorio. Si la partida se leyó del
+     * repositorio y otro proceso la ha modificado después, la actualización
+     * falla en lugar de sobrescribir esos cambios.
      * 
      * @param partida La partida a actualizar
-     * @throws IllegalArgumentException si partida es null
-     * @throws IllegalStateException    si no existe una partida con el mismo
-     *                                  identificador
+     * @throws IllegalArgumentException   si partida es null
+     * @throws IllegalStateException      si no existe una partida con el mismo
+     *                                    identificador
+     * @throws PartidaModificadaException si la partida ha sido modificada por
+     *                                    otro proceso desde que se leyó
      */
     public void actualizar(Partida partida);
 
     /**
-     * Carga una partida desde el repositorio.
+     * Carga una partida completa desde el repositorio (perfil
+     * {@link PerfilCarga#REPRODUCCION}).
      * 
      * @param identificador Identificador único de la partida
      * @return La partida con el identificador dado
@@ -42,6 +64,19 @@ public interface RepositorioPartida {
      */
     public Partida cargar(String identificador);
 
+    /**
+     * Carga una partida desde el repositorio con el perfil de carga indicado.
+     * 
+     * @param identificador Identificador único de la partida
+     * @param perfil        Parte de la partida que se necesita
+     * @return La partida con el identificador dado
+     * @throws IllegalArgumentException si identificador es null o vacío, o si
+     *                                  perfil es null
+     * @throws IllegalStateException    si no existe una partida con el
+     *                                  identificador dado
+     */
+    public Partida cargar(String identificador, PerfilCarga perfil);
+
     /**
      * Elimina una partida del repositorio.
      * 
@@ -62,15 +97,149 @@ public interface RepositorioPartida {
     public List<Partida> obtenerPartidasPorJugador(String nombreJugador);
 
     /**
-     * Obtiene una lista de partidas entre la fecha inicial y la fecha final. Si no existen partidas en ese rango, se devuelve una lista vacía.
+     * Obtiene una lista de partidas entre la fecha inicial y la fecha final (ambas incluidas). Si no existen partidas en ese rango, se devuelve una lista vacía.
      * 
-     * @param fechaInicial Fecha inicial del rango. Formato: "yyyy-MM-dd"
-     * @param fechaFinal   Fecha final del rango. Formato: "yyyy-MM-dd"
+     * @param fechaInicial Fecha inicial del rango
+     * @param fechaFinal   Fecha final del rango
      * @return Lista de partidas en el rango de fechas
-     * @throws IllegalArgumentException si fechaInicial o fechaFinal son null,
-     *                                  vacías o no
-     *                                  siguen el formato correcto
+     * @throws IllegalArgumentException si fechaInicial o fechaFinal son null, o
+     *                                  si fechaInicial es posterior a fechaFinal
+     */
+    public List<Partida> obtenerPartidasPorFecha(LocalDate fechaInicial, LocalDate fechaFinal);
+
+    /**
+     * Recorre las partidas de un jugador sin cargarlas todas en memoria, ordenadas
+     * por fecha e identificador. Las partidas se devuelven con el perfil
+     * {@link PerfilCarga#RESUMEN}. El Stream mantiene recursos abiertos, por lo
+     * que debe cerrarse (por ejemplo, con try-with-resources).
+     * 
+     * @param nombreJugador Nombre del jugador
+     * @return Stream con las partidas del jugador
+     * @throws IllegalArgumentException si nombreJugador es null o vacío
+     */
+    public Stream<Partida> recorrerPartidasPorJugador(String nombreJugador);
+
+    /**
+     * Recorre las partidas entre la fecha inicial y la fecha final (ambas
+     * incluidas) sin cargarlas todas en memoria, ordenadas por fecha e
+     * identificador. Las partidas se devuelven con el perfil
+     * {@link PerfilCarga#RESUMEN}. El Stream mantiene recursos abiertos, por lo
+     * que debe cerrarse (por ejemplo, con try-with-resources).
+     * 
+     * @param fechaInicial Fecha inicial del rango
+     * @param fechaFinal   Fecha final del rango
+     * @return Stream con las partidas en el rango de fechas
+     * @throws IllegalArgumentException si fechaInicial o fechaFinal son null, o
+     *                                  si fechaInicial es posterior a fechaFinal
+     */
+    public Stream<Partida> recorrerPartidasPorFecha(LocalDate fechaInicial, LocalDate fechaFinal);
+
+    /**
+     * Obtiene una página de partidas de un jugador ordenadas por fecha e
+     * identificador (paginación por clave). La página siguiente se pide pasando
+     * la última partida de la página actual.
+     * 
+     * @param nombreJugador Nombre del jugador
+     * @param ultima        Última partida de la página anterior, o null para la
+     *                      primera página
+     * @param limite        Número máximo de partidas de la página
+     * @return Lista con las partidas de la página (vacía si no hay más)
+     * @throws IllegalArgumentException si nombreJugador es null o vacío, o si
+     *                                  limite es menor que 1
+     */
+    public List<Partida> obtenerPaginaPorJugador(String nombreJugador, Partida ultima, int limite);
+
+    /**
+     * Obtiene una página de partidas entre la fecha inicial y la fecha final
+     * (ambas incluidas) ordenadas por fecha e identificador (paginación por
+     * clave). La página siguiente se pide pasando la última partida de la página
+     * actual.
+     * 
+     * @param fechaInicial Fecha inicial del rango
+     * @param fechaFinal   Fecha final del rango
+     * @param ultima       Última partida de la página anterior, o null para la
+     *                     primera página
+     * @param limite       Número máximo de partidas de la página
+     * @return Lista con las partidas de la página (vacía si no hay más)
+     * @throws IllegalArgumentException si fechaInicial o fechaFinal son null, si
+     *                                  fechaInicial es posterior a fechaFinal o si
+     *                                  limite es menor que 1
+     */
+    public List<Partida> obtenerPaginaPorFecha(LocalDate fechaInicial, LocalDate fechaFinal, Partida ultima,
+            int limite);
+
+    /**
+     * Cuenta las partidas jugadas entre la fecha inicial y la fecha final, sin
+     * cargarlas.
+     * 
+     * @param fechaInicial Fecha inicial del rango
+     * @param fechaFinal   Fecha final del rango
+     * @return Número de partidas en el rango de fechas
+     * @throws IllegalArgumentException si fechaInicial o fechaFinal son null, o
+     *                                  si fechaInicial es posterior a fechaFinal
+     */
+    public long contarPartidasEntreFechas(LocalDate fechaInicial, LocalDate fechaFinal);
+
+    /**
+     * Cuenta los jugadores distintos que han jugado alguna partida entre la fecha
+     * inicial y la fecha final, sin cargar las partidas.
+     * 
+     * @param fechaInicial Fecha inicial del rango
+     * @param fechaFinal   Fecha final del rango
+     * @return Número de jugadores distintos en el rango de fechas
+     * @throws IllegalArgumentException si fechaInicial o fechaFinal son null, o
+     *                                  si fechaInicial es posterior a fechaFinal
+     */
+    public long contarJugadoresEntreFechas(LocalDate fechaInicial, LocalDate fechaFinal);
+
+    /**
+     * Obtiene los nombres de los jugadores con más victorias, ordenados de más a
+     * menos victorias y alfabéticamente en caso de empate (los jugadores sin
+     * victorias aparecen al final en orden alfabético).
+     * 
+     * @param limite Número máximo de jugadores a devolver
+     * @return Lista con los nombres de los mejores jugadores
+     * @throws IllegalArgumentException si limite es menor que 1
+     */
+    public List<String> obtenerMejoresJugadores(int limite);
+
+    /**
+     * Obtiene el número de victorias de cada jugador que aparece en
+     * {@link #obtenerMejoresJugadores(int)}, con una sola consulta. Permite
+     * combinar las clasificaciones de varios repositorios sin pedir las
+     * estadísticas jugador a jugador.
+     * 
+     * @return Mapa con las victorias de cada jugador (0 si no ha ganado ninguna)
+     */
+    public Map<String, Integer> obtenerVictoriasPorJugador();
+
+    /**
+     * Obtiene las estadísticas acumuladas de un jugador. Si el jugador no tiene
+     * partidas, se devuelven unas estadísticas a cero.
+     * 
+     * @param nombreJugador Nombre del jugador
+     * @return Estadísticas del jugador
+     * @throws IllegalArgumentException si nombreJugador es null o vacío
+     */
+    public EstadisticasJugador obtenerEstadisticasJugador(String nombreJugador);
+
+    /**
+     * Ejecuta varias operaciones del repositorio como una única unidad de
+     * trabajo: las implementaciones con transacciones las ejecutan con una sola
+     * sesión y una sola transacción, reutilizando las partidas ya cargadas, y no
+     * confirman ninguna si falla alguna de ellas. La implementación por defecto
+     * se limita a ejecutar el trabajo sobre este repositorio.
+     * 
+     * @param <T>     Tipo del resultado
+     * @param trabajo Operaciones a ejecutar sobre el repositorio
+     * @return Resultado del trabajo
+     * @throws IllegalArgumentException si trabajo es null
      */
-    public List<Partida> obtenerPartidasPorFecha(String fechaInicial, String fechaFinal);
+    public default <T> T enTransaccion(Function<RepositorioPartida, T> trabajo) {
+        if (trabajo == null) {
+            throw new IllegalArgumentException("El trabajo no puede ser null");
+        }
+        return trabajo.apply(this);
+    }
 
 }
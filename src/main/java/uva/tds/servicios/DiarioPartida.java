@@ -0,0 +1,777 @@
+package uva.tds.servicios;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import uva.tds.entidades.Carta;
+import uva.tds.entidades.EventoPartida;
+import uva.tds.entidades.Jugador;
+import uva.tds.entidades.Palo;
+
+/**
+ * Diario de una partida en curso. Cada operación que cambia el estado de la
+ * partida (reparto inicial, reparto de ronda, carta jugada y avance de ronda)
+ * se aplica sobre el GestorPartida y se añade al final de un fichero como un
+ * registro compacto, de modo que si el proceso se cae la partida puede
+ * recuperarse en el punto en que estaba.
+ *
+ * Los registros se escriben en cuanto se aplican, pero el fichero solo se
+ * sincroniza con el disco (fsync) cada cierto número de eventos, o al registrar
+ * el primer evento después de que haya pasado el intervalo de sincronización
+ * desde la última, para no pagar una escritura física por jugada. No hay
+ * ningún temporizador: si la partida se detiene, los eventos escritos siguen
+ * sin sincronizar hasta el siguiente evento, {@link #sincronizar()} o
+ * {@link #close()}. Si se cae el proceso no se pierde nada; si se cae la
+ * máquina pueden perderse los últimos eventos sin sincronizar.
+ *
+ * Como un evento solo se puede validar aplicándolo, se aplica sobre el gestor
+ * antes de escribirlo. Si después falla la escritura, la sincronización o la
+ * instantánea, el gestor va por delante del fichero: el diario queda roto y
+ * rechaza cualquier otro evento, y la partida hay que recuperarla del fichero
+ * con {@link #recuperar(Path, String)}.
+ *
+ * Cada cierto número de eventos se guarda además una instantánea con el estado
+ * completo de la partida y la posición del diario en ese momento. Para
+ * recuperar la partida se carga la última instantánea y solo se aplican los
+ * eventos posteriores. El diario nunca se recorta, así que también contiene la
+ * partida completa para reproducirla.
+ *
+ * Formato del diario: una cabecera con los nombres de los jugadores y después,
+ * por cada evento, su longitud, su contenido y su CRC32. Un registro incompleto
+ * o con un CRC incorrecto al final del fichero (una escritura interrumpida) se
+ * descarta al recuperar.
+ *
+ * Las operaciones no son seguras para varios hilos a la vez.
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+public class DiarioPartida implements AutoCloseable {
+
+    /**
+     * Eventos entre dos sincronizaciones por defecto.
+     */
+    public static final int EVENTOS_POR_SINCRONIZACION_POR_DEFECTO = 16;
+
+    /**
+     * Milisegundos máximos entre dos sincronizaciones por defecto.
+     */
+    public static final long INTERVALO_SINCRONIZACION_POR_DEFECTO_MS = 50;
+
+    /**
+     * Eventos entre dos instantáneas por defecto.
+     */
+    public static final int EVENTOS_POR_INSTANTANEA_POR_DEFECTO = 64;
+
+    private static final String EXTENSION_DIARIO = ".diario";
+    private static final String EXTENSION_INSTANTANEA = ".instantanea";
+    private static final int MAGIA_DIARIO = 0x45534344; // "ESCD"
+    private static final int MAGIA_INSTANTANEA = 0x45534349; // "ESCI"
+    private static final int LONGITUD_MAXIMA_REGISTRO = 1024;
+
+    private final Path ficheroDiario;
+    private final Path ficheroInstantanea;
+    private final FileChannel canal;
+    private final GestorPartida gestor;
+    private final int eventosPorSincronizacion;
+    private final long intervaloSincronizacionMs;
+    private final int eventosPorInstantanea;
+
+    private long numeroEventos;
+    private long eventosSinSincronizar = 0;
+    private long ultimaSincronizacion = System.currentTimeMillis();
+    private long eventosDesdeInstantanea = 0;
+    private long sincronizaciones = 0;
+    private long instantaneas = 0;
+    private boolean cerrado = false;
+    private IllegalStateException fallo;
+
+    private DiarioPartida(Path directorio, String idPartida, FileChannel canal, GestorPartida gestor,
+            long numeroEventos, int eventosPorSincronizacion, long intervaloSincronizacionMs,
+            int eventosPorInstantanea) {
+        this.ficheroDiario = directorio.resolve(idPartida + EXTENSION_DIARIO);
+        this.ficheroInstantanea = directorio.resolve(idPartida + EXTENSION_INSTANTANEA);
+        this.canal = canal;
+        this.gestor = gestor;
+        this.numeroEventos = numeroEventos;
+        this.eventosPorSincronizacion = eventosPorSincronizacion;
+        this.intervaloSincronizacionMs = intervaloSincronizacionMs;
+        this.eventosPorInstantanea = eventosPorInstantanea;
+    }
+
+    /**
+     * Crea el diario de una partida nueva con la configuración por defecto.
+     *
+     * @param directorio directorio donde se guardan los diarios
+     * @param idPartida  identificador de la partida
+     * @param jugador1   nombre del primer jugador
+     * @param jugador2   nombre del segundo jugador
+     * @return diario abierto, con un gestor de partida nuevo
+     * @throws IllegalArgumentException si algún parámetro es null o vacío
+     * @throws IllegalStateException    si ya existe un diario para la partida o
+     *                                  no se puede crear
+     */
+    public static DiarioPartida crear(Path directorio, String idPartida, String jugador1, String jugador2) {
+        return crear(directorio, idPartida, jugador1, jugador2, EVENTOS_POR_SINCRONIZACION_POR_DEFECTO,
+                INTERVALO_SINCRONIZACION_POR_DEFECTO_MS, EVENTOS_POR_INSTANTANEA_POR_DEFECTO);
+    }
+
+    /**
+     * Crea el diario de una partida nueva.
+     *
+     * @param directorio                directorio donde se guardan los diarios
+     * @param idPartida                 identificador de la partida
+     * @param jugador1                  nombre del primer jugador
+     * @param jugador2                  nombre del segundo jugador
+     * @param eventosPorSincronizacion  eventos máximos sin sincronizar con el
+     *                                  disco
+     * @param intervaloSincronizacionMs milisegundos tras los que el siguiente
+     *                                  evento sincroniza con el disco (0 para
+     *                                  sincronizar siempre)
+     * @param eventosPorInstantanea     eventos entre dos instantáneas
+     * @return diario abierto, con un gestor de partida nuevo
+     * @throws IllegalArgumentException si algún parámetro es null o vacío, si
+     *                                  eventosPorSincronizacion o
+     *                                  eventosPorInstantanea son menores que 1 o
+     *                                  si intervaloSincronizacionMs es negativo
+     * @throws IllegalStateException    si ya existe un diario para la partida o
+     *                                  no se puede crear
+     */
+    public static DiarioPartida crear(Path directorio, String idPartida, String jugador1, String jugador2,
+            int eventosPorSincronizacion, long intervaloSincronizacionMs, int eventosPorInstantanea) {
+        validarUbicacion(directorio, idPartida);
+        validarConfiguracion(eventosPorSincronizacion, intervaloSincronizacionMs, eventosPorInstantanea);
+        if (jugador1 == null || jugador1.isEmpty() || jugador2 == null || jugador2.isEmpty()) {
+            throw new IllegalArgumentException("Los nombres de los jugadores no pueden ser null o vacíos");
+        }
+
+        Path fichero = directorio.resolve(idPartida + EXTENSION_DIARIO);
+        FileChannel canal = null;
+        try {
+            Files.createDirectories(directorio);
+            canal = FileChannel.open(fichero, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream cabecera = new DataOutputStream(bytes);
+            cabecera.writeInt(MAGIA_DIARIO);
+            cabecera.writeUTF(jugador1);
+            cabecera.writeUTF(jugador2);
+            escribirCompleto(canal, ByteBuffer.wrap(bytes.toByteArray()));
+            canal.force(true);
+        } catch (FileAlreadyExistsException e) {
+            throw new IllegalStateException("Ya existe un diario para la partida " + idPartida, e);
+        } catch (IOException e) {
+            cerrarSinErrores(canal);
+            throw new IllegalStateException("No se ha podido crear el diario de la partida " + idPartida, e);
+        }
+        GestorPartida gestor = new GestorPartida(new Jugador(jugador1), new Jugador(jugador2));
+        return new DiarioPartida(directorio, idPartida, canal, gestor, 0, eventosPorSincronizacion,
+                intervaloSincronizacionMs, eventosPorInstantanea);
+    }
+
+    /**
+     * Recupera una partida a partir de su diario con la configuración por
+     * defecto.
+     *
+     * @param directorio directorio donde se guardan los diarios
+     * @param idPartida  identificador de la partida
+     * @return diario abierto para seguir añadiendo eventos, con el gestor en el
+     *         estado del último evento guardado
+     * @throws IllegalArgumentException si algún parámetro es null o vacío
+     * @throws IllegalStateException    si no existe el diario o está dañado
+     */
+    public static DiarioPartida recuperar(Path directorio, String idPartida) {
+        return recuperar(directorio, idPartida, EVENTOS_POR_SINCRONIZACION_POR_DEFECTO,
+                INTERVALO_SINCRONIZACION_POR_DEFECTO_MS, EVENTOS_POR_INSTANTANEA_POR_DEFECTO);
+    }
+
+    /**
+     * Recupera una partida a partir de su última instantánea y los eventos del
+     * diario posteriores a ella. Si el diario termina en un registro incompleto
+     * o dañado, se descarta.
+     *
+     * @param directorio                directorio donde se guardan los diarios
+     * @param idPartida                 identificador de la partida
+     * @param eventosPorSincronizacion  eventos máximos sin sincronizar con el
+     *                                  disco
+     * @param intervaloSincronizacionMs milisegundos tras los que el siguiente
+     *                                  evento sincroniza con el disco
+     * @param eventosPorInstantanea     eventos entre dos instantáneas
+     * @return diario abierto para seguir añadiendo eventos, con el gestor en el
+     *         estado del último evento guardado
+     * @throws IllegalArgumentException si algún parámetro no es válido
+     * @throws IllegalStateException    si no existe el diario o está dañado
+     */
+    public static DiarioPartida recuperar(Path directorio, String idPartida, int eventosPorSincronizacion,
+            long intervaloSincronizacionMs, int eventosPorInstantanea) {
+        validarUbicacion(directorio, idPartida);
+        validarConfiguracion(eventosPorSincronizacion, intervaloSincronizacionMs, eventosPorInstantanea);
+        Path fichero = directorio.resolve(idPartida + EXTENSION_DIARIO);
+        if (!Files.exists(fichero)) {
+            throw new IllegalStateException("No existe un diario para la partida " + idPartida);
+        }
+
+        FileChannel canal = null;
+        try {
+            canal = FileChannel.open(fichero, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            Instantanea instantanea = leerInstantanea(directorio.resolve(idPartida + EXTENSION_INSTANTANEA));
+            GestorPartida gestor;
+            long numeroEventos;
+            long posicion;
+            if (instantanea != null && instantanea.posicion <= canal.size()) {
+                gestor = instantanea.gestor;
+                numeroEventos = instantanea.numeroEventos;
+                posicion = instantanea.posicion;
+            } else {
+                canal.position(0);
+                DataInputStream cabecera = new DataInputStream(Channels.newInputStream(canal));
+                if (cabecera.readInt() != MAGIA_DIARIO) {
+                    throw new IOException("El fichero no es un diario de partida");
+                }
+                gestor = new GestorPartida(new Jugador(cabecera.readUTF()), new Jugador(cabecera.readUTF()));
+                numeroEventos = 0;
+                posicion = canal.position();
+            }
+
+            LectorRegistros lector = new LectorRegistros(canal, posicion);
+            EventoPartida evento;
+            while ((evento = lector.siguiente()) != null) {
+                evento.aplicar(gestor);
+                numeroEventos++;
+            }
+            // Se descarta el registro interrumpido, si lo hay, antes de seguir escribiendo
+            canal.truncate(lector.posicionValida);
+            canal.position(lector.posicionValida);
+            return new DiarioPartida(directorio, idPartida, canal, gestor, numeroEventos,
+                    eventosPorSincronizacion, intervaloSincronizacionMs, eventosPorInstantanea);
+        } catch (IOException | RuntimeException e) {
+            cerrarSinErrores(canal);
+            throw new IllegalStateException("No se ha podido recuperar la partida " + idPartida, e);
+        }
+    }
+
+    /**
+     * Lee todos los eventos guardados en el diario de una partida, en orden.
+     * Si el diario termina en un registro incompleto o dañado, se ignora.
+     *
+     * @param directorio directorio donde se guardan los diarios
+     * @param idPartida  identificador de la partida
+     * @return eventos de la partida
+     * @throws IllegalArgumentException si algún parámetro es null o vacío
+     * @throws IllegalStateException    si no existe el diario o no se puede leer
+     */
+    public static List<EventoPartida> leerEventos(Path directorio, String idPartida) {
+        validarUbicacion(directorio, idPartida);
+        Path fichero = directorio.resolve(idPartida + EXTENSION_DIARIO);
+        try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.READ)) {
+            DataInputStream cabecera = new DataInputStream(Channels.newInputStream(canal));
+            if (cabecera.readInt() != MAGIA_DIARIO) {
+                throw new IOException("El fichero no es un diario de partida");
+            }
+            cabecera.readUTF();
+            cabecera.readUTF();
+            LectorRegistros lector = new LectorRegistros(canal, canal.position());
+            List<EventoPartida> eventos = new ArrayList<>();
+            EventoPartida evento;
+            while ((evento = lector.siguiente()) != null) {
+                eventos.add(evento);
+            }
+            return eventos;
+        } catch (IOException e) {
+            throw new IllegalStateException("No se ha podido leer el diario de la partida " + idPartida, e);
+        }
+    }
+
+    /**
+     * Devuelve el gestor de la partida. Las operaciones que cambian su estado
+     * deben hacerse a través del diario para que queden guardadas.
+     *
+     * @return gestor de la partida
+     */
+    public GestorPartida getGestor() {
+        return gestor;
+    }
+
+    /**
+     * Realiza el reparto inicial y lo guarda en el diario.
+     *
+     * @param cartasJugador1      cartas del jugador 1
+     * @param cartasJugador2      cartas del jugador 2
+     * @param cartasMesaIniciales cartas iniciales de la mesa
+     * @throws IllegalArgumentException si el reparto no es válido
+     * @throws IllegalStateException    si el reparto no es válido en el estado
+     *                                  de la partida, o si no se puede escribir
+     *                                  en el diario
+     * @see GestorPartida#repartoInicial
+     */
+    public void repartoInicial(ArrayList<Carta> cartasJugador1, ArrayList<Carta> cartasJugador2,
+            ArrayList<Carta> cartasMesaIniciales) {
+        registrar(EventoPartida.repartoInicial(cartasJugador1, cartasJugador2, cartasMesaIniciales));
+    }
+
+    /**
+     * Realiza el reparto de una ronda y lo guarda en el diario.
+     *
+     * @param cartasJugador1 cartas del jugador 1
+     * @param cartasJugador2 cartas del jugador 2
+     * @throws IllegalArgumentException si el reparto no es válido
+     * @throws IllegalStateException    si el reparto no es válido en el estado
+     *                                  de la partida, o si no se puede escribir
+     *                                  en el diario
+     * @see GestorPartida#repartoRonda
+     */
+    public void repartoRonda(ArrayList<Carta> cartasJugador1, ArrayList<Carta> cartasJugador2) {
+        registrar(EventoPartida.repartoRonda(cartasJugador1, cartasJugador2));
+    }
+
+    /**
+     * Juega una carta y guarda la jugada en el diario.
+     *
+     * @param cartaJugada     carta que se juega
+     * @param cartasACapturar cartas de la mesa que se capturan, puede estar vacía
+     * @throws IllegalArgumentException si la jugada no es válida
+     * @throws IllegalStateException    si la jugada no es válida en el estado de
+     *                                  la partida, o si no se puede escribir en
+     *                                  el diario
+     * @see GestorPartida#jugarCarta
+     */
+    public void jugarCarta(Carta cartaJugada, ArrayList<Carta> cartasACapturar) {
+        registrar(EventoPartida.jugarCarta(cartaJugada, cartasACapturar));
+    }
+
+    /**
+     * Avanza a la siguiente ronda y lo guarda en el diario.
+     *
+     * @throws IllegalStateException si la partida ya ha finalizado o si no se
+     *                               puede escribir en el diario
+     * @see GestorPartida#avanzarRonda
+     */
+    public void avanzarRonda() {
+        registrar(EventoPartida.avanzarRonda());
+    }
+
+    /**
+     * Aplica un evento sobre el gestor y, si es válido, lo añade al diario. Un
+     * evento que el gestor rechaza no se guarda. Si no se puede escribir, el
+     * diario queda roto y no admite más eventos.
+     *
+     * @param evento evento a aplicar
+     * @throws IllegalArgumentException si evento es null o no es válido
+     * @throws IllegalStateException    si el diario está cerrado o roto, si el
+     *                                  evento no es válido en el estado de la
+     *                                  partida o si no se puede escribir en el
+     *                                  diario
+     */
+    public void registrar(EventoPartida evento) {
+        if (evento == null) {
+            throw new IllegalArgumentException("El evento no puede ser null");
+        }
+        comprobarAbierto();
+        evento.aplicar(gestor);
+
+        try {
+            escribirCompleto(canal, ByteBuffer.wrap(codificarRegistro(evento)));
+            numeroEventos++;
+            eventosSinSincronizar++;
+            eventosDesdeInstantanea++;
+            if (eventosSinSincronizar >= eventosPorSincronizacion
+                    || System.currentTimeMillis() - ultimaSincronizacion >= intervaloSincronizacionMs) {
+                sincronizar();
+            }
+            if (eventosDesdeInstantanea >= eventosPorInstantanea) {
+                guardarInstantanea();
+            }
+        } catch (IOException e) {
+            throw romper(new IllegalStateException("No se ha podido escribir en el diario " + ficheroDiario, e));
+        }
+    }
+
+    /**
+     * Sincroniza con el disco los eventos escritos.
+     *
+     * @throws IllegalStateException si el diario está cerrado o roto, o falla la
+     *                               sincronización
+     */
+    public void sincronizar() {
+        comprobarAbierto();
+        if (eventosSinSincronizar == 0) {
+            return;
+        }
+        try {
+            canal.force(false);
+        } catch (IOException e) {
+            throw romper(new IllegalStateException("No se ha podido sincronizar el diario " + ficheroDiario, e));
+        }
+        eventosSinSincronizar = 0;
+        ultimaSincronizacion = System.currentTimeMillis();
+        sincronizaciones++;
+    }
+
+    /**
+     * Guarda una instantánea del estado actual de la partida. La instantánea
+     * se escribe en un fichero temporal que después sustituye a la anterior, de
+     * modo que siempre hay una instantánea completa.
+     *
+     * @throws IllegalStateException si el diario está cerrado o roto, o no se
+     *                               puede escribir la instantánea
+     */
+    public void guardarInstantanea() {
+        // La instantánea no puede ir por delante de lo que está en disco
+        sincronizar();
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream salida = new DataOutputStream(bytes);
+            salida.writeInt(MAGIA_INSTANTANEA);
+            salida.writeLong(numeroEventos);
+            salida.writeLong(canal.position());
+            gestor.escribirEstado(salida);
+            salida.flush();
+            byte[] contenido = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(contenido);
+
+            Path temporal = ficheroInstantanea.resolveSibling(ficheroInstantanea.getFileName() + ".tmp");
+            try (FileChannel destino = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                escribirCompleto(destino, ByteBuffer.wrap(contenido));
+                escribirCompleto(destino, ByteBuffer.allocate(Long.BYTES).putLong(0, crc.getValue()));
+                destino.force(true);
+            }
+            Files.move(temporal, ficheroInstantanea, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw romper(new IllegalStateException("No se ha podido guardar la instantánea " + ficheroInstantanea,
+                    e));
+        }
+        eventosDesdeInstantanea = 0;
+        instantaneas++;
+    }
+
+    /**
+     * Devuelve el número de eventos de la partida (incluidos los recuperados).
+     *
+     * @return número de eventos
+     */
+    public long getNumeroEventos() {
+        return numeroEventos;
+    }
+
+    /**
+     * Devuelve el número de veces que se ha sincronizado el diario con el disco
+     * desde que se abrió.
+     *
+     * @return número de sincronizaciones
+     */
+    public long getSincronizaciones() {
+        return sincronizaciones;
+    }
+
+    /**
+     * Devuelve el número de instantáneas guardadas desde que se abrió el
+     * diario.
+     *
+     * @return número de instantáneas
+     */
+    public long getInstantaneas() {
+        return instantaneas;
+    }
+
+    /**
+     * Indica si el diario ha quedado roto por un error de escritura. Un diario
+     * roto no admite más eventos; la partida se recupera del fichero.
+     *
+     * @return true si ha fallado alguna escritura en el diario
+     */
+    public boolean isRoto() {
+        return fallo != null;
+    }
+
+    /**
+     * Indica si el diario ha sido cerrado.
+     *
+     * @return true si el diario está cerrado
+     */
+    public boolean isCerrado() {
+        return cerrado;
+    }
+
+    /**
+     * Sincroniza los eventos pendientes y cierra el diario. Un diario roto se
+     * cierra sin sincronizar.
+     *
+     * @throws IllegalStateException si falla la sincronización
+     */
+    @Override
+    public void close() {
+        if (cerrado) {
+            return;
+        }
+        try {
+            if (fallo == null) {
+                sincronizar();
+            }
+        } finally {
+            cerrado = true;
+            cerrarSinErrores(canal);
+        }
+    }
+
+    /**
+     * Escribe una lista de cartas: su número y un byte por carta.
+     *
+     * @param salida flujo de salida
+     * @param cartas cartas a escribir
+     * @throws IOException si falla la escritura
+     */
+    static void escribirCartas(DataOutputStream salida, List<Carta> cartas) throws IOException {
+        salida.writeByte(cartas.size());
+        for (Carta carta : cartas) {
+            salida.writeByte(carta.getPalo().ordinal() << 4 | carta.getIndice());
+        }
+    }
+
+    /**
+     * Lee una lista de cartas escrita con {@link #escribirCartas}.
+     *
+     * @param entrada flujo de entrada
+     * @return cartas leídas
+     * @throws IOException si falla la lectura o alguna carta no es válida
+     */
+    static ArrayList<Carta> leerCartas(DataInputStream entrada) throws IOException {
+        int numero = entrada.readUnsignedByte();
+        ArrayList<Carta> cartas = new ArrayList<>(numero);
+        for (int i = 0; i < numero; i++) {
+            int codigo = entrada.readUnsignedByte();
+            int palo = codigo >> 4;
+            if (palo >= Palo.values().length) {
+                throw new IOException("Carta no válida: " + codigo);
+            }
+            try {
+                cartas.add(new Carta(Palo.values()[palo], codigo & 0x0F));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Carta no válida: " + codigo, e);
+            }
+        }
+        return cartas;
+    }
+
+    /**
+     * Codifica un evento como registro del diario: longitud, contenido y CRC32
+     * del contenido.
+     */
+    private static byte[] codificarRegistro(EventoPartida evento) throws IOException {
+        ByteArrayOutputStream contenido = new ByteArrayOutputStream();
+        DataOutputStream salida = new DataOutputStream(contenido);
+        salida.writeByte(evento.getTipo().ordinal());
+        switch (evento.getTipo()) {
+            case REPARTO_INICIAL:
+                escribirCartas(salida, evento.getCartasJugador1());
+                escribirCartas(salida, evento.getCartasJugador2());
+                escribirCartas(salida, evento.getCartasMesa());
+                break;
+            case REPARTO_RONDA:
+                escribirCartas(salida, evento.getCartasJugador1());
+                escribirCartas(salida, evento.getCartasJugador2());
+                break;
+            case JUGAR_CARTA:
+                escribirCartas(salida, List.of(evento.getCarta()));
+                escribirCartas(salida, evento.getCapturas());
+                break;
+            default:
+                break;
+        }
+        byte[] bytes = contenido.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+
+        ByteBuffer registro = ByteBuffer.allocate(Integer.BYTES + bytes.length + Integer.BYTES);
+        registro.putInt(bytes.length).put(bytes).putInt((int) crc.getValue());
+        return registro.array();
+    }
+
+    private static EventoPartida decodificarEvento(byte[] contenido) throws IOException {
+        DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(contenido));
+        int tipo = entrada.readUnsignedByte();
+        if (tipo >= EventoPartida.Tipo.values().length) {
+            throw new IOException("Tipo de evento no válido: " + tipo);
+        }
+        switch (EventoPartida.Tipo.values()[tipo]) {
+            case REPARTO_INICIAL:
+                return EventoPartida.repartoInicial(leerCartas(entrada), leerCartas(entrada), leerCartas(entrada));
+            case REPARTO_RONDA:
+                return EventoPartida.repartoRonda(leerCartas(entrada), leerCartas(entrada));
+            case JUGAR_CARTA:
+                List<Carta> carta = leerCartas(entrada);
+                if (carta.size() != 1) {
+                    throw new IOException("Jugada sin carta");
+                }
+                return EventoPartida.jugarCarta(carta.get(0), leerCartas(entrada));
+            default:
+                return EventoPartida.avanzarRonda();
+        }
+    }
+
+    /**
+     * Lee la instantánea de una partida.
+     *
+     * @return instantánea, o null si no existe o está dañada
+     */
+    private static Instantanea leerInstantanea(Path fichero) {
+        if (!Files.exists(fichero)) {
+            return null;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(fichero);
+            if (bytes.length < Long.BYTES) {
+                return null;
+            }
+            int longitud = bytes.length - Long.BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, longitud);
+            if (ByteBuffer.wrap(bytes, longitud, Long.BYTES).getLong() != crc.getValue()) {
+                return null;
+            }
+            DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(bytes, 0, longitud));
+            if (entrada.readInt() != MAGIA_INSTANTANEA) {
+                return null;
+            }
+            long numeroEventos = entrada.readLong();
+            long posicion = entrada.readLong();
+            return new Instantanea(numeroEventos, posicion, GestorPartida.leerEstado(entrada));
+        } catch (IOException e) {
+            // Una instantánea dañada no impide recuperar la partida desde el diario
+            return null;
+        }
+    }
+
+    private static void escribirCompleto(FileChannel canal, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+    }
+
+    private static void cerrarSinErrores(FileChannel canal) {
+        if (canal == null) {
+            return;
+        }
+        try {
+            canal.close();
+        } catch (IOException e) {
+            // Solo se cierra tras otro error, que es el que se notifica
+        }
+    }
+
+    private void comprobarAbierto() {
+        if (cerrado) {
+            throw new IllegalStateException("El diario está cerrado");
+        }
+        if (fallo != null) {
+            throw new IllegalStateException("El diario " + ficheroDiario + " está roto; hay que recuperar la partida",
+                    fallo);
+        }
+    }
+
+    /**
+     * Marca el diario como roto tras un error de escritura.
+     *
+     * @param error error de escritura
+     * @return el mismo error, para lanzarlo
+     */
+    private IllegalStateException romper(IllegalStateException error) {
+        fallo = error;
+        return error;
+    }
+
+    private static void validarUbicacion(Path directorio, String idPartida) {
+        if (directorio == null) {
+            throw new IllegalArgumentException("El directorio no puede ser null");
+        }
+        if (idPartida == null || idPartida.isEmpty()) {
+            throw new IllegalArgumentException("El identificador no puede ser null o vacío");
+        }
+    }
+
+    private static void validarConfiguracion(int eventosPorSincronizacion, long intervaloSincronizacionMs,
+            int eventosPorInstantanea) {
+        if (eventosPorSincronizacion < 1 || eventosPorInstantanea < 1) {
+            throw new IllegalArgumentException("El número de eventos debe ser mayor que cero");
+        }
+        if (intervaloSincronizacionMs < 0) {
+            throw new IllegalArgumentException("El intervalo de sincronización no puede ser negativo");
+        }
+    }
+
+    /**
+     * Estado de la partida guardado en una instantánea, con el número de
+     * eventos aplicados y la posición del diario tras el último de ellos.
+     */
+    private static final class Instantanea {
+        private final long numeroEventos;
+        private final long posicion;
+        private final GestorPartida gestor;
+
+        Instantanea(long numeroEventos, long posicion, GestorPartida gestor) {
+            this.numeroEventos = numeroEventos;
+            this.posicion = posicion;
+            this.gestor = gestor;
+        }
+    }
+
+    /**
+     * Lee los registros del diario desde una posición y recuerda la posición
+     * tras el último registro completo y correcto.
+     */
+    private static final class LectorRegistros {
+        private final DataInputStream entrada;
+        private long posicionValida;
+
+        LectorRegistros(FileChannel canal, long posicion) throws IOException {
+            canal.position(posicion);
+            InputStream flujo = Channels.newInputStream(canal);
+            this.entrada = new DataInputStream(new BufferedInputStream(flujo));
+            this.posicionValida = posicion;
+        }
+
+        /**
+         * Devuelve el siguiente evento, o null si no hay más registros
+         * completos y correctos.
+         */
+        EventoPartida siguiente() throws IOException {
+            try {
+                int longitud = entrada.readInt();
+                if (longitud <= 0 || longitud > LONGITUD_MAXIMA_REGISTRO) {
+                    return null;
+                }
+                byte[] contenido = new byte[longitud];
+                entrada.readFully(contenido);
+                int crcGuardado = entrada.readInt();
+                CRC32 crc = new CRC32();
+                crc.update(contenido);
+                if ((int) crc.getValue() != crcGuardado) {
+                    return null;
+                }
+                EventoPartida evento = decodificarEvento(contenido);
+                posicionValida += Integer.BYTES + longitud + Integer.BYTES;
+                return evento;
+            } catch (EOFException e) {
+                return null;
+            }
+        }
+    }
+}
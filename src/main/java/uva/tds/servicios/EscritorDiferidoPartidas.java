@@ -0,0 +1,458 @@
+package uva.tds.servicios;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+
+import uva.tds.entidades.Partida;
+import uva.tds.interfaces.RepositorioPartida;
+
+/**
+ * Escritura diferida (write-behind) de partidas terminadas. Las partidas se
+ * encolan en una cola acotada y un hilo en segundo plano las guarda por lotes,
+ * cada lote en una única transacción con {@link RepositorioPartida#guardarLote},
+ * en lugar de abrir una transacción por partida.
+ *
+ * Un lote se escribe en cuanto alcanza el tamaño máximo o cuando ha pasado el
+ * intervalo máximo de espera desde su primera partida. Si la cola está llena,
+ * quien encola se bloquea hasta que haya hueco, de forma que el ritmo de
+ * entrada nunca supera el de escritura.
+ *
+ * Si un lote falla (por ejemplo, porque una de sus partidas ya estaba
+ * guardada), sus partidas se guardan de una en una para no perder las demás.
+ * Cada partida que falla se reintenta varias veces, esperando el doble antes
+ * de cada reintento. Las que siguen fallando se contabilizan en
+ * {@link #getPartidasFallidas()}, se entregan al manejador de partidas
+ * descartadas (si se ha indicado uno) y se informan en la siguiente llamada a
+ * {@link #vaciar()} o {@link #close()}.
+ *
+ * Al cerrar el escritor se rechazan nuevas partidas y se escriben todas las
+ * pendientes antes de volver.
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+public class EscritorDiferidoPartidas implements AutoCloseable {
+
+    private static final int CAPACIDAD_POR_DEFECTO = 1000;
+    private static final int TAMANO_LOTE_POR_DEFECTO = 100;
+    private static final long INTERVALO_POR_DEFECTO_MS = 200;
+    private static final int REINTENTOS_POR_DEFECTO = 2;
+    private static final long ESPERA_REINTENTO_POR_DEFECTO_MS = 50;
+
+    private final RepositorioPartida repositorio;
+    private final BlockingQueue<Partida> cola;
+    private final int capacidad;
+    private final int tamanoLote;
+    private final long intervaloMs;
+    private final int reintentos;
+    private final long esperaReintentoMs;
+    private final BiConsumer<Partida, RuntimeException> descartadas;
+
+    private final ReadWriteLock cierre = new ReentrantReadWriteLock();
+    private volatile boolean cerrado = false;
+    private final Thread escritor;
+
+    private final Object monitorPendientes = new Object();
+    private long pendientes = 0;
+
+    private final AtomicLong partidasGuardadas = new AtomicLong();
+    private final AtomicLong partidasFallidas = new AtomicLong();
+    private final AtomicLong lotesEscritos = new AtomicLong();
+    private final AtomicLong profundidadMaxima = new AtomicLong();
+
+    private final List<String> fallidasSinInformar = new ArrayList<>();
+    private RuntimeException ultimoError;
+
+    /**
+     * Constructor con la capacidad, el tamaño de lote y el intervalo por defecto.
+     *
+     * @param repositorio repositorio donde se guardan las partidas
+     * @throws IllegalArgumentException si repositorio es null
+     */
+    public EscritorDiferidoPartidas(RepositorioPartida repositorio) {
+        this(repositorio, CAPACIDAD_POR_DEFECTO, TAMANO_LOTE_POR_DEFECTO, INTERVALO_POR_DEFECTO_MS);
+    }
+
+    /**
+     * Constructor del escritor diferido con los reintentos por defecto y sin
+     * manejador de partidas descartadas. Arranca el hilo de escritura.
+     *
+     * @param repositorio repositorio donde se guardan las partidas
+     * @param capacidad   número máximo de partidas esperando en la cola
+     * @param tamanoLote  número máximo de partidas por transacción
+     * @param intervaloMs tiempo máximo, en milisegundos, que una partida espera a
+     *                    que se complete su lote
+     * @throws IllegalArgumentException si repositorio es null, o si capacidad,
+     *                                  tamanoLote o intervaloMs son menores que 1
+     */
+    public EscritorDiferidoPartidas(RepositorioPartida repositorio, int capacidad, int tamanoLote,
+            long intervaloMs) {
+        this(repositorio, capacidad, tamanoLote, intervaloMs, REINTENTOS_POR_DEFECTO,
+                ESPERA_REINTENTO_POR_DEFECTO_MS, null);
+    }
+
+    /**
+     * Constructor del escritor diferido. Arranca el hilo de escritura.
+     *
+     * @param repositorio       repositorio donde se guardan las partidas
+     * @param capacidad         número máximo de partidas esperando en la cola
+     * @param tamanoLote        número máximo de partidas por transacción
+     * @param intervaloMs       tiempo máximo, en milisegundos, que una partida
+     *                          espera a que se complete su lote
+     * @param reintentos        veces que se reintenta guardar una partida que
+     *                          falla fuera de su lote
+     * @param esperaReintentoMs espera, en milisegundos, antes del primer
+     *                          reintento; se dobla en cada uno de los siguientes
+     * @param descartadas       recibe cada partida que no se ha podido guardar
+     *                          tras los reintentos, con el último error, o null
+     *                          si no se quieren recibir
+     * @throws IllegalArgumentException si repositorio es null, si capacidad,
+     *                                  tamanoLote o intervaloMs son menores que
+     *                                  1, o si reintentos o esperaReintentoMs
+     *                                  son negativos
+     */
+    public EscritorDiferidoPartidas(RepositorioPartida repositorio, int capacidad, int tamanoLote,
+            long intervaloMs, int reintentos, long esperaReintentoMs,
+            BiConsumer<Partida, RuntimeException> descartadas) {
+        if (repositorio == null) {
+            throw new IllegalArgumentException("El repositorio no puede ser null");
+        }
+        if (capacidad < 1) {
+            throw new IllegalArgumentException("La capacidad debe ser mayor que cero");
+        }
+        if (tamanoLote < 1) {
+            throw new IllegalArgumentException("El tamaño de lote debe ser mayor que cero");
+        }
+        if (intervaloMs < 1) {
+            throw new IllegalArgumentException("El intervalo debe ser mayor que cero");
+        }
+        if (reintentos < 0) {
+            throw new IllegalArgumentException("Los reintentos no pueden ser negativos");
+        }
+        if (esperaReintentoMs < 0) {
+            throw new IllegalArgumentException("La espera entre reintentos no puede ser negativa");
+        }
+        this.repositorio = repositorio;
+        this.cola = new ArrayBlockingQueue<>(capacidad);
+        this.capacidad = capacidad;
+        this.tamanoLote = tamanoLote;
+        this.intervaloMs = intervaloMs;
+        this.reintentos = reintentos;
+        this.esperaReintentoMs = esperaReintentoMs;
+        this.descartadas = descartadas;
+
+        this.escritor = new Thread(this::escribirMientrasAbierto, "escritor-diferido-partidas");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+    }
+
+    /**
+     * Encola una partida terminada para guardarla en segundo plano. Si la cola
+     * está llena, espera a que haya hueco.
+     *
+     * @param partida partida a guardar
+     * @throws IllegalArgumentException si partida es null
+     * @throws IllegalStateException    si el escritor está cerrado o si el hilo
+     *                                  se interrumpe mientras espera hueco
+     */
+    public void encolar(Partida partida) {
+        if (partida == null) {
+            throw new IllegalArgumentException("La partida no puede ser null");
+        }
+        cierre.readLock().lock();
+        try {
+            if (cerrado) {
+                throw new IllegalStateException("El escritor diferido está cerrado");
+            }
+            synchronized (monitorPendientes) {
+                pendientes++;
+            }
+            try {
+                cola.put(partida);
+            } catch (InterruptedException e) {
+                terminarPendientes(1);
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrumpido mientras se esperaba hueco en la cola", e);
+            }
+            profundidadMaxima.accumulateAndGet(cola.size(), Math::max);
+        } finally {
+            cierre.readLock().unlock();
+        }
+    }
+
+    /**
+     * Espera a que todas las partidas encoladas hasta ahora estén escritas (o
+     * hayan fallado).
+     *
+     * @throws IllegalStateException si el hilo se interrumpe mientras espera, o
+     *                               si alguna partida no se ha podido guardar
+     *                               desde la última vez que se informó
+     */
+    public void vaciar() {
+        synchronized (monitorPendientes) {
+            while (pendientes > 0) {
+                try {
+                    monitorPendientes.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrumpido mientras se vaciaba la cola", e);
+                }
+            }
+        }
+        informarFallidas();
+    }
+
+    /**
+     * Rechaza nuevas partidas, escribe todas las pendientes y detiene el hilo de
+     * escritura.
+     *
+     * @throws IllegalStateException si alguna partida no se ha podido guardar
+     *                               desde la última vez que se informó
+     */
+    @Override
+    public void close() {
+        cierre.writeLock().lock();
+        try {
+            cerrado = true;
+        } finally {
+            cierre.writeLock().unlock();
+        }
+        boolean interrumpido = false;
+        while (escritor.isAlive()) {
+            try {
+                escritor.join();
+            } catch (InterruptedException e) {
+                interrumpido = true;
+            }
+        }
+        if (interrumpido) {
+            Thread.currentThread().interrupt();
+        }
+        informarFallidas();
+    }
+
+    /**
+     * Devuelve el número de partidas que esperan en la cola.
+     *
+     * @return profundidad actual de la cola
+     */
+    public int getProfundidadCola() {
+        return cola.size();
+    }
+
+    /**
+     * Devuelve la mayor profundidad que ha alcanzado la cola.
+     *
+     * @return profundidad máxima de la cola
+     */
+    public long getProfundidadMaxima() {
+        return profundidadMaxima.get();
+    }
+
+    /**
+     * Devuelve el número máximo de partidas que pueden esperar en la cola.
+     *
+     * @return capacidad de la cola
+     */
+    public int getCapacidad() {
+        return capacidad;
+    }
+
+    /**
+     * Devuelve el número máximo de partidas que se guardan en cada transacción.
+     *
+     * @return tamaño del lote
+     */
+    public int getTamanoLote() {
+        return tamanoLote;
+    }
+
+    /**
+     * Devuelve el número de partidas guardadas correctamente.
+     *
+     * @return partidas guardadas
+     */
+    public long getPartidasGuardadas() {
+        return partidasGuardadas.get();
+    }
+
+    /**
+     * Devuelve el número de partidas que no se han podido guardar.
+     *
+     * @return partidas fallidas
+     */
+    public long getPartidasFallidas() {
+        return partidasFallidas.get();
+    }
+
+    /**
+     * Devuelve el número de lotes escritos en una única transacción.
+     *
+     * @return lotes escritos
+     */
+    public long getLotesEscritos() {
+        return lotesEscritos.get();
+    }
+
+    /**
+     * Indica si el escritor ha sido cerrado.
+     *
+     * @return true si ya no admite partidas
+     */
+    public boolean isCerrado() {
+        return cerrado;
+    }
+
+    /**
+     * Bucle del hilo de escritura: forma lotes hasta que el escritor se cierra y
+     * la cola queda vacía.
+     */
+    private void escribirMientrasAbierto() {
+        List<Partida> lote = new ArrayList<>(tamanoLote);
+        while (!cerrado || !cola.isEmpty()) {
+            try {
+                Partida primera = cola.poll(intervaloMs, TimeUnit.MILLISECONDS);
+                if (primera == null) {
+                    continue;
+                }
+                lote.add(primera);
+                long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(intervaloMs);
+                while (lote.size() < tamanoLote && !cerrado) {
+                    long restante = limite - System.nanoTime();
+                    if (restante <= 0) {
+                        break;
+                    }
+                    Partida siguiente = cola.poll(restante, TimeUnit.NANOSECONDS);
+                    if (siguiente == null) {
+                        break;
+                    }
+                    lote.add(siguiente);
+                }
+                cola.drainTo(lote, tamanoLote - lote.size());
+            } catch (InterruptedException e) {
+                // Solo se sale del bucle al cerrar, para no perder partidas
+            }
+            if (!lote.isEmpty()) {
+                escribir(lote);
+                lote.clear();
+            }
+        }
+    }
+
+    /**
+     * Escribe un lote en una única transacción. Si falla, guarda sus partidas de
+     * una en una.
+     *
+     * @param lote partidas a escribir
+     */
+    private void escribir(List<Partida> lote) {
+        try {
+            repositorio.guardarLote(lote);
+            lotesEscritos.incrementAndGet();
+            partidasGuardadas.addAndGet(lote.size());
+        } catch (RuntimeException e) {
+            lote.forEach(this::guardarConReintentos);
+        } finally {
+            terminarPendientes(lote.size());
+        }
+    }
+
+    /**
+     * Guarda una partida, reintentándolo tras una espera que se dobla en cada
+     * intento. Si no lo consigue, la descarta.
+     *
+     * @param partida partida a guardar
+     */
+    private void guardarConReintentos(Partida partida) {
+        long espera = esperaReintentoMs;
+        for (int intento = 0;; intento++) {
+            try {
+                repositorio.guardar(partida);
+                partidasGuardadas.incrementAndGet();
+                return;
+            } catch (RuntimeException e) {
+                if (intento == reintentos || !esperar(espera)) {
+                    descartar(partida, e);
+                    return;
+                }
+                espera *= 2;
+            }
+        }
+    }
+
+    /**
+     * Espera antes de un reintento.
+     *
+     * @param esperaMs milisegundos que se espera
+     * @return false si el hilo se interrumpe, en cuyo caso no se reintenta
+     */
+    private static boolean esperar(long esperaMs) {
+        try {
+            Thread.sleep(esperaMs);
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Cuenta una partida que no se ha podido guardar, la entrega al manejador
+     * de partidas descartadas y la deja pendiente de informar.
+     *
+     * @param partida partida descartada
+     * @param error   último error al guardarla
+     */
+    private void descartar(Partida partida, RuntimeException error) {
+        partidasFallidas.incrementAndGet();
+        synchronized (fallidasSinInformar) {
+            fallidasSinInformar.add(partida.getId());
+            ultimoError = error;
+        }
+        if (descartadas != null) {
+            try {
+                descartadas.accept(partida, error);
+            } catch (RuntimeException e) {
+                // Un manejador que falla no debe detener el hilo de escritura
+                error.addSuppressed(e);
+            }
+        }
+    }
+
+    /**
+     * Informa de las partidas descartadas desde la última vez que se informó.
+     *
+     * @throws IllegalStateException si hay alguna, con el último error como causa
+     */
+    private void informarFallidas() {
+        synchronized (fallidasSinInformar) {
+            if (fallidasSinInformar.isEmpty()) {
+                return;
+            }
+            IllegalStateException e = new IllegalStateException("No se han podido guardar "
+                    + fallidasSinInformar.size() + " partidas: " + fallidasSinInformar, ultimoError);
+            fallidasSinInformar.clear();
+            ultimoError = null;
+            throw e;
+        }
+    }
+
+    /**
+     * Descuenta partidas pendientes y despierta a quien espera en
+     * {@link #vaciar()}.
+     *
+     * @param numero partidas terminadas
+     */
+    private void terminarPendientes(int numero) {
+        synchronized (monitorPendientes) {
+            pendientes -= numero;
+            monitorPendientes.notifyAll();
+        }
+    }
+}
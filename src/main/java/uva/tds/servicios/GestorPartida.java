@@ -1,5 +1,8 @@
 package uva.tds.servicios;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 
 import uva.tds.entidades.Baraja;
@@ -440,4 +443,91 @@ public class GestorPartida {
         this.gestorTurno.establecerJugadorActual(jugador);
     }
 
-}
\ No newline at end of file
+    /**
+     * Escribe el estado completo de la partida: jugadores (mano, cartas
+     * capturadas y escobas), mesa, ronda, turno y último jugador que hizo baza.
+     * Lo usa DiarioPartida para sus instantáneas.
+     *
+     * @param salida flujo donde se escribe el estado
+     * @throws IOException si falla la escritura
+     */
+    void escribirEstado(DataOutputStream salida) throws IOException {
+        escribirJugador(salida, this.jugador1);
+        escribirJugador(salida, this.jugador2);
+        DiarioPartida.escribirCartas(salida, this.gestorRonda.getCartasMesa());
+        salida.writeInt(this.rondaActual);
+        salida.writeInt(this.gestorRonda.getNumero());
+        salida.writeBoolean(getJugadorActual() == this.jugador1);
+        salida.writeInt(getTurnosJugados());
+        int ultimo = 0;
+        if (this.ultimoQueHizoBaza == this.jugador1)
+            ultimo = 1;
+        else if (this.ultimoQueHizoBaza == this.jugador2)
+            ultimo = 2;
+        salida.writeByte(ultimo);
+    }
+
+    /**
+     * Crea un gestor con el estado escrito por {@link #escribirEstado}. Las
+     * cartas que están en manos, capturadas o en la mesa se retiran de la
+     * baraja.
+     *
+     * @param entrada flujo del que se lee el estado
+     * @return gestor con el estado leído
+     * @throws IOException si falla la lectura o el estado no es coherente
+     */
+    static GestorPartida leerEstado(DataInputStream entrada) throws IOException {
+        Jugador j1 = new Jugador(entrada.readUTF());
+        ArrayList<Carta> mano1 = DiarioPartida.leerCartas(entrada);
+        ArrayList<Carta> capturadas1 = DiarioPartida.leerCartas(entrada);
+        int escobas1 = entrada.readInt();
+        Jugador j2 = new Jugador(entrada.readUTF());
+        ArrayList<Carta> mano2 = DiarioPartida.leerCartas(entrada);
+        ArrayList<Carta> capturadas2 = DiarioPartida.leerCartas(entrada);
+        int escobas2 = entrada.readInt();
+        ArrayList<Carta> mesa = DiarioPartida.leerCartas(entrada);
+
+        GestorPartida gestor = new GestorPartida(j1, j2);
+        try {
+            gestor.restaurarJugador(j1, mano1, capturadas1, escobas1);
+            gestor.restaurarJugador(j2, mano2, capturadas2, escobas2);
+            for (Carta c : mesa)
+                gestor.baraja.robarCarta(c);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw new IOException("Estado de partida incoherente: " + e.getMessage(), e);
+        }
+        gestor.gestorRonda.setCartasMesa(mesa);
+
+        gestor.rondaActual = entrada.readInt();
+        int numeroRonda = entrada.readInt();
+        while (gestor.gestorRonda.getNumero() < numeroRonda)
+            gestor.gestorRonda.incrementarNumero();
+        boolean turnoJugador1 = entrada.readBoolean();
+        int turnosJugados = entrada.readInt();
+        gestor.gestorTurno.reiniciarTurnos();
+        for (int i = 0; i < turnosJugados; i++)
+            gestor.gestorTurno.cambiarTurno();
+        gestor.gestorTurno.establecerJugadorActual(turnoJugador1 ? j1 : j2);
+        int ultimo = entrada.readByte();
+        gestor.ultimoQueHizoBaza = (ultimo == 1) ? j1 : (ultimo == 2) ? j2 : null;
+        return gestor;
+    }
+
+    private static void escribirJugador(DataOutputStream salida, Jugador jugador) throws IOException {
+        salida.writeUTF(jugador.getNombre());
+        DiarioPartida.escribirCartas(salida, jugador.getMano());
+        DiarioPartida.escribirCartas(salida, jugador.getCartas());
+        salida.writeInt(jugador.getEscobas());
+    }
+
+    private void restaurarJugador(Jugador jugador, ArrayList<Carta> mano, ArrayList<Carta> capturadas, int escobas) {
+        repartirAMano(jugador, mano);
+        for (Carta c : capturadas) {
+            this.baraja.robarCarta(c);
+            jugador.agregarCartaACartas(c);
+        }
+        for (int i = 0; i < escobas; i++)
+            jugador.sumarEscoba();
+    }
+
+}
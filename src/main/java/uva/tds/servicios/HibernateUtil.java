@@ -1,21 +1,87 @@
 package uva.tds.servicios;
 
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import org.hibernate.SessionFactory;
 import org.hibernate.boot.MetadataSources;
 import org.hibernate.boot.registry.StandardServiceRegistry;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
 
+/**
+ * Registro de SessionFactory de Hibernate. Se construye una única SessionFactory
+ * por fichero de configuración, de forma segura aunque varios hilos la pidan a
+ * la vez.
+ *
+ * La construcción puede adelantarse en segundo plano con iniciarEnSegundoPlano
+ * mientras la aplicación arranca; quien pida la SessionFactory antes de que
+ * esté lista espera a esa misma construcción en lugar de empezar otra. Si la
+ * configuración define la propiedad migraciones.indice, antes de construir la
+ * SessionFactory se aplican las migraciones versionadas del esquema (ver
+ * MigradorEsquema).
+ *
+ * Una misma configuración puede usarse sobre otro esquema de la base de datos
+ * con {@link #conEsquema(String, String)}, que devuelve el nombre con el que se
+ * pide su SessionFactory (ver ParticionesHibernate).
+ */
 public class HibernateUtil {
 
-    private static SessionFactory sessionFactory;
+    /**
+     * Propiedad de la configuración con la ruta en el classpath del índice de
+     * migraciones del esquema.
+     */
+    public static final String PROPIEDAD_MIGRACIONES = "migraciones.indice";
+
+    /**
+     * Separa, en el nombre de una configuración, el fichero de configuración del
+     * esquema sobre el que se usa.
+     */
+    private static final String SEPARADOR_ESQUEMA = "#";
+
+    /**
+     * Tamaño máximo del pool de conexiones si la configuración no lo indica (el
+     * valor por defecto de HikariCP).
+     */
+    public static final int TAMANO_POOL_POR_DEFECTO = 10;
+
+    private static final String PROPIEDAD_TAMANO_POOL = "hibernate.hikari.maximumPoolSize";
+
+    private static final ConcurrentMap<String, CompletableFuture<SessionFactory>> sessionFactories =
+            new ConcurrentHashMap<>();
 
     // Hibernate 5:
     private static SessionFactory buildSessionFactory(String configFile) {
+        int separador = configFile.indexOf(SEPARADOR_ESQUEMA);
+        String esquema = separador < 0 ? null : configFile.substring(separador + 1);
+        StandardServiceRegistryBuilder builder = new StandardServiceRegistryBuilder()
+                // configures settings from specified config file
+                .configure(separador < 0 ? configFile : configFile.substring(0, separador));
+        if (esquema != null) {
+            // Las tablas del esquema las crea Hibernate la primera vez y se conservan al volver
+            // a abrirlo. Las regiones de la caché de segundo nivel son las de la configuración
+            // sin esquema, y los identificadores generados se repiten entre esquemas.
+            builder.applySetting(AvailableSettings.DEFAULT_SCHEMA, esquema)
+                    .applySetting(AvailableSettings.HBM2DDL_AUTO, "update")
+                    .applySetting(AvailableSettings.USE_SECOND_LEVEL_CACHE, false)
+                    .applySetting(AvailableSettings.USE_QUERY_CACHE, false);
+        }
         // A SessionFactory is set up once for an application!
-        final StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
-                .configure(configFile) // configures settings from specified config file
-                .build();
+        final StandardServiceRegistry registry = builder.build();
         try {
+            if (esquema == null) {
+                migrarEsquema(registry);
+            } else {
+                crearEsquema(registry.getService(ConnectionProvider.class), esquema);
+            }
             return new MetadataSources(registry).buildMetadata().buildSessionFactory();
         } catch (Exception e) {
             // The registry would be destroyed by the SessionFactory, but we had trouble
@@ -26,18 +92,213 @@ public class HibernateUtil {
         }
     }
 
+    /**
+     * Aplica las migraciones pendientes si la configuración tiene índice de
+     * migraciones. Al leer el fichero de configuración Hibernate añade el prefijo
+     * "hibernate." a las propiedades que no lo tienen.
+     */
+    private static void migrarEsquema(StandardServiceRegistry registry) {
+        ConfigurationService configuracion = registry.getService(ConfigurationService.class);
+        Object indice = configuracion.getSettings().get(PROPIEDAD_MIGRACIONES);
+        if (indice == null) {
+            indice = configuracion.getSettings().get("hibernate." + PROPIEDAD_MIGRACIONES);
+        }
+        if (indice != null) {
+            MigradorEsquema.migrar(registry.getService(ConnectionProvider.class), indice.toString());
+        }
+    }
+
+    /**
+     * Crea el esquema si todavía no existe. Hibernate crea las tablas en el
+     * esquema por defecto, pero no el propio esquema.
+     */
+    private static void crearEsquema(ConnectionProvider conexiones, String esquema) {
+        try {
+            Connection conexion = conexiones.getConnection();
+            try {
+                try (ResultSet esquemas = conexion.getMetaData().getSchemas()) {
+                    while (esquemas.next()) {
+                        if (esquema.equalsIgnoreCase(esquemas.getString("TABLE_SCHEM"))) {
+                            return;
+                        }
+                    }
+                }
+                try (Statement sentencia = conexion.createStatement()) {
+                    sentencia.execute("CREATE SCHEMA " + esquema);
+                }
+                if (!conexion.getAutoCommit()) {
+                    conexion.commit();
+                }
+            } finally {
+                conexiones.closeConnection(conexion);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("No se ha podido crear el esquema " + esquema, e);
+        }
+    }
+
+    /**
+     * Devuelve el nombre de la configuración que usa el fichero dado sobre otro
+     * esquema de la base de datos. Su SessionFactory, que se pide con ese nombre,
+     * crea el esquema y sus tablas si no existen y no usa la caché de segundo
+     * nivel ni las migraciones versionadas.
+     *
+     * @param configFile fichero de configuración de Hibernate
+     * @param esquema    esquema de la base de datos
+     * @return nombre de la configuración sobre el esquema
+     * @throws IllegalArgumentException si configFile es null o vacío, o si
+     *                                  esquema no es un identificador SQL simple
+     */
+    public static String conEsquema(String configFile, String esquema) {
+        comprobarConfigFile(configFile);
+        if (configFile.contains(SEPARADOR_ESQUEMA)) {
+            throw new IllegalArgumentException("La configuración ya tiene esquema");
+        }
+        if (esquema == null || !esquema.matches("[A-Za-z][A-Za-z0-9_]*")) {
+            throw new IllegalArgumentException("El esquema debe ser un identificador SQL simple");
+        }
+        return configFile + SEPARADOR_ESQUEMA + esquema;
+    }
+
+    /**
+     * Devuelve la SessionFactory asociada al fichero de configuración, creándola la
+     * primera vez que se pide. Si varios hilos la piden a la vez, o ya se está
+     * construyendo en segundo plano, solo se construye una vez y el resto esperan
+     * a que esté disponible.
+     *
+     * @param configFile fichero de configuración de Hibernate, o nombre devuelto
+     *                   por conEsquema
+     * @return SessionFactory del fichero de configuración
+     * @throws IllegalArgumentException si configFile es null o vacío
+     */
     public static SessionFactory getSessionFactory(String configFile) {
-    	if (sessionFactory == null) {
-    		sessionFactory = buildSessionFactory(configFile);
-    	}
-        return sessionFactory;
+        comprobarConfigFile(configFile);
+        CompletableFuture<SessionFactory> nueva = new CompletableFuture<>();
+        CompletableFuture<SessionFactory> existente = sessionFactories.putIfAbsent(configFile, nueva);
+        if (existente == null) {
+            construir(configFile, nueva);
+            existente = nueva;
+        }
+        try {
+            return existente.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Devuelve el número máximo de conexiones del pool de la configuración
+     * (hikari.maximumPoolSize), construyendo su SessionFactory si todavía no
+     * existe.
+     *
+     * @param configFile fichero de configuración de Hibernate, o nombre devuelto
+     *                   por conEsquema
+     * @return tamaño máximo del pool, o TAMANO_POOL_POR_DEFECTO si la
+     *         configuración no lo indica
+     * @throws IllegalArgumentException si configFile es null o vacío, o si el
+     *                                  tamaño configurado no es un número
+     *                                  mayor que cero
+     */
+    public static int getTamanoPoolConexiones(String configFile) {
+        Object tamano = getSessionFactory(configFile).getProperties().get(PROPIEDAD_TAMANO_POOL);
+        if (tamano == null) {
+            return TAMANO_POOL_POR_DEFECTO;
+        }
+        try {
+            int valor = Integer.parseInt(tamano.toString().trim());
+            if (valor > 0) {
+                return valor;
+            }
+        } catch (NumberFormatException e) {
+            // se informa abajo
+        }
+        throw new IllegalArgumentException("Tamaño del pool de conexiones no válido: " + tamano);
+    }
+
+    /**
+     * Empieza a construir en un hilo aparte la SessionFactory asociada al fichero
+     * de configuración, para que esté lista cuando llegue la primera consulta. Si
+     * ya existe o se está construyendo, no se construye otra.
+     *
+     * @param configFile fichero de configuración de Hibernate
+     * @return futuro que se completa con la SessionFactory, o con la excepción
+     * producida al construirla
+     * @throws IllegalArgumentException si configFile es null o vacío
+     */
+    public static CompletableFuture<SessionFactory> iniciarEnSegundoPlano(String configFile) {
+        comprobarConfigFile(configFile);
+        CompletableFuture<SessionFactory> nueva = new CompletableFuture<>();
+        CompletableFuture<SessionFactory> existente = sessionFactories.putIfAbsent(configFile, nueva);
+        if (existente != null) {
+            return existente;
+        }
+        Thread hilo = new Thread(() -> construir(configFile, nueva), "arranque-hibernate-" + configFile);
+        hilo.setDaemon(true);
+        hilo.start();
+        return nueva;
+    }
+
+    /**
+     * Construye la SessionFactory y completa el futuro registrado. Si falla, se
+     * quita del registro para que la siguiente petición lo vuelva a intentar.
+     * Si se ha cerrado mientras se construía, se completa ya cerrada, de forma
+     * que nadie llegue a verla abierta.
+     */
+    private static void construir(String configFile, CompletableFuture<SessionFactory> futuro) {
+        try {
+            SessionFactory factory = buildSessionFactory(configFile);
+            synchronized (sessionFactories) {
+                if (sessionFactories.get(configFile) != futuro) {
+                    factory.close();
+                }
+                futuro.complete(factory);
+            }
+        } catch (RuntimeException | Error e) {
+            sessionFactories.remove(configFile, futuro);
+            futuro.completeExceptionally(e);
+        }
+    }
+
+    private static void comprobarConfigFile(String configFile) {
+        if (configFile == null || configFile.isEmpty()) {
+            throw new IllegalArgumentException("El fichero de configuración no puede ser null o vacío");
+        }
+    }
+
+    /**
+     * Cierra la SessionFactory asociada al fichero de configuración (y su pool de
+     * conexiones). Si todavía se está construyendo, se cierra antes de
+     * completar su futuro. Si no existe, no hace nada.
+     *
+     * @param configFile fichero de configuración de Hibernate
+     */
+    public static void shutdown(String configFile) {
+        if (configFile == null) {
+            return;
+        }
+        CompletableFuture<SessionFactory> sessionFactory;
+        synchronized (sessionFactories) {
+            sessionFactory = sessionFactories.remove(configFile);
+        }
+        // Si todavía se está construyendo, construir la cierra antes de completarla
+        if (sessionFactory != null && sessionFactory.isDone()) {
+            sessionFactory.thenAccept(SessionFactory::close);
+        }
     }
 
+    /**
+     * Cierra todas las SessionFactory registradas.
+     */
     public static void shutdown() {
         // Close caches and connection pools
-        if (sessionFactory != null) {
-        	sessionFactory.close();
-        	sessionFactory = null;
+        for (String configFile : sessionFactories.keySet()) {
+            shutdown(configFile);
         }
     }
 
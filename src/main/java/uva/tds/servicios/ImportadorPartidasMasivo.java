@@ -0,0 +1,382 @@
+package uva.tds.servicios;
+
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.persistence.PersistenceUnitUtil;
+
+import org.hibernate.HibernateException;
+import org.hibernate.LockMode;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+
+import uva.tds.entidades.Carta;
+import uva.tds.entidades.EstadisticasJugador;
+import uva.tds.entidades.Jugada;
+import uva.tds.entidades.Mano;
+import uva.tds.entidades.Partida;
+import uva.tds.entidades.ResultadoPartida;
+import uva.tds.entidades.Ronda;
+import uva.tds.entidades.Turno;
+
+/**
+ * Importador de partidas históricas ya validadas pensado para migraciones y
+ * cargas masivas. Utiliza una StatelessSession de Hibernate: no hay caché de
+ * primer nivel, ni comprobación de cambios, ni cascadas, por lo que la memoria
+ * consumida solo depende del tamaño del lote y no del número total de partidas.
+ *
+ * Las partidas se escriben por lotes, un lote por transacción, insertando cada
+ * tipo de entidad de forma consecutiva para que el driver pueda agrupar las
+ * sentencias (JDBC batching). Las estadísticas de los jugadores y las tablas
+ * intermedias de las relaciones muchos a muchos se escriben directamente con
+ * JDBC en modo batch, con el mismo tamaño de batch que la configuración de
+ * Hibernate (hibernate.jdbc.batch_size).
+ *
+ * Las cartas que ya tienen identificador (por ejemplo, las de una partida
+ * leída de la base de datos) no se vuelven a insertar: las tablas intermedias
+ * apuntan a sus filas existentes.
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+public class ImportadorPartidasMasivo {
+
+    private static final int TAMANO_LOTE_POR_DEFECTO = 500;
+
+    private final String configFile;
+    private final int tamanoLote;
+
+    /**
+     * Constructor del importador con el tamaño de lote por defecto.
+     *
+     * @param configFile fichero de configuración de Hibernate
+     * @throws IllegalArgumentException si configFile es null o vacío
+     */
+    public ImportadorPartidasMasivo(String configFile) {
+        this(configFile, TAMANO_LOTE_POR_DEFECTO);
+    }
+
+    /**
+     * Constructor del importador.
+     *
+     * @param configFile fichero de configuración de Hibernate
+     * @param tamanoLote número de partidas que se escriben en cada transacción
+     * @throws IllegalArgumentException si configFile es null o vacío
+     * @throws IllegalArgumentException si tamanoLote es menor que 1
+     */
+    public ImportadorPartidasMasivo(String configFile, int tamanoLote) {
+        if (configFile == null || configFile.isEmpty()) {
+            throw new IllegalArgumentException("El fichero de configuración no puede ser null o vacío");
+        }
+        if (tamanoLote < 1) {
+            throw new IllegalArgumentException("El tamaño de lote debe ser mayor que cero");
+        }
+        this.configFile = configFile;
+        this.tamanoLote = tamanoLote;
+    }
+
+    /**
+     * Devuelve el número de partidas que se escriben en cada transacción.
+     *
+     * @return tamaño del lote
+     */
+    public int getTamanoLote() {
+        return tamanoLote;
+    }
+
+    /**
+     * Importa todas las partidas de la colección.
+     *
+     * @param partidas partidas a importar
+     * @return número de partidas importadas
+     * @throws IllegalArgumentException si partidas es null o contiene algún null
+     * @throws IllegalStateException    si falla la escritura de algún lote (los
+     *                                  lotes anteriores quedan confirmados)
+     */
+    public int importar(Iterable<Partida> partidas) {
+        if (partidas == null) {
+            throw new IllegalArgumentException("Las partidas no pueden ser null");
+        }
+        return importar(partidas.iterator());
+    }
+
+    /**
+     * Importa las partidas a medida que las proporciona el iterador, de forma que
+     * nunca hay en memoria más de un lote.
+     *
+     * @param partidas iterador de partidas a importar
+     * @return número de partidas importadas
+     * @throws IllegalArgumentException si partidas es null o devuelve algún null
+     * @throws IllegalStateException    si falla la escritura de algún lote (los
+     *                                  lotes anteriores quedan confirmados)
+     */
+    public int importar(Iterator<Partida> partidas) {
+        if (partidas == null) {
+            throw new IllegalArgumentException("Las partidas no pueden ser null");
+        }
+
+        int importadas = 0;
+        SessionFactory factory = HibernateUtil.getSessionFactory(configFile);
+        // Sin batching en Hibernate (0) las filas intermedias se envían de una en una
+        int tamanoBatch = Math.max(1, factory.getSessionFactoryOptions().getJdbcBatchSize());
+        PersistenceUnitUtil unidadPersistencia = factory.getPersistenceUnitUtil();
+        StatelessSession session = factory.openStatelessSession();
+        try {
+            List<Partida> lote = new ArrayList<>(tamanoLote);
+            while (partidas.hasNext()) {
+                Partida partida = partidas.next();
+                if (partida == null) {
+                    throw new IllegalArgumentException("La partida no puede ser null");
+                }
+                lote.add(partida);
+                if (lote.size() == tamanoLote) {
+                    importadas += escribirLote(session, lote, tamanoBatch, unidadPersistencia);
+                    lote.clear();
+                }
+            }
+            if (!lote.isEmpty()) {
+                importadas += escribirLote(session, lote, tamanoBatch, unidadPersistencia);
+            }
+        } finally {
+            session.close();
+            // La sesión sin estado no pasa por la caché de segundo nivel
+            HibernateUtil.getSessionFactory(configFile).getCache().evictEntityData(EstadisticasJugador.class);
+        }
+        return importadas;
+    }
+
+    /**
+     * Escribe un lote de partidas en una única transacción. Cada tipo de entidad se
+     * inserta de forma consecutiva (cartas, resúmenes, partidas, manos, rondas,
+     * jugadas y turnos) para que Hibernate pueda agruparlas en batches; después se
+     * escriben con JDBC las estadísticas y las tablas intermedias.
+     *
+     * @param session            sesión sin estado
+     * @param lote               partidas a escribir
+     * @param tamanoBatch        filas por batch en las tablas intermedias
+     * @param unidadPersistencia permite leer el identificador de las cartas
+     * @return número de partidas escritas
+     */
+    private int escribirLote(StatelessSession session, List<Partida> lote, int tamanoBatch,
+            PersistenceUnitUtil unidadPersistencia) {
+        Transaction tx = session.beginTransaction();
+        try {
+            Map<Carta, Object> idsCartas = new IdentityHashMap<>();
+            for (Partida partida : lote) {
+                insertarCartas(session, partida, idsCartas, unidadPersistencia);
+            }
+            for (Partida partida : lote) {
+                if (partida.getResumenPartida() != null) {
+                    session.insert(partida.getResumenPartida());
+                }
+            }
+            for (Partida partida : lote) {
+                session.insert(partida);
+            }
+
+            List<Object[]> partidaMesa = new ArrayList<>();
+            List<Object[]> manoCartas = new ArrayList<>();
+            for (Partida partida : lote) {
+                for (Carta carta : partida.getMesaInicial()) {
+                    partidaMesa.add(new Object[] { partida.getId(), idsCartas.get(carta) });
+                }
+                for (Mano mano : partida.getManosJugadores()) {
+                    Serializable idMano = session.insert(mano);
+                    for (Carta carta : mano.getCartas()) {
+                        manoCartas.add(new Object[] { idMano, idsCartas.get(carta) });
+                    }
+                }
+            }
+
+            for (Partida partida : lote) {
+                for (Ronda ronda : partida.getRondas()) {
+                    session.insert(ronda);
+                }
+            }
+
+            List<Object[]> jugadaCaptura = new ArrayList<>();
+            List<Object[]> jugadaMesa = new ArrayList<>();
+            for (Partida partida : lote) {
+                for (Ronda ronda : partida.getRondas()) {
+                    for (Turno turno : ronda.getTurnos()) {
+                        Jugada jugada = turno.getJugada();
+                        Serializable idJugada = session.insert(jugada);
+                        for (Carta carta : jugada.getCaptura()) {
+                            jugadaCaptura.add(new Object[] { idJugada, idsCartas.get(carta) });
+                        }
+                        for (Carta carta : jugada.getMesaResultante()) {
+                            jugadaMesa.add(new Object[] { idJugada, idsCartas.get(carta) });
+                        }
+                    }
+                }
+            }
+            for (Partida partida : lote) {
+                for (Ronda ronda : partida.getRondas()) {
+                    for (Turno turno : ronda.getTurnos()) {
+                        session.insert(turno);
+                    }
+                }
+            }
+
+            // Las filas de las tablas intermedias referencian a las entidades anteriores,
+            // que tienen que estar ya en la base de datos. Hibernate ejecuta un batch en
+            // cuanto se añade una sentencia distinta, así que, con este orden de inserción,
+            // el único que puede quedar pendiente es el de los turnos, al que no apunta
+            // ninguna tabla intermedia; se envía al confirmar la transacción.
+            List<Object[]> estadisticasNuevas = new ArrayList<>();
+            List<Object[]> estadisticasExistentes = new ArrayList<>();
+            calcularEstadisticas(session, lote, estadisticasNuevas, estadisticasExistentes);
+            session.doWork(connection -> {
+                insertarFilas(connection,
+                        "INSERT INTO estadisticas_jugador (nombre, jugadas, ganadas, perdidas, guindis) "
+                                + "VALUES (?, ?, ?, ?, ?)",
+                        estadisticasNuevas, tamanoBatch);
+                insertarFilas(connection,
+                        "UPDATE estadisticas_jugador SET jugadas = ?, ganadas = ?, perdidas = ?, guindis = ? "
+                                + "WHERE nombre = ?",
+                        estadisticasExistentes, tamanoBatch);
+                insertarFilas(connection, "INSERT INTO partida_mesa (partida_id, carta_id) VALUES (?, ?)", partidaMesa,
+                        tamanoBatch);
+                insertarFilas(connection, "INSERT INTO mano_cartas (mano_id, carta_id) VALUES (?, ?)", manoCartas,
+                        tamanoBatch);
+                insertarFilas(connection, "INSERT INTO jugada_captura (jugada_id, carta_id) VALUES (?, ?)",
+                        jugadaCaptura, tamanoBatch);
+                insertarFilas(connection, "INSERT INTO jugada_mesa_resultante (jugada_id, carta_id) VALUES (?, ?)",
+                        jugadaMesa, tamanoBatch);
+            });
+
+            tx.commit();
+            return lote.size();
+        } catch (HibernateException e) {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            throw new IllegalStateException("No se ha podido importar el lote de partidas", e);
+        }
+    }
+
+    /**
+     * Acumula en memoria las estadísticas de los jugadores del lote, con una sola
+     * lectura por jugador, y devuelve las filas que hay que escribir. Las filas
+     * existentes se bloquean en orden alfabético, igual que en
+     * RepositorioPartidaHibernate. El resultado de cada partida se calcula una
+     * sola vez para sus dos jugadores.
+     *
+     * @param session     sesión sin estado
+     * @param lote        partidas del lote
+     * @param nuevas      filas (nombre, jugadas, ganadas, perdidas, guindis) de
+     *                    los jugadores sin estadísticas
+     * @param existentes  filas (jugadas, ganadas, perdidas, guindis, nombre) de
+     *                    los jugadores que ya tenían estadísticas
+     */
+    private void calcularEstadisticas(StatelessSession session, List<Partida> lote, List<Object[]> nuevas,
+            List<Object[]> existentes) {
+        TreeSet<String> nombres = new TreeSet<>();
+        for (Partida partida : lote) {
+            nombres.addAll(partida.getNombres());
+        }
+        Map<String, EstadisticasJugador> estadisticas = new TreeMap<>();
+        Set<String> sinEstadisticas = new HashSet<>();
+        for (String nombre : nombres) {
+            EstadisticasJugador jugador = (EstadisticasJugador) session.get(EstadisticasJugador.class, nombre,
+                    LockMode.PESSIMISTIC_WRITE);
+            if (jugador == null) {
+                sinEstadisticas.add(nombre);
+                jugador = new EstadisticasJugador(nombre);
+            }
+            estadisticas.put(nombre, jugador);
+        }
+        for (Partida partida : lote) {
+            ResultadoPartida resultado = ResultadoPartida.de(partida);
+            for (String nombre : new TreeSet<>(partida.getNombres())) {
+                estadisticas.get(nombre).sumarResultado(resultado);
+            }
+        }
+        for (EstadisticasJugador jugador : estadisticas.values()) {
+            if (sinEstadisticas.contains(jugador.getNombre())) {
+                nuevas.add(new Object[] { jugador.getNombre(), jugador.getJugadas(), jugador.getGanadas(),
+                        jugador.getPerdidas(), jugador.getGuindis() });
+            } else {
+                existentes.add(new Object[] { jugador.getJugadas(), jugador.getGanadas(), jugador.getPerdidas(),
+                        jugador.getGuindis(), jugador.getNombre() });
+            }
+        }
+    }
+
+    /**
+     * Inserta las cartas referenciadas por la partida (mesa inicial, manos y
+     * jugadas) que todavía no tienen identificador. Cada instancia de Carta se
+     * inserta una sola vez aunque aparezca en varios lugares, y las que ya están
+     * en la base de datos conservan su fila.
+     *
+     * @param session            sesión sin estado
+     * @param partida            partida cuyas cartas se insertan
+     * @param idsCartas          identificadores de cada instancia de carta
+     * @param unidadPersistencia permite leer el identificador de las cartas
+     */
+    private void insertarCartas(StatelessSession session, Partida partida, Map<Carta, Object> idsCartas,
+            PersistenceUnitUtil unidadPersistencia) {
+        List<Carta> cartas = new ArrayList<>(partida.getMesaInicial());
+        for (Mano mano : partida.getManosJugadores()) {
+            cartas.addAll(mano.getCartas());
+        }
+        for (Ronda ronda : partida.getRondas()) {
+            for (Turno turno : ronda.getTurnos()) {
+                Jugada jugada = turno.getJugada();
+                cartas.add(jugada.getJuega());
+                cartas.addAll(jugada.getCaptura());
+                cartas.addAll(jugada.getMesaResultante());
+            }
+        }
+        for (Carta carta : cartas) {
+            if (!idsCartas.containsKey(carta)) {
+                Object existente = unidadPersistencia.getIdentifier(carta);
+                idsCartas.put(carta, existente != null ? existente : session.insert(carta));
+            }
+        }
+    }
+
+    /**
+     * Escribe filas usando un PreparedStatement en modo batch.
+     *
+     * @param connection  conexión JDBC de la sesión
+     * @param sql         sentencia con un parámetro por cada valor de la fila
+     * @param filas       valores de cada fila, en el orden de los parámetros
+     * @param tamanoBatch filas que se envían en cada batch
+     * @throws SQLException si falla la inserción
+     */
+    private void insertarFilas(Connection connection, String sql, List<Object[]> filas, int tamanoBatch)
+            throws SQLException {
+        if (filas.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            int pendientes = 0;
+            for (Object[] fila : filas) {
+                for (int i = 0; i < fila.length; i++) {
+                    ps.setObject(i + 1, fila[i]);
+                }
+                ps.addBatch();
+                if (++pendientes == tamanoBatch) {
+                    ps.executeBatch();
+                    pendientes = 0;
+                }
+            }
+            if (pendientes > 0) {
+                ps.executeBatch();
+            }
+        }
+    }
+}
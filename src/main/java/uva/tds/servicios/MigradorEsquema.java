@@ -0,0 +1,216 @@
+package uva.tds.servicios;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+
+/**
+ * Aplica las migraciones versionadas del esquema antes de construir la
+ * SessionFactory, para que en producción Hibernate solo tenga que validar el
+ * esquema (hbm2ddl.auto=validate) en lugar de regenerarlo en cada arranque.
+ *
+ * Las migraciones se listan, en orden, en un fichero índice del classpath; la
+ * versión de cada script es su posición en el índice. Las versiones aplicadas
+ * se registran en la tabla version_esquema, de forma que cada script se ejecuta
+ * una sola vez.
+ *
+ * HSQLDB confirma cada sentencia DDL en cuanto se ejecuta, así que un script que
+ * falla a medias no se puede deshacer. Por eso, antes de ejecutar un script se
+ * reserva su versión en version_esquema sin fecha de aplicación, y la fecha se
+ * anota al terminar. La reserva hace que dos instancias que arrancan a la vez no
+ * apliquen el mismo script, y si un script falla su versión queda sin fecha: el
+ * esquema está a medio migrar y no se vuelve a migrar (ni a arrancar) hasta que
+ * alguien lo revise y borre esa fila.
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+final class MigradorEsquema {
+
+    static final String TABLA_VERSIONES = "version_esquema";
+
+    private MigradorEsquema() { }
+
+    /**
+     * Aplica las migraciones del índice que todavía no se han aplicado.
+     *
+     * @param conexiones proveedor de conexiones de la configuración
+     * @param indice ruta en el classpath del fichero índice de migraciones
+     * @return número de migraciones aplicadas
+     * @throws IllegalArgumentException si conexiones es null o indice es null o vacío
+     * @throws IllegalStateException si no se puede leer un script, falla su
+     * ejecución, otra instancia está aplicando la misma versión o el esquema
+     * quedó a medio migrar en un arranque anterior
+     */
+    static int migrar(ConnectionProvider conexiones, String indice) {
+        if (conexiones == null) throw new IllegalArgumentException("El proveedor de conexiones no puede ser null");
+        if (indice == null || indice.isEmpty()) {
+            throw new IllegalArgumentException("El índice de migraciones no puede ser null o vacío");
+        }
+        List<String> scripts = leerLineas(indice);
+        String directorio = indice.contains("/") ? indice.substring(0, indice.lastIndexOf('/') + 1) : "";
+
+        Connection conexion = null;
+        try {
+            conexion = conexiones.getConnection();
+            boolean autoCommit = conexion.getAutoCommit();
+            conexion.setAutoCommit(false);
+            try {
+                crearTablaVersiones(conexion);
+                comprobarMigracionCompleta(conexion);
+                int aplicadas = 0;
+                for (int version = versionActual(conexion) + 1; version <= scripts.size(); version++) {
+                    aplicar(conexion, version, directorio + scripts.get(version - 1));
+                    aplicadas++;
+                }
+                return aplicadas;
+            } finally {
+                conexion.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("No se ha podido migrar el esquema", e);
+        } finally {
+            if (conexion != null) {
+                try {
+                    conexiones.closeConnection(conexion);
+                } catch (SQLException e) {
+                    // La migración ya ha terminado; el pool descartará la conexión
+                }
+            }
+        }
+    }
+
+    private static void crearTablaVersiones(Connection conexion) throws SQLException {
+        DatabaseMetaData metadatos = conexion.getMetaData();
+        for (String nombre : new String[] { TABLA_VERSIONES, TABLA_VERSIONES.toUpperCase() }) {
+            try (ResultSet tablas = metadatos.getTables(null, null, nombre, new String[] { "TABLE" })) {
+                if (tablas.next()) {
+                    return;
+                }
+            }
+        }
+        try (Statement sentencia = conexion.createStatement()) {
+            sentencia.execute("create table " + TABLA_VERSIONES + " (version integer not null, "
+                    + "script varchar(255) not null, aplicada timestamp, primary key (version))");
+        }
+        conexion.commit();
+    }
+
+    private static int versionActual(Connection conexion) throws SQLException {
+        try (Statement sentencia = conexion.createStatement();
+                ResultSet resultado = sentencia.executeQuery("select max(version) from " + TABLA_VERSIONES)) {
+            resultado.next();
+            return resultado.getInt(1);
+        }
+    }
+
+    /**
+     * Comprueba que no haya ninguna versión reservada sin fecha de aplicación, ya
+     * sea porque su script falló o porque otra instancia la está aplicando.
+     */
+    private static void comprobarMigracionCompleta(Connection conexion) throws SQLException {
+        try (Statement sentencia = conexion.createStatement();
+                ResultSet resultado = sentencia.executeQuery("select version, script from " + TABLA_VERSIONES
+                        + " where aplicada is null order by version")) {
+            if (resultado.next()) {
+                throw new IllegalStateException("El esquema está a medio migrar en la versión "
+                        + resultado.getInt(1) + " (" + resultado.getString(2) + "): se está aplicando desde "
+                        + "otra instancia o falló; revisa el esquema y borra esa versión de " + TABLA_VERSIONES);
+            }
+        }
+    }
+
+    /**
+     * Reserva la versión, ejecuta el script y anota la fecha de aplicación. Si
+     * otra instancia ya ha reservado la versión, la reserva falla por clave
+     * duplicada y no se ejecuta nada. Si falla el script, la versión queda
+     * reservada sin fecha, porque las sentencias DDL ya ejecutadas no se deshacen.
+     */
+    private static void aplicar(Connection conexion, int version, String script) throws SQLException {
+        List<String> sentencias = separarSentencias(leerLineas(script));
+        try (PreparedStatement reserva = conexion.prepareStatement(
+                "insert into " + TABLA_VERSIONES + " (version, script) values (?, ?)")) {
+            reserva.setInt(1, version);
+            reserva.setString(2, script);
+            reserva.executeUpdate();
+            conexion.commit();
+        } catch (SQLException e) {
+            conexion.rollback();
+            throw new IllegalStateException("Otra instancia está aplicando la migración " + script, e);
+        }
+        try {
+            try (Statement sentencia = conexion.createStatement()) {
+                for (String sql : sentencias) {
+                    sentencia.execute(sql);
+                }
+            }
+            try (PreparedStatement registro = conexion.prepareStatement(
+                    "update " + TABLA_VERSIONES + " set aplicada = ? where version = ?")) {
+                registro.setTimestamp(1, Timestamp.from(Instant.now()));
+                registro.setInt(2, version);
+                registro.executeUpdate();
+            }
+            conexion.commit();
+        } catch (SQLException e) {
+            conexion.rollback();
+            throw new IllegalStateException("Ha fallado la migración " + script
+                    + " y el esquema ha quedado a medio migrar", e);
+        }
+    }
+
+    /**
+     * Une las líneas del script en sentencias terminadas en punto y coma,
+     * descartando las líneas vacías y los comentarios de línea.
+     */
+    private static List<String> separarSentencias(List<String> lineas) {
+        List<String> sentencias = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        for (String linea : lineas) {
+            actual.append(linea).append('\n');
+            if (linea.endsWith(";")) {
+                sentencias.add(actual.substring(0, actual.lastIndexOf(";")).trim());
+                actual.setLength(0);
+            }
+        }
+        if (!actual.toString().isBlank()) {
+            sentencias.add(actual.toString().trim());
+        }
+        return sentencias;
+    }
+
+    /**
+     * Lee un recurso del classpath sin las líneas vacías ni los comentarios
+     * (que empiezan por # en el índice y por -- en los scripts).
+     */
+    private static List<String> leerLineas(String recurso) {
+        InputStream entrada = MigradorEsquema.class.getClassLoader().getResourceAsStream(recurso);
+        if (entrada == null) throw new IllegalStateException("No se encuentra el recurso " + recurso);
+        List<String> lineas = new ArrayList<>();
+        try (BufferedReader lector = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8))) {
+            String linea;
+            while ((linea = lector.readLine()) != null) {
+                linea = linea.trim();
+                if (!linea.isEmpty() && !linea.startsWith("#") && !linea.startsWith("--")) {
+                    lineas.add(linea);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("No se ha podido leer el recurso " + recurso, e);
+        }
+        return lineas;
+    }
+}
@@ -0,0 +1,134 @@
+package uva.tds.servicios;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.hibernate.Session;
+
+import uva.tds.interfaces.RepositorioPartida;
+
+/**
+ * Particiones mensuales de RepositorioPartidaParticionado sobre una base de
+ * datos con Hibernate. La partición de cada mes es un RepositorioPartidaHibernate
+ * sobre su propio esquema, llamado con el prefijo indicado seguido del año y el
+ * mes (por ejemplo PARTIDAS_2024_03), con sus propias tablas de partidas,
+ * rondas, turnos y estadísticas. El esquema y sus tablas se crean al usar la
+ * partición por primera vez (ver HibernateUtil#conEsquema) y eliminar la
+ * partición borra el esquema entero.
+ *
+ * Cada partición tiene su propia SessionFactory y su propio pool de conexiones,
+ * y no usa la caché de segundo nivel.
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+public class ParticionesHibernate {
+
+    private final String configFile;
+    private final String prefijo;
+    private final Pattern patronEsquema;
+
+    /**
+     * Crea las particiones sobre la base de datos de una configuración.
+     *
+     * @param configFile fichero de configuración de Hibernate
+     * @param prefijo    prefijo de los esquemas de las particiones
+     * @throws IllegalArgumentException si configFile es null o vacío, o si
+     *                                  prefijo no es un identificador SQL simple
+     */
+    public ParticionesHibernate(String configFile, String prefijo) {
+        if (configFile == null || configFile.isEmpty()) {
+            throw new IllegalArgumentException("El fichero de configuración no puede ser null o vacío");
+        }
+        if (prefijo == null || !prefijo.matches("[A-Za-z][A-Za-z0-9_]*")) {
+            throw new IllegalArgumentException("El prefijo debe ser un identificador SQL simple");
+        }
+        this.configFile = configFile;
+        this.prefijo = prefijo.toUpperCase(Locale.ROOT);
+        this.patronEsquema = Pattern.compile(Pattern.quote(this.prefijo) + "_(\\d{4})_(0[1-9]|1[0-2])");
+    }
+
+    /**
+     * Crea un repositorio particionado con estas particiones, abriendo las que
+     * ya existen en la base de datos.
+     *
+     * @return repositorio particionado
+     * @throws IllegalStateException si no se pueden leer los esquemas existentes
+     */
+    public RepositorioPartidaParticionado crearRepositorio() {
+        return new RepositorioPartidaParticionado(this::abrir, this::eliminar, getParticionesExistentes());
+    }
+
+    /**
+     * Devuelve el esquema de la partición de un mes.
+     *
+     * @param mes mes de la partición
+     * @return nombre del esquema
+     * @throws IllegalArgumentException si mes es null
+     */
+    public String getEsquema(YearMonth mes) {
+        if (mes == null) {
+            throw new IllegalArgumentException("El mes no puede ser null");
+        }
+        return String.format(Locale.ROOT, "%s_%04d_%02d", prefijo, mes.getYear(), mes.getMonthValue());
+    }
+
+    /**
+     * Abre (o crea) la partición de un mes.
+     *
+     * @param mes mes de la partición
+     * @return repositorio de la partición
+     * @throws IllegalArgumentException si mes es null
+     */
+    public RepositorioPartida abrir(YearMonth mes) {
+        return new RepositorioPartidaHibernate(HibernateUtil.conEsquema(configFile, getEsquema(mes)));
+    }
+
+    /**
+     * Elimina la partición de un mes: cierra su SessionFactory y borra su
+     * esquema con todas sus tablas.
+     *
+     * @param mes       mes de la partición
+     * @param particion repositorio de la partición
+     * @throws IllegalArgumentException si mes es null
+     */
+    public void eliminar(YearMonth mes, RepositorioPartida particion) {
+        String esquema = getEsquema(mes);
+        HibernateUtil.shutdown(HibernateUtil.conEsquema(configFile, esquema));
+        try (Session session = HibernateUtil.getSessionFactory(configFile).openSession()) {
+            session.beginTransaction();
+            session.createNativeQuery("DROP SCHEMA " + esquema + " CASCADE").executeUpdate();
+            session.getTransaction().commit();
+        }
+    }
+
+    /**
+     * Devuelve los meses de los que hay esquema en la base de datos.
+     *
+     * @return meses con partición, del más antiguo al más reciente
+     * @throws IllegalStateException si no se pueden leer los esquemas
+     */
+    public List<YearMonth> getParticionesExistentes() {
+        List<?> esquemas;
+        try (Session session = HibernateUtil.getSessionFactory(configFile).openSession()) {
+            esquemas = session.createNativeQuery("SELECT SCHEMA_NAME FROM INFORMATION_SCHEMA.SCHEMATA")
+                    .getResultList();
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("No se han podido leer los esquemas de la base de datos", e);
+        }
+        List<YearMonth> meses = new ArrayList<>();
+        for (Object esquema : esquemas) {
+            Matcher coincidencia = patronEsquema.matcher(esquema.toString().toUpperCase(Locale.ROOT));
+            if (coincidencia.matches()) {
+                meses.add(YearMonth.of(Integer.parseInt(coincidencia.group(1)),
+                        Integer.parseInt(coincidencia.group(2))));
+            }
+        }
+        meses.sort(null);
+        return meses;
+    }
+}
@@ -0,0 +1,606 @@
+package uva.tds.servicios;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.persistence.PersistenceException;
+
+import org.hibernate.HibernateException;
+import org.hibernate.LockMode;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import uva.tds.entidades.Carta;
+import uva.tds.entidades.EstadisticasJugador;
+import uva.tds.entidades.Jugada;
+import uva.tds.entidades.Mano;
+import uva.tds.entidades.Partida;
+import uva.tds.entidades.ResultadoPartida;
+import uva.tds.entidades.ResumenPartida;
+import uva.tds.entidades.Ronda;
+import uva.tds.entidades.Turno;
+
+/**
+ * Purga de las partidas anteriores a una fecha de corte. Las partidas se
+ * archivan y se eliminan por lotes, un lote por transacción:
+ * <ol>
+ * <li>se leen las partidas más antiguas del lote con todo su grafo;</li>
+ * <li>se escriben en un fichero temporal del archivo (JSON por líneas
+ * comprimido con gzip, una partida por línea) que se sincroniza con el
+ * disco;</li>
+ * <li>se eliminan con una sentencia DELETE por tabla para todo el lote (en vez
+ * de cargar y borrar cada partida fila a fila) y se restan de las
+ * estadísticas de los jugadores;</li>
+ * <li>al confirmar la transacción, el fichero temporal pasa a ser definitivo
+ * (partidas-000001.jsonl.gz, partidas-000002.jsonl.gz...).</li>
+ * </ol>
+ *
+ * La purga se puede interrumpir ({@link #detener()}, o porque se cae el
+ * proceso) y volver a lanzar: las partidas que ya se eliminaron no vuelven a
+ * leerse, y si queda un fichero temporal de un lote interrumpido se conserva
+ * si sus partidas ya no están en la base de datos y se descarta si siguen en
+ * ella. Cada partida queda archivada exactamente una vez.
+ *
+ * Para no saturar la base de datos se puede limitar el número de partidas
+ * eliminadas por segundo; entre lotes se espera lo necesario para no
+ * superarlo.
+ *
+ * Las cartas no se eliminan, igual que en
+ * {@link RepositorioPartidaHibernate#eliminar(String)}.
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+public class PurgaRetencionPartidas {
+
+    private static final int TAMANO_LOTE_POR_DEFECTO = 200;
+    private static final int MAXIMO_PARAMETROS = 1000;
+    private static final String EXTENSION = ".jsonl.gz";
+    private static final String EXTENSION_TEMPORAL = ".tmp";
+    private static final Pattern NOMBRE_ARCHIVO = Pattern.compile("partidas-(\\d+)\\.jsonl\\.gz(\\.tmp)?");
+
+    private static final String SQL_JUGADAS_DEL_LOTE = "SELECT T.jugada_id FROM turnos T "
+            + "JOIN rondas R ON T.ronda_id = R.id WHERE R.partida_id IN (:ids) AND T.jugada_id IS NOT NULL";
+    private static final String SQL_RONDAS_DEL_LOTE = "SELECT R.id FROM rondas R WHERE R.partida_id IN (:ids)";
+    private static final String SQL_MANOS_DEL_LOTE = "SELECT M.id FROM manos M WHERE M.partida_id IN (:ids)";
+
+    private final String configFile;
+    private final Path directorioArchivo;
+    private final int tamanoLote;
+    private final double partidasPorSegundo;
+    private volatile boolean detenida = false;
+
+    /**
+     * Crea una purga con el tamaño de lote por defecto y sin límite de
+     * velocidad.
+     *
+     * @param configFile        fichero de configuración de Hibernate
+     * @param directorioArchivo directorio donde se escriben los ficheros del
+     *                          archivo
+     * @throws IllegalArgumentException si algún parámetro es null o vacío
+     */
+    public PurgaRetencionPartidas(String configFile, Path directorioArchivo) {
+        this(configFile, directorioArchivo, TAMANO_LOTE_POR_DEFECTO, 0);
+    }
+
+    /**
+     * Crea una purga.
+     *
+     * @param configFile         fichero de configuración de Hibernate
+     * @param directorioArchivo  directorio donde se escriben los ficheros del
+     *                           archivo
+     * @param tamanoLote         partidas que se archivan y eliminan en cada
+     *                           transacción
+     * @param partidasPorSegundo máximo de partidas eliminadas por segundo (0
+     *                           para no limitarlo)
+     * @throws IllegalArgumentException si configFile o directorioArchivo son
+     *                                  null o vacíos, si tamanoLote es menor
+     *                                  que 1 o si partidasPorSegundo es
+     *                                  negativo
+     */
+    public PurgaRetencionPartidas(String configFile, Path directorioArchivo, int tamanoLote,
+            double partidasPorSegundo) {
+        if (configFile == null || configFile.isEmpty()) {
+            throw new IllegalArgumentException("El fichero de configuración no puede ser null o vacío");
+        }
+        if (directorioArchivo == null) {
+            throw new IllegalArgumentException("El directorio del archivo no puede ser null");
+        }
+        if (tamanoLote < 1) {
+            throw new IllegalArgumentException("El tamaño de lote debe ser mayor que cero");
+        }
+        if (partidasPorSegundo < 0 || Double.isNaN(partidasPorSegundo)) {
+            throw new IllegalArgumentException("El límite de partidas por segundo no puede ser negativo");
+        }
+        this.configFile = configFile;
+        this.directorioArchivo = directorioArchivo;
+        this.tamanoLote = tamanoLote;
+        this.partidasPorSegundo = partidasPorSegundo;
+    }
+
+    /**
+     * Archiva y elimina las partidas anteriores a la fecha de corte.
+     *
+     * @param fechaCorte fecha de corte (las partidas de esa fecha se conservan)
+     * @return progreso final de la purga
+     * @throws IllegalArgumentException si fechaCorte es null
+     * @throws IllegalStateException    si falla el archivo o la eliminación de
+     *                                  un lote (los lotes anteriores quedan
+     *                                  archivados y eliminados)
+     */
+    public Progreso purgar(LocalDate fechaCorte) {
+        return purgar(fechaCorte, progreso -> {
+        });
+    }
+
+    /**
+     * Archiva y elimina las partidas anteriores a la fecha de corte, informando
+     * del progreso después de cada lote.
+     *
+     * @param fechaCorte fecha de corte (las partidas de esa fecha se conservan)
+     * @param alAvanzar  recibe el progreso después de cada lote
+     * @return progreso final de la purga
+     * @throws IllegalArgumentException si algún parámetro es null
+     * @throws IllegalStateException    si falla el archivo o la eliminación de
+     *                                  un lote (los lotes anteriores quedan
+     *                                  archivados y eliminados)
+     */
+    public Progreso purgar(LocalDate fechaCorte, Consumer<Progreso> alAvanzar) {
+        if (fechaCorte == null) {
+            throw new IllegalArgumentException("La fecha de corte no puede ser null");
+        }
+        if (alAvanzar == null) {
+            throw new IllegalArgumentException("El receptor del progreso no puede ser null");
+        }
+        detenida = false;
+
+        try {
+            Files.createDirectories(directorioArchivo);
+            recuperarLoteInterrumpido();
+        } catch (IOException e) {
+            throw new IllegalStateException("No se puede preparar el directorio del archivo " + directorioArchivo, e);
+        }
+
+        long pendientes = contarPendientes(fechaCorte);
+        long purgadas = 0;
+        int lotes = 0;
+        long inicio = System.nanoTime();
+        while (!detenida) {
+            int eliminadas = purgarLote(fechaCorte);
+            if (eliminadas == 0) {
+                break;
+            }
+            purgadas += eliminadas;
+            lotes++;
+            alAvanzar.accept(new Progreso(purgadas, Math.max(pendientes, purgadas), lotes, false));
+            esperarLimite(purgadas, inicio);
+        }
+        if (lotes > 0) {
+            HibernateUtil.getSessionFactory(configFile).getCache().evictQueryRegion(
+                    RepositorioPartidaHibernate.REGION_CONSULTAS);
+        }
+        return new Progreso(purgadas, Math.max(pendientes, purgadas), lotes, !detenida);
+    }
+
+    /**
+     * Pide que la purga en curso se detenga al terminar el lote actual. Se
+     * puede reanudar volviendo a llamar a purgar.
+     */
+    public void detener() {
+        detenida = true;
+    }
+
+    /**
+     * Lee los identificadores de las partidas de un fichero del archivo.
+     *
+     * @param archivo fichero del archivo
+     * @return identificadores de las partidas, en el orden del fichero
+     * @throws IllegalArgumentException si archivo es null
+     * @throws IllegalStateException    si no se puede leer el fichero
+     */
+    public static List<String> leerIdentificadores(Path archivo) {
+        if (archivo == null) {
+            throw new IllegalArgumentException("El fichero no puede ser null");
+        }
+        List<String> ids = new ArrayList<>();
+        try (BufferedReader lector = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(archivo)), StandardCharsets.UTF_8))) {
+            String linea;
+            while ((linea = lector.readLine()) != null) {
+                ids.add(new JSONObject(linea).getString("id"));
+            }
+        } catch (IOException | JSONException e) {
+            throw new IllegalStateException("No se puede leer el archivo " + archivo, e);
+        }
+        return ids;
+    }
+
+    /**
+     * Archiva y elimina un lote de partidas en una transacción.
+     *
+     * @return número de partidas eliminadas (0 si no quedan)
+     */
+    private int purgarLote(LocalDate fechaCorte) {
+        Session session = HibernateUtil.getSessionFactory(configFile).openSession();
+        Path temporal = null;
+        try {
+            Transaction tx = session.beginTransaction();
+            List<String> ids = session.createQuery(
+                    "SELECT P.id FROM Partida P WHERE P.fecha < :fechaCorte ORDER BY P.fecha ASC, P.id ASC",
+                    String.class)
+                    .setParameter("fechaCorte", fechaCorte)
+                    .setMaxResults(tamanoLote)
+                    .list();
+            if (ids.isEmpty()) {
+                tx.commit();
+                return 0;
+            }
+
+            List<Partida> partidas = RepositorioPartidaHibernate.cargarGrafosCompletos(session, ids);
+            Path definitivo = directorioArchivo.resolve(String.format("partidas-%06d%s", siguienteNumero(), EXTENSION));
+            temporal = definitivo.resolveSibling(definitivo.getFileName() + EXTENSION_TEMPORAL);
+            escribirArchivo(temporal, partidas);
+
+            restarEstadisticas(session, partidas);
+            session.flush();
+            session.clear();
+            eliminarLote(session, ids);
+            tx.commit();
+
+            Files.move(temporal, definitivo, StandardCopyOption.ATOMIC_MOVE);
+            temporal = null;
+            return ids.size();
+        } catch (IOException | PersistenceException e) {
+            throw new IllegalStateException("No se ha podido purgar el lote de partidas", e);
+        } finally {
+            if (session.getTransaction().isActive()) {
+                session.getTransaction().rollback();
+                borrarSinErrores(temporal);
+            }
+            session.close();
+        }
+    }
+
+    /**
+     * Elimina las partidas del lote y todas sus filas dependientes con una
+     * sentencia por tabla, de las hojas a la raíz del grafo.
+     */
+    private void eliminarLote(Session session, List<String> ids) {
+        List<Number> jugadas = seleccionar(session, SQL_JUGADAS_DEL_LOTE, ids);
+        List<Number> rondas = seleccionar(session, SQL_RONDAS_DEL_LOTE, ids);
+        List<Number> manos = seleccionar(session, SQL_MANOS_DEL_LOTE, ids);
+        List<String> resumenes = new ArrayList<>();
+        for (List<String> parte : partir(ids)) {
+            List<?> filas = session.createNativeQuery("SELECT resumen_id FROM partidas WHERE id IN (:ids) "
+                    + "AND resumen_id IS NOT NULL")
+                    .setParameterList("ids", parte)
+                    .list();
+            filas.forEach(fila -> resumenes.add((String) fila));
+        }
+
+        borrar(session, "DELETE FROM jugada_captura WHERE jugada_id IN (:ids)", jugadas, "jugada_captura");
+        borrar(session, "DELETE FROM jugada_mesa_resultante WHERE jugada_id IN (:ids)", jugadas,
+                "jugada_mesa_resultante");
+        borrar(session, "DELETE FROM ronda_mesa WHERE ronda_id IN (:ids)", rondas, "ronda_mesa");
+        borrar(session, "DELETE FROM turnos WHERE ronda_id IN (:ids)", rondas, "turnos");
+        borrar(session, "DELETE FROM jugadas WHERE id IN (:ids)", jugadas, "jugadas");
+        borrar(session, "DELETE FROM rondas WHERE id IN (:ids)", rondas, "rondas");
+        borrar(session, "DELETE FROM mano_cartas WHERE mano_id IN (:ids)", manos, "mano_cartas");
+        borrar(session, "DELETE FROM manos WHERE id IN (:ids)", manos, "manos");
+        borrar(session, "DELETE FROM partida_mesa WHERE partida_id IN (:ids)", ids, "partida_mesa");
+        borrar(session, "DELETE FROM partidas WHERE id IN (:ids)", ids, "partidas");
+        borrar(session, "DELETE FROM resumen_partida WHERE id IN (:ids)", resumenes, "resumen_partida");
+    }
+
+    private List<Number> seleccionar(Session session, String sql, List<String> ids) {
+        List<Number> resultado = new ArrayList<>();
+        for (List<String> parte : partir(ids)) {
+            List<?> filas = session.createNativeQuery(sql).setParameterList("ids", parte).list();
+            filas.forEach(fila -> resultado.add((Number) fila));
+        }
+        return resultado;
+    }
+
+    /**
+     * Ejecuta un DELETE sobre una tabla. Solo se invalidan las regiones de la
+     * caché de segundo nivel de esa tabla.
+     */
+    private void borrar(Session session, String sql, List<?> ids, String tabla) {
+        for (List<?> parte : partir(ids)) {
+            session.createNativeQuery(sql)
+                    .addSynchronizedQuerySpace(tabla)
+                    .setParameterList("ids", parte)
+                    .executeUpdate();
+        }
+    }
+
+    /**
+     * Resta las partidas del lote de las estadísticas de sus jugadores. Las
+     * filas se bloquean en orden alfabético, igual que en
+     * RepositorioPartidaHibernate.
+     */
+    private void restarEstadisticas(Session session, List<Partida> partidas) {
+        Map<String, List<ResultadoPartida>> porJugador = new TreeMap<>();
+        for (Partida partida : partidas) {
+            ResultadoPartida resultado = ResultadoPartida.de(partida);
+            for (String nombre : new TreeSet<>(partida.getNombres())) {
+                porJugador.computeIfAbsent(nombre, n -> new ArrayList<>()).add(resultado);
+            }
+        }
+        for (Map.Entry<String, List<ResultadoPartida>> jugador : porJugador.entrySet()) {
+            EstadisticasJugador estadisticas = session.get(EstadisticasJugador.class, jugador.getKey(),
+                    LockMode.PESSIMISTIC_WRITE);
+            if (estadisticas != null) {
+                jugador.getValue().forEach(estadisticas::restarResultado);
+            }
+        }
+    }
+
+    /**
+     * Si quedó el fichero temporal de un lote interrumpido, lo conserva si sus
+     * partidas ya se eliminaron (la transacción se confirmó) y lo borra si
+     * siguen en la base de datos (la transacción se deshizo).
+     */
+    private void recuperarLoteInterrumpido() throws IOException {
+        List<Path> temporales;
+        try (Stream<Path> ficheros = Files.list(directorioArchivo)) {
+            temporales = ficheros.filter(f -> f.getFileName().toString().endsWith(EXTENSION + EXTENSION_TEMPORAL))
+                    .toList();
+        }
+        for (Path temporal : temporales) {
+            List<String> ids;
+            try {
+                ids = leerIdentificadores(temporal);
+            } catch (IllegalStateException e) {
+                // Fichero a medio escribir: la transacción no llegó a confirmarse
+                Files.delete(temporal);
+                continue;
+            }
+            if (!ids.isEmpty() && contarExistentes(ids) == 0) {
+                String nombre = temporal.getFileName().toString();
+                Files.move(temporal, temporal.resolveSibling(nombre.substring(0,
+                        nombre.length() - EXTENSION_TEMPORAL.length())), StandardCopyOption.ATOMIC_MOVE);
+            } else {
+                Files.delete(temporal);
+            }
+        }
+    }
+
+    private long contarExistentes(List<String> ids) {
+        long existentes = 0;
+        try (Session session = HibernateUtil.getSessionFactory(configFile).openSession()) {
+            for (List<String> parte : partir(ids)) {
+                existentes += session.createQuery("SELECT COUNT(P) FROM Partida P WHERE P.id IN :ids", Long.class)
+                        .setParameterList("ids", parte)
+                        .uniqueResult();
+            }
+        }
+        return existentes;
+    }
+
+    private long contarPendientes(LocalDate fechaCorte) {
+        try (Session session = HibernateUtil.getSessionFactory(configFile).openSession()) {
+            return session.createQuery("SELECT COUNT(P) FROM Partida P WHERE P.fecha < :fechaCorte", Long.class)
+                    .setParameter("fechaCorte", fechaCorte)
+                    .uniqueResult();
+        } catch (HibernateException e) {
+            throw new IllegalStateException("No se pueden contar las partidas a purgar", e);
+        }
+    }
+
+    /**
+     * Devuelve el número del siguiente fichero del archivo.
+     */
+    private int siguienteNumero() throws IOException {
+        int ultimo = 0;
+        try (Stream<Path> ficheros = Files.list(directorioArchivo)) {
+            for (Path fichero : (Iterable<Path>) ficheros::iterator) {
+                Matcher nombre = NOMBRE_ARCHIVO.matcher(fichero.getFileName().toString());
+                if (nombre.matches()) {
+                    ultimo = Math.max(ultimo, Integer.parseInt(nombre.group(1)));
+                }
+            }
+        }
+        return ultimo + 1;
+    }
+
+    /**
+     * Escribe las partidas en un fichero JSON por líneas comprimido y lo
+     * sincroniza con el disco.
+     */
+    private void escribirArchivo(Path fichero, List<Partida> partidas) throws IOException {
+        try (FileOutputStream salida = new FileOutputStream(fichero.toFile())) {
+            GZIPOutputStream comprimido = new GZIPOutputStream(salida);
+            Writer escritor = new BufferedWriter(new OutputStreamWriter(comprimido, StandardCharsets.UTF_8));
+            for (Partida partida : partidas) {
+                escritor.write(aJson(partida).toString());
+                escritor.write('\n');
+            }
+            escritor.flush();
+            comprimido.finish();
+            salida.getFD().sync();
+        }
+    }
+
+    private JSONObject aJson(Partida partida) {
+        JSONObject json = new JSONObject();
+        json.put("id", partida.getId());
+        json.put("fecha", partida.getFecha().toString());
+        json.put("jugador1", partida.getJugador1());
+        json.put("jugador2", partida.getJugador2());
+        json.put("mesaInicial", cartas(partida.getMesaInicial()));
+
+        JSONArray manos = new JSONArray();
+        for (Mano mano : partida.getManosJugadores()) {
+            manos.put(new JSONObject()
+                    .put("ronda", mano.getNumeroRonda())
+                    .put("jugador", mano.getNombreJugador())
+                    .put("cartas", cartas(mano.getCartas())));
+        }
+        json.put("manos", manos);
+
+        JSONArray rondas = new JSONArray();
+        for (Ronda ronda : partida.getRondas()) {
+            JSONArray turnos = new JSONArray();
+            for (Turno turno : ronda.getTurnos()) {
+                Jugada jugada = turno.getJugada();
+                turnos.put(new JSONObject()
+                        .put("numero", turno.getNumero())
+                        .put("juega", jugada.getJuega().toString())
+                        .put("captura", cartas(jugada.getCaptura()))
+                        .put("mesaResultante", cartas(jugada.getMesaResultante())));
+            }
+            rondas.put(new JSONObject().put("numero", ronda.getNumero()).put("turnos", turnos));
+        }
+        json.put("rondas", rondas);
+
+        ResumenPartida resumen = partida.getResumenPartida();
+        if (resumen != null) {
+            json.put("resumen", new JSONObject()
+                    .put("completa", resumen.isCompleta())
+                    .put("puntos", new JSONArray().put(resumen.getPuntosJugador1()).put(resumen.getPuntosJugador2()))
+                    .put("escobas", new JSONArray().put(resumen.getEscobasJugador1())
+                            .put(resumen.getEscobasJugador2()))
+                    .put("oros", new JSONArray().put(resumen.getOrosJugador1()).put(resumen.getOrosJugador2()))
+                    .put("sietes", new JSONArray().put(resumen.getSietesJugador1()).put(resumen.getSietesJugador2()))
+                    .put("guindis", new JSONArray().put(resumen.isGuindisJugador1())
+                            .put(resumen.isGuindisJugador2()))
+                    .put("cartasCapturadas", new JSONArray().put(resumen.getCartasCapturadasJugador1())
+                            .put(resumen.getCartasCapturadasJugador2())));
+        }
+        return json;
+    }
+
+    private static JSONArray cartas(Collection<Carta> cartas) {
+        JSONArray json = new JSONArray();
+        for (Carta carta : cartas) {
+            json.put(carta.toString());
+        }
+        return json;
+    }
+
+    /**
+     * Espera lo necesario para que la media de partidas eliminadas por segundo
+     * desde el inicio no supere el límite.
+     */
+    private void esperarLimite(long purgadas, long inicio) {
+        if (partidasPorSegundo == 0) {
+            return;
+        }
+        long minimoNanos = (long) (purgadas / partidasPorSegundo * 1_000_000_000L);
+        long espera = minimoNanos - (System.nanoTime() - inicio);
+        if (espera <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(espera / 1_000_000, (int) (espera % 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            detenida = true;
+        }
+    }
+
+    private static <T> List<List<T>> partir(List<T> valores) {
+        List<List<T>> partes = new ArrayList<>();
+        for (int i = 0; i < valores.size(); i += MAXIMO_PARAMETROS) {
+            partes.add(valores.subList(i, Math.min(valores.size(), i + MAXIMO_PARAMETROS)));
+        }
+        return partes;
+    }
+
+    private static void borrarSinErrores(Path fichero) {
+        if (fichero == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(fichero);
+        } catch (IOException e) {
+            // Se descarta al reanudar la purga
+        }
+    }
+
+    /**
+     * Progreso de una purga.
+     */
+    public static final class Progreso {
+        private final long purgadas;
+        private final long total;
+        private final int lotes;
+        private final boolean terminada;
+
+        Progreso(long purgadas, long total, int lotes, boolean terminada) {
+            this.purgadas = purgadas;
+            this.total = total;
+            this.lotes = lotes;
+            this.terminada = terminada;
+        }
+
+        /**
+         * Devuelve el número de partidas archivadas y eliminadas.
+         *
+         * @return partidas purgadas
+         */
+        public long getPurgadas() {
+            return purgadas;
+        }
+
+        /**
+         * Devuelve el número de partidas anteriores a la fecha de corte que
+         * había al empezar la purga.
+         *
+         * @return partidas a purgar
+         */
+        public long getTotal() {
+            return total;
+        }
+
+        /**
+         * Devuelve el número de lotes purgados.
+         *
+         * @return lotes purgados
+         */
+        public int getLotes() {
+            return lotes;
+        }
+
+        /**
+         * Indica si la purga ha terminado (no quedan partidas anteriores a la
+         * fecha de corte) o se ha detenido antes.
+         *
+         * @return true si ha terminado
+         */
+        public boolean isTerminada() {
+            return terminada;
+        }
+
+        @Override
+        public String toString() {
+            return purgadas + "/" + total + " partidas en " + lotes + " lotes";
+        }
+    }
+}
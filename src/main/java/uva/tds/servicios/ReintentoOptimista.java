@@ -0,0 +1,115 @@
+package uva.tds.servicios;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import uva.tds.interfaces.PartidaModificadaException;
+
+/**
+ * Repite una operación mientras falle por un conflicto de concurrencia
+ * optimista ({@link PartidaModificadaException}). Entre intentos se espera un
+ * tiempo aleatorio que se duplica en cada fallo, para que los procesos que
+ * compiten por la misma partida no vuelvan a chocar a la vez.
+ *
+ * La operación debe volver a leer la partida en cada intento: repetir la
+ * actualización con la misma versión obsoleta volvería a fallar.
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+public class ReintentoOptimista {
+
+    private final int maxIntentos;
+    private final long esperaInicialMs;
+
+    /**
+     * Constructor del helper de reintentos.
+     *
+     * @param maxIntentos     número máximo de intentos (incluido el primero)
+     * @param esperaInicialMs espera máxima antes del segundo intento, en
+     *                        milisegundos (0 para no esperar)
+     * @throws IllegalArgumentException si maxIntentos es menor que 1 o si
+     *                                  esperaInicialMs es negativa
+     */
+    public ReintentoOptimista(int maxIntentos, long esperaInicialMs) {
+        if (maxIntentos < 1) {
+            throw new IllegalArgumentException("El número de intentos debe ser mayor que cero");
+        }
+        if (esperaInicialMs < 0) {
+            throw new IllegalArgumentException("La espera no puede ser negativa");
+        }
+        this.maxIntentos = maxIntentos;
+        this.esperaInicialMs = esperaInicialMs;
+    }
+
+    /**
+     * Devuelve el número máximo de intentos.
+     *
+     * @return número máximo de intentos
+     */
+    public int getMaxIntentos() {
+        return maxIntentos;
+    }
+
+    /**
+     * Ejecuta la operación, repitiéndola si falla por un conflicto de versión.
+     * Cualquier otra excepción se propaga sin reintentar.
+     *
+     * @param <T>       tipo del resultado
+     * @param operacion operación a ejecutar
+     * @return resultado de la operación
+     * @throws IllegalArgumentException    si operacion es null
+     * @throws PartidaModificadaException si se agotan los intentos (la del
+     *                                     último intento)
+     * @throws IllegalStateException       si el hilo se interrumpe mientras
+     *                                     espera
+     */
+    public <T> T ejecutar(Supplier<T> operacion) {
+        if (operacion == null) {
+            throw new IllegalArgumentException("La operación no puede ser null");
+        }
+        long espera = esperaInicialMs;
+        for (int intento = 1;; intento++) {
+            try {
+                return operacion.get();
+            } catch (PartidaModificadaException e) {
+                if (intento >= maxIntentos) {
+                    throw e;
+                }
+                esperar(espera);
+                espera *= 2;
+            }
+        }
+    }
+
+    /**
+     * Ejecuta la operación, repitiéndola si falla por un conflicto de versión.
+     *
+     * @param operacion operación a ejecutar
+     * @throws IllegalArgumentException    si operacion es null
+     * @throws PartidaModificadaException si se agotan los intentos
+     * @throws IllegalStateException       si el hilo se interrumpe mientras
+     *                                     espera
+     */
+    public void ejecutar(Runnable operacion) {
+        if (operacion == null) {
+            throw new IllegalArgumentException("La operación no puede ser null");
+        }
+        ejecutar(() -> {
+            operacion.run();
+            return null;
+        });
+    }
+
+    private void esperar(long esperaMaximaMs) {
+        if (esperaMaximaMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(esperaMaximaMs + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido mientras se esperaba para reintentar", e);
+        }
+    }
+}
@@ -0,0 +1,408 @@
+package uva.tds.servicios;
+
+import java.lang.reflect.Method;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import uva.tds.entidades.EstadisticasJugador;
+import uva.tds.entidades.Partida;
+import uva.tds.interfaces.PerfilCarga;
+import uva.tds.interfaces.RepositorioPartida;
+
+/**
+ * Fachada asíncrona de un RepositorioPartida. Cada operación se ejecuta fuera
+ * del hilo que la invoca y devuelve un CompletableFuture, de forma que quien la
+ * llama (por ejemplo, el bucle de juego) no se queda bloqueado esperando a la
+ * base de datos.
+ *
+ * Las operaciones se ejecutan en hilos virtuales si la máquina virtual los
+ * ofrece y, si no, en un pool de hilos de tamaño fijo. En ambos casos el número
+ * de operaciones simultáneas está limitado, por defecto al tamaño del pool de
+ * conexiones configurado (hikari.maximumPoolSize) si el repositorio es un
+ * RepositorioPartidaHibernate, para no acumular hilos esperando una conexión
+ * libre: con hilos virtuales, que se crean uno por operación, lo limita un
+ * semáforo; con el pool fijo, su propio número de hilos.
+ *
+ * Las excepciones que lanza el repositorio no se pierden: el futuro se completa
+ * de forma excepcional y la causa original puede obtenerse con
+ * {@link java.util.concurrent.CompletionException#getCause()}. Solo se propaga
+ * lo que el repositorio lanza: las consultas de RepositorioPartidaHibernate
+ * devuelven un resultado vacío (o null) si falla el acceso a la base de datos,
+ * y en ese caso el futuro se completa normalmente con ese resultado.
+ *
+ * Los recorridos con Stream no se ofrecen de forma asíncrona porque mantienen
+ * abierta la sesión mientras se consumen.
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+public class RepositorioPartidaAsync implements AutoCloseable {
+
+    /**
+     * Número máximo de operaciones simultáneas por defecto para los repositorios
+     * que no usan un pool de conexiones de Hibernate.
+     */
+    public static final int LIMITE_CONCURRENCIA_POR_DEFECTO = HibernateUtil.TAMANO_POOL_POR_DEFECTO;
+
+    private static final long ESPERA_CIERRE_SEGUNDOS = 30;
+
+    private final RepositorioPartida repositorio;
+    private final int limiteConcurrencia;
+    // Solo con hilos virtuales; el pool fijo ya limita la concurrencia
+    private final Semaphore permisos;
+    private final ExecutorService executor;
+
+    /**
+     * Constructor con el límite de concurrencia por defecto: el tamaño del pool
+     * de conexiones si el repositorio es un RepositorioPartidaHibernate, y
+     * LIMITE_CONCURRENCIA_POR_DEFECTO en otro caso.
+     *
+     * @param repositorio repositorio sobre el que se ejecutan las operaciones
+     * @throws IllegalArgumentException si repositorio es null, o si la
+     *                                  configuración del pool no es válida
+     */
+    public RepositorioPartidaAsync(RepositorioPartida repositorio) {
+        this(repositorio, limitePorDefecto(repositorio));
+    }
+
+    /**
+     * Constructor de la fachada asíncrona.
+     *
+     * @param repositorio        repositorio sobre el que se ejecutan las
+     *                           operaciones
+     * @param limiteConcurrencia número máximo de operaciones ejecutándose a la vez
+     * @throws IllegalArgumentException si repositorio es null o si
+     *                                  limiteConcurrencia es menor que 1
+     */
+    public RepositorioPartidaAsync(RepositorioPartida repositorio, int limiteConcurrencia) {
+        if (repositorio == null) {
+            throw new IllegalArgumentException("El repositorio no puede ser null");
+        }
+        if (limiteConcurrencia < 1) {
+            throw new IllegalArgumentException("El límite de concurrencia debe ser mayor que cero");
+        }
+        this.repositorio = repositorio;
+        this.limiteConcurrencia = limiteConcurrencia;
+        ExecutorService virtuales = crearExecutorVirtual();
+        if (virtuales != null) {
+            this.executor = virtuales;
+            this.permisos = new Semaphore(limiteConcurrencia, true);
+        } else {
+            this.executor = crearPoolFijo(limiteConcurrencia);
+            this.permisos = null;
+        }
+    }
+
+    /**
+     * Devuelve el número máximo de operaciones que se ejecutan a la vez.
+     *
+     * @return límite de concurrencia
+     */
+    public int getLimiteConcurrencia() {
+        return limiteConcurrencia;
+    }
+
+    /**
+     * Indica si la fachada ha sido cerrada.
+     *
+     * @return true si ya no admite nuevas operaciones
+     */
+    public boolean isCerrado() {
+        return executor.isShutdown();
+    }
+
+    /**
+     * Guarda una partida de forma asíncrona.
+     *
+     * @param partida partida a guardar
+     * @return futuro que se completa cuando la partida está guardada, o de forma
+     *         excepcional con la excepción de {@link RepositorioPartida#guardar}
+     */
+    public CompletableFuture<Void> guardar(Partida partida) {
+        return ejecutar(() -> {
+            repositorio.guardar(partida);
+            return null;
+        });
+    }
+
+    /**
+     * Guarda un lote de partidas de forma asíncrona.
+     *
+     * @param partidas partidas a guardar
+     * @return futuro que se completa cuando el lote está guardado, o de forma
+     *         excepcional con la excepción de {@link RepositorioPartida#guardarLote}
+     */
+    public CompletableFuture<Void> guardarLote(List<Partida> partidas) {
+        return ejecutar(() -> {
+            repositorio.guardarLote(partidas);
+            return null;
+        });
+    }
+
+    /**
+     * Actualiza una partida de forma asíncrona.
+     *
+     * @param partida partida a actualizar
+     * @return futuro que se completa cuando la partida está actualizada, o de
+     *         forma excepcional con la excepción de
+     *         {@link RepositorioPartida#actualizar}
+     */
+    public CompletableFuture<Void> actualizar(Partida partida) {
+        return ejecutar(() -> {
+            repositorio.actualizar(partida);
+            return null;
+        });
+    }
+
+    /**
+     * Carga una partida completa de forma asíncrona.
+     *
+     * @param identificador identificador de la partida
+     * @return futuro con la partida cargada
+     */
+    public CompletableFuture<Partida> cargar(String identificador) {
+        return ejecutar(() -> repositorio.cargar(identificador));
+    }
+
+    /**
+     * Carga una partida con el perfil indicado de forma asíncrona.
+     *
+     * @param identificador identificador de la partida
+     * @param perfil        parte de la partida que se necesita
+     * @return futuro con la partida cargada
+     */
+    public CompletableFuture<Partida> cargar(String identificador, PerfilCarga perfil) {
+        return ejecutar(() -> repositorio.cargar(identificador, perfil));
+    }
+
+    /**
+     * Elimina una partida de forma asíncrona.
+     *
+     * @param identificador identificador de la partida
+     * @return futuro que se completa cuando la partida está eliminada
+     */
+    public CompletableFuture<Void> eliminar(String identificador) {
+        return ejecutar(() -> {
+            repositorio.eliminar(identificador);
+            return null;
+        });
+    }
+
+    /**
+     * Obtiene las partidas de un jugador de forma asíncrona.
+     *
+     * @param nombreJugador nombre del jugador
+     * @return futuro con la lista de partidas del jugador
+     */
+    public CompletableFuture<List<Partida>> obtenerPartidasPorJugador(String nombreJugador) {
+        return ejecutar(() -> repositorio.obtenerPartidasPorJugador(nombreJugador));
+    }
+
+    /**
+     * Obtiene las partidas entre dos fechas (ambas incluidas) de forma asíncrona.
+     *
+     * @param fechaInicial fecha inicial del rango
+     * @param fechaFinal   fecha final del rango
+     * @return futuro con la lista de partidas en el rango
+     */
+    public CompletableFuture<List<Partida>> obtenerPartidasPorFecha(LocalDate fechaInicial, LocalDate fechaFinal) {
+        return ejecutar(() -> repositorio.obtenerPartidasPorFecha(fechaInicial, fechaFinal));
+    }
+
+    /**
+     * Obtiene una página de partidas de un jugador de forma asíncrona.
+     *
+     * @param nombreJugador nombre del jugador
+     * @param ultima        última partida de la página anterior, o null
+     * @param limite        número máximo de partidas de la página
+     * @return futuro con las partidas de la página
+     */
+    public CompletableFuture<List<Partida>> obtenerPaginaPorJugador(String nombreJugador, Partida ultima,
+            int limite) {
+        return ejecutar(() -> repositorio.obtenerPaginaPorJugador(nombreJugador, ultima, limite));
+    }
+
+    /**
+     * Obtiene una página de partidas entre dos fechas de forma asíncrona.
+     *
+     * @param fechaInicial fecha inicial del rango
+     * @param fechaFinal   fecha final del rango
+     * @param ultima       última partida de la página anterior, o null
+     * @param limite       número máximo de partidas de la página
+     * @return futuro con las partidas de la página
+     */
+    public CompletableFuture<List<Partida>> obtenerPaginaPorFecha(LocalDate fechaInicial, LocalDate fechaFinal,
+            Partida ultima, int limite) {
+        return ejecutar(() -> repositorio.obtenerPaginaPorFecha(fechaInicial, fechaFinal, ultima, limite));
+    }
+
+    /**
+     * Cuenta las partidas entre dos fechas de forma asíncrona.
+     *
+     * @param fechaInicial fecha inicial del rango
+     * @param fechaFinal   fecha final del rango
+     * @return futuro con el número de partidas
+     */
+    public CompletableFuture<Long> contarPartidasEntreFechas(LocalDate fechaInicial, LocalDate fechaFinal) {
+        return ejecutar(() -> repositorio.contarPartidasEntreFechas(fechaInicial, fechaFinal));
+    }
+
+    /**
+     * Cuenta los jugadores distintos entre dos fechas de forma asíncrona.
+     *
+     * @param fechaInicial fecha inicial del rango
+     * @param fechaFinal   fecha final del rango
+     * @return futuro con el número de jugadores
+     */
+    public CompletableFuture<Long> contarJugadoresEntreFechas(LocalDate fechaInicial, LocalDate fechaFinal) {
+        return ejecutar(() -> repositorio.contarJugadoresEntreFechas(fechaInicial, fechaFinal));
+    }
+
+    /**
+     * Obtiene los jugadores con más victorias de forma asíncrona.
+     *
+     * @param limite número máximo de jugadores
+     * @return futuro con los nombres de los mejores jugadores
+     */
+    public CompletableFuture<List<String>> obtenerMejoresJugadores(int limite) {
+        return ejecutar(() -> repositorio.obtenerMejoresJugadores(limite));
+    }
+
+    /**
+     * Obtiene las estadísticas de un jugador de forma asíncrona.
+     *
+     * @param nombreJugador nombre del jugador
+     * @return futuro con las estadísticas del jugador
+     */
+    public CompletableFuture<EstadisticasJugador> obtenerEstadisticasJugador(String nombreJugador) {
+        return ejecutar(() -> repositorio.obtenerEstadisticasJugador(nombreJugador));
+    }
+
+    /**
+     * Obtiene el número de victorias de cada jugador de forma asíncrona.
+     *
+     * @return futuro con las victorias de cada jugador
+     */
+    public CompletableFuture<Map<String, Integer>> obtenerVictoriasPorJugador() {
+        return ejecutar(repositorio::obtenerVictoriasPorJugador);
+    }
+
+    /**
+     * Ejecuta varias operaciones del repositorio como una única unidad de
+     * trabajo de forma asíncrona (ver {@link RepositorioPartida#enTransaccion}).
+     * Todo el trabajo se ejecuta en un mismo hilo y ocupa un único permiso del
+     * límite de concurrencia.
+     *
+     * @param <T>     tipo del resultado
+     * @param trabajo operaciones a ejecutar sobre el repositorio
+     * @return futuro con el resultado del trabajo, o que se completa de forma
+     *         excepcional si falla alguna de las operaciones
+     */
+    public <T> CompletableFuture<T> enTransaccion(Function<RepositorioPartida, T> trabajo) {
+        return ejecutar(() -> repositorio.enTransaccion(trabajo));
+    }
+
+    /**
+     * Deja de admitir operaciones y espera a que terminen las que ya estaban en
+     * marcha, para no perder partidas pendientes de guardar.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(ESPERA_CIERRE_SEGUNDOS, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Ejecuta la operación en el executor respetando el límite de concurrencia.
+     *
+     * @param <T>       tipo del resultado
+     * @param operacion operación sobre el repositorio
+     * @return futuro con el resultado de la operación
+     */
+    private <T> CompletableFuture<T> ejecutar(Supplier<T> operacion) {
+        if (permisos == null) {
+            try {
+                return CompletableFuture.supplyAsync(operacion, executor);
+            } catch (RejectedExecutionException e) {
+                return CompletableFuture.failedFuture(
+                        new IllegalStateException("El repositorio asíncrono está cerrado", e));
+            }
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                permisos.acquireUninterruptibly();
+                try {
+                    return operacion.get();
+                } finally {
+                    permisos.release();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(
+                    new IllegalStateException("El repositorio asíncrono está cerrado", e));
+        }
+    }
+
+    /**
+     * Límite de concurrencia por defecto para un repositorio.
+     *
+     * @param repositorio repositorio sobre el que se ejecutan las operaciones
+     * @return tamaño del pool de conexiones si el repositorio usa Hibernate, o
+     *         LIMITE_CONCURRENCIA_POR_DEFECTO en otro caso
+     */
+    private static int limitePorDefecto(RepositorioPartida repositorio) {
+        if (repositorio instanceof RepositorioPartidaHibernate) {
+            return ((RepositorioPartidaHibernate) repositorio).getTamanoPoolConexiones();
+        }
+        return LIMITE_CONCURRENCIA_POR_DEFECTO;
+    }
+
+    /**
+     * Crea un executor de hilos virtuales si la máquina virtual los ofrece (Java
+     * 21 o posterior).
+     *
+     * @return executor de hilos virtuales, o null si no los hay
+     */
+    private static ExecutorService crearExecutorVirtual() {
+        try {
+            Method virtuales = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtuales.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Crea un pool fijo de hilos daemon del tamaño del límite de concurrencia.
+     *
+     * @param limiteConcurrencia número máximo de operaciones simultáneas
+     * @return executor para las operaciones
+     */
+    private static ExecutorService crearPoolFijo(int limiteConcurrencia) {
+        AtomicInteger contador = new AtomicInteger();
+        ThreadFactory fabrica = tarea -> {
+            Thread hilo = new Thread(tarea, "repositorio-async-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        };
+        return Executors.newFixedThreadPool(limiteConcurrencia, fabrica);
+    }
+}
@@ -0,0 +1,453 @@
+package uva.tds.servicios;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import uva.tds.entidades.EstadisticasJugador;
+import uva.tds.entidades.Partida;
+import uva.tds.entidades.Ronda;
+import uva.tds.interfaces.PerfilCarga;
+import uva.tds.interfaces.RepositorioPartida;
+
+/**
+ * Decorador de un RepositorioPartida que guarda en memoria las partidas
+ * cargadas y los resultados de las consultas por jugador y por rango de fechas,
+ * para no volver a la base de datos cuando se reproducen las partidas más
+ * populares o se consultan los perfiles de los jugadores.
+ *
+ * Las partidas cargadas se guardan en una caché concurrente acotada por peso:
+ * cada partida pesa una unidad más una por cada jugada que contiene, y al
+ * superar el peso máximo se expulsan las menos usadas. Si varios hilos piden a
+ * la vez una partida que no está en la caché, solo uno la carga del repositorio
+ * y los demás esperan su resultado. Al actualizar o eliminar una partida se
+ * descarta su copia.
+ *
+ * Los resultados de las consultas caducan pasado un tiempo y se descartan al
+ * guardar, actualizar o eliminar partidas que les afectan. Una consulta que
+ * estaba en marcha mientras se descartaban no se guarda, porque pudo leer los
+ * datos anteriores al cambio. Las listas devueltas no se pueden modificar.
+ *
+ * Las partidas guardadas en la caché no salen de ella: cada llamada devuelve
+ * una copia (ver {@link Partida#copiar()}), de forma que quien la modifica o la
+ * pasa a {@link #actualizar(Partida)} no cambia la versión con la que otros la
+ * leyeron y el control de concurrencia optimista del repositorio decorado
+ * sigue detectando las escrituras basadas en lecturas obsoletas.
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+public class RepositorioPartidaCacheado implements RepositorioPartida {
+
+    /**
+     * Peso máximo por defecto de las partidas guardadas (número total de
+     * partidas más jugadas).
+     */
+    public static final long PESO_MAXIMO_POR_DEFECTO = 100_000;
+
+    /**
+     * Tiempo por defecto que se guardan los resultados de las consultas.
+     */
+    public static final Duration CADUCIDAD_CONSULTAS_POR_DEFECTO = Duration.ofSeconds(30);
+
+    private static final long MAXIMO_CONSULTAS = 1000;
+
+    private final RepositorioPartida delegado;
+    private final Cache<ClavePartida, Partida> partidas;
+    private final Cache<String, List<Partida>> consultasPorJugador;
+    private final Cache<List<LocalDate>, List<Partida>> consultasPorFecha;
+    /**
+     * Aumenta cada vez que se descartan consultas. Una consulta que termina con
+     * otra generación que la de su comienzo no se conserva en la caché.
+     */
+    private final AtomicLong generacionConsultas = new AtomicLong();
+
+    /**
+     * Constructor con el peso máximo y la caducidad por defecto.
+     *
+     * @param delegado repositorio del que se leen las partidas
+     * @throws IllegalArgumentException si delegado es null
+     */
+    public RepositorioPartidaCacheado(RepositorioPartida delegado) {
+        this(delegado, PESO_MAXIMO_POR_DEFECTO, CADUCIDAD_CONSULTAS_POR_DEFECTO);
+    }
+
+    /**
+     * Constructor del repositorio con caché.
+     *
+     * @param delegado            repositorio del que se leen las partidas
+     * @param pesoMaximo          peso máximo de las partidas guardadas
+     * @param caducidadConsultas  tiempo que se guardan los resultados de las
+     *                            consultas
+     * @throws IllegalArgumentException si delegado o caducidadConsultas son null,
+     *                                  si pesoMaximo es menor que 1 o si
+     *                                  caducidadConsultas no es positiva
+     */
+    public RepositorioPartidaCacheado(RepositorioPartida delegado, long pesoMaximo, Duration caducidadConsultas) {
+        this(delegado, pesoMaximo, caducidadConsultas, Ticker.systemTicker());
+    }
+
+    /**
+     * Constructor con el reloj de la caché, para los tests.
+     */
+    RepositorioPartidaCacheado(RepositorioPartida delegado, long pesoMaximo, Duration caducidadConsultas,
+            Ticker reloj) {
+        if (delegado == null) {
+            throw new IllegalArgumentException("El repositorio no puede ser null");
+        }
+        if (pesoMaximo < 1) {
+            throw new IllegalArgumentException("El peso máximo debe ser mayor que cero");
+        }
+        if (caducidadConsultas == null || caducidadConsultas.isNegative() || caducidadConsultas.isZero()) {
+            throw new IllegalArgumentException("La caducidad de las consultas debe ser positiva");
+        }
+        this.delegado = delegado;
+        // El mantenimiento se hace en el hilo que usa la caché para que los
+        // contadores de expulsiones estén al día al consultarlos
+        this.partidas = Caffeine.newBuilder()
+                .maximumWeight(pesoMaximo)
+                .weigher((ClavePartida clave, Partida partida) -> pesar(clave, partida))
+                .executor(Runnable::run)
+                .ticker(reloj)
+                .recordStats()
+                .build();
+        this.consultasPorJugador = crearCacheConsultas(caducidadConsultas, reloj);
+        this.consultasPorFecha = crearCacheConsultas(caducidadConsultas, reloj);
+    }
+
+    @Override
+    public void guardar(Partida partida) {
+        delegado.guardar(partida);
+        invalidarConsultas(partida);
+    }
+
+    @Override
+    public void guardarLote(List<Partida> partidas) {
+        delegado.guardarLote(partidas);
+        partidas.forEach(this::invalidarConsultas);
+    }
+
+    @Override
+    public void actualizar(Partida partida) {
+        if (partida == null) {
+            throw new IllegalArgumentException("La partida no puede ser null");
+        }
+        try {
+            delegado.actualizar(partida);
+        } finally {
+            // Si la actualización falla por un conflicto de versión, la copia
+            // guardada también está obsoleta
+            invalidar(partida.getId());
+            invalidarConsultas(partida);
+        }
+    }
+
+    @Override
+    public Partida cargar(String identificador) {
+        return cargar(identificador, PerfilCarga.REPRODUCCION);
+    }
+
+    @Override
+    public Partida cargar(String identificador, PerfilCarga perfil) {
+        validarIdentificador(identificador);
+        if (perfil == null) {
+            throw new IllegalArgumentException("El perfil de carga no puede ser null");
+        }
+        return partidas.get(new ClavePartida(identificador, perfil), clave -> delegado.cargar(identificador, perfil))
+                .copiar();
+    }
+
+    @Override
+    public void eliminar(String identificador) {
+        validarIdentificador(identificador);
+        try {
+            delegado.eliminar(identificador);
+        } finally {
+            invalidar(identificador);
+        }
+    }
+
+    @Override
+    public List<Partida> obtenerPartidasPorJugador(String nombreJugador) {
+        if (nombreJugador == null || nombreJugador.isEmpty()) {
+            throw new IllegalArgumentException("El nombre del jugador no puede ser null o vacío");
+        }
+        return consultar(consultasPorJugador, nombreJugador,
+                () -> delegado.obtenerPartidasPorJugador(nombreJugador));
+    }
+
+    @Override
+    public List<Partida> obtenerPartidasPorFecha(LocalDate fechaInicial, LocalDate fechaFinal) {
+        if (fechaInicial == null || fechaFinal == null) {
+            throw new IllegalArgumentException("Las fechas no pueden ser null");
+        }
+        if (fechaInicial.isAfter(fechaFinal)) {
+            throw new IllegalArgumentException("La fecha inicial no puede ser posterior a la fecha final");
+        }
+        return consultar(consultasPorFecha, List.of(fechaInicial, fechaFinal),
+                () -> delegado.obtenerPartidasPorFecha(fechaInicial, fechaFinal));
+    }
+
+    @Override
+    public Stream<Partida> recorrerPartidasPorJugador(String nombreJugador) {
+        return delegado.recorrerPartidasPorJugador(nombreJugador);
+    }
+
+    @Override
+    public Stream<Partida> recorrerPartidasPorFecha(LocalDate fechaInicial, LocalDate fechaFinal) {
+        return delegado.recorrerPartidasPorFecha(fechaInicial, fechaFinal);
+    }
+
+    @Override
+    public List<Partida> obtenerPaginaPorJugador(String nombreJugador, Partida ultima, int limite) {
+        return delegado.obtenerPaginaPorJugador(nombreJugador, ultima, limite);
+    }
+
+    @Override
+    public List<Partida> obtenerPaginaPorFecha(LocalDate fechaInicial, LocalDate fechaFinal, Partida ultima,
+            int limite) {
+        return delegado.obtenerPaginaPorFecha(fechaInicial, fechaFinal, ultima, limite);
+    }
+
+    @Override
+    public long contarPartidasEntreFechas(LocalDate fechaInicial, LocalDate fechaFinal) {
+        return delegado.contarPartidasEntreFechas(fechaInicial, fechaFinal);
+    }
+
+    @Override
+    public long contarJugadoresEntreFechas(LocalDate fechaInicial, LocalDate fechaFinal) {
+        return delegado.contarJugadoresEntreFechas(fechaInicial, fechaFinal);
+    }
+
+    @Override
+    public List<String> obtenerMejoresJugadores(int limite) {
+        return delegado.obtenerMejoresJugadores(limite);
+    }
+
+    @Override
+    public Map<String, Integer> obtenerVictoriasPorJugador() {
+        return delegado.obtenerVictoriasPorJugador();
+    }
+
+    @Override
+    public EstadisticasJugador obtenerEstadisticasJugador(String nombreJugador) {
+        return delegado.obtenerEstadisticasJugador(nombreJugador);
+    }
+
+    /**
+     * Ejecuta el trabajo en una unidad de trabajo del repositorio decorado, sin
+     * pasar por la caché: las partidas cargadas dentro del trabajo pueden
+     * reflejar cambios que todavía no se han confirmado. Al terminar, tanto si
+     * se confirma como si se deshace, se vacía toda la caché.
+     *
+     * @param <T>     tipo del resultado
+     * @param trabajo operaciones a ejecutar sobre el repositorio
+     * @return resultado del trabajo
+     * @throws IllegalArgumentException si trabajo es null
+     */
+    @Override
+    public <T> T enTransaccion(Function<RepositorioPartida, T> trabajo) {
+        if (trabajo == null) {
+            throw new IllegalArgumentException("El trabajo no puede ser null");
+        }
+        try {
+            return delegado.enTransaccion(trabajo);
+        } finally {
+            vaciar();
+        }
+    }
+
+    /**
+     * Descarta todas las partidas y resultados de consultas guardados.
+     */
+    public void vaciar() {
+        generacionConsultas.incrementAndGet();
+        partidas.invalidateAll();
+        consultasPorJugador.invalidateAll();
+        consultasPorFecha.invalidateAll();
+    }
+
+    /**
+     * Devuelve el número de cargas de partidas servidas desde la caché.
+     *
+     * @return aciertos de la caché de partidas
+     */
+    public long getAciertos() {
+        return partidas.stats().hitCount();
+    }
+
+    /**
+     * Devuelve el número de cargas de partidas que han tenido que ir al
+     * repositorio.
+     *
+     * @return fallos de la caché de partidas
+     */
+    public long getFallos() {
+        return partidas.stats().missCount();
+    }
+
+    /**
+     * Devuelve el número de partidas expulsadas de la caché por superar el peso
+     * máximo.
+     *
+     * @return expulsiones de la caché de partidas
+     */
+    public long getExpulsiones() {
+        return partidas.stats().evictionCount();
+    }
+
+    /**
+     * Devuelve el peso de las partidas guardadas en la caché.
+     *
+     * @return peso actual de la caché de partidas
+     */
+    public long getPesoActual() {
+        return partidas.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+    }
+
+    /**
+     * Devuelve el número de consultas por jugador o por fechas servidas desde la
+     * caché.
+     *
+     * @return aciertos de las cachés de consultas
+     */
+    public long getAciertosConsultas() {
+        return consultasPorJugador.stats().hitCount() + consultasPorFecha.stats().hitCount();
+    }
+
+    /**
+     * Devuelve el número de consultas por jugador o por fechas que han tenido
+     * que ir al repositorio.
+     *
+     * @return fallos de las cachés de consultas
+     */
+    public long getFallosConsultas() {
+        return consultasPorJugador.stats().missCount() + consultasPorFecha.stats().missCount();
+    }
+
+    private static <K> Cache<K, List<Partida>> crearCacheConsultas(Duration caducidad, Ticker reloj) {
+        return Caffeine.newBuilder()
+                .maximumSize(MAXIMO_CONSULTAS)
+                .expireAfterWrite(caducidad)
+                .executor(Runnable::run)
+                .ticker(reloj)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Devuelve el resultado de una consulta, de la caché o del repositorio. Si
+     * mientras se consultaba se han descartado consultas, el resultado puede no
+     * incluir el cambio que las descartó, así que se devuelve pero no se
+     * conserva en la caché. La generación se comprueba después de guardar el
+     * resultado para cubrir también el caso en que el descarte recorrió la
+     * caché antes de que el resultado estuviera en ella.
+     */
+    private <K> List<Partida> consultar(Cache<K, List<Partida>> cache, K clave, Supplier<List<Partida>> consulta) {
+        long generacion = generacionConsultas.get();
+        List<Partida> resultado = cache.get(clave, k -> List.copyOf(consulta.get()));
+        if (generacionConsultas.get() != generacion) {
+            cache.asMap().remove(clave, resultado);
+        }
+        return copiar(resultado);
+    }
+
+    /**
+     * Peso de una partida: una unidad más una por jugada. Con el perfil RESUMEN
+     * las rondas no están cargadas y la partida pesa una unidad.
+     */
+    private static int pesar(ClavePartida clave, Partida partida) {
+        int peso = 1;
+        if (clave.perfil == PerfilCarga.REPRODUCCION) {
+            for (Ronda ronda : partida.getRondas()) {
+                peso += ronda.getTurnos().size();
+            }
+        }
+        return peso;
+    }
+
+    /**
+     * Descarta las copias de una partida con todos los perfiles y las consultas
+     * en las que aparecía.
+     */
+    private void invalidar(String identificador) {
+        for (PerfilCarga perfil : PerfilCarga.values()) {
+            Partida anterior = partidas.asMap().remove(new ClavePartida(identificador, perfil));
+            if (anterior != null) {
+                invalidarConsultas(anterior);
+            }
+        }
+        // Las consultas pueden contener la partida aunque no se haya cargado sola
+        generacionConsultas.incrementAndGet();
+        consultasPorJugador.asMap().values().removeIf(lista -> contiene(lista, identificador));
+        consultasPorFecha.asMap().values().removeIf(lista -> contiene(lista, identificador));
+    }
+
+    /**
+     * Descarta las consultas de los jugadores de la partida y las de los rangos
+     * de fechas que incluyen su fecha.
+     */
+    private void invalidarConsultas(Partida partida) {
+        generacionConsultas.incrementAndGet();
+        consultasPorJugador.invalidate(partida.getJugador1());
+        consultasPorJugador.invalidate(partida.getJugador2());
+        LocalDate fecha = partida.getFecha();
+        consultasPorFecha.asMap().keySet()
+                .removeIf(rango -> !fecha.isBefore(rango.get(0)) && !fecha.isAfter(rango.get(1)));
+    }
+
+    private static List<Partida> copiar(List<Partida> partidas) {
+        return partidas.stream().map(Partida::copiar).collect(Collectors.toUnmodifiableList());
+    }
+
+    private static boolean contiene(List<Partida> lista, String identificador) {
+        return lista.stream().anyMatch(partida -> identificador.equals(partida.getId()));
+    }
+
+    private static void validarIdentificador(String identificador) {
+        if (identificador == null || identificador.isEmpty()) {
+            throw new IllegalArgumentException("El identificador no puede ser null o vacío");
+        }
+    }
+
+    /**
+     * Clave de la caché de partidas: identificador y perfil con el que se cargó.
+     */
+    private static final class ClavePartida {
+        private final String identificador;
+        private final PerfilCarga perfil;
+
+        ClavePartida(String identificador, PerfilCarga perfil) {
+            this.identificador = identificador;
+            this.perfil = perfil;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ClavePartida)) {
+                return false;
+            }
+            ClavePartida otra = (ClavePartida) o;
+            return identificador.equals(otra.identificador) && perfil == otra.perfil;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(identificador, perfil);
+        }
+    }
+}
@@ -1,13 +1,48 @@
 package uva.tds.servicios;
 
+import uva.tds.entidades.EstadisticasJugador;
+import uva.tds.entidades.Jugada;
+import uva.tds.entidades.Mano;
 import uva.tds.entidades.Partida;
+import uva.tds.entidades.ResultadoPartida;
+import uva.tds.entidades.ResumenPartida;
+import uva.tds.entidades.Ronda;
+import uva.tds.interfaces.PartidaModificadaException;
+import uva.tds.interfaces.PerfilCarga;
 import uva.tds.interfaces.RepositorioPartida;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import javax.persistence.OptimisticLockException;
+import javax.persistence.PersistenceException;
+
+import org.hibernate.CacheMode;
+import org.hibernate.FlushMode;
 import org.hibernate.HibernateException;
+import org.hibernate.LockMode;
 import org.hibernate.SessionFactory;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
+import org.hibernate.StaleStateException;
+import org.hibernate.exception.ConstraintViolationException;
 import org.hibernate.query.Query;
 
 /**
@@ -16,19 +51,64 @@ import org.hibernate.query.Query;
 
 public class RepositorioPartidaHibernate implements RepositorioPartida {
 
+    /**
+     * Región de la caché de segundo nivel donde se guardan los resultados de las
+     * consultas por jugador y por fecha.
+     */
+    static final String REGION_CONSULTAS = "consultas-partidas";
+
+    /**
+     * Filas que se piden al driver en cada viaje y cada cuántas partidas
+     * recorridas se vacía la sesión de los Stream.
+     */
+    static final int TAMANO_FETCH = 100;
+
+    private static final String HQL_RESUMEN = "SELECT P FROM Partida P LEFT JOIN FETCH P.resumen ";
+    private static final String HQL_VERSIONES = "SELECT P.version, R.id, R.version, P.fecha, P.jugador1, "
+            + "P.jugador2, COALESCE(R.completa, false), COALESCE(R.puntosJugador1, 0), COALESCE(R.puntosJugador2, 0), "
+            + "COALESCE(R.guindisJugador1, false), COALESCE(R.guindisJugador2, false) "
+            + "FROM Partida P LEFT JOIN P.resumen R WHERE P.id = :id";
+    private static final String FILTRO_JUGADOR = "(P.jugador1 = :nombreJugador OR P.jugador2 = :nombreJugador)";
+    private static final String FILTRO_FECHA = "P.fecha BETWEEN :fechaInicial AND :fechaFinal";
+    private static final String FILTRO_DESPUES_DE = " AND (P.fecha > :ultimaFecha OR (P.fecha = :ultimaFecha AND P.id > :ultimoId))";
+    private static final String ORDEN = " ORDER BY P.fecha ASC, P.id ASC";
+    // SQLSTATE estándar de la violación de una clave primaria o única
+    private static final String CLAVE_DUPLICADA = "23505";
+    private static final Pattern INSERCION_PARTIDA = Pattern.compile(
+            "\\s*insert\\s+into\\s+(partidas|resumen_partida)\\b", Pattern.CASE_INSENSITIVE);
+
     private String configFile;
 
+    /**
+     * Sesión de la unidad de trabajo abierta en cada hilo con
+     * {@link #enTransaccion(Function)}, o null si no hay ninguna.
+     */
+    private final ThreadLocal<Session> sesionTrabajo = new ThreadLocal<>();
+
     public RepositorioPartidaHibernate(String configFile) {
         this.configFile = configFile;
     }
 
     /**
-     * Guarda una partida en el repositorio.
+     * Devuelve el número máximo de conexiones del pool de la base de datos, es
+     * decir, cuántas operaciones pueden acceder a ella a la vez.
+     *
+     * @return tamaño máximo del pool de conexiones
+     * @throws IllegalArgumentException si la configuración no es válida
+     */
+    public int getTamanoPoolConexiones() {
+        return HibernateUtil.getTamanoPoolConexiones(this.configFile);
+    }
+
+    /**
+     * Guarda una partida en el repositorio. Si la partida ya tiene versión porque
+     * se persistió en una transacción que se deshizo, se guarda una copia nueva
+     * (ver {@link #paraPersistir(Partida)}) y la partida queda con su versión.
      * 
      * @param partida La partida a guardar
      * @throws IllegalArgumentException si partida es null
      * @throws IllegalStateException    si ya existe una partida con el mismo
-     *                                  identificador
+     *                                  identificador o no se ha podido guardar
      */
     @Override
     public void guardar(Partida partida) {
@@ -36,35 +116,99 @@ public class RepositorioPartidaHibernate implements RepositorioPartida {
             throw new IllegalArgumentException("La partida no puede ser null");
         }
 
-        Session session = getSession();
-        if (session != null) {
-            try {
-                session.beginTransaction();
+        try {
+            Partida nueva = paraPersistir(partida);
+            escribir(session -> {
+                // La clave primaria detecta los duplicados sin leer antes la partida
+                session.persist(nueva);
+                session.flush();
+                actualizarEstadisticas(session, null, ResultadoPartida.de(nueva));
+                return null;
+            });
+            copiarVersiones(nueva, partida);
+        } catch (PersistenceException e) {
+            if (esPartidaExistente(e)) {
+                throw new IllegalStateException("Ya existe una partida con el mismo identificador", e);
+            }
+            throw new IllegalStateException("No se ha podido guardar la partida", e);
+        }
+    }
+
+    /**
+     * Guarda varias partidas en una única transacción. La existencia previa de
+     * los identificadores se comprueba con una sola consulta y las estadísticas
+     * de cada jugador se actualizan una sola vez por lote. Como en
+     * {@link #guardar(Partida)}, de las partidas que ya tienen versión se guarda
+     * una copia nueva.
+     * 
+     * @param partidas Las partidas a guardar
+     * @throws IllegalArgumentException si partidas es null o contiene algún null
+     * @throws IllegalStateException    si alguna partida tiene el mismo
+     *                                  identificador que otra del lote o que una
+     *                                  ya guardada, o si falla la escritura (no
+     *                                  se guarda ninguna partida del lote)
+     */
+    @Override
+    public void guardarLote(List<Partida> partidas) {
+        if (partidas == null) {
+            throw new IllegalArgumentException("Las partidas no pueden ser null");
+        }
+        Set<String> ids = new HashSet<>();
+        for (Partida partida : partidas) {
+            if (partida == null) {
+                throw new IllegalArgumentException("La partida no puede ser null");
+            }
+            if (!ids.add(partida.getId())) {
+                throw new IllegalStateException("El lote contiene dos partidas con el identificador " + partida.getId());
+            }
+        }
+        if (partidas.isEmpty()) {
+            return;
+        }
 
-                Partida existente = session.get(Partida.class, partida.getId());
-                if (existente != null) {
-                    throw new IllegalStateException("Ya existe una partida con el mismo identificador");
+        try {
+            List<Partida> nuevas = new ArrayList<>(partidas.size());
+            for (Partida partida : partidas) {
+                nuevas.add(paraPersistir(partida));
+            }
+            escribir(session -> {
+                List<String> existentes = session
+                        .createQuery("SELECT P.id FROM Partida P WHERE P.id IN (:ids)", String.class)
+                        .setParameterList("ids", ids)
+                        .getResultList();
+                if (!existentes.isEmpty()) {
+                    throw new IllegalStateException("Ya existe una partida con el identificador " + existentes.get(0));
                 }
 
-                session.persist(partida);
-                session.getTransaction().commit();
-            } catch (HibernateException e) {
-                e.printStackTrace();
-                if (session.getTransaction().isActive())
-                    session.getTransaction().rollback();
-            } finally {
-                session.close();
+                for (Partida partida : nuevas) {
+                    session.persist(partida);
+                }
+                actualizarEstadisticas(session, nuevas);
+                return null;
+            });
+            for (int i = 0; i < partidas.size(); i++) {
+                copiarVersiones(nuevas.get(i), partidas.get(i));
             }
+        } catch (PersistenceException e) {
+            throw new IllegalStateException("No se ha podido guardar el lote de partidas", e);
         }
     }
 
     /**
-     * Actualiza una partida en el repositorio.
+     * Actualiza una partida en el repositorio. Solo se escriben las columnas que
+     * han cambiado y la versión de la partida (y de su resumen) se comprueba
+     * antes de escribir, de forma que una actualización basada en una lectura
+     * obsoleta falla en lugar de sobrescribir los cambios de otro proceso. Si la
+     * partida no tiene versión (no se ha leído del repositorio) se actualiza sin
+     * esa comprobación. Tras actualizarla, la partida queda con la versión nueva.
      * 
      * @param partida La partida a actualizar
-     * @throws IllegalArgumentException si partida es null
-     * @throws IllegalStateException    si no existe una partida con el mismo
-     *                                  identificador
+     * @throws IllegalArgumentException   si partida es null
+     * @throws IllegalStateException      si no existe una partida con el mismo
+     *                                    identificador o no se ha podido
+     *                                    actualizar
+     * @throws PartidaModificadaException si la partida ha sido modificada por
+     *                                    otro proceso desde que se leyó
      */
     @Override
     public void actualizar(Partida partida) {
@@ -72,30 +216,34 @@ public class RepositorioPartidaHibernate implements RepositorioPartida {
             throw new IllegalArgumentException("La partida no puede ser null");
         }
 
-        Session session = getSession();
-        if (session != null) {
-            try {
-                session.beginTransaction();
+        try {
+            Partida guardada = escribir(session -> {
+                ResultadoPartida existente = sesionTrabajo.get() == null ? leerGuardada(session, partida)
+                        : leerGuardadaEnUnidadDeTrabajo(session, partida);
+                actualizarEstadisticas(session, existente, ResultadoPartida.de(partida));
+                Partida gestionada = (Partida) session.merge(partida);
+                session.flush();
+                return gestionada;
+            });
 
-                Partida existente = session.get(Partida.class, partida.getId());
-                if (existente == null) {
-                    throw new IllegalStateException("No existe una partida con el mismo identificador");
+            // La partida del llamante queda con la versión nueva para poder volver a actualizarla
+            if (guardada != null) {
+                partida.setVersion(guardada.getVersion());
+                if (partida.getResumenPartida() != null && guardada.getResumenPartida() != null) {
+                    partida.getResumenPartida().setVersion(guardada.getResumenPartida().getVersion());
                 }
-
-                session.merge(partida);
-                session.getTransaction().commit();
-            } catch (HibernateException e) {
-                e.printStackTrace();
-                if (session.getTransaction().isActive())
-                    session.getTransaction().rollback();
-            } finally {
-                session.close();
             }
+        } catch (PersistenceException e) {
+            if (esConflictoVersion(e)) {
+                throw new PartidaModificadaException(partida.getId(), e);
+            }
+            throw new IllegalStateException("No se ha podido actualizar la partida", e);
         }
     }
 
     /**
-     * Carga una partida desde el repositorio.
+     * Carga una partida completa desde el repositorio, lista para ser
+     * reproducida.
      * 
      * @param identificador Identificador único de la partida
      * @return La partida con el identificador dado
@@ -105,31 +253,38 @@ public class RepositorioPartidaHibernate implements RepositorioPartida {
      */
     @Override
     public Partida cargar(String identificador) {
+        return cargar(identificador, PerfilCarga.REPRODUCCION);
+    }
+
+    /**
+     * Carga una partida desde el repositorio con el perfil de carga indicado. Con
+     * el perfil RESUMEN solo se lee la fila de la partida y su resumen (o se
+     * obtienen de la caché de segundo nivel). Con el perfil REPRODUCCION se lee
+     * todo el grafo con un número fijo de consultas, independiente del número de
+     * rondas y turnos.
+     * 
+     * @param identificador Identificador único de la partida
+     * @param perfil        Parte de la partida que se necesita
+     * @return La partida con el identificador dado
+     * @throws IllegalArgumentException si identificador es null o vacío, o si
+     *                                  perfil es null
+     * @throws IllegalStateException    si no existe una partida con el
+     *                                  identificador dado
+     */
+    @Override
+    public Partida cargar(String identificador, PerfilCarga perfil) {
         if (identificador == null || identificador.isEmpty()) {
             throw new IllegalArgumentException("El identificador no puede ser null o vacío");
         }
+        if (perfil == null) {
+            throw new IllegalArgumentException("El perfil de carga no puede ser null");
+        }
 
-        Session session = getSession();
-        Partida partida = null;
-
-        if (session != null) {
-            try {
-                session.beginTransaction();
-
-                partida = session.get(Partida.class, identificador);
-
-                if (partida == null) {
-                    throw new IllegalStateException("No existe una partida con el identificador dado");
-                }
-
-                session.getTransaction().commit();
-            } catch (HibernateException e) {
-                e.printStackTrace();
-                if (session.getTransaction().isActive())
-                    session.getTransaction().rollback();
-            } finally {
-                session.close();
-            }
+        Partida partida = leer(null, session -> (perfil == PerfilCarga.RESUMEN)
+                ? session.get(Partida.class, identificador)
+                : cargarGrafoCompleto(session, identificador));
+        if (partida == null) {
+            throw new IllegalStateException("No existe una partida con el identificador dado");
         }
         return partida;
     }
@@ -140,7 +295,8 @@ public class RepositorioPartidaHibernate implements RepositorioPartida {
      * @param identificador Identificador único de la partida a eliminar
      * @throws IllegalArgumentException si identificador es null o vacío
      * @throws IllegalStateException    si no existe una partida con el
-     *                                  identificador dado
+     *                                  identificador dado o no se ha podido
+     *                                  eliminar
      */
     @Override
     public void eliminar(String identificador) {
@@ -148,26 +304,19 @@ public class RepositorioPartidaHibernate implements RepositorioPartida {
             throw new IllegalArgumentException("El identificador no puede ser null o vacío");
         }
 
-        Session session = getSession();
-
-        if (session != null) {
-            try {
-                session.beginTransaction();
-
+        try {
+            escribir(session -> {
                 Partida partida = session.get(Partida.class, identificador);
                 if (partida == null) {
                     throw new IllegalStateException("No existe una partida con el identificador dado");
                 }
 
+                actualizarEstadisticas(session, ResultadoPartida.de(partida), null);
                 session.delete(partida);
-                session.getTransaction().commit();
-            } catch (HibernateException e) {
-                e.printStackTrace();
-                if (session.getTransaction().isActive())
-                    session.getTransaction().rollback();
-            } finally {
-                session.close();
-            }
+                return null;
+            });
+        } catch (PersistenceException e) {
+            throw new IllegalStateException("No se ha podido eliminar la partida", e);
         }
     }
 
@@ -185,79 +334,757 @@ public class RepositorioPartidaHibernate implements RepositorioPartida {
             throw new IllegalArgumentException("El nombre del jugador no puede ser null o vacío");
         }
 
-        Session session = getSession();
-        List<Partida> partidas = List.of();
+        return leer(List.of(), session -> {
+            String hql = "FROM Partida P WHERE P.jugador1 = :nombreJugador OR P.jugador2 = :nombreJugador";
+            Query<Partida> query = session.createQuery(hql, Partida.class);
+            query.setParameter("nombreJugador", nombreJugador);
+            query.setCacheable(true);
+            query.setCacheRegion(REGION_CONSULTAS);
+            return query.list();
+        });
+    }
 
-        if (session != null) {
-            try {
-                session.beginTransaction();
+    /**
+     * Obtiene una lista de partidas entre la fecha inicial y la fecha final (ambas
+     * incluidas), usando el índice sobre fecha. Si no existen partidas en ese
+     * rango, se devuelve una lista vacía.
+     * 
+     * @param fechaInicial Fecha inicial del rango
+     * @param fechaFinal   Fecha final del rango
+     * @return Lista de partidas en el rango de fechas
+     * @throws IllegalArgumentException si fechaInicial o fechaFinal son null, o
+     *                                  si fechaInicial es posterior a fechaFinal
+     */
+    @Override
+    public List<Partida> obtenerPartidasPorFecha(LocalDate fechaInicial, LocalDate fechaFinal) {
+        validarRangoFechas(fechaInicial, fechaFinal);
 
-                String hql = "FROM Partida P WHERE P.nombreJugador = :nombreJugador";
-                Query<Partida> query = session.createQuery(hql, Partida.class);
-                query.setParameter("nombreJugador", nombreJugador);
-                partidas = query.list();
+        return leer(List.of(), session -> {
+            String hql = "FROM Partida P WHERE P.fecha BETWEEN :fechaInicial AND :fechaFinal";
+            Query<Partida> query = session.createQuery(hql, Partida.class);
+            query.setParameter("fechaInicial", fechaInicial);
+            query.setParameter("fechaFinal", fechaFinal);
+            query.setCacheable(true);
+            query.setCacheRegion(REGION_CONSULTAS);
+            return query.list();
+        });
+    }
 
-                session.getTransaction().commit();
-            } catch (HibernateException e) {
-                e.printStackTrace();
-                if (session.getTransaction().isActive())
-                    session.getTransaction().rollback();
-            } finally {
-                session.close();
-            }
+    /**
+     * Recorre las partidas de un jugador con un cursor de solo avance
+     * (ScrollableResults) en una sesión propia y de solo lectura, que se cierra al
+     * cerrar el Stream.
+     * 
+     * @param nombreJugador Nombre del jugador
+     * @return Stream con las partidas del jugador
+     * @throws IllegalArgumentException si nombreJugador es null o vacío
+     */
+    @Override
+    public Stream<Partida> recorrerPartidasPorJugador(String nombreJugador) {
+        if (nombreJugador == null || nombreJugador.isEmpty()) {
+            throw new IllegalArgumentException("El nombre del jugador no puede ser null o vacío");
         }
-        return partidas;
+        return recorrer(HQL_RESUMEN + "WHERE " + FILTRO_JUGADOR + ORDEN,
+                query -> query.setParameter("nombreJugador", nombreJugador));
     }
 
     /**
-     * Obtiene una lista de partidas entre la fecha inicial y la fecha final. Si no
-     * existen partidas en ese rango, se devuelve una lista vacía.
+     * Recorre las partidas entre dos fechas con un cursor de solo avance
+     * (ScrollableResults) en una sesión propia y de solo lectura, que se cierra al
+     * cerrar el Stream.
      * 
-     * @param fechaInicial Fecha inicial del rango. Formato: "yyyy-MM-dd"
-     * @param fechaFinal   Fecha final del rango. Formato: "yyyy-MM-dd"
-     * @return Lista de partidas en el rango de fechas
-     * @throws IllegalArgumentException si fechaInicial o fechaFinal son null,
-     *                                  vacías o no
-     *                                  siguen el formato correcto
+     * @param fechaInicial Fecha inicial del rango
+     * @param fechaFinal   Fecha final del rango
+     * @return Stream con las partidas en el rango de fechas
+     * @throws IllegalArgumentException si fechaInicial o fechaFinal son null, o
+     *                                  si fechaInicial es posterior a fechaFinal
      */
     @Override
-    public List<Partida> obtenerPartidasPorFecha(String fechaInicial, String fechaFinal) {
-        if (fechaInicial == null || fechaInicial.isEmpty() || fechaFinal == null || fechaFinal.isEmpty()) {
-            throw new IllegalArgumentException("Las fechas no pueden ser null o vacías");
+    public Stream<Partida> recorrerPartidasPorFecha(LocalDate fechaInicial, LocalDate fechaFinal) {
+        validarRangoFechas(fechaInicial, fechaFinal);
+        return recorrer(HQL_RESUMEN + "WHERE " + FILTRO_FECHA + ORDEN, query -> query
+                .setParameter("fechaInicial", fechaInicial)
+                .setParameter("fechaFinal", fechaFinal));
+    }
+
+    /**
+     * Obtiene una página de partidas de un jugador. La condición sobre (fecha, id)
+     * de la última partida permite continuar desde el índice en lugar de saltar
+     * filas con OFFSET.
+     * 
+     * @param nombreJugador Nombre del jugador
+     * @param ultima        Última partida de la página anterior, o null para la
+     *                      primera página
+     * @param limite        Número máximo de partidas de la página
+     * @return Lista con las partidas de la página
+     * @throws IllegalArgumentException si nombreJugador es null o vacío, o si
+     *                                  limite es menor que 1
+     */
+    @Override
+    public List<Partida> obtenerPaginaPorJugador(String nombreJugador, Partida ultima, int limite) {
+        if (nombreJugador == null || nombreJugador.isEmpty()) {
+            throw new IllegalArgumentException("El nombre del jugador no puede ser null o vacío");
         }
+        return obtenerPagina(HQL_RESUMEN + "WHERE " + FILTRO_JUGADOR, ultima, limite,
+                query -> query.setParameter("nombreJugador", nombreJugador));
+    }
 
-        fechaValida(fechaFinal);
-        fechaValida(fechaInicial);
+    /**
+     * Obtiene una página de partidas entre dos fechas. La condición sobre (fecha,
+     * id) de la última partida permite continuar desde el índice en lugar de
+     * saltar filas con OFFSET.
+     * 
+     * @param fechaInicial Fecha inicial del rango
+     * @param fechaFinal   Fecha final del rango
+     * @param ultima       Última partida de la página anterior, o null para la
+     *                     primera página
+     * @param limite       Número máximo de partidas de la página
+     * @return Lista con las partidas de la página
+     * @throws IllegalArgumentException si fechaInicial o fechaFinal son null, si
+     *                                  fechaInicial es posterior a fechaFinal o si
+     *                                  limite es menor que 1
+     */
+    @Override
+    public List<Partida> obtenerPaginaPorFecha(LocalDate fechaInicial, LocalDate fechaFinal, Partida ultima,
+            int limite) {
+        validarRangoFechas(fechaInicial, fechaFinal);
+        return obtenerPagina(HQL_RESUMEN + "WHERE " + FILTRO_FECHA, ultima, limite, query -> query
+                .setParameter("fechaInicial", fechaInicial)
+                .setParameter("fechaFinal", fechaFinal));
+    }
+
+    /**
+     * Cuenta las partidas jugadas entre la fecha inicial y la fecha final con un
+     * COUNT en la base de datos.
+     * 
+     * @param fechaInicial Fecha inicial del rango
+     * @param fechaFinal   Fecha final del rango
+     * @return Número de partidas en el rango de fechas
+     * @throws IllegalArgumentException si fechaInicial o fechaFinal son null, o
+     *                                  si fechaInicial es posterior a fechaFinal
+     */
+    @Override
+    public long contarPartidasEntreFechas(LocalDate fechaInicial, LocalDate fechaFinal) {
+        validarRangoFechas(fechaInicial, fechaFinal);
+
+        return leer(0L, session -> {
+            String hql = "SELECT COUNT(P) FROM Partida P WHERE P.fecha BETWEEN :fechaInicial AND :fechaFinal";
+            Query<Long> query = session.createQuery(hql, Long.class);
+            query.setParameter("fechaInicial", fechaInicial);
+            query.setParameter("fechaFinal", fechaFinal);
+            return query.uniqueResult();
+        });
+    }
+
+    /**
+     * Cuenta los jugadores distintos que han jugado alguna partida entre la fecha
+     * inicial y la fecha final. Un jugador puede aparecer como jugador1 o como
+     * jugador2, así que se cuenta la unión de ambas columnas en la base de datos.
+     * 
+     * @param fechaInicial Fecha inicial del rango
+     * @param fechaFinal   Fecha final del rango
+     * @return Número de jugadores distintos en el rango de fechas
+     * @throws IllegalArgumentException si fechaInicial o fechaFinal son null, o
+     *                                  si fechaInicial es posterior a fechaFinal
+     */
+    @Override
+    public long contarJugadoresEntreFechas(LocalDate fechaInicial, LocalDate fechaFinal) {
+        validarRangoFechas(fechaInicial, fechaFinal);
+
+        return leer(0L, session -> {
+            String sql = "SELECT COUNT(*) FROM ("
+                    + "SELECT jugador1 AS nombre FROM partidas WHERE fecha BETWEEN :fechaInicial AND :fechaFinal "
+                    + "UNION "
+                    + "SELECT jugador2 AS nombre FROM partidas WHERE fecha BETWEEN :fechaInicial AND :fechaFinal"
+                    + ") jugadores";
+            Number resultado = (Number) session.createNativeQuery(sql)
+                    .setParameter("fechaInicial", fechaInicial)
+                    .setParameter("fechaFinal", fechaFinal)
+                    .uniqueResult();
+            return resultado.longValue();
+        });
+    }
+
+    /**
+     * Obtiene los nombres de los jugadores con más victorias a partir de la tabla
+     * estadisticas_jugador, que está indexada por victorias y nombre, por lo que
+     * solo se leen limite filas.
+     * 
+     * @param limite Número máximo de jugadores a devolver
+     * @return Lista con los nombres de los mejores jugadores
+     * @throws IllegalArgumentException si limite es menor que 1
+     */
+    @Override
+    public List<String> obtenerMejoresJugadores(int limite) {
+        if (limite < 1) {
+            throw new IllegalArgumentException("El límite debe ser mayor que cero");
+        }
+
+        return leer(List.of(), session -> {
+            String hql = "SELECT E.nombre FROM EstadisticasJugador E WHERE E.jugadas > 0 "
+                    + "ORDER BY E.ganadas DESC, E.nombre ASC";
+            Query<String> query = session.createQuery(hql, String.class);
+            query.setMaxResults(limite);
+            return query.list();
+        });
+    }
+
+    /**
+     * Obtiene las victorias de cada jugador con alguna partida leyendo la tabla
+     * de estadísticas en una sola consulta.
+     * 
+     * @return victorias de cada jugador
+     */
+    @Override
+    public Map<String, Integer> obtenerVictoriasPorJugador() {
+        return leer(Map.of(), session -> {
+            Map<String, Integer> victorias = new TreeMap<>();
+            session.createQuery("SELECT E.nombre, E.ganadas FROM EstadisticasJugador E WHERE E.jugadas > 0",
+                    Object[].class).list().forEach(fila -> victorias.put((String) fila[0], (Integer) fila[1]));
+            return victorias;
+        });
+    }
+
+    /**
+     * Obtiene las estadísticas acumuladas de un jugador leyendo una única fila (o
+     * de la caché de segundo nivel).
+     * 
+     * @param nombreJugador Nombre del jugador
+     * @return Estadísticas del jugador, a cero si no tiene partidas
+     * @throws IllegalArgumentException si nombreJugador es null o vacío
+     */
+    @Override
+    public EstadisticasJugador obtenerEstadisticasJugador(String nombreJugador) {
+        if (nombreJugador == null || nombreJugador.isEmpty()) {
+            throw new IllegalArgumentException("El nombre del jugador no puede ser null o vacío");
+        }
+
+        EstadisticasJugador estadisticas = leer(null,
+                session -> session.get(EstadisticasJugador.class, nombreJugador));
+        return (estadisticas != null) ? estadisticas : new EstadisticasJugador(nombreJugador);
+    }
+
+    /**
+     * Abre una sesión de solo lectura y devuelve un Stream sobre un cursor de solo
+     * avance. Cada TAMANO_FETCH partidas se vacía la sesión para que la memoria no
+     * crezca con el número de partidas recorridas (las partidas ya devueltas
+     * quedan desconectadas). Al cerrar el Stream se cierran el cursor y la sesión.
+     *
+     * @param hql        consulta de partidas
+     * @param parametros asigna los parámetros de la consulta
+     * @return Stream de partidas (vacío si falla la consulta)
+     */
+    private Stream<Partida> recorrer(String hql, Consumer<Query<Partida>> parametros) {
+        Session session = HibernateUtil.getSessionFactory(this.configFile).openSession();
+        try {
+            session.setDefaultReadOnly(true);
+            session.setCacheMode(CacheMode.IGNORE);
+            session.beginTransaction();
+
+            Query<Partida> query = session.createQuery(hql, Partida.class);
+            parametros.accept(query);
+            query.setFetchSize(TAMANO_FETCH);
+            ScrollableResults cursor = query.scroll(ScrollMode.FORWARD_ONLY);
+
+            Iterator<Partida> iterador = new Iterator<Partida>() {
+                private int leidas = 0;
+                private Partida siguiente = null;
+
+                @Override
+                public boolean hasNext() {
+                    if (siguiente == null && cursor.next()) {
+                        siguiente = (Partida) cursor.get(0);
+                    }
+                    return siguiente != null;
+                }
+
+                @Override
+                public Partida next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Partida partida = siguiente;
+                    siguiente = null;
+                    if (++leidas % TAMANO_FETCH == 0) {
+                        session.clear();
+                    }
+                    return partida;
+                }
+            };
+
+            return StreamSupport
+                    .stream(Spliterators.spliteratorUnknownSize(iterador, Spliterator.ORDERED | Spliterator.NONNULL),
+                            false)
+                    .onClose(() -> {
+                        try {
+                            cursor.close();
+                            if (session.getTransaction().isActive())
+                                session.getTransaction().commit();
+                        } finally {
+                            session.close();
+                        }
+                    });
+        } catch (HibernateException e) {
+            e.printStackTrace();
+            if (session.getTransaction().isActive())
+                session.getTransaction().rollback();
+            session.close();
+            return Stream.empty();
+        }
+    }
+
+    /**
+     * Ejecuta una consulta paginada por clave ordenada por (fecha, id).
+     *
+     * @param hql        consulta de partidas con su condición WHERE
+     * @param ultima     última partida de la página anterior, o null
+     * @param limite     número máximo de partidas
+     * @param parametros asigna los parámetros de la consulta
+     * @return partidas de la página
+     * @throws IllegalArgumentException si limite es menor que 1
+     */
+    private List<Partida> obtenerPagina(String hql, Partida ultima, int limite, Consumer<Query<Partida>> parametros) {
+        if (limite < 1) {
+            throw new IllegalArgumentException("El límite debe ser mayor que cero");
+        }
+
+        return leer(List.of(), session -> {
+            String consulta = (ultima == null) ? hql + ORDEN : hql + FILTRO_DESPUES_DE + ORDEN;
+            Query<Partida> query = session.createQuery(consulta, Partida.class);
+            parametros.accept(query);
+            if (ultima != null) {
+                query.setParameter("ultimaFecha", ultima.getFecha());
+                query.setParameter("ultimoId", ultima.getId());
+            }
+            query.setMaxResults(limite);
+            return query.list();
+        });
+    }
+
+    /**
+     * Suma a las estadísticas de los jugadores todas las partidas de un lote
+     * nuevo, leyendo y bloqueando cada fila una sola vez y en orden alfabético.
+     *
+     * @param session  sesión con una transacción activa
+     * @param partidas partidas nuevas del lote
+     */
+    private void actualizarEstadisticas(Session session, List<Partida> partidas) {
+        Map<String, EstadisticasJugador> estadisticas = new TreeMap<>();
+        for (Partida partida : partidas) {
+            for (String nombre : partida.getNombres()) {
+                estadisticas.put(nombre, null);
+            }
+        }
+        for (String nombre : estadisticas.keySet()) {
+            EstadisticasJugador jugador = session.get(EstadisticasJugador.class, nombre, LockMode.PESSIMISTIC_WRITE);
+            if (jugador == null) {
+                jugador = new EstadisticasJugador(nombre);
+                session.persist(jugador);
+            }
+            estadisticas.put(nombre, jugador);
+        }
+        for (Partida partida : partidas) {
+            for (String nombre : new TreeSet<>(partida.getNombres())) {
+                estadisticas.get(nombre).sumarPartida(partida);
+            }
+        }
+    }
+
+    /**
+     * Aplica a las estadísticas de los jugadores afectados la diferencia entre la
+     * partida anterior y la nueva, dentro de la transacción de la sesión. Las
+     * filas se bloquean siempre en orden alfabético para evitar interbloqueos
+     * entre transacciones concurrentes.
+     *
+     * @param session  sesión con una transacción activa
+     * @param anterior resultado de la partida tal y como estaba guardada (null si
+     *                 es nueva)
+     * @param nueva    resultado de la partida tal y como queda guardada (null si
+     *                 se elimina)
+     */
+    private void actualizarEstadisticas(Session session, ResultadoPartida anterior, ResultadoPartida nueva) {
+        Set<String> nombres = new TreeSet<>();
+        for (ResultadoPartida resultado : new ResultadoPartida[] { anterior, nueva }) {
+            if (resultado != null) {
+                nombres.add(resultado.getJugador1());
+                nombres.add(resultado.getJugador2());
+            }
+        }
+
+        for (String nombre : nombres) {
+            EstadisticasJugador estadisticas = session.get(EstadisticasJugador.class, nombre,
+                    LockMode.PESSIMISTIC_WRITE);
+            if (estadisticas == null) {
+                estadisticas = new EstadisticasJugador(nombre);
+                session.persist(estadisticas);
+            }
+            if (anterior != null) {
+                estadisticas.restarResultado(anterior);
+            }
+            if (nueva != null) {
+                estadisticas.sumarResultado(nueva);
+            }
+        }
+    }
+
+    /**
+     * Lee la partida guardada en una sesión recién abierta y comprueba las
+     * versiones de la que se quiere actualizar. La partida guardada queda en la
+     * sesión (si estaba en la caché de segundo nivel, sin leer la base de datos),
+     * de modo que merge la reutiliza en lugar de volver a leerla.
+     *
+     * @param session sesión sin ninguna partida cargada
+     * @param partida partida que se quiere actualizar
+     * @return resultado de la partida tal y como estaba guardada
+     * @throws IllegalStateException      si no existe la partida
+     * @throws PartidaModificadaException si alguna versión no coincide
+     */
+    private ResultadoPartida leerGuardada(Session session, Partida partida) {
+        Partida guardada = session.get(Partida.class, partida.getId());
+        if (guardada == null) {
+            throw new IllegalStateException("No existe una partida con el mismo identificador");
+        }
+        ResumenPartida resumen = guardada.getResumenPartida();
+        comprobarVersiones(partida, guardada.getVersion(), resumen == null ? null : resumen.getId(),
+                resumen == null ? null : resumen.getVersion());
+        return ResultadoPartida.de(guardada);
+    }
+
+    /**
+     * Como {@link #leerGuardada(Session, Partida)}, pero dentro de una unidad de
+     * trabajo, donde la partida gestionada por la sesión puede tener ya cambios
+     * sin escribir. Solo se leen de la base de datos las columnas necesarias
+     * para comprobar las versiones y restar el resultado anterior, sin vaciar la
+     * sesión.
+     *
+     * @param session sesión de la unidad de trabajo
+     * @param partida partida que se quiere actualizar
+     * @return resultado de la partida tal y como estaba guardada
+     * @throws IllegalStateException      si no existe la partida
+     * @throws PartidaModificadaException si alguna versión no coincide
+     */
+    private ResultadoPartida leerGuardadaEnUnidadDeTrabajo(Session session, Partida partida) {
+        Object[] fila = session.createQuery(HQL_VERSIONES, Object[].class)
+                .setParameter("id", partida.getId())
+                .setHibernateFlushMode(FlushMode.COMMIT)
+                .uniqueResult();
+        if (fila == null) {
+            throw new IllegalStateException("No existe una partida con el mismo identificador");
+        }
+        comprobarVersiones(partida, (Integer) fila[0], (String) fila[1], (Integer) fila[2]);
+        return new ResultadoPartida(partida.getId(), (LocalDate) fila[3], (String) fila[4], (String) fila[5],
+                (Boolean) fila[6], (Integer) fila[7], (Integer) fila[8], (Boolean) fila[9], (Boolean) fila[10]);
+    }
+
+    /**
+     * Comprueba que la partida (y su resumen) se leyeron con la versión que hay
+     * guardada. Si la partida no tiene versión (no procede de una lectura del
+     * repositorio) se actualiza sin control de concurrencia, tomando la versión
+     * guardada.
+     *
+     * @param partida         partida que se quiere actualizar
+     * @param versionPartida  versión guardada de la partida
+     * @param idResumen       identificador del resumen guardado, o null
+     * @param versionResumen  versión guardada del resumen, o null
+     * @throws PartidaModificadaException si alguna versión no coincide
+     */
+    private void comprobarVersiones(Partida partida, Integer versionPartida, String idResumen,
+            Integer versionResumen) {
+        if (partida.getVersion() == null) {
+            partida.setVersion(versionPartida);
+        } else if (!partida.getVersion().equals(versionPartida)) {
+            throw new PartidaModificadaException(partida.getId(), null);
+        }
+
+        ResumenPartida resumen = partida.getResumenPartida();
+        if (resumen == null || idResumen == null || !idResumen.equals(resumen.getId())) {
+            return;
+        }
+        if (resumen.getVersion() == null) {
+            resumen.setVersion(versionResumen);
+        } else if (!resumen.getVersion().equals(versionResumen)) {
+            throw new PartidaModificadaException(partida.getId(), null);
+        }
+    }
+
+    /**
+     * Indica si la excepción se debe a que otra transacción ha modificado la
+     * fila desde que se leyó.
+     *
+     * @param e excepción lanzada al escribir
+     * @return true si alguna de sus causas es un conflicto de versión
+     */
+    private boolean esConflictoVersion(Throwable e) {
+        for (Throwable causa = e; causa != null; causa = causa.getCause()) {
+            if (causa instanceof StaleStateException || causa instanceof OptimisticLockException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Indica si la excepción lanzada al guardar se debe a que la partida ya
+     * existía: la base de datos ha rechazado la inserción en partidas, o en
+     * resumen_partida, que comparte su identificador, por violar una clave única.
+     * Cualquier otro error (restricciones de otras tablas, columnas demasiado
+     * largas, entidades separadas...) no se considera un duplicado.
+     *
+     * @param e excepción lanzada al escribir
+     * @return true si alguna de sus causas es la violación de la clave de la partida
+     */
+    private boolean esPartidaExistente(Throwable e) {
+        for (Throwable causa = e; causa != null; causa = causa.getCause()) {
+            if (causa instanceof ConstraintViolationException) {
+                ConstraintViolationException violacion = (ConstraintViolationException) causa;
+                return CLAVE_DUPLICADA.equals(violacion.getSQLState()) && violacion.getSQL() != null
+                        && INSERCION_PARTIDA.matcher(violacion.getSQL()).lookingAt();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Devuelve la instancia que se debe persistir al guardar una partida. Una
+     * partida con versión ya se persistió en una transacción que se deshizo, y
+     * conserva la versión y los identificadores que se le asignaron entonces;
+     * persistirla otra vez fallaría, así que se guarda una copia como nueva (ver
+     * {@link Partida#copiarComoNueva()}). Si la partida se leyó del repositorio,
+     * la copia choca con la clave primaria igual que la original.
+     *
+     * @param partida partida que se quiere guardar
+     * @return la propia partida, o una copia sin versión ni identificadores
+     */
+    private static Partida paraPersistir(Partida partida) {
+        return partida.getVersion() == null ? partida : partida.copiarComoNueva();
+    }
+
+    /**
+     * Deja en la partida que pidió guardarse las versiones de la instancia que
+     * se ha persistido en su lugar.
+     *
+     * @param persistida partida persistida
+     * @param partida    partida que se pidió guardar
+     */
+    private static void copiarVersiones(Partida persistida, Partida partida) {
+        if (persistida == partida) {
+            return;
+        }
+        partida.setVersion(persistida.getVersion());
+        if (partida.getResumenPartida() != null && persistida.getResumenPartida() != null) {
+            partida.getResumenPartida().setVersion(persistida.getResumenPartida().getVersion());
+        }
+    }
+
+    /**
+     * Lee la partida con todas sus colecciones inicializadas.
+     *
+     * @param session       sesión abierta con una transacción activa
+     * @param identificador identificador de la partida
+     * @return la partida, o null si no existe
+     * @see #cargarGrafosCompletos(Session, Collection)
+     */
+    private Partida cargarGrafoCompleto(Session session, String identificador) {
+        List<Partida> resultado = cargarGrafosCompletos(session, List.of(identificador));
+        return resultado.isEmpty() ? null : resultado.get(0);
+    }
+
+    /**
+     * Lee varias partidas con todas sus colecciones inicializadas. Cada consulta
+     * inicializa un nivel del grafo (como mucho una colección tipo bag por
+     * consulta) sobre las entidades que ya están en la sesión, por lo que el
+     * número de consultas es siempre el mismo, independiente del número de
+     * partidas, rondas y turnos.
+     *
+     * @param session        sesión abierta con una transacción activa
+     * @param identificadores identificadores de las partidas (no vacío)
+     * @return las partidas que existen, ordenadas por fecha e identificador
+     */
+    static List<Partida> cargarGrafosCompletos(Session session, Collection<String> identificadores) {
+        List<Partida> resultado = session.createQuery("SELECT DISTINCT P FROM Partida P LEFT JOIN FETCH P.resumen "
+                + "LEFT JOIN FETCH P.mesaInicial WHERE P.id IN :ids" + ORDEN, Partida.class)
+                .setParameterList("ids", identificadores)
+                .list();
+        if (resultado.isEmpty()) {
+            return resultado;
+        }
+
+        session.createQuery("SELECT DISTINCT P FROM Partida P LEFT JOIN FETCH P.manosJugadores WHERE P IN :partidas",
+                Partida.class)
+                .setParameterList("partidas", resultado).list();
+        session.createQuery("SELECT DISTINCT M FROM Mano M LEFT JOIN FETCH M.cartas WHERE M.partida IN :partidas",
+                Mano.class)
+                .setParameterList("partidas", resultado).list();
+        session.createQuery("SELECT DISTINCT P FROM Partida P LEFT JOIN FETCH P.rondas WHERE P IN :partidas",
+                Partida.class)
+                .setParameterList("partidas", resultado).list();
+        session.createQuery("SELECT DISTINCT R FROM Ronda R LEFT JOIN FETCH R.turnos T LEFT JOIN FETCH T.jugada J "
+                + "LEFT JOIN FETCH J.juega WHERE R.partida IN :partidas", Ronda.class)
+                .setParameterList("partidas", resultado).list();
+        session.createQuery("SELECT DISTINCT J FROM Jugada J LEFT JOIN FETCH J.captura WHERE J IN "
+                + "(SELECT T.jugada FROM Turno T WHERE T.ronda.partida IN :partidas)", Jugada.class)
+                .setParameterList("partidas", resultado).list();
+        session.createQuery("SELECT DISTINCT J FROM Jugada J LEFT JOIN FETCH J.mesaResultante WHERE J IN "
+                + "(SELECT T.jugada FROM Turno T WHERE T.ronda.partida IN :partidas)", Jugada.class)
+                .setParameterList("partidas", resultado).list();
+        return resultado;
+    }
+
+    private void validarRangoFechas(LocalDate fechaInicial, LocalDate fechaFinal) {
+        if (fechaInicial == null || fechaFinal == null) {
+            throw new IllegalArgumentException("Las fechas no pueden ser null");
+        }
+        if (fechaInicial.isAfter(fechaFinal)) {
+            throw new IllegalArgumentException("La fecha inicial no puede ser posterior a la fecha final");
+        }
+    }
+
+    /**
+     * Ejecuta una consulta en una transacción de solo lectura: las entidades se
+     * cargan como solo lectura (Hibernate no guarda una copia de su estado para
+     * detectar cambios), la sesión nunca se vacía (FlushMode.MANUAL) y la
+     * conexión JDBC se marca como de solo lectura. Si la consulta lanza una
+     * IllegalStateException o IllegalArgumentException, se propaga.
+     *
+     * Dentro de una unidad de trabajo ({@link #enTransaccion(Function)}) la
+     * consulta se ejecuta con su sesión, sin marcarla como de solo lectura. Si
+     * allí falla el acceso a la base de datos no se devuelve porDefecto, porque
+     * el trabajo seguiría con un resultado vacío que no es real: se lanza una
+     * IllegalStateException y la unidad de trabajo queda marcada para
+     * deshacerse.
+     *
+     * @param <T>        tipo del resultado
+     * @param porDefecto resultado si no se puede acceder a la base de datos
+     *                   fuera de una unidad de trabajo
+     * @param consulta   consulta que se ejecuta con la sesión
+     * @return resultado de la consulta
+     * @throws IllegalStateException si falla el acceso a la base de datos dentro
+     *                               de una unidad de trabajo
+     */
+    private <T> T leer(T porDefecto, Function<Session, T> consulta) {
+        Session compartida = sesionTrabajo.get();
+        if (compartida != null) {
+            // Dentro de una unidad de trabajo se reutiliza su sesión para que las
+            // entidades cargadas sigan gestionadas y puedan modificarse
+            try {
+                return consulta.apply(compartida);
+            } catch (PersistenceException e) {
+                compartida.getTransaction().markRollbackOnly();
+                throw new IllegalStateException("No se ha podido consultar la base de datos", e);
+            }
+        }
 
         Session session = getSession();
-        List<Partida> partidas = List.of();
+        T resultado = porDefecto;
+
         if (session != null) {
             try {
                 session.beginTransaction();
+                session.setDefaultReadOnly(true);
+                session.setHibernateFlushMode(FlushMode.MANUAL);
+                session.doWork(conexion -> conexion.setReadOnly(true));
 
-                String hql = "FROM Partida P WHERE P.fecha BETWEEN :fechaInicial AND :fechaFinal";
-                Query<Partida> query = session.createQuery(hql, Partida.class);
-                query.setParameter("fechaInicial", fechaInicial);
-                query.setParameter("fechaFinal", fechaFinal);
-                partidas = query.list();
+                resultado = consulta.apply(session);
 
                 session.getTransaction().commit();
             } catch (HibernateException e) {
                 e.printStackTrace();
+                resultado = porDefecto;
+            } finally {
                 if (session.getTransaction().isActive())
                     session.getTransaction().rollback();
-            } finally {
                 session.close();
             }
         }
-        return partidas;
+        return resultado;
     }
 
-    private void fechaValida(String fecha) {
-        if(!fecha.matches("\\d{4}-\\d{2}-\\d{2}")) {
-            throw new IllegalArgumentException("La " + fecha + " debe seguir el formato 'yyyy-MM-dd'");
+    /**
+     * Ejecuta una operación de escritura. Fuera de una unidad de trabajo se
+     * ejecuta en su propia transacción, que se confirma al terminar y se deshace
+     * si la operación falla. Dentro de una unidad de trabajo se ejecuta con su
+     * sesión y, si falla, la unidad de trabajo completa queda marcada para
+     * deshacerse.
+     *
+     * @param <T>       tipo del resultado
+     * @param operacion operación que se ejecuta con la sesión
+     * @return resultado de la operación, o null si no se puede acceder a la base
+     *         de datos
+     */
+    private <T> T escribir(Function<Session, T> operacion) {
+        Session compartida = sesionTrabajo.get();
+        if (compartida != null) {
+            try {
+                return operacion.apply(compartida);
+            } catch (RuntimeException e) {
+                compartida.getTransaction().markRollbackOnly();
+                throw e;
+            }
+        }
+
+        Session session = getSession();
+        if (session == null) {
+            return null;
+        }
+        try {
+            session.beginTransaction();
+            T resultado = operacion.apply(session);
+            session.getTransaction().commit();
+            return resultado;
+        } finally {
+            if (session.getTransaction().isActive())
+                session.getTransaction().rollback();
+            session.close();
         }
     }
+
+    /**
+     * Ejecuta varias operaciones del repositorio con una única sesión y una
+     * única transacción. Las partidas cargadas dentro del trabajo siguen
+     * gestionadas por la sesión, de modo que se reutilizan en las siguientes
+     * operaciones sin volver a leerlas. Si el trabajo lanza una excepción, o si
+     * falla alguna de sus escrituras, no se confirma ninguna de ellas. Una
+     * llamada anidada se une a la unidad de trabajo ya abierta en el hilo.
+     *
+     * Los métodos recorrer* abren siempre su propia sesión.
+     *
+     * @param <T>     tipo del resultado
+     * @param trabajo operaciones a ejecutar sobre este repositorio
+     * @return resultado del trabajo
+     * @throws IllegalArgumentException si trabajo es null
+     * @throws IllegalStateException    si alguna operación del trabajo ha fallado
+     *                                  aunque el trabajo haya capturado el error, o
+     *                                  si no se puede confirmar la transacción
+     */
+    @Override
+    public <T> T enTransaccion(Function<RepositorioPartida, T> trabajo) {
+        if (trabajo == null) {
+            throw new IllegalArgumentException("El trabajo no puede ser null");
+        }
+        if (sesionTrabajo.get() != null) {
+            return trabajo.apply(this);
+        }
+
+        Session session = HibernateUtil.getSessionFactory(this.configFile).openSession();
+        sesionTrabajo.set(session);
+        try {
+            session.beginTransaction();
+            T resultado = trabajo.apply(this);
+            if (session.getTransaction().getRollbackOnly()) {
+                throw new IllegalStateException("Una de las operaciones de la transacción ha fallado");
+            }
+            session.getTransaction().commit();
+            return resultado;
+        } catch (PersistenceException e) {
+            throw new IllegalStateException("No se ha podido confirmar la transacción", e);
+        } finally {
+            sesionTrabajo.remove();
+            if (session.getTransaction().isActive())
+                session.getTransaction().rollback();
+            session.close();
+        }
+    }
+
     private Session getSession() {
         SessionFactory factory = HibernateUtil.getSessionFactory(this.configFile);
         Session session;
@@ -0,0 +1,455 @@
+package uva.tds.servicios;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import uva.tds.entidades.EstadisticasJugador;
+import uva.tds.entidades.Partida;
+import uva.tds.entidades.ResultadoPartida;
+import uva.tds.interfaces.PartidaModificadaException;
+import uva.tds.interfaces.PerfilCarga;
+import uva.tds.interfaces.RepositorioPartida;
+
+/**
+ * Implementación de RepositorioPartida que guarda las partidas en memoria, con
+ * el mismo contrato de excepciones que RepositorioPartidaHibernate. Sirve para
+ * tener las partidas de la temporada actual siempre en memoria y como sustituto
+ * rápido de la base de datos en los tests.
+ *
+ * Las partidas se guardan en un mapa concurrente por identificador, con dos
+ * índices secundarios: los identificadores de las partidas de cada jugador y
+ * los identificadores ordenados por fecha (y dentro de cada fecha por
+ * identificador), que permite recorrer rangos de fechas en orden sin ordenar
+ * todas las partidas. Las estadísticas de los jugadores se mantienen al guardar,
+ * actualizar y eliminar, igual que en la base de datos.
+ *
+ * Las lecturas pueden ejecutarse a la vez; las escrituras se serializan para
+ * que el mapa, los índices y las estadísticas cambien juntos.
+ *
+ * Como en la base de datos, el repositorio guarda su propia copia de cada
+ * partida (ver {@link Partida#copiar()}) y cada lectura devuelve otra copia, así
+ * que modificar una partida guardada o cargada no tiene efecto hasta llamar a
+ * {@link #actualizar(Partida)}. Cada partida tiene una versión que se
+ * incrementa al actualizarla; el resumen no tiene versión propia. Solo se puede
+ * actualizar una partida con la versión guardada: una partida sin versión no se
+ * ha leído del repositorio y se trata como un conflicto. No hay transacciones:
+ * {@link #enTransaccion} ejecuta el trabajo sin poder deshacerlo.
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+public class RepositorioPartidaMemoria implements RepositorioPartida {
+
+    private static final Comparator<Partida> ORDEN = Comparator.comparing(Partida::getFecha)
+            .thenComparing(Partida::getId);
+
+    private final Map<String, Entrada> partidas = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> idsPorJugador = new ConcurrentHashMap<>();
+    private final NavigableMap<LocalDate, NavigableSet<String>> idsPorFecha = new ConcurrentSkipListMap<>();
+    private final Map<String, EstadisticasJugador> estadisticas = new ConcurrentHashMap<>();
+    private final ReadWriteLock cerrojo = new ReentrantReadWriteLock();
+
+    @Override
+    public void guardar(Partida partida) {
+        if (partida == null) {
+            throw new IllegalArgumentException("La partida no puede ser null");
+        }
+
+        cerrojo.writeLock().lock();
+        try {
+            if (partidas.containsKey(partida.getId())) {
+                throw new IllegalStateException("Ya existe una partida con el mismo identificador");
+            }
+            insertar(partida);
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void guardarLote(List<Partida> lote) {
+        if (lote == null) {
+            throw new IllegalArgumentException("Las partidas no pueden ser null");
+        }
+        Set<String> ids = new HashSet<>();
+        for (Partida partida : lote) {
+            if (partida == null) {
+                throw new IllegalArgumentException("La partida no puede ser null");
+            }
+            if (!ids.add(partida.getId())) {
+                throw new IllegalStateException("El lote contiene dos partidas con el identificador " + partida.getId());
+            }
+        }
+
+        cerrojo.writeLock().lock();
+        try {
+            for (Partida partida : lote) {
+                if (partidas.containsKey(partida.getId())) {
+                    throw new IllegalStateException("Ya existe una partida con el identificador " + partida.getId());
+                }
+            }
+            lote.forEach(this::insertar);
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void actualizar(Partida partida) {
+        if (partida == null) {
+            throw new IllegalArgumentException("La partida no puede ser null");
+        }
+
+        cerrojo.writeLock().lock();
+        try {
+            Entrada anterior = partidas.get(partida.getId());
+            if (anterior == null) {
+                throw new IllegalStateException("No existe una partida con el mismo identificador");
+            }
+            if (partida.getVersion() == null || partida.getVersion() != anterior.version) {
+                throw new PartidaModificadaException(partida.getId(), null);
+            }
+
+            quitar(anterior);
+            Entrada nueva = new Entrada(partida.copiar(), anterior.version + 1);
+            indexar(nueva);
+            partida.setVersion(nueva.version);
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Partida cargar(String identificador) {
+        return cargar(identificador, PerfilCarga.REPRODUCCION);
+    }
+
+    /**
+     * Carga una copia de una partida del repositorio. Como la partida está entera
+     * en memoria, el perfil no cambia lo que se devuelve.
+     *
+     * @param identificador identificador único de la partida
+     * @param perfil        parte de la partida que se necesita
+     * @return la partida con el identificador dado
+     * @throws IllegalArgumentException si identificador es null o vacío, o si
+     *                                  perfil es null
+     * @throws IllegalStateException    si no existe una partida con el
+     *                                  identificador dado
+     */
+    @Override
+    public Partida cargar(String identificador, PerfilCarga perfil) {
+        validarIdentificador(identificador);
+        if (perfil == null) {
+            throw new IllegalArgumentException("El perfil de carga no puede ser null");
+        }
+
+        Entrada entrada = partidas.get(identificador);
+        if (entrada == null) {
+            throw new IllegalStateException("No existe una partida con el identificador dado");
+        }
+        return entrada.partida.copiar();
+    }
+
+    @Override
+    public void eliminar(String identificador) {
+        validarIdentificador(identificador);
+
+        cerrojo.writeLock().lock();
+        try {
+            Entrada entrada = partidas.get(identificador);
+            if (entrada == null) {
+                throw new IllegalStateException("No existe una partida con el identificador dado");
+            }
+            quitar(entrada);
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Partida> obtenerPartidasPorJugador(String nombreJugador) {
+        validarNombreJugador(nombreJugador);
+        return entradasDeJugador(nombreJugador).stream()
+                .map(entrada -> entrada.partida.copiar())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Partida> obtenerPartidasPorFecha(LocalDate fechaInicial, LocalDate fechaFinal) {
+        validarRangoFechas(fechaInicial, fechaFinal);
+        return entradasEntreFechas(fechaInicial, fechaFinal).stream()
+                .map(entrada -> entrada.partida.copiar())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Recorre las partidas de un jugador ordenadas por fecha e identificador. Las
+     * partidas ya están en memoria, así que el Stream no mantiene recursos
+     * abiertos.
+     *
+     * @param nombreJugador nombre del jugador
+     * @return Stream con las partidas del jugador
+     * @throws IllegalArgumentException si nombreJugador es null o vacío
+     */
+    @Override
+    public Stream<Partida> recorrerPartidasPorJugador(String nombreJugador) {
+        return obtenerPartidasPorJugador(nombreJugador).stream();
+    }
+
+    /**
+     * Recorre las partidas entre dos fechas ordenadas por fecha e identificador.
+     * Las partidas ya están en memoria, así que el Stream no mantiene recursos
+     * abiertos.
+     *
+     * @param fechaInicial fecha inicial del rango
+     * @param fechaFinal   fecha final del rango
+     * @return Stream con las partidas en el rango de fechas
+     * @throws IllegalArgumentException si fechaInicial o fechaFinal son null, o
+     *                                  si fechaInicial es posterior a fechaFinal
+     */
+    @Override
+    public Stream<Partida> recorrerPartidasPorFecha(LocalDate fechaInicial, LocalDate fechaFinal) {
+        return obtenerPartidasPorFecha(fechaInicial, fechaFinal).stream();
+    }
+
+    @Override
+    public List<Partida> obtenerPaginaPorJugador(String nombreJugador, Partida ultima, int limite) {
+        validarNombreJugador(nombreJugador);
+        validarLimite(limite);
+        return paginar(obtenerPartidasPorJugador(nombreJugador), ultima, limite);
+    }
+
+    @Override
+    public List<Partida> obtenerPaginaPorFecha(LocalDate fechaInicial, LocalDate fechaFinal, Partida ultima,
+            int limite) {
+        validarRangoFechas(fechaInicial, fechaFinal);
+        validarLimite(limite);
+        LocalDate desde = (ultima == null || ultima.getFecha().isBefore(fechaInicial)) ? fechaInicial
+                : ultima.getFecha();
+        if (desde.isAfter(fechaFinal)) {
+            return new ArrayList<>();
+        }
+        return paginar(obtenerPartidasPorFecha(desde, fechaFinal), ultima, limite);
+    }
+
+    @Override
+    public long contarPartidasEntreFechas(LocalDate fechaInicial, LocalDate fechaFinal) {
+        validarRangoFechas(fechaInicial, fechaFinal);
+        cerrojo.readLock().lock();
+        try {
+            return idsPorFecha.subMap(fechaInicial, true, fechaFinal, true).values().stream()
+                    .mapToLong(Set::size)
+                    .sum();
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long contarJugadoresEntreFechas(LocalDate fechaInicial, LocalDate fechaFinal) {
+        validarRangoFechas(fechaInicial, fechaFinal);
+        Set<String> jugadores = new HashSet<>();
+        for (Entrada entrada : entradasEntreFechas(fechaInicial, fechaFinal)) {
+            jugadores.add(entrada.resultado.getJugador1());
+            jugadores.add(entrada.resultado.getJugador2());
+        }
+        return jugadores.size();
+    }
+
+    @Override
+    public List<String> obtenerMejoresJugadores(int limite) {
+        validarLimite(limite);
+        cerrojo.readLock().lock();
+        try {
+            return estadisticas.values().stream()
+                    .sorted(Comparator.comparingInt(EstadisticasJugador::getGanadas).reversed()
+                            .thenComparing(EstadisticasJugador::getNombre))
+                    .limit(limite)
+                    .map(EstadisticasJugador::getNombre)
+                    .collect(Collectors.toList());
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, Integer> obtenerVictoriasPorJugador() {
+        cerrojo.readLock().lock();
+        try {
+            return estadisticas.values().stream()
+                    .collect(Collectors.toMap(EstadisticasJugador::getNombre, EstadisticasJugador::getGanadas));
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Obtiene las estadísticas acumuladas de un jugador. Se devuelve una copia,
+     * de modo que modificarla no cambia las del repositorio.
+     *
+     * @param nombreJugador nombre del jugador
+     * @return estadísticas del jugador, a cero si no tiene partidas
+     * @throws IllegalArgumentException si nombreJugador es null o vacío
+     */
+    @Override
+    public EstadisticasJugador obtenerEstadisticasJugador(String nombreJugador) {
+        validarNombreJugador(nombreJugador);
+        EstadisticasJugador copia = new EstadisticasJugador(nombreJugador);
+        for (Entrada entrada : entradasDeJugador(nombreJugador)) {
+            copia.sumarResultado(entrada.resultado);
+        }
+        return copia;
+    }
+
+    /**
+     * Guarda una copia de una partida nueva con la versión inicial. Debe
+     * llamarse con el cerrojo de escritura.
+     */
+    private void insertar(Partida partida) {
+        indexar(new Entrada(partida.copiar(), 0));
+        partida.setVersion(0);
+    }
+
+    /**
+     * Añade la entrada al mapa, a los índices y a las estadísticas. Debe
+     * llamarse con el cerrojo de escritura.
+     */
+    private void indexar(Entrada entrada) {
+        ResultadoPartida resultado = entrada.resultado;
+        partidas.put(resultado.getId(), entrada);
+        idsPorFecha.computeIfAbsent(resultado.getFecha(), fecha -> new ConcurrentSkipListSet<>())
+                .add(resultado.getId());
+        for (String nombre : jugadores(resultado)) {
+            idsPorJugador.computeIfAbsent(nombre, clave -> ConcurrentHashMap.newKeySet()).add(resultado.getId());
+            estadisticas.computeIfAbsent(nombre, EstadisticasJugador::new).sumarResultado(resultado);
+        }
+    }
+
+    /**
+     * Quita la entrada del mapa, de los índices y de las estadísticas. Debe
+     * llamarse con el cerrojo de escritura.
+     */
+    private void quitar(Entrada entrada) {
+        ResultadoPartida resultado = entrada.resultado;
+        partidas.remove(resultado.getId());
+        idsPorFecha.computeIfPresent(resultado.getFecha(), (fecha, ids) -> {
+            ids.remove(resultado.getId());
+            return ids.isEmpty() ? null : ids;
+        });
+        for (String nombre : jugadores(resultado)) {
+            idsPorJugador.computeIfPresent(nombre, (clave, ids) -> {
+                ids.remove(resultado.getId());
+                return ids.isEmpty() ? null : ids;
+            });
+            estadisticas.computeIfPresent(nombre, (clave, jugador) -> {
+                jugador.restarResultado(resultado);
+                return jugador.getJugadas() > 0 ? jugador : null;
+            });
+        }
+    }
+
+    private List<Entrada> entradasDeJugador(String nombreJugador) {
+        List<Entrada> resultado = new ArrayList<>();
+        cerrojo.readLock().lock();
+        try {
+            for (String id : idsPorJugador.getOrDefault(nombreJugador, Set.of())) {
+                resultado.add(partidas.get(id));
+            }
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+        resultado.sort(Comparator.comparing((Entrada entrada) -> entrada.partida, ORDEN));
+        return resultado;
+    }
+
+    private List<Entrada> entradasEntreFechas(LocalDate fechaInicial, LocalDate fechaFinal) {
+        List<Entrada> resultado = new ArrayList<>();
+        cerrojo.readLock().lock();
+        try {
+            for (Set<String> ids : idsPorFecha.subMap(fechaInicial, true, fechaFinal, true).values()) {
+                for (String id : ids) {
+                    resultado.add(partidas.get(id));
+                }
+            }
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+        return resultado;
+    }
+
+    /**
+     * Devuelve las partidas posteriores a ultima (por fecha e identificador) de
+     * una lista ya ordenada, hasta el límite.
+     */
+    private static List<Partida> paginar(List<Partida> ordenadas, Partida ultima, int limite) {
+        return ordenadas.stream()
+                .filter(partida -> ultima == null || ORDEN.compare(partida, ultima) > 0)
+                .limit(limite)
+                .collect(Collectors.toList());
+    }
+
+    private static Set<String> jugadores(ResultadoPartida resultado) {
+        Set<String> nombres = new HashSet<>();
+        nombres.add(resultado.getJugador1());
+        nombres.add(resultado.getJugador2());
+        return nombres;
+    }
+
+    private static void validarIdentificador(String identificador) {
+        if (identificador == null || identificador.isEmpty()) {
+            throw new IllegalArgumentException("El identificador no puede ser null o vacío");
+        }
+    }
+
+    private static void validarNombreJugador(String nombreJugador) {
+        if (nombreJugador == null || nombreJugador.isEmpty()) {
+            throw new IllegalArgumentException("El nombre del jugador no puede ser null o vacío");
+        }
+    }
+
+    private static void validarLimite(int limite) {
+        if (limite < 1) {
+            throw new IllegalArgumentException("El límite debe ser mayor que cero");
+        }
+    }
+
+    private static void validarRangoFechas(LocalDate fechaInicial, LocalDate fechaFinal) {
+        if (fechaInicial == null || fechaFinal == null) {
+            throw new IllegalArgumentException("Las fechas no pueden ser null");
+        }
+        if (fechaInicial.isAfter(fechaFinal)) {
+            throw new IllegalArgumentException("La fecha inicial no puede ser posterior a la fecha final");
+        }
+    }
+
+    /**
+     * Copia guardada de la partida junto con su versión y su resultado en el
+     * momento de guardarla, que es el que usan los índices y las estadísticas.
+     */
+    private static final class Entrada {
+        private final Partida partida;
+        private final int version;
+        private final ResultadoPartida resultado;
+
+        Entrada(Partida partida, int version) {
+            partida.setVersion(version);
+            this.partida = partida;
+            this.version = version;
+            this.resultado = ResultadoPartida.de(partida);
+        }
+    }
+}
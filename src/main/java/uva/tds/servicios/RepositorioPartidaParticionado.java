@@ -0,0 +1,540 @@
+package uva.tds.servicios;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import uva.tds.entidades.EstadisticasJugador;
+import uva.tds.entidades.Partida;
+import uva.tds.interfaces.PartidaModificadaException;
+import uva.tds.interfaces.PerfilCarga;
+import uva.tds.interfaces.RepositorioPartida;
+
+/**
+ * Implementación de RepositorioPartida que reparte las partidas en particiones
+ * mensuales según su fecha. Cada partición es un repositorio independiente (por
+ * ejemplo, un RepositorioPartidaHibernate sobre su propio esquema, con sus
+ * propias tablas de partidas, rondas, turnos y estadísticas, ver
+ * {@link ParticionesHibernate}) que se crea con una fábrica la primera vez que
+ * se guarda una partida de ese mes. Una partida no puede cambiar de mes al
+ * actualizarla.
+ *
+ * Las consultas por rango de fechas solo se envían a las particiones de los
+ * meses que se solapan con el rango, de modo que consultar los últimos días no
+ * recorre el histórico. Las consultas por jugador y las estadísticas consultan
+ * todas las particiones y combinan los resultados, manteniendo el orden por
+ * fecha e identificador. La retención se hace eliminando particiones enteras
+ * con {@link #eliminarParticion(YearMonth)} o
+ * {@link #eliminarParticionesAnterioresA(LocalDate)}, sin borrar partida a
+ * partida; las estadísticas de los jugadores dejan de incluir esas partidas.
+ *
+ * Para localizar una partida por identificador se guarda en memoria la
+ * partición de cada partida guardada o encontrada. Si no se conoce, se busca en
+ * las particiones de la más reciente a la más antigua.
+ *
+ * La unicidad del identificador solo está garantizada dentro de un mismo mes,
+ * donde la impone el almacenamiento de la partición. Entre meses distintos no
+ * hay ninguna restricción en el almacenamiento: el repositorio rechaza los
+ * identificadores que ya conoce (reservándolos de forma atómica antes de
+ * guardar, para que dos guardados simultáneos no pasen los dos la
+ * comprobación), pero no los de partidas de particiones ya existentes que
+ * todavía no ha localizado ni los que guarden otras instancias.
+ *
+ * {@link #guardarLote(List)} guarda el lote de cada mes en una operación de su
+ * partición y, si falla un mes, elimina lo guardado en los anteriores.
+ * {@link #enTransaccion} no es atómico entre particiones.
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+public class RepositorioPartidaParticionado implements RepositorioPartida {
+
+    private final Function<YearMonth, RepositorioPartida> fabrica;
+    private final BiConsumer<YearMonth, RepositorioPartida> alEliminarParticion;
+    private final NavigableMap<YearMonth, RepositorioPartida> particiones = new ConcurrentSkipListMap<>();
+    private final Map<String, YearMonth> particionPorId = new ConcurrentHashMap<>();
+
+    /**
+     * Crea un repositorio particionado sin particiones.
+     *
+     * @param fabrica crea el repositorio de la partición de un mes
+     * @throws IllegalArgumentException si fabrica es null
+     */
+    public RepositorioPartidaParticionado(Function<YearMonth, RepositorioPartida> fabrica) {
+        this(fabrica, (mes, particion) -> {
+        }, List.of());
+    }
+
+    /**
+     * Crea un repositorio particionado abriendo las particiones que ya existen.
+     *
+     * @param fabrica               crea (o abre) el repositorio de la partición
+     *                              de un mes
+     * @param alEliminarParticion   libera el almacenamiento de una partición
+     *                              eliminada (por ejemplo, borrando sus tablas)
+     * @param particionesExistentes meses de los que ya hay partición
+     * @throws IllegalArgumentException si algún parámetro es null o
+     *                                  particionesExistentes contiene null
+     */
+    public RepositorioPartidaParticionado(Function<YearMonth, RepositorioPartida> fabrica,
+            BiConsumer<YearMonth, RepositorioPartida> alEliminarParticion, Collection<YearMonth> particionesExistentes) {
+        if (fabrica == null || alEliminarParticion == null || particionesExistentes == null) {
+            throw new IllegalArgumentException("Los parámetros no pueden ser null");
+        }
+        this.fabrica = fabrica;
+        this.alEliminarParticion = alEliminarParticion;
+        for (YearMonth mes : particionesExistentes) {
+            if (mes == null) {
+                throw new IllegalArgumentException("Los meses no pueden ser null");
+            }
+            particion(mes);
+        }
+    }
+
+    @Override
+    public void guardar(Partida partida) {
+        if (partida == null) {
+            throw new IllegalArgumentException("La partida no puede ser null");
+        }
+        YearMonth mes = YearMonth.from(partida.getFecha());
+        if (particionPorId.putIfAbsent(partida.getId(), mes) != null) {
+            throw new IllegalStateException("Ya existe una partida con el mismo identificador");
+        }
+        try {
+            particion(mes).guardar(partida);
+        } catch (RuntimeException e) {
+            particionPorId.remove(partida.getId(), mes);
+            throw e;
+        }
+    }
+
+    @Override
+    public void guardarLote(List<Partida> lote) {
+        if (lote == null) {
+            throw new IllegalArgumentException("Las partidas no pueden ser null");
+        }
+        Set<String> ids = new HashSet<>();
+        Map<YearMonth, List<Partida>> porMes = new TreeMap<>();
+        for (Partida partida : lote) {
+            if (partida == null) {
+                throw new IllegalArgumentException("La partida no puede ser null");
+            }
+            if (!ids.add(partida.getId())) {
+                throw new IllegalStateException("El lote contiene dos partidas con el identificador " + partida.getId());
+            }
+            porMes.computeIfAbsent(YearMonth.from(partida.getFecha()), mes -> new ArrayList<>()).add(partida);
+        }
+
+        List<Partida> reservadas = new ArrayList<>();
+        List<Partida> guardadas = new ArrayList<>();
+        try {
+            for (Partida partida : lote) {
+                if (particionPorId.putIfAbsent(partida.getId(), YearMonth.from(partida.getFecha())) != null) {
+                    throw new IllegalStateException("Ya existe una partida con el identificador " + partida.getId());
+                }
+                reservadas.add(partida);
+            }
+            for (Map.Entry<YearMonth, List<Partida>> grupo : porMes.entrySet()) {
+                particion(grupo.getKey()).guardarLote(grupo.getValue());
+                guardadas.addAll(grupo.getValue());
+            }
+        } catch (RuntimeException e) {
+            for (Partida partida : guardadas) {
+                particiones.get(YearMonth.from(partida.getFecha())).eliminar(partida.getId());
+            }
+            for (Partida partida : reservadas) {
+                particionPorId.remove(partida.getId(), YearMonth.from(partida.getFecha()));
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Actualiza una partida en la partición de su mes.
+     *
+     * @param partida la partida a actualizar
+     * @throws IllegalArgumentException   si partida es null o si su fecha es de
+     *                                    otro mes que la guardada
+     * @throws IllegalStateException      si no existe una partida con el mismo
+     *                                    identificador
+     * @throws PartidaModificadaException si la partida ha sido modificada por
+     *                                    otro proceso desde que se leyó
+     */
+    @Override
+    public void actualizar(Partida partida) {
+        if (partida == null) {
+            throw new IllegalArgumentException("La partida no puede ser null");
+        }
+        YearMonth mes = localizarMes(partida.getId());
+        if (mes == null) {
+            throw new IllegalStateException("No existe una partida con el mismo identificador");
+        }
+        if (!mes.equals(YearMonth.from(partida.getFecha()))) {
+            throw new IllegalArgumentException("La partida está guardada en la partición de " + mes
+                    + " y no puede cambiar de mes");
+        }
+        particiones.get(mes).actualizar(partida);
+    }
+
+    @Override
+    public Partida cargar(String identificador) {
+        return cargar(identificador, PerfilCarga.REPRODUCCION);
+    }
+
+    @Override
+    public Partida cargar(String identificador, PerfilCarga perfil) {
+        validarIdentificador(identificador);
+        if (perfil == null) {
+            throw new IllegalArgumentException("El perfil de carga no puede ser null");
+        }
+        RepositorioPartida particion = localizar(identificador);
+        if (particion == null) {
+            throw new IllegalStateException("No existe una partida con el identificador dado");
+        }
+        return particion.cargar(identificador, perfil);
+    }
+
+    @Override
+    public void eliminar(String identificador) {
+        validarIdentificador(identificador);
+        RepositorioPartida particion = localizar(identificador);
+        if (particion == null) {
+            throw new IllegalStateException("No existe una partida con el identificador dado");
+        }
+        particion.eliminar(identificador);
+        particionPorId.remove(identificador);
+    }
+
+    @Override
+    public List<Partida> obtenerPartidasPorJugador(String nombreJugador) {
+        validarNombreJugador(nombreJugador);
+        List<Partida> resultado = new ArrayList<>();
+        for (RepositorioPartida particion : particiones.values()) {
+            resultado.addAll(particion.obtenerPartidasPorJugador(nombreJugador));
+        }
+        return resultado;
+    }
+
+    @Override
+    public List<Partida> obtenerPartidasPorFecha(LocalDate fechaInicial, LocalDate fechaFinal) {
+        validarRangoFechas(fechaInicial, fechaFinal);
+        List<Partida> resultado = new ArrayList<>();
+        for (Map.Entry<YearMonth, RepositorioPartida> particion : particionesEntre(fechaInicial, fechaFinal)) {
+            YearMonth mes = particion.getKey();
+            resultado.addAll(particion.getValue().obtenerPartidasPorFecha(desde(mes, fechaInicial),
+                    hasta(mes, fechaFinal)));
+        }
+        return resultado;
+    }
+
+    /**
+     * Recorre las partidas de un jugador partición a partición, de la más
+     * antigua a la más reciente, abriendo cada una al llegar a ella.
+     *
+     * @param nombreJugador nombre del jugador
+     * @return Stream con las partidas del jugador
+     * @throws IllegalArgumentException si nombreJugador es null o vacío
+     */
+    @Override
+    public Stream<Partida> recorrerPartidasPorJugador(String nombreJugador) {
+        validarNombreJugador(nombreJugador);
+        return List.copyOf(particiones.values()).stream()
+                .flatMap(particion -> particion.recorrerPartidasPorJugador(nombreJugador));
+    }
+
+    /**
+     * Recorre las partidas entre dos fechas partición a partición, abriendo
+     * solo las de los meses del rango y cada una al llegar a ella.
+     *
+     * @param fechaInicial fecha inicial del rango
+     * @param fechaFinal   fecha final del rango
+     * @return Stream con las partidas en el rango de fechas
+     * @throws IllegalArgumentException si fechaInicial o fechaFinal son null, o
+     *                                  si fechaInicial es posterior a fechaFinal
+     */
+    @Override
+    public Stream<Partida> recorrerPartidasPorFecha(LocalDate fechaInicial, LocalDate fechaFinal) {
+        validarRangoFechas(fechaInicial, fechaFinal);
+        return particionesEntre(fechaInicial, fechaFinal).stream()
+                .flatMap(particion -> particion.getValue().recorrerPartidasPorFecha(
+                        desde(particion.getKey(), fechaInicial), hasta(particion.getKey(), fechaFinal)));
+    }
+
+    @Override
+    public List<Partida> obtenerPaginaPorJugador(String nombreJugador, Partida ultima, int limite) {
+        validarNombreJugador(nombreJugador);
+        validarLimite(limite);
+        Collection<RepositorioPartida> candidatas = ultima == null ? particiones.values()
+                : particiones.tailMap(YearMonth.from(ultima.getFecha()), true).values();
+
+        List<Partida> pagina = new ArrayList<>();
+        for (RepositorioPartida particion : candidatas) {
+            pagina.addAll(particion.obtenerPaginaPorJugador(nombreJugador, ultima, limite - pagina.size()));
+            if (pagina.size() == limite) {
+                break;
+            }
+        }
+        return pagina;
+    }
+
+    @Override
+    public List<Partida> obtenerPaginaPorFecha(LocalDate fechaInicial, LocalDate fechaFinal, Partida ultima,
+            int limite) {
+        validarRangoFechas(fechaInicial, fechaFinal);
+        validarLimite(limite);
+        LocalDate inicio = (ultima == null || ultima.getFecha().isBefore(fechaInicial)) ? fechaInicial
+                : ultima.getFecha();
+        if (inicio.isAfter(fechaFinal)) {
+            return new ArrayList<>();
+        }
+
+        List<Partida> pagina = new ArrayList<>();
+        for (Map.Entry<YearMonth, RepositorioPartida> particion : particionesEntre(inicio, fechaFinal)) {
+            YearMonth mes = particion.getKey();
+            pagina.addAll(particion.getValue().obtenerPaginaPorFecha(desde(mes, inicio), hasta(mes, fechaFinal),
+                    ultima, limite - pagina.size()));
+            if (pagina.size() == limite) {
+                break;
+            }
+        }
+        return pagina;
+    }
+
+    @Override
+    public long contarPartidasEntreFechas(LocalDate fechaInicial, LocalDate fechaFinal) {
+        validarRangoFechas(fechaInicial, fechaFinal);
+        long total = 0;
+        for (Map.Entry<YearMonth, RepositorioPartida> particion : particionesEntre(fechaInicial, fechaFinal)) {
+            YearMonth mes = particion.getKey();
+            total += particion.getValue().contarPartidasEntreFechas(desde(mes, fechaInicial), hasta(mes, fechaFinal));
+        }
+        return total;
+    }
+
+    /**
+     * Cuenta los jugadores distintos entre dos fechas. Si el rango cae en una
+     * sola partición se cuenta en ella; si no, un jugador puede aparecer en
+     * varias, así que se recorren los resúmenes de las partidas del rango.
+     *
+     * @param fechaInicial fecha inicial del rango
+     * @param fechaFinal   fecha final del rango
+     * @return número de jugadores distintos en el rango de fechas
+     * @throws IllegalArgumentException si fechaInicial o fechaFinal son null, o
+     *                                  si fechaInicial es posterior a fechaFinal
+     */
+    @Override
+    public long contarJugadoresEntreFechas(LocalDate fechaInicial, LocalDate fechaFinal) {
+        validarRangoFechas(fechaInicial, fechaFinal);
+        List<Map.Entry<YearMonth, RepositorioPartida>> afectadas = particionesEntre(fechaInicial, fechaFinal);
+        if (afectadas.isEmpty()) {
+            return 0;
+        }
+        if (afectadas.size() == 1) {
+            YearMonth mes = afectadas.get(0).getKey();
+            return afectadas.get(0).getValue().contarJugadoresEntreFechas(desde(mes, fechaInicial),
+                    hasta(mes, fechaFinal));
+        }
+
+        Set<String> jugadores = new HashSet<>();
+        try (Stream<Partida> partidas = recorrerPartidasPorFecha(fechaInicial, fechaFinal)) {
+            partidas.forEach(partida -> {
+                jugadores.add(partida.getJugador1());
+                jugadores.add(partida.getJugador2());
+            });
+        }
+        return jugadores.size();
+    }
+
+    /**
+     * Obtiene los jugadores con más victorias sumando las de todas las
+     * particiones. Como las victorias de un jugador se reparten entre meses,
+     * se suman las de todos los jugadores antes de ordenar.
+     *
+     * @param limite número máximo de jugadores a devolver
+     * @return nombres de los mejores jugadores
+     * @throws IllegalArgumentException si limite es menor que 1
+     */
+    @Override
+    public List<String> obtenerMejoresJugadores(int limite) {
+        validarLimite(limite);
+        return obtenerVictoriasPorJugador().entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limite)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Suma las victorias de cada jugador en todas las particiones, con una
+     * consulta por partición.
+     *
+     * @return victorias de cada jugador
+     */
+    @Override
+    public Map<String, Integer> obtenerVictoriasPorJugador() {
+        Map<String, Integer> totales = new HashMap<>();
+        for (RepositorioPartida particion : particiones.values()) {
+            particion.obtenerVictoriasPorJugador().forEach((nombre, victorias) -> totales.merge(nombre, victorias,
+                    Integer::sum));
+        }
+        return totales;
+    }
+
+    @Override
+    public EstadisticasJugador obtenerEstadisticasJugador(String nombreJugador) {
+        validarNombreJugador(nombreJugador);
+        EstadisticasJugador total = new EstadisticasJugador(nombreJugador);
+        for (RepositorioPartida particion : particiones.values()) {
+            EstadisticasJugador parcial = particion.obtenerEstadisticasJugador(nombreJugador);
+            if (parcial != null) {
+                total.sumarEstadisticas(parcial);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Devuelve los meses de los que hay partición, del más antiguo al más
+     * reciente.
+     *
+     * @return meses con partición
+     */
+    public List<YearMonth> getParticiones() {
+        return new ArrayList<>(particiones.keySet());
+    }
+
+    /**
+     * Elimina la partición de un mes con todas sus partidas.
+     *
+     * @param mes mes de la partición
+     * @return true si existía la partición
+     * @throws IllegalArgumentException si mes es null
+     */
+    public boolean eliminarParticion(YearMonth mes) {
+        if (mes == null) {
+            throw new IllegalArgumentException("El mes no puede ser null");
+        }
+        RepositorioPartida particion = particiones.remove(mes);
+        if (particion == null) {
+            return false;
+        }
+        particionPorId.values().removeIf(mes::equals);
+        alEliminarParticion.accept(mes, particion);
+        return true;
+    }
+
+    /**
+     * Elimina las particiones de los meses anteriores al de la fecha dada. La
+     * partición del mes de la fecha se conserva aunque tenga partidas
+     * anteriores a ella.
+     *
+     * @param fecha fecha de corte
+     * @return meses de las particiones eliminadas
+     * @throws IllegalArgumentException si fecha es null
+     */
+    public List<YearMonth> eliminarParticionesAnterioresA(LocalDate fecha) {
+        if (fecha == null) {
+            throw new IllegalArgumentException("La fecha no puede ser null");
+        }
+        List<YearMonth> eliminadas = new ArrayList<>(particiones.headMap(YearMonth.from(fecha), false).keySet());
+        eliminadas.forEach(this::eliminarParticion);
+        return eliminadas;
+    }
+
+    private RepositorioPartida particion(YearMonth mes) {
+        return particiones.computeIfAbsent(mes, clave -> {
+            RepositorioPartida particion = fabrica.apply(clave);
+            if (particion == null) {
+                throw new IllegalStateException("No se ha podido crear la partición de " + clave);
+            }
+            return particion;
+        });
+    }
+
+    /**
+     * Devuelve la partición de una partida, o null si no está en ninguna.
+     */
+    private RepositorioPartida localizar(String identificador) {
+        YearMonth mes = localizarMes(identificador);
+        return mes == null ? null : particiones.get(mes);
+    }
+
+    /**
+     * Devuelve el mes de la partición de una partida, o null si no está en
+     * ninguna.
+     */
+    private YearMonth localizarMes(String identificador) {
+        YearMonth conocido = particionPorId.get(identificador);
+        if (conocido != null && particiones.containsKey(conocido)) {
+            return conocido;
+        }
+        for (Map.Entry<YearMonth, RepositorioPartida> particion : particiones.descendingMap().entrySet()) {
+            try {
+                particion.getValue().cargar(identificador, PerfilCarga.RESUMEN);
+            } catch (IllegalStateException e) {
+                continue;
+            }
+            particionPorId.put(identificador, particion.getKey());
+            return particion.getKey();
+        }
+        return null;
+    }
+
+    private List<Map.Entry<YearMonth, RepositorioPartida>> particionesEntre(LocalDate fechaInicial,
+            LocalDate fechaFinal) {
+        return new ArrayList<>(particiones
+                .subMap(YearMonth.from(fechaInicial), true, YearMonth.from(fechaFinal), true).entrySet());
+    }
+
+    private static LocalDate desde(YearMonth mes, LocalDate fechaInicial) {
+        LocalDate primerDia = mes.atDay(1);
+        return fechaInicial.isAfter(primerDia) ? fechaInicial : primerDia;
+    }
+
+    private static LocalDate hasta(YearMonth mes, LocalDate fechaFinal) {
+        LocalDate ultimoDia = mes.atEndOfMonth();
+        return fechaFinal.isBefore(ultimoDia) ? fechaFinal : ultimoDia;
+    }
+
+    private static void validarIdentificador(String identificador) {
+        if (identificador == null || identificador.isEmpty()) {
+            throw new IllegalArgumentException("El identificador no puede ser null o vacío");
+        }
+    }
+
+    private static void validarNombreJugador(String nombreJugador) {
+        if (nombreJugador == null || nombreJugador.isEmpty()) {
+            throw new IllegalArgumentException("El nombre del jugador no puede ser null o vacío");
+        }
+    }
+
+    private static void validarLimite(int limite) {
+        if (limite < 1) {
+            throw new IllegalArgumentException("El límite debe ser mayor que cero");
+        }
+    }
+
+    private static void validarRangoFechas(LocalDate fechaInicial, LocalDate fechaFinal) {
+        if (fechaInicial == null || fechaFinal == null) {
+            throw new IllegalArgumentException("Las fechas no pueden ser null");
+        }
+        if (fechaInicial.isAfter(fechaFinal)) {
+            throw new IllegalArgumentException("La fecha inicial no puede ser posterior a la fecha final");
+        }
+    }
+}
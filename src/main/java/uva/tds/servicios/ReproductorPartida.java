@@ -0,0 +1,397 @@
+package uva.tds.servicios;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import uva.tds.entidades.Carta;
+import uva.tds.entidades.Jugada;
+import uva.tds.entidades.Jugador;
+import uva.tds.entidades.Partida;
+import uva.tds.entidades.Ronda;
+import uva.tds.entidades.Turno;
+
+/**
+ * Reproductor de una partida guardada con acceso directo a cualquier turno,
+ * pensado para revisar la partida avanzando y retrocediendo por ella.
+ *
+ * La partida se reproduce una sola vez al crear el reproductor, guardando el
+ * estado serializado del GestorPartida al empezar cada ronda (después del
+ * reparto). Para obtener el estado en un turno se restaura el punto de control
+ * de su ronda y se aplican solo las jugadas de esa ronda, sin volver a
+ * reproducir la partida desde el principio.
+ *
+ * Las posiciones se indican con la ronda (desde 1) y el número de turnos ya
+ * jugados en ella (desde 0, justo después del reparto, hasta el número de
+ * turnos de la ronda). Todos los gestores devueltos son copias independientes:
+ * modificarlos no afecta al reproductor.
+ *
+ * Para una versión corregida de la misma partida, {@link #reanudar} reutiliza
+ * los puntos de control de las rondas que no han cambiado y solo reproduce el
+ * resto.
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+public class ReproductorPartida {
+
+    // Peso aproximado de cada jugada guardada (la jugada y sus listas de cartas)
+    private static final int PESO_POR_JUGADA = 64;
+
+    private final String jugador1;
+    private final String jugador2;
+    private final List<Carta> mesaInicial;
+    private final List<List<Carta>> manosJugador1;
+    private final List<List<Carta>> manosJugador2;
+    private final List<List<Jugada>> jugadas;
+    private final List<byte[]> puntosDeControl;
+    private final byte[] estadoFinal;
+    private final int rondasReutilizadas;
+
+    private GestorPartida actual;
+    private int ronda;
+    private int turno;
+
+    /**
+     * Reproduce la partida y guarda un punto de control por ronda. El
+     * reproductor queda situado al principio de la primera ronda.
+     *
+     * @param partida partida a reproducir
+     * @throws IllegalArgumentException si partida es null o no contiene los
+     * jugadores, la mesa inicial, las manos o las rondas
+     * @throws IllegalArgumentException si alguna jugada no es válida o quedan
+     * cartas de la baraja por repartir
+     * @throws IllegalStateException si la partida no termina en un estado válido
+     */
+    public ReproductorPartida(Partida partida) {
+        this(partida, null);
+    }
+
+    /**
+     * Reproduce la partida reutilizando los puntos de control de base de las
+     * rondas cuyo reparto y jugadas anteriores no han cambiado. Con base null se
+     * reproduce la partida entera.
+     */
+    private ReproductorPartida(Partida partida, ReproductorPartida base) {
+        if (partida == null) throw new IllegalArgumentException("La partida no puede ser nula");
+        if (partida.getNombres().isEmpty()) {
+            throw new IllegalArgumentException("La partida no contiene los nombres de los jugadores");
+        }
+        if (partida.getMesaInicial().isEmpty()) {
+            throw new IllegalArgumentException("La partida no contiene la mesa inicial");
+        }
+        List<Ronda> rondas = partida.getRondas();
+        ArrayList<ArrayList<Carta>> manos1 = partida.getManosJugador1();
+        ArrayList<ArrayList<Carta>> manos2 = partida.getManosJugador2();
+        if (rondas.isEmpty()) throw new IllegalArgumentException("La partida no contiene las rondas");
+        if (manos1.size() < rondas.size() || manos2.size() < rondas.size()) {
+            throw new IllegalArgumentException("La partida no contiene las manos de los jugadores");
+        }
+
+        this.jugador1 = partida.getJugador1();
+        this.jugador2 = partida.getJugador2();
+        this.mesaInicial = partida.getMesaInicial();
+        this.manosJugador1 = new ArrayList<>(manos1.subList(0, rondas.size()));
+        this.manosJugador2 = new ArrayList<>(manos2.subList(0, rondas.size()));
+        this.jugadas = new ArrayList<>(rondas.size());
+        for (Ronda r : rondas) {
+            List<Jugada> jugadasRonda = new ArrayList<>();
+            for (Turno t : r.getTurnos()) {
+                jugadasRonda.add(t.getJugada());
+            }
+            jugadas.add(jugadasRonda);
+        }
+
+        this.rondasReutilizadas = (base == null) ? 0 : base.puntosDeControlValidosPara(this);
+        this.puntosDeControl = new ArrayList<>(rondas.size());
+        GestorPartida gestor;
+        int rondaInicial;
+        if (rondasReutilizadas == 0) {
+            gestor = new GestorPartida(new Jugador(jugador1), new Jugador(jugador2));
+            gestor.repartoInicial(manos1.get(0), manos2.get(0), partida.getMesaInicial());
+            puntosDeControl.add(serializar(gestor));
+            rondaInicial = 0;
+        } else {
+            puntosDeControl.addAll(base.puntosDeControl.subList(0, rondasReutilizadas));
+            rondaInicial = rondasReutilizadas - 1;
+            gestor = restaurar(puntosDeControl.get(rondaInicial));
+        }
+        for (int i = rondaInicial; i < rondas.size(); i++) {
+            if (i > rondaInicial) {
+                gestor.avanzarRonda();
+                gestor.repartoRonda(manos1.get(i), manos2.get(i));
+                puntosDeControl.add(serializar(gestor));
+            }
+            for (Jugada jugada : jugadas.get(i)) {
+                jugar(gestor, jugada);
+            }
+        }
+        int pendientes = gestor.getBaraja().getNumeroDeCartas();
+        if (pendientes > 0) {
+            throw new IllegalArgumentException("La partida está incompleta: quedan " + pendientes
+                    + " cartas por repartir");
+        }
+        gestor.finalizarPartida();
+        this.estadoFinal = serializar(gestor);
+
+        this.actual = restaurar(puntosDeControl.get(0));
+        this.ronda = 1;
+        this.turno = 0;
+    }
+
+    /**
+     * Crea el reproductor de una versión modificada de esta partida (por
+     * ejemplo, al corregir sus últimas jugadas). Solo se reproduce desde la
+     * primera ronda que cambia: se reutilizan los puntos de control de las rondas
+     * anteriores y, si el reparto de esa ronda tampoco cambia, también el suyo.
+     * Si cambian los jugadores o la mesa inicial se reproduce la partida entera.
+     *
+     * @param partida versión modificada de la partida
+     * @return reproductor de la partida modificada, situado al principio de la
+     * primera ronda
+     * @throws IllegalArgumentException si partida es null o no contiene los
+     * jugadores, la mesa inicial, las manos o las rondas
+     * @throws IllegalArgumentException si alguna jugada no es válida o quedan
+     * cartas de la baraja por repartir
+     * @throws IllegalStateException si la partida no termina en un estado válido
+     */
+    public ReproductorPartida reanudar(Partida partida) {
+        return new ReproductorPartida(partida, this);
+    }
+
+    /**
+     * Obtiene el número de puntos de control (rondas) que se reutilizaron de la
+     * versión anterior de la partida al crear este reproductor con
+     * {@link #reanudar}; 0 si se reprodujo la partida entera.
+     *
+     * @return número de rondas reutilizadas
+     */
+    public int getRondasReutilizadas() {
+        return rondasReutilizadas;
+    }
+
+    /**
+     * Obtiene el tamaño aproximado en memoria del reproductor, en bytes: los
+     * puntos de control y el estado final serializados más un peso fijo por cada
+     * jugada guardada.
+     *
+     * @return peso aproximado del reproductor
+     */
+    public int getPeso() {
+        int peso = estadoFinal.length;
+        for (byte[] puntoDeControl : puntosDeControl) {
+            peso += puntoDeControl.length;
+        }
+        for (List<Jugada> jugadasRonda : jugadas) {
+            peso += jugadasRonda.size() * PESO_POR_JUGADA;
+        }
+        return peso;
+    }
+
+    /**
+     * Cuenta los puntos de control de este reproductor que son válidos para
+     * otra partida: el de la ronda i lo es si coinciden los jugadores, la mesa
+     * inicial, los repartos hasta la ronda i y las jugadas de las rondas
+     * anteriores a la i.
+     */
+    private int puntosDeControlValidosPara(ReproductorPartida otra) {
+        if (!jugador1.equals(otra.jugador1) || !jugador2.equals(otra.jugador2)
+                || !mesaInicial.equals(otra.mesaInicial)) {
+            return 0;
+        }
+        int comunes = Math.min(jugadas.size(), otra.jugadas.size());
+        int validos = 0;
+        while (validos < comunes && manosJugador1.get(validos).equals(otra.manosJugador1.get(validos))
+                && manosJugador2.get(validos).equals(otra.manosJugador2.get(validos))) {
+            validos++;
+            if (validos < comunes && !mismasJugadas(jugadas.get(validos - 1), otra.jugadas.get(validos - 1))) {
+                break;
+            }
+        }
+        return validos;
+    }
+
+    /**
+     * Compara las jugadas de una ronda por lo que afecta a la reproducción: la
+     * carta jugada y las cartas capturadas.
+     */
+    private static boolean mismasJugadas(List<Jugada> unas, List<Jugada> otras) {
+        if (unas.size() != otras.size()) return false;
+        for (int i = 0; i < unas.size(); i++) {
+            Jugada una = unas.get(i);
+            Jugada otra = otras.get(i);
+            if (una == null || otra == null) {
+                if (una != otra) return false;
+            } else if (!Objects.equals(una.getJuega(), otra.getJuega())
+                    || !Objects.equals(una.getCaptura(), otra.getCaptura())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Obtiene el número de rondas de la partida.
+     *
+     * @return número de rondas de la partida
+     */
+    public int getNumeroRondas() {
+        return jugadas.size();
+    }
+
+    /**
+     * Obtiene el número de turnos de una ronda.
+     *
+     * @param ronda número de ronda (desde 1)
+     * @return número de turnos de la ronda
+     * @throws IllegalArgumentException si la ronda no existe
+     */
+    public int getNumeroTurnos(int ronda) {
+        validarRonda(ronda);
+        return jugadas.get(ronda - 1).size();
+    }
+
+    /**
+     * Obtiene la ronda en la que está situado el reproductor.
+     *
+     * @return ronda en la que está situado el reproductor
+     */
+    public int getRonda() {
+        return ronda;
+    }
+
+    /**
+     * Obtiene los turnos jugados de la ronda en la que está situado el reproductor.
+     *
+     * @return turnos jugados de la ronda actual
+     */
+    public int getTurno() {
+        return turno;
+    }
+
+    /**
+     * Sitúa el reproductor en la posición indicada y devuelve el estado de la
+     * partida en ella. Solo se aplican las jugadas de la ronda indicada.
+     *
+     * @param ronda número de ronda (desde 1)
+     * @param turno número de turnos jugados de la ronda (0 es justo después del reparto)
+     * @return copia del estado de la partida en esa posición
+     * @throws IllegalArgumentException si la ronda o el turno no existen
+     */
+    public GestorPartida estadoEn(int ronda, int turno) {
+        validarRonda(ronda);
+        List<Jugada> jugadasRonda = jugadas.get(ronda - 1);
+        if (turno < 0 || turno > jugadasRonda.size()) {
+            throw new IllegalArgumentException("La ronda " + ronda + " no tiene el turno " + turno);
+        }
+        GestorPartida gestor = restaurar(puntosDeControl.get(ronda - 1));
+        for (int i = 0; i < turno; i++) {
+            jugar(gestor, jugadasRonda.get(i));
+        }
+        this.actual = gestor;
+        this.ronda = ronda;
+        this.turno = turno;
+        return copiar(gestor);
+    }
+
+    /**
+     * Indica si se puede avanzar desde la posición actual.
+     *
+     * @return true si hay alguna posición después de la actual
+     */
+    public boolean haySiguiente() {
+        return ronda < getNumeroRondas() || turno < getNumeroTurnos(ronda);
+    }
+
+    /**
+     * Indica si se puede retroceder desde la posición actual.
+     *
+     * @return true si hay alguna posición antes de la actual
+     */
+    public boolean hayAnterior() {
+        return ronda > 1 || turno > 0;
+    }
+
+    /**
+     * Avanza una posición: juega el siguiente turno o, al terminar la ronda,
+     * pasa al reparto de la siguiente.
+     *
+     * @return copia del estado de la partida en la nueva posición
+     * @throws IllegalStateException si el reproductor está en la última posición
+     */
+    public GestorPartida adelante() {
+        if (!haySiguiente()) throw new IllegalStateException("No hay más turnos en la partida");
+        if (turno < getNumeroTurnos(ronda)) {
+            jugar(actual, jugadas.get(ronda - 1).get(turno));
+            turno++;
+        } else {
+            ronda++;
+            turno = 0;
+            actual = restaurar(puntosDeControl.get(ronda - 1));
+        }
+        return copiar(actual);
+    }
+
+    /**
+     * Retrocede una posición, restaurando el punto de control de la ronda.
+     *
+     * @return copia del estado de la partida en la nueva posición
+     * @throws IllegalStateException si el reproductor está en la primera posición
+     */
+    public GestorPartida atras() {
+        if (!hayAnterior()) throw new IllegalStateException("No hay turnos anteriores en la partida");
+        if (turno > 0) {
+            return estadoEn(ronda, turno - 1);
+        }
+        return estadoEn(ronda - 1, getNumeroTurnos(ronda - 1));
+    }
+
+    /**
+     * Estado de la partida finalizada, con las cartas de la mesa ya asignadas.
+     * No cambia la posición del reproductor.
+     *
+     * @return copia del estado final de la partida
+     */
+    public GestorPartida getEstadoFinal() {
+        return restaurar(estadoFinal);
+    }
+
+    private void validarRonda(int ronda) {
+        if (ronda < 1 || ronda > jugadas.size()) {
+            throw new IllegalArgumentException("La partida no tiene la ronda " + ronda);
+        }
+    }
+
+    private static void jugar(GestorPartida gestor, Jugada jugada) {
+        if (jugada == null) throw new IllegalArgumentException("La partida contiene un turno sin jugada");
+        gestor.jugarCarta(jugada.getJuega(), new ArrayList<>(jugada.getCaptura()));
+    }
+
+    private static GestorPartida copiar(GestorPartida gestor) {
+        return restaurar(serializar(gestor));
+    }
+
+    private static byte[] serializar(GestorPartida gestor) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream salida = new DataOutputStream(bytes)) {
+            gestor.escribirEstado(salida);
+        } catch (IOException e) {
+            // Se escribe en memoria
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static GestorPartida restaurar(byte[] estado) {
+        try (DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(estado))) {
+            return GestorPartida.leerEstado(entrada);
+        } catch (IOException e) {
+            throw new IllegalStateException("No se ha podido restaurar el estado de la partida", e);
+        }
+    }
+}
@@ -1,10 +1,15 @@
 package uva.tds.servicios;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import uva.tds.entidades.Carta;
 import uva.tds.entidades.Jugador;
+import uva.tds.entidades.Partida;
+import uva.tds.entidades.ResumenPartida;
 import uva.tds.interfaces.ServicioMultijugador;
 import uva.tds.ejecutores.AdaptadorCartaJson;
 
@@ -18,6 +23,7 @@ import uva.tds.ejecutores.AdaptadorCartaJson;
 public class ServicioJuegoMultijugador {
 
     private final ServicioMultijugador servicio;
+    private final RepositorioPartidaAsync repositorio;
     private String idSalaLocal;
 
     private String nombreJugadorLocal;
@@ -38,6 +44,28 @@ public class ServicioJuegoMultijugador {
             throw new IllegalArgumentException("El servicio multijugador no puede ser nulo");
         }
         this.servicio = servicio;
+        this.repositorio = null;
+    }
+
+    /**
+     * Constructor del servicio de juego multijugador que guarda las partidas
+     * terminadas en segundo plano.
+     * 
+     * @param servicio    ServicioMultijugador para gestionar las partidas
+     *                    multijugador.
+     * @param repositorio Repositorio asíncrono donde se guardan las partidas
+     *                    terminadas.
+     * @throws IllegalArgumentException si el servicio o el repositorio son nulos.
+     */
+    public ServicioJuegoMultijugador(ServicioMultijugador servicio, RepositorioPartidaAsync repositorio) {
+        if (servicio == null) {
+            throw new IllegalArgumentException("El servicio multijugador no puede ser nulo");
+        }
+        if (repositorio == null) {
+            throw new IllegalArgumentException("El repositorio no puede ser nulo");
+        }
+        this.servicio = servicio;
+        this.repositorio = repositorio;
     }
 
     /**
@@ -289,13 +317,42 @@ public class ServicioJuegoMultijugador {
     }
 
     /**
-     * Finaliza la partida actual.
+     * Finaliza la partida actual. Si el servicio tiene repositorio y el jugador
+     * local es el creador de la sala, guarda en segundo plano el resumen de la
+     * partida terminada (ver guardarPartidaTerminada); el resto de jugadores no
+     * la guardan, para que no quede guardada una vez por jugador.
      * 
+     * @return Futuro que se completa cuando la partida está guardada, o ya
+     *         completado si no hay que guardarla.
      * @throws IllegalStateException si la partida no ha sido inicializada.
      */
-    public void finalizarPartida() {
+    public CompletableFuture<Void> finalizarPartida() {
         validarPartidaInicializada();
         gestorPartida.finalizarPartida();
+        if (repositorio == null || creadorSalaActual == null || !creadorSalaActual.equals(nombreJugadorLocal)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return guardarPartidaTerminada(crearPartidaTerminada());
+    }
+
+    /**
+     * Guarda una partida terminada sin bloquear el bucle de juego. El guardado se
+     * realiza en segundo plano y el resultado (o el error) se obtiene a través del
+     * futuro devuelto.
+     * 
+     * @param partida Partida terminada a guardar.
+     * @return Futuro que se completa cuando la partida está guardada.
+     * @throws IllegalArgumentException si la partida es nula.
+     * @throws IllegalStateException    si el servicio no tiene repositorio.
+     */
+    public CompletableFuture<Void> guardarPartidaTerminada(Partida partida) {
+        if (partida == null) {
+            throw new IllegalArgumentException("La partida no puede ser nula");
+        }
+        if (repositorio == null) {
+            throw new IllegalStateException("El servicio no tiene repositorio para guardar partidas");
+        }
+        return repositorio.guardar(partida);
     }
 
     /**
@@ -320,6 +377,27 @@ public class ServicioJuegoMultijugador {
         return gestorPartida.getJugadorActual();
     }
 
+    /**
+     * Crea la partida terminada con el resumen del resultado de la partida
+     * actual. El identificador es el de la sala seguido de un sufijo único, para
+     * que varias partidas de la misma sala no coincidan.
+     * 
+     * @return Partida terminada con su resumen.
+     */
+    private Partida crearPartidaTerminada() {
+        Jugador jugador1 = gestorPartida.getJugador1();
+        Jugador jugador2 = gestorPartida.getJugador2();
+        String id = idSalaLocal + "-" + UUID.randomUUID();
+        LocalDate fecha = LocalDate.now();
+        Partida partida = new Partida(id, fecha, jugador1.getNombre(), jugador2.getNombre());
+        ResumenPartida resumen = new ResumenPartida(id, fecha, jugador1.getNombre(), jugador2.getNombre());
+        resumen.marcarComoCompleta();
+        resumen.establecerResultados(jugador1, jugador2, gestorPartida.calcularPuntuacionFinal(jugador1),
+                gestorPartida.calcularPuntuacionFinal(jugador2));
+        partida.setResumenPartida(resumen);
+        return partida;
+    }
+
     /**
      * Valida que el jugador local es el creador de la sala.
      * 
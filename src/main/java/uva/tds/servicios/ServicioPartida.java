@@ -1,26 +1,79 @@
 package uva.tds.servicios;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Objects;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
 import uva.tds.ejecutores.EjecutarPartida;
 import uva.tds.entidades.AdaptadorPartida;
+import uva.tds.entidades.Carta;
+import uva.tds.entidades.EstadisticasJugador;
+import uva.tds.entidades.Jugada;
 import uva.tds.entidades.Jugador;
 import uva.tds.entidades.Partida;
 import uva.tds.entidades.ResumenPartida;
+import uva.tds.entidades.Ronda;
+import uva.tds.entidades.Turno;
+import uva.tds.interfaces.PerfilCarga;
 import uva.tds.interfaces.RepositorioPartida;
 
 /**
  * Clase ServicioPartida que gestiona la lógica de negocio, persistencia, validación,
  * y obtención de resultados y estadísticas de las partidas de la Escoba.
  *
+ * Los resúmenes calculados al validar se guardan en una caché acotada indexada
+ * por la huella SHA-256 del contenido de la partida (jugadores, mesa inicial,
+ * manos y jugadas), de forma que volver a validar una partida idéntica (una
+ * subida repetida o reintentada) no necesita reproducirla.
+ *
+ * Al actualizar una partida se reproduce reanudando el ReproductorPartida de la
+ * versión guardada, con un punto de control por ronda, de forma que solo se
+ * reproduce desde la primera ronda que ha cambiado. Los reproductores se
+ * guardan en una caché acotada por peso: al validar una partida guardada o
+ * actualizarla, por id y versión; al validar una partida nueva, por la huella
+ * de su contenido, y al guardarla pasan a su id y versión. Si no está el de la
+ * versión leída, se reproduce entera la partida recibida, sin volver a cargar
+ * la guardada. Un reproductor que no corresponda a la versión guardada solo
+ * hace que se reutilicen menos rondas, porque al reanudar se comparan los
+ * repartos y las jugadas de cada ronda.
+ *
+ * Las partidas cargadas sin sus rondas (por ejemplo con PerfilCarga.RESUMEN) se
+ * actualizan sin volver a validarlas.
+ *
  * @author Marta Pérez Alonso
  * @author Elisa Martínez Lafuente
  */
 public class ServicioPartida {
 
+    /**
+     * Número máximo de resúmenes calculados que se guardan por defecto en la
+     * caché de validaciones.
+     */
+    public static final long VALIDACIONES_CACHEADAS_POR_DEFECTO = 10_000;
+
+    /**
+     * Peso máximo por defecto, en bytes aproximados, de los reproductores
+     * guardados para reanudar la validación de las partidas actualizadas.
+     */
+    public static final long PESO_MAXIMO_REPRODUCTORES_POR_DEFECTO = 32L * 1024 * 1024;
+
+    // Marca de carta o jugada ausente en la huella (ningún código de carta la usa)
+    private static final byte AUSENTE = (byte) 0xFF;
+
     private final RepositorioPartida repositorioPartida;
+    private final Cache<String, ResumenPartida> validaciones;
+    // Clave: id y versión de la partida guardada (ver claveReproductor)
+    private final Cache<String, ReproductorPartida> reproductores;
 
     /**
      * Constructor de ServicioPartida.
@@ -29,10 +82,55 @@ public class ServicioPartida {
      * @throws IllegalArgumentException si repositorioPartida es null
      */
     public ServicioPartida(RepositorioPartida repositorioPartida) {
+        this(repositorioPartida, VALIDACIONES_CACHEADAS_POR_DEFECTO);
+    }
+
+    /**
+     * Constructor de ServicioPartida con el tamaño de la caché de validaciones.
+     *
+     * @param repositorioPartida repositorio de partidas
+     * @param validacionesCacheadas número máximo de resúmenes calculados que se
+     * guardan en la caché de validaciones
+     * @throws IllegalArgumentException si repositorioPartida es null
+     * @throws IllegalArgumentException si validacionesCacheadas es menor que 1
+     */
+    public ServicioPartida(RepositorioPartida repositorioPartida, long validacionesCacheadas) {
+        this(repositorioPartida, validacionesCacheadas, PESO_MAXIMO_REPRODUCTORES_POR_DEFECTO);
+    }
+
+    /**
+     * Constructor de ServicioPartida con el tamaño de la caché de validaciones y
+     * el peso máximo de la caché de reproductores.
+     *
+     * @param repositorioPartida repositorio de partidas
+     * @param validacionesCacheadas número máximo de resúmenes calculados que se
+     * guardan en la caché de validaciones
+     * @param pesoMaximoReproductores peso máximo, en bytes aproximados, de los
+     * reproductores guardados (ver ReproductorPartida#getPeso)
+     * @throws IllegalArgumentException si repositorioPartida es null
+     * @throws IllegalArgumentException si validacionesCacheadas o
+     * pesoMaximoReproductores son menores que 1
+     */
+    public ServicioPartida(RepositorioPartida repositorioPartida, long validacionesCacheadas,
+            long pesoMaximoReproductores) {
         if (repositorioPartida == null) {
             throw new IllegalArgumentException("El repositorio de partida no puede ser nulo");
         }
+        if (validacionesCacheadas < 1) {
+            throw new IllegalArgumentException("El tamaño de la caché de validaciones debe ser mayor que cero");
+        }
+        if (pesoMaximoReproductores < 1) {
+            throw new IllegalArgumentException("El peso máximo de la caché de reproductores debe ser mayor que cero");
+        }
         this.repositorioPartida = repositorioPartida;
+        this.validaciones = Caffeine.newBuilder()
+                .maximumSize(validacionesCacheadas)
+                .recordStats()
+                .build();
+        this.reproductores = Caffeine.newBuilder()
+                .maximumWeight(pesoMaximoReproductores)
+                .weigher((String clave, ReproductorPartida reproductor) -> reproductor.getPeso())
+                .build();
     }
 
     public RepositorioPartida getRepositorioPartida() {
@@ -64,17 +162,46 @@ public class ServicioPartida {
             throw new IllegalStateException("Solo se pueden guardar partidas completas");
         }
         repositorioPartida.guardar(partida);
+        if (partida.isRondasCargadas() && !partida.getRondas().isEmpty()) {
+            asociarReproductor(partida, calcularHuella(partida), null);
+        }
     }
 
     /**
-     * Actualiza una partida en el repositorio.
+     * Actualiza una partida en el repositorio. Si la partida tiene cargadas sus
+     * rondas y no están vacías, antes se vuelve a validar reproduciéndola solo
+     * desde la primera ronda distinta de la versión guardada de esa partida; si
+     * no tenía resumen se le asigna el calculado. Una partida cuyas jugadas no son
+     * válidas o no coinciden con su resumen no se actualiza.
      * 
      * @param partida partida a actualizar
-     * @throws IllegalArgumentException si partida es null
+     * @throws IllegalArgumentException si partida es null o alguna jugada no es válida
+     * @throws IllegalStateException si el resumen de la partida no coincide con su
+     * reproducción o la partida no termina en un estado válido
      */
     public void actualizarPartida(Partida partida) {
         validarPartidaNoNula(partida);
+        if (!partida.isRondasCargadas() || partida.getRondas().isEmpty()) {
+            repositorioPartida.actualizar(partida);
+            return;
+        }
+        ReproductorPartida reproductor = null;
+        String huella = calcularHuella(partida);
+        ResumenPartida calculado = validaciones.getIfPresent(huella);
+        if (calculado == null) {
+            ReproductorPartida base = (partida.getVersion() == null) ? null
+                    : reproductores.getIfPresent(claveReproductor(partida.getId(), partida.getVersion()));
+            reproductor = (base == null) ? new ReproductorPartida(partida) : base.reanudar(partida);
+            calculado = new AdaptadorPartida().convertir(partida.getId(), partida.getFecha(),
+                    reproductor.getEstadoFinal());
+            validaciones.put(huella, calculado);
+        }
+        if (!comprobarResumen(partida, calculado)) {
+            throw new IllegalStateException("El resumen de la partida no coincide con sus jugadas");
+        }
         repositorioPartida.actualizar(partida);
+        // Solo la versión aceptada por el repositorio sirve de base a la siguiente
+        asociarReproductor(partida, huella, reproductor);
     }
     
     /**
@@ -91,6 +218,10 @@ public class ServicioPartida {
     /**
      * Valida una partida: la reproduce y, si la partida contiene un resumen compara los resultados.
      * Si la partida no contiene resumen, crea y asigna el resumen calculado.
+     * Si ya se ha validado una partida con el mismo contenido, se reutiliza el
+     * resumen calculado entonces en lugar de reproducirla de nuevo. El
+     * reproductor se guarda como base para la primera actualización de la
+     * partida.
      *
      * @param partida partida a validar (no nula)
      * @return true si la ejecución es consistente con el resumen (o si se ha creado el resumen),
@@ -99,21 +230,74 @@ public class ServicioPartida {
      */
     public boolean validarPartida(Partida partida) {
         validarPartidaNoNula(partida);
-        GestorPartida gestor = validarYObtenerGestor(partida);
-        AdaptadorPartida adaptador = new AdaptadorPartida();
+        String huella = calcularHuella(partida);
+        ResumenPartida calculado = validaciones.getIfPresent(huella);
+        if (calculado == null) {
+            EjecutarPartida.comprobarDatos(partida);
+            ReproductorPartida reproductor = new ReproductorPartida(partida);
+            AdaptadorPartida adaptador = new AdaptadorPartida();
+            calculado = adaptador.convertir(partida.getId(), partida.getFecha(), reproductor.getEstadoFinal());
+            validaciones.put(huella, calculado);
+            // Base para la primera actualización de la partida
+            if (partida.getVersion() != null) {
+                reproductores.put(claveReproductor(partida.getId(), partida.getVersion()), reproductor);
+            } else {
+                reproductores.put(claveContenido(huella), reproductor);
+            }
+        }
+        return comprobarResumen(partida, calculado);
+    }
 
-        String id;
-        LocalDate fecha;
-        id = partida.getId();
-        fecha = partida.getFecha();
+    /**
+     * Guarda el reproductor de la partida por la versión que le ha asignado el
+     * repositorio. Si no se ha reproducido ahora, se usa el que se guardó por
+     * la huella al validarla antes de guardarla, si lo hay.
+     *
+     * @param partida partida guardada o actualizada
+     * @param huella huella de la partida
+     * @param reproductor reproductor de la partida, o null si no se ha reproducido
+     */
+    private void asociarReproductor(Partida partida, String huella, ReproductorPartida reproductor) {
+        if (partida.getVersion() == null) {
+            return;
+        }
+        if (reproductor == null) {
+            reproductor = reproductores.getIfPresent(claveContenido(huella));
+            if (reproductor == null) {
+                return;
+            }
+            reproductores.invalidate(claveContenido(huella));
+        }
+        reproductores.put(claveReproductor(partida.getId(), partida.getVersion()), reproductor);
+    }
 
+    /**
+     * Reproductor guardado para la versión de una partida, o null si no está.
+     */
+    ReproductorPartida reproductorGuardado(String idPartida, int version) {
+        return reproductores.getIfPresent(claveReproductor(idPartida, version));
+    }
+
+    private static String claveContenido(String huella) {
+        // Las claves por versión siempre contienen '@' y las huellas no
+        return "#" + huella;
+    }
 
-        ResumenPartida calculado = adaptador.convertir(id, fecha, gestor);
+    private static String claveReproductor(String idPartida, int version) {
+        return idPartida + "@" + version;
+    }
+
+    /**
+     * Compara el resumen calculado con el de la partida o, si no tiene, se lo
+     * asigna.
+     */
+    private boolean comprobarResumen(Partida partida, ResumenPartida calculado) {
         ResumenPartida esperado = partida.getResumenPartida();
 
-        // Si no hay resumen en la partida, asignamos el calculado y consideramos válido
+        // Si no hay resumen en la partida, asignamos el calculado y consideramos válido.
+        // Se asigna una copia para que la partida no comparta el resumen de la caché.
         if (esperado == null) {
-            partida.setResumenPartida(calculado);
+            partida.setResumenPartida(calculado.copiarPara(partida.getId(), partida.getFecha()));
             return true;
         }
 
@@ -127,6 +311,44 @@ public class ServicioPartida {
         return Objects.equals(gCalc, gExp);
     }
 
+    /**
+     * Carga la partida completa del repositorio y la valida (ver
+     * {@link #validarPartida(Partida)}).
+     *
+     * @param idPartida id de la partida a validar
+     * @return true si la ejecución es consistente con el resumen (o si se ha creado el resumen),
+     *         false si existe un resumen y no coincide con la reproducción
+     * @throws IllegalArgumentException si idPartida es null o vacío
+     */
+    public boolean validarPartidaGuardada(String idPartida) {
+        validarIdPartida(idPartida);
+        return validarPartida(repositorioPartida.cargar(idPartida, PerfilCarga.REPRODUCCION));
+    }
+
+    /**
+     * Carga la partida completa del repositorio, la valida y, si no tenía
+     * resumen, guarda el resumen calculado. La carga y la actualización se hacen
+     * en una única transacción del repositorio, reutilizando la partida cargada.
+     *
+     * @param idPartida id de la partida a validar
+     * @return true si la ejecución es consistente con el resumen (o si se ha creado el resumen),
+     *         false si existe un resumen y no coincide con la reproducción
+     * @throws IllegalArgumentException si idPartida es null o vacío
+     * @throws IllegalStateException si no existe la partida o no se puede guardar el resumen
+     */
+    public boolean validarYCompletarPartidaGuardada(String idPartida) {
+        validarIdPartida(idPartida);
+        return repositorioPartida.enTransaccion(repositorio -> {
+            Partida partida = repositorio.cargar(idPartida, PerfilCarga.REPRODUCCION);
+            boolean sinResumen = partida.getResumenPartida() == null;
+            boolean valida = validarPartida(partida);
+            if (sinResumen) {
+                repositorio.actualizar(partida);
+            }
+            return valida;
+        });
+    }
+
     /**
      * Reproduce la partida y devuelve la puntuación final de un jugador.
      *
@@ -170,17 +392,9 @@ public class ServicioPartida {
             throw new IllegalArgumentException("La fecha de inicio no puede ser posterior a la fecha de fin");
         }
         
-        String inicio = fechaInicio.toString();
-        String fin = fechaFin.toString();
-        ArrayList<Partida> partidas = (ArrayList<Partida>) repositorioPartida.obtenerPartidasPorFecha(inicio, fin);
-        if (partidas == null) partidas = new ArrayList<>();
-        
         ArrayList<Integer> resultado = new ArrayList<>();
-        ArrayList<String> jugadores = obtenerTodosJugadores(partidas);
-
-        int totalPartidas = partidas.size();
-        resultado.add(totalPartidas);
-        resultado.add(jugadores.size());
+        resultado.add((int) repositorioPartida.contarPartidasEntreFechas(fechaInicio, fechaFin));
+        resultado.add((int) repositorioPartida.contarJugadoresEntreFechas(fechaInicio, fechaFin));
 
         return resultado;
     }
@@ -197,32 +411,14 @@ public class ServicioPartida {
         if(nombreJugador == null || nombreJugador.isEmpty()){
             throw new IllegalArgumentException("El nombre del jugador no puede ser nulo o vacío");
         }
-        ArrayList<Partida> partidas = (ArrayList<Partida>) repositorioPartida.obtenerPartidasPorJugador(nombreJugador);
-        ArrayList<Integer> resultado = new ArrayList<>();
-        int totalPartidas = partidas.size();
-        int ganadas = 0;
-        int perdidas = 0;
-        int guindis = 0;
-
-        for(int i=0; i<totalPartidas; i++){
-            Partida partida = partidas.get(i);
-            ResumenPartida resumen = partida.getResumenPartida();
-            if(resumen != null && resumen.isCompleta()){
-                if(resumen.getGanador().equals(nombreJugador)){ganadas++;} 
-                else {perdidas++;}
-
-                if(nombreJugador.equals(resumen.getJugador1())){
-                    if(resumen.isGuindisJugador1()){guindis++;}
-                } else {
-                    if(resumen.isGuindisJugador2()){guindis++;}
-                }
-            }
-        }
+        EstadisticasJugador estadisticas = repositorioPartida.obtenerEstadisticasJugador(nombreJugador);
+        if (estadisticas == null) estadisticas = new EstadisticasJugador(nombreJugador);
 
-        resultado.add(ganadas);
-        resultado.add(perdidas);
-        resultado.add(totalPartidas);
-        resultado.add(guindis);
+        ArrayList<Integer> resultado = new ArrayList<>();
+        resultado.add(estadisticas.getGanadas());
+        resultado.add(estadisticas.getPerdidas());
+        resultado.add(estadisticas.getJugadas());
+        resultado.add(estadisticas.getGuindis());
 
         return resultado;
     }
@@ -238,7 +434,7 @@ public class ServicioPartida {
      */
     public ArrayList<ArrayList<Integer>> resumenPartida(String idPartida) {
         validarIdPartida(idPartida);
-        Partida partida = repositorioPartida.cargar(idPartida);
+        Partida partida = repositorioPartida.cargar(idPartida, PerfilCarga.RESUMEN);
         if (partida == null) {
             throw new IllegalArgumentException("No existe una partida con el id proporcionado");
         }
@@ -269,88 +465,117 @@ public class ServicioPartida {
 
     /**
      * Obtiene el top 10 de jugadores con más victorias en todas las partidas almacenadas.
+     * Se consulta en las estadísticas acumuladas, sin recorrer las partidas.
      * 
      * @return ArrayList con los 10 jugadores con más victorias
      */
     public ArrayList<Jugador> obtenerTop10(){
-        LocalDate fechaActual = LocalDate.now();
-        String actual = fechaActual.toString();
-        String inicio = "0001-01-01";
-
-        ArrayList<Partida> partidas = (ArrayList<Partida>) repositorioPartida.obtenerPartidasPorFecha(inicio, actual);
-        if (partidas == null) partidas = new ArrayList<>();
-        ArrayList<String> jugadores = obtenerTodosJugadores(partidas);
-        ArrayList<String> nombres = new ArrayList<>();
-        ArrayList<Integer> victorias = new ArrayList<>();
-
-        for (String jugador : jugadores) {
-            int ganadas = 0;
-            for (Partida p : partidas) {
-                ResumenPartida resumen = p.getResumenPartida();
-                if (resumen != null && resumen.isCompleta()) {
-                    String ganador = null;
-                    ganador = resumen.getGanador();
-                    if (ganador != null && ganador.equals(jugador)) {
-                        ganadas++;
-                    }
-                }
-            }
-            nombres.add(jugador);
-            victorias.add(ganadas);
-        }
-
-        ordenarPorVictorias(nombres, victorias);
+        List<String> nombres = repositorioPartida.obtenerMejoresJugadores(10);
+        if (nombres == null) nombres = new ArrayList<>();
 
         ArrayList<Jugador> top10 = new ArrayList<>();
-        int limite = Math.min(10, nombres.size());
-        for (int i = 0; i < limite; i++) {
-            top10.add(new Jugador(nombres.get(i)));
+        for (String nombre : nombres) {
+            top10.add(new Jugador(nombre));
         }
-
         return top10;
+    }
 
+
+    /**
+     * Estadísticas de aciertos y fallos de la caché de validaciones.
+     *
+     * @return estadísticas de la caché de validaciones
+     */
+    CacheStats estadisticasValidaciones() {
+        return validaciones.stats();
     }
 
     /**
-     * Ordena dos listas paralelas: una de nombres y otra de victorias, 
-     * en orden descendente por victorias y alfabéticamente por nombre en caso de empate.
-     * 
-     * @param nombres Lista de nombres de jugadores
-     * @param victorias Lista de victorias correspondientes a los jugadores
+     * Calcula la huella SHA-256 del contenido de la partida que determina el
+     * resultado de su reproducción: los jugadores, la mesa inicial, las manos de
+     * cada ronda y las jugadas de cada turno. No incluye el id, la fecha ni el
+     * resumen, de forma que dos subidas de la misma partida tienen la misma huella.
+     *
+     * @param partida partida (no nula)
+     * @return huella en hexadecimal
      */
-    private void ordenarPorVictorias(ArrayList<String> nombres, ArrayList<Integer> victorias) {
-        if (nombres == null || victorias == null) return;
-        int n = nombres.size();
-        for (int i = 0; i < n - 1; i++) {
-            int indiceMejor = i;
-            for (int j = i + 1; j < n; j++) {
-                int vj = victorias.get(j).intValue();
-                int vMejor = victorias.get(indiceMejor).intValue();
-                if (vj > vMejor) {
-                    indiceMejor = j;
-                } else if (vj == vMejor) {
-                    String nombreJ = nombres.get(j);
-                    String nombreMejor = nombres.get(indiceMejor);
-                    if (nombreJ.compareTo(nombreMejor) < 0) {
-                        indiceMejor = j;
-                    }
-                }
+    static String calcularHuella(Partida partida) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Todas las implementaciones de Java tienen que incluir SHA-256
+            throw new IllegalStateException(e);
+        }
+        for (String nombre : partida.getNombres()) {
+            actualizarHuella(digest, nombre);
+        }
+        actualizarHuella(digest, partida.getMesaInicial());
+        for (ArrayList<ArrayList<Carta>> manos : List.of(partida.getManosJugador1(), partida.getManosJugador2())) {
+            actualizarHuella(digest, manos.size());
+            for (List<Carta> mano : manos) {
+                actualizarHuella(digest, mano);
             }
-            if (indiceMejor != i) {
-                String tmpNombre = nombres.get(i);
-                nombres.set(i, nombres.get(indiceMejor));
-                nombres.set(indiceMejor, tmpNombre);
-                int tmpVict = victorias.get(i);
-                victorias.set(i, victorias.get(indiceMejor));
-                victorias.set(indiceMejor, tmpVict);
+        }
+        List<Ronda> rondas = partida.getRondas();
+        actualizarHuella(digest, rondas.size());
+        for (Ronda ronda : rondas) {
+            actualizarHuella(digest, ronda.getNumero());
+            List<Turno> turnos = ronda.getTurnos();
+            actualizarHuella(digest, turnos.size());
+            for (Turno turno : turnos) {
+                Jugada jugada = turno.getJugada();
+                if (jugada == null) {
+                    digest.update(AUSENTE);
+                    continue;
+                }
+                actualizarHuella(digest, jugada.getJuega());
+                actualizarHuella(digest, jugada.getCaptura());
+                actualizarHuella(digest, jugada.getMesaResultante());
             }
         }
+        return HexFormat.of().formatHex(digest.digest());
     }
 
+    /**
+     * Añade a la huella una lista de cartas precedida de su longitud, para que
+     * listas consecutivas no puedan confundirse.
+     */
+    private static void actualizarHuella(MessageDigest digest, List<Carta> cartas) {
+        if (cartas == null) {
+            actualizarHuella(digest, -1);
+            return;
+        }
+        actualizarHuella(digest, cartas.size());
+        for (Carta carta : cartas) {
+            actualizarHuella(digest, carta);
+        }
+    }
+
+    /**
+     * Añade una carta a la huella con un byte, como en DiarioPartida.
+     */
+    private static void actualizarHuella(MessageDigest digest, Carta carta) {
+        if (carta == null || carta.getPalo() == null) {
+            digest.update(AUSENTE);
+        } else {
+            digest.update((byte) (carta.getPalo().ordinal() << 4 | carta.getIndice()));
+        }
+    }
+
+    private static void actualizarHuella(MessageDigest digest, String texto) {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        actualizarHuella(digest, bytes.length);
+        digest.update(bytes);
+    }
+
+    private static void actualizarHuella(MessageDigest digest, int valor) {
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(valor).array());
+    }
 
     /**
      * Reproduce la partida y devuelve el GestorPartida resultante.
-     * Metodo auxiliar para evitar repetir lógica entre validarPartida y calcularPuntos.
+     * Metodo auxiliar de calcularPuntos.
      * @param partida partida a reproducir
      * @return gestor de la partida reproducida
      */
@@ -412,27 +637,4 @@ public class ServicioPartida {
         return true;
     }
 
-    
-    /**
-     * Obtiene una lista con todos los jugadores únicos de una lista de partidas.
-     * 
-     * @param partidas Lista de partidas para extraer todos los jugadores
-     * @return ArrayList con los nombres de los jugadores únicos
-     */
-    private ArrayList<String> obtenerTodosJugadores(ArrayList<Partida> partidas){
-        ArrayList<String> jugadores = new ArrayList<>();
-        for(int i = 0; i < partidas.size(); i++){
-            Partida partida = partidas.get(i);
-            String jugador1 = partida.getJugador1();
-            String jugador2 = partida.getJugador2();
-
-            if(!jugadores.contains(jugador1)){
-                jugadores.add(jugador1);
-            }
-            if(!jugadores.contains(jugador2)){
-                jugadores.add(jugador2);
-            }
-        }
-        return jugadores;
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,45 @@
+-- Esquema inicial de la base de datos de partidas. Equivale al que genera
+-- Hibernate con hbm2ddl.auto=create a partir de las entidades mapeadas.
+
+create sequence cartas_seq start with 1 increment by 50;
+create sequence jugadas_seq start with 1 increment by 50;
+create sequence manos_seq start with 1 increment by 50;
+create sequence rondas_seq start with 1 increment by 50;
+create sequence turnos_seq start with 1 increment by 50;
+
+create table cartas (id bigint not null, indice integer not null, palo integer not null, primary key (id));
+create table estadisticas_jugador (nombre varchar(100) not null, ganadas integer not null, guindis integer not null, jugadas integer not null, perdidas integer not null, primary key (nombre));
+create table jugada_captura (jugada_id bigint not null, carta_id bigint not null);
+create table jugada_mesa_resultante (jugada_id bigint not null, carta_id bigint not null);
+create table jugadas (id bigint not null, carta_juega_id bigint, primary key (id));
+create table mano_cartas (mano_id bigint not null, carta_id bigint not null);
+create table manos (id bigint not null, nombre_jugador varchar(255), numero_ronda integer not null, partida_id varchar(100), primary key (id));
+create table partida_mesa (partida_id varchar(100) not null, carta_id bigint not null);
+create table partidas (id varchar(100) not null, fecha date, jugador1 varchar(255), jugador2 varchar(255), version integer, resumen_id varchar(100), primary key (id));
+create table resumen_partida (id varchar(100) not null, cartasCapturadasJugador1 integer not null, cartasCapturadasJugador2 integer not null, completa boolean not null, escobasJugador1 integer not null, escobasJugador2 integer not null, fecha date, ganador varchar(255), guindisJugador1 boolean not null, guindisJugador2 boolean not null, jugador1 varchar(255), jugador2 varchar(255), orosJugador1 integer not null, orosJugador2 integer not null, puntosJugador1 integer not null, puntosJugador2 integer not null, sietesJugador1 integer not null, sietesJugador2 integer not null, version integer, primary key (id));
+create table ronda_mesa (ronda_id bigint not null, carta_id bigint not null);
+create table rondas (id bigint not null, numero integer not null, partida_id varchar(100), primary key (id));
+create table turnos (id bigint not null, numero integer not null, jugada_id bigint, ronda_id bigint, primary key (id));
+
+create index idx_estadisticas_ganadas on estadisticas_jugador (ganadas desc, nombre asc);
+create index idx_partidas_fecha on partidas (fecha);
+create index idx_partidas_jugador1_fecha on partidas (jugador1, fecha);
+create index idx_partidas_jugador2_fecha on partidas (jugador2, fecha);
+create index idx_resumen_completa_ganador on resumen_partida (completa, ganador);
+
+alter table jugada_captura add constraint fk_jugada_captura_carta foreign key (carta_id) references cartas;
+alter table jugada_captura add constraint fk_jugada_captura_jugada foreign key (jugada_id) references jugadas;
+alter table jugada_mesa_resultante add constraint fk_jugada_mesa_resultante_carta foreign key (carta_id) references cartas;
+alter table jugada_mesa_resultante add constraint fk_jugada_mesa_resultante_jugada foreign key (jugada_id) references jugadas;
+alter table jugadas add constraint fk_jugadas_carta_juega foreign key (carta_juega_id) references cartas;
+alter table mano_cartas add constraint fk_mano_cartas_carta foreign key (carta_id) references cartas;
+alter table mano_cartas add constraint fk_mano_cartas_mano foreign key (mano_id) references manos;
+alter table manos add constraint fk_manos_partida foreign key (partida_id) references partidas;
+alter table partida_mesa add constraint fk_partida_mesa_carta foreign key (carta_id) references cartas;
+alter table partida_mesa add constraint fk_partida_mesa_partida foreign key (partida_id) references partidas;
+alter table partidas add constraint fk_partidas_resumen foreign key (resumen_id) references resumen_partida;
+alter table ronda_mesa add constraint fk_ronda_mesa_carta foreign key (carta_id) references cartas;
+alter table ronda_mesa add constraint fk_ronda_mesa_ronda foreign key (ronda_id) references rondas;
+alter table rondas add constraint fk_rondas_partida foreign key (partida_id) references partidas;
+alter table turnos add constraint fk_turnos_jugada foreign key (jugada_id) references jugadas;
+alter table turnos add constraint fk_turnos_ronda foreign key (ronda_id) references rondas;
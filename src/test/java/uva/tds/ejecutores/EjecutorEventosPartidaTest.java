@@ -0,0 +1,199 @@
+package uva.tds.ejecutores;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uva.tds.entidades.Carta;
+import uva.tds.entidades.EventoPartida;
+import uva.tds.entidades.Palo;
+import uva.tds.entidades.Partida;
+import uva.tds.servicios.GestorPartida;
+
+/**
+ * Tests para la clase EjecutorEventosPartida.
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+class EjecutorEventosPartidaTest {
+
+    // reparto inicial, 6 rondas de 6 jugadas y avance y reparto entre rondas
+    private static final int EVENTOS_PARTIDA = 1 + 6 * 6 + 5 * 2;
+
+    private LectorPartidaJSON lector;
+    private Partida partida;
+    private EjecutorEventosPartida ejecutor;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        lector = new LectorPartidaJSON("src/test/resources/partida_escoba1.json");
+        partida = lector.obtenerPartida("p-eventos");
+        ejecutor = new EjecutorEventosPartida(partida.getJugador1(), partida.getJugador2());
+    }
+
+    @Test
+    void testEjecutarValidoEventosDePartidaCoincideConEjecutarPartida() {
+        GestorPartida esperado = new EjecutarPartida(partida).ejecutarPartidaCompleta();
+
+        GestorPartida gestor = ejecutor.ejecutar(EjecutorEventosPartida.eventosDe(partida));
+
+        assertEquals(EVENTOS_PARTIDA, ejecutor.getEventosAplicados());
+        assertPuntuaciones(esperado, gestor);
+        assertEquals(0, gestor.calcularPuntuacionFinal(gestor.getJugador1()));
+        assertEquals(5, gestor.calcularPuntuacionFinal(gestor.getJugador2()));
+        assertTrue(ejecutor.getResultado().isDone());
+    }
+
+    @Test
+    void testEjecutarValidoEventosDelJSONSinConstruirLaPartida() {
+        GestorPartida esperado = new EjecutarPartida(partida).ejecutarPartidaCompleta();
+
+        GestorPartida gestor = ejecutor.ejecutar(lector.extraerEventos());
+
+        assertEquals(EVENTOS_PARTIDA, ejecutor.getEventosAplicados());
+        assertPuntuaciones(esperado, gestor);
+    }
+
+    @Test
+    void testEjecutarValidoEventosLeidosDelFicheroSinCargarlo() throws IOException {
+        GestorPartida esperado = new EjecutarPartida(partida).ejecutarPartidaCompleta();
+
+        GestorPartida gestor;
+        try (Reader entrada = Files.newBufferedReader(Paths.get("src/test/resources/partida_escoba1.json"))) {
+            gestor = ejecutor.ejecutar(LectorPartidaJSON.leerEventos(entrada));
+        }
+
+        assertEquals(EVENTOS_PARTIDA, ejecutor.getEventosAplicados());
+        assertPuntuaciones(esperado, gestor);
+    }
+
+    @Test
+    void testAplicarValidoPartidaAMedias() {
+        Iterator<EventoPartida> eventos = lector.extraerEventos();
+        // reparto inicial y las 6 jugadas de la primera ronda
+        for (int i = 0; i < 7; i++) {
+            ejecutor.aplicar(eventos.next());
+        }
+
+        GestorPartida gestor = ejecutor.getGestor();
+        assertEquals(1, gestor.getRondaActual());
+        assertTrue(gestor.rondaTerminada());
+        assertTrue(gestor.getJugador1().getMano().isEmpty());
+        assertTrue(gestor.getJugador2().getMano().isEmpty());
+        assertFalse(ejecutor.getResultado().isDone());
+
+        ejecutor.aplicar(eventos.next());
+        ejecutor.aplicar(eventos.next());
+        assertEquals(2, gestor.getRondaActual());
+        assertEquals(3, gestor.getJugador1().getMano().size());
+    }
+
+    @Test
+    void testSuscriptorValidoRecibeLosEventosDeUnPublicador() throws Exception {
+        GestorPartida esperado = new EjecutarPartida(partida).ejecutarPartidaCompleta();
+
+        try (SubmissionPublisher<EventoPartida> publicador = new SubmissionPublisher<>()) {
+            publicador.subscribe(ejecutor);
+            lector.extraerEventos().forEachRemaining(publicador::submit);
+        }
+
+        GestorPartida gestor = ejecutor.getResultado().get(5, TimeUnit.SECONDS);
+        assertEquals(EVENTOS_PARTIDA, ejecutor.getEventosAplicados());
+        assertPuntuaciones(esperado, gestor);
+    }
+
+    @Test
+    void testSuscriptorNoValidoEventoInvalidoCompletaElResultadoConError() {
+        Iterator<EventoPartida> eventos = lector.extraerEventos();
+        try (SubmissionPublisher<EventoPartida> publicador = new SubmissionPublisher<>()) {
+            publicador.subscribe(ejecutor);
+            publicador.submit(eventos.next());
+            // una carta que no está en la mano del jugador
+            publicador.submit(EventoPartida.jugarCarta(cartaFueraDeLaMano(), List.of()));
+            eventos.forEachRemaining(publicador::submit);
+        }
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> ejecutor.getResultado().get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+        assertEquals(1, ejecutor.getEventosAplicados());
+    }
+
+    @Test
+    void testSuscriptorNoValidoErrorDelPublicador() {
+        IllegalStateException error = new IllegalStateException("conexión perdida");
+        try (SubmissionPublisher<EventoPartida> publicador = new SubmissionPublisher<>()) {
+            publicador.subscribe(ejecutor);
+            publicador.closeExceptionally(error);
+        }
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> ejecutor.getResultado().get(5, TimeUnit.SECONDS));
+        assertSame(error, e.getCause());
+    }
+
+    @Test
+    void testEjecutarNoValidoPartidaIncompleta() {
+        List<EventoPartida> eventos = new ArrayList<>();
+        lector.extraerEventos().forEachRemaining(eventos::add);
+        // sin la última ronda
+        List<EventoPartida> incompleta = eventos.subList(0, EVENTOS_PARTIDA - 8);
+
+        assertThrows(IllegalArgumentException.class, () -> ejecutor.ejecutar(incompleta.iterator()));
+        assertFalse(ejecutor.getResultado().isDone());
+    }
+
+    @Test
+    void testAplicarNoValidoPartidaFinalizada() {
+        ejecutor.ejecutar(lector.extraerEventos());
+
+        assertThrows(IllegalStateException.class, () -> ejecutor.aplicar(EventoPartida.avanzarRonda()));
+        assertThrows(IllegalStateException.class, () -> ejecutor.finalizar());
+    }
+
+    @Test
+    void testNoValidoArgumentosNulos() {
+        assertThrows(IllegalArgumentException.class, () -> new EjecutorEventosPartida(null, "Luis"));
+        assertThrows(IllegalArgumentException.class, () -> ejecutor.aplicar(null));
+        assertThrows(IllegalArgumentException.class, () -> ejecutor.ejecutar(null));
+        assertThrows(IllegalArgumentException.class, () -> EjecutorEventosPartida.eventosDe(null));
+    }
+
+    private Carta cartaFueraDeLaMano() {
+        ArrayList<Carta> mano = partida.getManosJugador1().get(0);
+        for (Palo palo : Palo.values()) {
+            for (int valor = 1; valor <= 10; valor++) {
+                Carta carta = new Carta(palo, valor);
+                if (!mano.contains(carta)) {
+                    return carta;
+                }
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    private void assertPuntuaciones(GestorPartida esperado, GestorPartida gestor) {
+        assertEquals(esperado.getJugador1().getNombre(), gestor.getJugador1().getNombre());
+        assertEquals(esperado.calcularPuntuacionFinal(esperado.getJugador1()),
+                gestor.calcularPuntuacionFinal(gestor.getJugador1()));
+        assertEquals(esperado.calcularPuntuacionFinal(esperado.getJugador2()),
+                gestor.calcularPuntuacionFinal(gestor.getJugador2()));
+        assertEquals(esperado.getJugador1().getNumeroCartasCapturadas(),
+                gestor.getJugador1().getNumeroCartasCapturadas());
+        assertEquals(esperado.getJugador2().getNumeroCartasCapturadas(),
+                gestor.getJugador2().getNumeroCartasCapturadas());
+    }
+}
@@ -1,21 +1,26 @@
 package uva.tds.ejecutores;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
+import org.json.JSONException;
 import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
 import uva.tds.entidades.Carta;
+import uva.tds.entidades.EventoPartida;
 import uva.tds.entidades.Jugada;
 import uva.tds.entidades.Palo;
 import uva.tds.entidades.Partida;
@@ -342,6 +347,31 @@ public class LectorPartidaJSONTest {
                 () -> lector.extraerManoJugador(7, "Ana"));
     }
 
+    @Test
+    void testLeerEventosValidoSaltaOtrasClavesYLeeCadaRondaAlPedirla() {
+        JSONObject primeraRonda = partidaJSON.getJSONObject("partida").getJSONArray("rondas").getJSONObject(0);
+        // la segunda ronda está cortada: solo falla al pedir sus eventos
+        String json = "{\"version\": 1, \"partida\": {\"resumen_partida\": {\"ganador\": \"Luis\", \"rondas\": [1]}, "
+                + "\"rondas\": [" + primeraRonda + ", {\"numero\": 2, \"inicio";
+
+        Iterator<EventoPartida> eventos = LectorPartidaJSON.leerEventos(new StringReader(json));
+        // reparto inicial, 6 jugadas y avance de ronda
+        for (int i = 0; i < 8; i++) {
+            assertNotNull(eventos.next());
+        }
+
+        assertThrows(JSONException.class, () -> eventos.next());
+    }
+
+    @Test
+    void testLeerEventosNoValido() {
+        assertThrows(IllegalArgumentException.class, () -> LectorPartidaJSON.leerEventos(null));
+        assertThrows(JSONException.class, () -> LectorPartidaJSON.leerEventos(new StringReader("{\"partida\": {}}")));
+        assertThrows(JSONException.class,
+                () -> LectorPartidaJSON.leerEventos(new StringReader("{\"partida\": {\"rondas\": {}}}")));
+        assertFalse(LectorPartidaJSON.leerEventos(new StringReader("{\"partida\": {\"rondas\": []}}")).hasNext());
+    }
+
     @Test
     @Tag("Cobertura")
     void testValidoObtenerPartida() throws IOException {
@@ -0,0 +1,120 @@
+package uva.tds.entidades;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import uva.tds.servicios.GestorPartida;
+
+/**
+ * Clase de test para la clase EventoPartida.
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+public class EventoPartidaTest {
+
+    private static final List<Carta> MANO1 = List.of(new Carta(Palo.OROS, 10), new Carta(Palo.OROS, 2),
+            new Carta(Palo.OROS, 3));
+    private static final List<Carta> MANO2 = List.of(new Carta(Palo.COPAS, 4), new Carta(Palo.COPAS, 5),
+            new Carta(Palo.COPAS, 6));
+    private static final List<Carta> MESA = List.of(new Carta(Palo.ESPADAS, 7), new Carta(Palo.ESPADAS, 1),
+            new Carta(Palo.ESPADAS, 2), new Carta(Palo.ESPADAS, 3));
+
+    @Test
+    void testRepartoInicialValido() {
+        EventoPartida evento = EventoPartida.repartoInicial(MANO1, MANO2, MESA);
+
+        assertEquals(EventoPartida.Tipo.REPARTO_INICIAL, evento.getTipo());
+        assertEquals(MANO1, evento.getCartasJugador1());
+        assertEquals(MANO2, evento.getCartasJugador2());
+        assertEquals(MESA, evento.getCartasMesa());
+        assertNull(evento.getCarta());
+        assertTrue(evento.getCapturas().isEmpty());
+    }
+
+    @Test
+    void testRepartoInicialNoValidoListasNulas() {
+        assertThrows(IllegalArgumentException.class, () -> EventoPartida.repartoInicial(null, MANO2, MESA));
+        assertThrows(IllegalArgumentException.class, () -> EventoPartida.repartoInicial(MANO1, null, MESA));
+        assertThrows(IllegalArgumentException.class, () -> EventoPartida.repartoInicial(MANO1, MANO2, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> EventoPartida.repartoInicial(Arrays.asList(new Carta(Palo.OROS, 1), null), MANO2, MESA));
+    }
+
+    @Test
+    void testRepartoRondaNoValidoListasNulas() {
+        assertThrows(IllegalArgumentException.class, () -> EventoPartida.repartoRonda(null, MANO2));
+        assertThrows(IllegalArgumentException.class, () -> EventoPartida.repartoRonda(MANO1, null));
+    }
+
+    @Test
+    void testJugarCartaValido() {
+        EventoPartida evento = EventoPartida.jugarCarta(new Carta(Palo.OROS, 10), List.of(new Carta(Palo.ESPADAS, 7)));
+
+        assertEquals(EventoPartida.Tipo.JUGAR_CARTA, evento.getTipo());
+        assertEquals(new Carta(Palo.OROS, 10), evento.getCarta());
+        assertEquals(List.of(new Carta(Palo.ESPADAS, 7)), evento.getCapturas());
+    }
+
+    @Test
+    void testJugarCartaNoValido() {
+        assertThrows(IllegalArgumentException.class, () -> EventoPartida.jugarCarta(null, List.of()));
+        assertThrows(IllegalArgumentException.class,
+                () -> EventoPartida.jugarCarta(new Carta(Palo.OROS, 1), null));
+        assertThrows(IllegalArgumentException.class,
+                () -> EventoPartida.jugarCarta(new Carta(Palo.OROS, 1), Arrays.asList((Carta) null)));
+    }
+
+    @Test
+    void testEventoValidoInmutable() {
+        ArrayList<Carta> capturas = new ArrayList<>(List.of(new Carta(Palo.ESPADAS, 7)));
+        EventoPartida evento = EventoPartida.jugarCarta(new Carta(Palo.OROS, 10), capturas);
+
+        capturas.clear();
+        evento.getCapturas().clear();
+
+        assertEquals(1, evento.getCapturas().size());
+    }
+
+    @Test
+    void testAplicarValidoReproducePartida() {
+        GestorPartida gestor = new GestorPartida(new Jugador("j1"), new Jugador("j2"));
+
+        EventoPartida.repartoInicial(MANO1, MANO2, MESA).aplicar(gestor);
+        EventoPartida.jugarCarta(new Carta(Palo.OROS, 10), List.of(new Carta(Palo.ESPADAS, 7))).aplicar(gestor);
+        EventoPartida.jugarCarta(new Carta(Palo.COPAS, 4), List.of()).aplicar(gestor);
+
+        assertEquals(List.of(new Carta(Palo.ESPADAS, 1), new Carta(Palo.ESPADAS, 2), new Carta(Palo.ESPADAS, 3),
+                new Carta(Palo.COPAS, 4)), gestor.getCartasMesa());
+        assertEquals(2, gestor.getJugador1().getNumeroCartasCapturadas());
+        assertEquals(gestor.getJugador1(), gestor.getJugadorActual());
+        assertEquals(gestor.getJugador1(), gestor.getUltimoQueHizoBaza());
+    }
+
+    @Test
+    void testAplicarNoValido() {
+        GestorPartida gestor = new GestorPartida(new Jugador("j1"), new Jugador("j2"));
+        EventoPartida.repartoInicial(MANO1, MANO2, MESA).aplicar(gestor);
+
+        assertThrows(IllegalArgumentException.class, () -> EventoPartida.avanzarRonda().aplicar(null));
+        assertThrows(IllegalArgumentException.class,
+                () -> EventoPartida.jugarCarta(new Carta(Palo.COPAS, 4), List.of()).aplicar(gestor));
+    }
+
+    @Test
+    void testEqualsValido() {
+        EventoPartida evento = EventoPartida.repartoRonda(MANO1, MANO2);
+
+        assertEquals(evento, EventoPartida.repartoRonda(new ArrayList<>(MANO1), new ArrayList<>(MANO2)));
+        assertEquals(evento.hashCode(), EventoPartida.repartoRonda(MANO1, MANO2).hashCode());
+        assertEquals(EventoPartida.avanzarRonda(), EventoPartida.avanzarRonda());
+        assertNotEquals(evento, EventoPartida.repartoRonda(MANO2, MANO1));
+        assertNotEquals(evento, EventoPartida.avanzarRonda());
+        assertNotEquals(evento, null);
+    }
+}
@@ -302,4 +302,59 @@ public class PartidaTest {
         assertFalse(partida.isCompleta());
     }
 
+    @Test
+    void testCopiarValidoIndependienteDeLaOriginal() {
+        Partida partida = new Partida("P61", LocalDate.of(2025, 11, 24), "Ana", "Luis");
+        partida.añadirMesaInicial(new ArrayList<>(List.of(new Carta(Palo.OROS, 1))));
+        partida.anadirRondas(List.of(new Ronda(1, null)));
+        partida.establecerResultados(new Jugador("Ana"), new Jugador("Luis"), 2, 1);
+        partida.setVersion(4);
+        partida.getResumenPartida().setVersion(7);
+
+        Partida copia = partida.copiar();
+        copia.setVersion(5);
+        copia.getResumenPartida().setVersion(8);
+        copia.añadirMesaInicial(new ArrayList<>());
+        copia.añadirManoJugador1(new ArrayList<>(List.of(new ArrayList<>())));
+
+        assertEquals("P61", copia.getId());
+        assertEquals(2, copia.getPuntosJugador1());
+        assertEquals(1, copia.getRondas().size());
+        assertEquals(4, partida.getVersion());
+        assertEquals(7, partida.getResumenPartida().getVersion());
+        assertEquals(1, partida.getMesaInicial().size());
+        assertTrue(partida.getManosJugadores().isEmpty());
+    }
+
+    @Test
+    void testCopiarComoNuevaValidoSinVersionYConCartasNuevas() {
+        Carta oros = new Carta(Palo.OROS, 1);
+        Carta copas = new Carta(Palo.COPAS, 7);
+        Partida partida = new Partida("P62", LocalDate.of(2025, 11, 24), "Ana", "Luis");
+        partida.añadirMesaInicial(new ArrayList<>(List.of(oros)));
+        partida.añadirManoJugador1(new ArrayList<>(List.of(new ArrayList<>(List.of(copas)))));
+        Jugada jugada = new Jugada(copas, List.of(), List.of(oros, copas));
+        partida.anadirRondas(List.of(new Ronda(1, List.of(new Turno(1, jugada)))));
+        partida.establecerResultados(new Jugador("Ana"), new Jugador("Luis"), 2, 1);
+        partida.setVersion(4);
+        partida.getResumenPartida().setVersion(7);
+
+        Partida copia = partida.copiarComoNueva();
+
+        assertEquals("P62", copia.getId());
+        assertNull(copia.getVersion());
+        assertNull(copia.getResumenPartida().getVersion());
+        assertEquals(2, copia.getPuntosJugador1());
+        assertEquals(partida.getMesaInicial(), copia.getMesaInicial());
+        assertNotSame(oros, copia.getMesaInicial().get(0));
+        assertEquals(List.of(copas), copia.getManosJugador1().get(0));
+        Jugada copiada = copia.getRondas().get(0).getTurnos().get(0).getJugada();
+        assertNotSame(jugada, copiada);
+        assertEquals(copas, copiada.getJuega());
+        // la misma carta se copia una sola vez aunque aparezca en varias listas
+        assertSame(copiada.getJuega(), copiada.getMesaResultante().get(1));
+        assertSame(copia.getMesaInicial().get(0), copiada.getMesaResultante().get(0));
+        assertEquals(4, partida.getVersion());
+    }
+
 }
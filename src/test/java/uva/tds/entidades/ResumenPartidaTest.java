@@ -260,4 +260,28 @@ public class ResumenPartidaTest {
         assertFalse(resumen.isCompleta());
     }
 
-}
\ No newline at end of file
+    @Test
+    void testCopiarParaValidoMismosResultados() {
+        ResumenPartida partida = new ResumenPartida("a", fecha, "b", "c");
+        partida.establecerResultados(new Jugador("b"), new Jugador("c"), 5, 10);
+
+        ResumenPartida copia = partida.copiarPara("d", fecha.plusDays(1));
+
+        assertEquals("d", copia.getId());
+        assertEquals(fecha.plusDays(1), copia.getFecha());
+        assertEquals("b", copia.getJugador1());
+        assertEquals("c", copia.getJugador2());
+        assertTrue(copia.isCompleta());
+        assertEquals(5, copia.getPuntosJugador1());
+        assertEquals(10, copia.getPuntosJugador2());
+        assertEquals("c", copia.getGanador());
+        assertNull(copia.getVersion());
+    }
+
+    @Test
+    void testCopiarParaNoValidoIdNulo() {
+        ResumenPartida partida = new ResumenPartida("a", fecha, "b", "c");
+        assertThrows(IllegalArgumentException.class, () -> partida.copiarPara(null, fecha));
+    }
+
+}
@@ -0,0 +1,293 @@
+package uva.tds.servicios;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uva.tds.entidades.Carta;
+import uva.tds.entidades.EventoPartida;
+import uva.tds.entidades.Jugador;
+import uva.tds.entidades.Palo;
+
+/**
+ * Clase de test para DiarioPartida.
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+public class DiarioPartidaTest {
+
+    private static final String ID = "p-1";
+    private static final long UNA_HORA_MS = 3_600_000;
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void testRecuperarValidoReproduceEstado() {
+        GestorPartida esperado;
+        try (DiarioPartida diario = DiarioPartida.crear(directorio, ID, "Ana", "Luis")) {
+            jugarPrimeraRonda(diario);
+            esperado = diario.getGestor();
+        }
+
+        try (DiarioPartida recuperado = DiarioPartida.recuperar(directorio, ID)) {
+            assertEquals(9, recuperado.getNumeroEventos());
+            assertMismoEstado(esperado, recuperado.getGestor());
+            assertEquals(2, recuperado.getGestor().getRondaActual());
+            assertEquals("Ana", recuperado.getGestor().getUltimoQueHizoBaza().getNombre());
+        }
+    }
+
+    @Test
+    void testRecuperarValidoSigueAnadiendoEventos() {
+        try (DiarioPartida diario = DiarioPartida.crear(directorio, ID, "Ana", "Luis")) {
+            diario.repartoInicial(cartas(Palo.OROS, 10, 2, 3), cartas(Palo.COPAS, 4, 5, 6),
+                    cartas(Palo.ESPADAS, 7, 1, 2, 3));
+        }
+        try (DiarioPartida diario = DiarioPartida.recuperar(directorio, ID)) {
+            diario.jugarCarta(new Carta(Palo.OROS, 10), cartas(Palo.ESPADAS, 7));
+        }
+
+        try (DiarioPartida recuperado = DiarioPartida.recuperar(directorio, ID)) {
+            assertEquals(2, recuperado.getNumeroEventos());
+            assertEquals(cartas(Palo.ESPADAS, 1, 2, 3), recuperado.getGestor().getCartasMesa());
+            assertEquals("Luis", recuperado.getGestor().getJugadorActual().getNombre());
+        }
+        assertEquals(2, DiarioPartida.leerEventos(directorio, ID).size());
+    }
+
+    @Test
+    void testRecuperarValidoDesdeInstantaneaYCola() throws IOException {
+        GestorPartida esperado;
+        try (DiarioPartida diario = DiarioPartida.crear(directorio, ID, "Ana", "Luis", 1, 0, 4)) {
+            jugarPrimeraRonda(diario);
+            assertEquals(2, diario.getInstantaneas());
+            esperado = diario.getGestor();
+        }
+        // Si se usa la instantánea no hace falta leer la cabecera del diario
+        try (FileChannel canal = FileChannel.open(directorio.resolve(ID + ".diario"),
+                StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.wrap(new byte[4]), 0);
+        }
+
+        try (DiarioPartida recuperado = DiarioPartida.recuperar(directorio, ID)) {
+            assertEquals(9, recuperado.getNumeroEventos());
+            assertMismoEstado(esperado, recuperado.getGestor());
+        }
+    }
+
+    @Test
+    void testRecuperarValidoInstantaneaDanadaSeIgnora() throws IOException {
+        GestorPartida esperado;
+        try (DiarioPartida diario = DiarioPartida.crear(directorio, ID, "Ana", "Luis", 1, 0, 4)) {
+            jugarPrimeraRonda(diario);
+            esperado = diario.getGestor();
+        }
+        Path instantanea = directorio.resolve(ID + ".instantanea");
+        byte[] bytes = Files.readAllBytes(instantanea);
+        bytes[bytes.length / 2] ^= 0x55;
+        Files.write(instantanea, bytes);
+
+        try (DiarioPartida recuperado = DiarioPartida.recuperar(directorio, ID)) {
+            assertEquals(9, recuperado.getNumeroEventos());
+            assertMismoEstado(esperado, recuperado.getGestor());
+        }
+    }
+
+    @Test
+    void testRecuperarValidoDescartaRegistroIncompleto() throws IOException {
+        try (DiarioPartida diario = DiarioPartida.crear(directorio, ID, "Ana", "Luis")) {
+            diario.repartoInicial(cartas(Palo.OROS, 10, 2, 3), cartas(Palo.COPAS, 4, 5, 6),
+                    cartas(Palo.ESPADAS, 7, 1, 2, 3));
+            diario.jugarCarta(new Carta(Palo.OROS, 10), cartas(Palo.ESPADAS, 7));
+        }
+        Path fichero = directorio.resolve(ID + ".diario");
+        long tamano = Files.size(fichero);
+        Files.write(fichero, new byte[] { 0, 0, 0, 9, 2, 3 }, StandardOpenOption.APPEND);
+
+        try (DiarioPartida recuperado = DiarioPartida.recuperar(directorio, ID)) {
+            assertEquals(2, recuperado.getNumeroEventos());
+            assertEquals(tamano, Files.size(fichero));
+            recuperado.jugarCarta(new Carta(Palo.COPAS, 4), new ArrayList<>());
+        }
+        try (DiarioPartida recuperado = DiarioPartida.recuperar(directorio, ID)) {
+            assertEquals(3, recuperado.getNumeroEventos());
+        }
+    }
+
+    @Test
+    void testRecuperarValidoDescartaRegistroConCrcIncorrecto() throws IOException {
+        try (DiarioPartida diario = DiarioPartida.crear(directorio, ID, "Ana", "Luis")) {
+            diario.repartoInicial(cartas(Palo.OROS, 10, 2, 3), cartas(Palo.COPAS, 4, 5, 6),
+                    cartas(Palo.ESPADAS, 7, 1, 2, 3));
+            diario.jugarCarta(new Carta(Palo.OROS, 10), cartas(Palo.ESPADAS, 7));
+        }
+        Path fichero = directorio.resolve(ID + ".diario");
+        byte[] bytes = Files.readAllBytes(fichero);
+        bytes[bytes.length - 1] ^= 0x01;
+        Files.write(fichero, bytes);
+
+        try (DiarioPartida recuperado = DiarioPartida.recuperar(directorio, ID)) {
+            assertEquals(1, recuperado.getNumeroEventos());
+            assertEquals(cartas(Palo.ESPADAS, 7, 1, 2, 3), recuperado.getGestor().getCartasMesa());
+        }
+    }
+
+    @Test
+    void testRegistrarNoValidoEventoRechazadoNoSeGuarda() {
+        try (DiarioPartida diario = DiarioPartida.crear(directorio, ID, "Ana", "Luis")) {
+            diario.repartoInicial(cartas(Palo.OROS, 10, 2, 3), cartas(Palo.COPAS, 4, 5, 6),
+                    cartas(Palo.ESPADAS, 7, 1, 2, 3));
+
+            assertThrows(IllegalArgumentException.class,
+                    () -> diario.jugarCarta(new Carta(Palo.COPAS, 4), new ArrayList<>()));
+            assertThrows(IllegalArgumentException.class, () -> diario.registrar(null));
+            assertEquals(1, diario.getNumeroEventos());
+        }
+        assertEquals(1, DiarioPartida.leerEventos(directorio, ID).size());
+    }
+
+    @Test
+    void testSincronizarValidoPorLotes() {
+        DiarioPartida diario = DiarioPartida.crear(directorio, ID, "Ana", "Luis", 4, UNA_HORA_MS, 100);
+        jugarPrimeraRonda(diario);
+        assertEquals(2, diario.getSincronizaciones());
+
+        diario.close();
+
+        assertEquals(3, diario.getSincronizaciones());
+        assertTrue(diario.isCerrado());
+    }
+
+    @Test
+    void testLeerEventosValido() {
+        try (DiarioPartida diario = DiarioPartida.crear(directorio, ID, "Ana", "Luis")) {
+            diario.repartoInicial(cartas(Palo.OROS, 10, 2, 3), cartas(Palo.COPAS, 4, 5, 6),
+                    cartas(Palo.ESPADAS, 7, 1, 2, 3));
+            diario.jugarCarta(new Carta(Palo.OROS, 10), cartas(Palo.ESPADAS, 7));
+        }
+
+        assertEquals(List.of(
+                EventoPartida.repartoInicial(cartas(Palo.OROS, 10, 2, 3), cartas(Palo.COPAS, 4, 5, 6),
+                        cartas(Palo.ESPADAS, 7, 1, 2, 3)),
+                EventoPartida.jugarCarta(new Carta(Palo.OROS, 10), cartas(Palo.ESPADAS, 7))),
+                DiarioPartida.leerEventos(directorio, ID));
+    }
+
+    @Test
+    void testRegistrarNoValidoErrorDeEscrituraRompeElDiario() throws IOException {
+        // Un directorio donde va el temporal de la instantánea hace fallar su escritura
+        Files.createDirectory(directorio.resolve(ID + ".instantanea.tmp"));
+        DiarioPartida diario = DiarioPartida.crear(directorio, ID, "Ana", "Luis", 4, UNA_HORA_MS, 1);
+
+        assertThrows(IllegalStateException.class, () -> diario.repartoInicial(cartas(Palo.OROS, 10, 2, 3),
+                cartas(Palo.COPAS, 4, 5, 6), cartas(Palo.ESPADAS, 7, 1, 2, 3)));
+        assertTrue(diario.isRoto());
+        assertThrows(IllegalStateException.class,
+                () -> diario.jugarCarta(new Carta(Palo.OROS, 10), cartas(Palo.ESPADAS, 7)));
+        assertThrows(IllegalStateException.class, () -> diario.sincronizar());
+        diario.close();
+        assertTrue(diario.isCerrado());
+
+        // El evento sí llegó al fichero, así que la partida se recupera desde él
+        try (DiarioPartida recuperado = DiarioPartida.recuperar(directorio, ID, 4, UNA_HORA_MS, 100)) {
+            assertEquals(1, recuperado.getNumeroEventos());
+            assertFalse(recuperado.isRoto());
+            recuperado.jugarCarta(new Carta(Palo.OROS, 10), cartas(Palo.ESPADAS, 7));
+        }
+    }
+
+    @Test
+    void testCerrarValidoNoAdmiteEventos() {
+        DiarioPartida diario = DiarioPartida.crear(directorio, ID, "Ana", "Luis");
+        diario.close();
+        diario.close();
+
+        assertThrows(IllegalStateException.class, () -> diario.avanzarRonda());
+        assertThrows(IllegalStateException.class, () -> diario.sincronizar());
+    }
+
+    @Test
+    void testCrearNoValido() {
+        assertThrows(IllegalArgumentException.class, () -> DiarioPartida.crear(null, ID, "Ana", "Luis"));
+        assertThrows(IllegalArgumentException.class, () -> DiarioPartida.crear(directorio, "", "Ana", "Luis"));
+        assertThrows(IllegalArgumentException.class, () -> DiarioPartida.crear(directorio, ID, null, "Luis"));
+        assertThrows(IllegalArgumentException.class, () -> DiarioPartida.crear(directorio, ID, "Ana", ""));
+        assertThrows(IllegalArgumentException.class,
+                () -> DiarioPartida.crear(directorio, ID, "Ana", "Luis", 0, 0, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> DiarioPartida.crear(directorio, ID, "Ana", "Luis", 1, -1, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> DiarioPartida.crear(directorio, ID, "Ana", "Luis", 1, 0, 0));
+    }
+
+    @Test
+    void testCrearNoValidoYaExiste() {
+        DiarioPartida.crear(directorio, ID, "Ana", "Luis").close();
+
+        assertThrows(IllegalStateException.class, () -> DiarioPartida.crear(directorio, ID, "Ana", "Luis"));
+    }
+
+    @Test
+    void testRecuperarNoValido() throws IOException {
+        assertThrows(IllegalArgumentException.class, () -> DiarioPartida.recuperar(null, ID));
+        assertThrows(IllegalArgumentException.class, () -> DiarioPartida.recuperar(directorio, null));
+        assertThrows(IllegalStateException.class, () -> DiarioPartida.recuperar(directorio, "p-2"));
+
+        Files.write(directorio.resolve("p-3.diario"), new byte[] { 1, 2, 3, 4, 5 });
+        assertThrows(IllegalStateException.class, () -> DiarioPartida.recuperar(directorio, "p-3"));
+    }
+
+    /**
+     * Reparto inicial, seis jugadas (Ana captura el 7 de espadas con la sota de
+     * oros), avance de ronda y reparto de la segunda ronda: 9 eventos.
+     */
+    private void jugarPrimeraRonda(DiarioPartida diario) {
+        diario.repartoInicial(cartas(Palo.OROS, 10, 2, 3), cartas(Palo.COPAS, 4, 5, 6),
+                cartas(Palo.ESPADAS, 7, 1, 2, 3));
+        diario.jugarCarta(new Carta(Palo.OROS, 10), cartas(Palo.ESPADAS, 7));
+        diario.jugarCarta(new Carta(Palo.COPAS, 4), new ArrayList<>());
+        diario.jugarCarta(new Carta(Palo.OROS, 2), new ArrayList<>());
+        diario.jugarCarta(new Carta(Palo.COPAS, 5), new ArrayList<>());
+        diario.jugarCarta(new Carta(Palo.OROS, 3), new ArrayList<>());
+        diario.jugarCarta(new Carta(Palo.COPAS, 6), new ArrayList<>());
+        diario.avanzarRonda();
+        diario.repartoRonda(cartas(Palo.OROS, 1, 4, 5), cartas(Palo.COPAS, 1, 2, 3));
+    }
+
+    private void assertMismoEstado(GestorPartida esperado, GestorPartida actual) {
+        assertMismoJugador(esperado.getJugador1(), actual.getJugador1());
+        assertMismoJugador(esperado.getJugador2(), actual.getJugador2());
+        assertEquals(esperado.getCartasMesa(), actual.getCartasMesa());
+        assertEquals(esperado.getRondaActual(), actual.getRondaActual());
+        assertEquals(esperado.getTurnosJugados(), actual.getTurnosJugados());
+        assertEquals(esperado.getJugadorActual().getNombre(), actual.getJugadorActual().getNombre());
+        assertEquals(esperado.getBaraja().getNumeroDeCartas(), actual.getBaraja().getNumeroDeCartas());
+    }
+
+    private void assertMismoJugador(Jugador esperado, Jugador actual) {
+        assertEquals(esperado.getNombre(), actual.getNombre());
+        assertEquals(esperado.getMano(), actual.getMano());
+        assertEquals(esperado.getCartas(), actual.getCartas());
+        assertEquals(esperado.getEscobas(), actual.getEscobas());
+    }
+
+    private ArrayList<Carta> cartas(Palo palo, int... indices) {
+        ArrayList<Carta> res = new ArrayList<>();
+        for (int indice : indices) {
+            res.add(new Carta(palo, indice));
+        }
+        return res;
+    }
+}
@@ -0,0 +1,282 @@
+package uva.tds.servicios;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.easymock.EasyMock;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uva.tds.ejecutores.LectorPartidaJSON;
+import uva.tds.entidades.Partida;
+import uva.tds.interfaces.PerfilCarga;
+import uva.tds.interfaces.RepositorioPartida;
+
+/**
+ * Tests de la clase EscritorDiferidoPartidas
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+class EscritorDiferidoPartidasTest {
+
+    private static final String CONFIG_FILE = "hibernate-test.cfg.xml";
+
+    private RepositorioPartida repositorio;
+    private EscritorDiferidoPartidas escritor;
+    private List<Integer> tamanosLote;
+
+    @BeforeEach
+    void setUp() {
+        repositorio = EasyMock.mock(RepositorioPartida.class);
+        tamanosLote = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    @AfterAll
+    static void cerrarHibernate() {
+        HibernateUtil.shutdown();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (escritor != null) {
+            escritor.close();
+        }
+    }
+
+    @Test
+    void testConstructorNoValidoRepositorioNulo() {
+        assertThrows(IllegalArgumentException.class, () -> new EscritorDiferidoPartidas(null));
+    }
+
+    @Test
+    void testConstructorNoValidoParametros() {
+        assertThrows(IllegalArgumentException.class, () -> new EscritorDiferidoPartidas(repositorio, 0, 10, 100));
+        assertThrows(IllegalArgumentException.class, () -> new EscritorDiferidoPartidas(repositorio, 10, 0, 100));
+        assertThrows(IllegalArgumentException.class, () -> new EscritorDiferidoPartidas(repositorio, 10, 10, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new EscritorDiferidoPartidas(repositorio, 10, 10, 100, -1, 10, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> new EscritorDiferidoPartidas(repositorio, 10, 10, 100, 1, -1, null));
+    }
+
+    @Test
+    void testConstructorValido() {
+        escritor = new EscritorDiferidoPartidas(repositorio, 20, 5, 100);
+        assertEquals(20, escritor.getCapacidad());
+        assertEquals(5, escritor.getTamanoLote());
+        assertEquals(0, escritor.getProfundidadCola());
+        assertFalse(escritor.isCerrado());
+    }
+
+    @Test
+    void testEncolarValidoAgrupaPorTamano() {
+        repositorio.guardarLote(anyObject());
+        expectLastCall().andAnswer(this::registrarLote).anyTimes();
+        replay(repositorio);
+        escritor = new EscritorDiferidoPartidas(repositorio, 100, 10, 10_000);
+
+        for (int i = 0; i < 25; i++) {
+            escritor.encolar(crearPartida("p-" + i));
+        }
+        escritor.close();
+
+        assertEquals(25, escritor.getPartidasGuardadas());
+        assertEquals(25, tamanosLote.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(tamanosLote.stream().allMatch(tamano -> tamano <= 10));
+        assertTrue(escritor.getLotesEscritos() < 25);
+        verify(repositorio);
+    }
+
+    @Test
+    void testEncolarValidoEscribePorTiempo() {
+        repositorio.guardarLote(anyObject());
+        expectLastCall().andAnswer(this::registrarLote).anyTimes();
+        replay(repositorio);
+        escritor = new EscritorDiferidoPartidas(repositorio, 100, 100, 20);
+
+        escritor.encolar(crearPartida("p-1"));
+        escritor.encolar(crearPartida("p-2"));
+        escritor.vaciar();
+
+        assertFalse(escritor.isCerrado());
+        assertEquals(2, escritor.getPartidasGuardadas());
+        assertEquals(0, escritor.getProfundidadCola());
+    }
+
+    @Test
+    void testEncolarValidoBloqueaConColaLlena() throws InterruptedException {
+        CountDownLatch desbloquear = new CountDownLatch(1);
+        CountDownLatch escribiendo = new CountDownLatch(1);
+        repositorio.guardarLote(anyObject());
+        expectLastCall().andAnswer(() -> {
+            escribiendo.countDown();
+            desbloquear.await();
+            return null;
+        }).anyTimes();
+        replay(repositorio);
+        escritor = new EscritorDiferidoPartidas(repositorio, 2, 1, 10);
+
+        escritor.encolar(crearPartida("p-0"));
+        assertTrue(escribiendo.await(1, TimeUnit.SECONDS));
+        escritor.encolar(crearPartida("p-1"));
+        escritor.encolar(crearPartida("p-2"));
+
+        CountDownLatch encolada = new CountDownLatch(1);
+        Thread productor = new Thread(() -> {
+            escritor.encolar(crearPartida("p-3"));
+            encolada.countDown();
+        });
+        productor.start();
+
+        assertFalse(encolada.await(100, TimeUnit.MILLISECONDS));
+        assertEquals(2, escritor.getProfundidadCola());
+        assertEquals(2, escritor.getProfundidadMaxima());
+
+        desbloquear.countDown();
+        assertTrue(encolada.await(1, TimeUnit.SECONDS));
+        escritor.close();
+        assertEquals(4, escritor.getPartidasGuardadas());
+    }
+
+    @Test
+    void testEncolarValidoLoteFallidoGuardaUnaAUna() {
+        List<Partida> guardadas = Collections.synchronizedList(new ArrayList<>());
+        List<Partida> descartadas = Collections.synchronizedList(new ArrayList<>());
+        repositorio.guardarLote(anyObject());
+        expectLastCall().andThrow(new IllegalStateException("Ya existe")).anyTimes();
+        repositorio.guardar(anyObject(Partida.class));
+        expectLastCall().andAnswer(() -> {
+            Partida partida = (Partida) getCurrentArguments()[0];
+            if (partida.getId().equals("p-duplicada")) {
+                throw new IllegalStateException("Ya existe");
+            }
+            guardadas.add(partida);
+            return null;
+        }).times(4);
+        replay(repositorio);
+        escritor = new EscritorDiferidoPartidas(repositorio, 10, 10, 10_000, 1, 1,
+                (partida, error) -> descartadas.add(partida));
+
+        Partida primera = crearPartida("p-1");
+        Partida duplicada = crearPartida("p-duplicada");
+        escritor.encolar(primera);
+        escritor.encolar(duplicada);
+        escritor.encolar(crearPartida("p-2"));
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> escritor.close());
+
+        assertTrue(e.getMessage().contains("p-duplicada"));
+        assertEquals("Ya existe", e.getCause().getMessage());
+        assertEquals(2, escritor.getPartidasGuardadas());
+        assertEquals(1, escritor.getPartidasFallidas());
+        assertEquals(0, escritor.getLotesEscritos());
+        assertEquals(List.of("p-1", "p-2"), guardadas.stream().map(Partida::getId).collect(Collectors.toList()));
+        assertSame(primera, guardadas.get(0));
+        assertEquals(List.of(duplicada), descartadas);
+        verify(repositorio);
+    }
+
+    @Test
+    void testEncolarValidoReintentaTrasUnFallo() {
+        repositorio.guardarLote(anyObject());
+        expectLastCall().andThrow(new IllegalStateException("Conexión perdida"));
+        repositorio.guardar(anyObject(Partida.class));
+        expectLastCall().andThrow(new IllegalStateException("Conexión perdida"));
+        repositorio.guardar(anyObject(Partida.class));
+        replay(repositorio);
+        escritor = new EscritorDiferidoPartidas(repositorio, 10, 10, 10, 2, 1, null);
+
+        escritor.encolar(crearPartida("p-1"));
+        escritor.vaciar();
+
+        assertEquals(1, escritor.getPartidasGuardadas());
+        assertEquals(0, escritor.getPartidasFallidas());
+        verify(repositorio);
+    }
+
+    @Test
+    void testVaciarNoValidoInformaDeLasPartidasDescartadasUnaVez() {
+        repositorio.guardarLote(anyObject());
+        expectLastCall().andThrow(new IllegalStateException("Conexión perdida"));
+        repositorio.guardar(anyObject(Partida.class));
+        expectLastCall().andThrow(new IllegalStateException("Conexión perdida")).times(2);
+        replay(repositorio);
+        escritor = new EscritorDiferidoPartidas(repositorio, 10, 10, 10, 1, 1, null);
+
+        escritor.encolar(crearPartida("p-1"));
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> escritor.vaciar());
+
+        assertTrue(e.getMessage().contains("p-1"));
+        assertEquals(1, escritor.getPartidasFallidas());
+        escritor.vaciar();
+        escritor.close();
+        verify(repositorio);
+    }
+
+    @Test
+    void testEncolarValidoLoteConUnaPartidaNoValidaGuardaLasDemasEnHibernate() throws IOException {
+        SessionFactory factory = HibernateUtil.getSessionFactory(CONFIG_FILE);
+        try (Session session = factory.openSession()) {
+            session.beginTransaction();
+            session.createNativeQuery("TRUNCATE SCHEMA PUBLIC AND COMMIT NO CHECK").executeUpdate();
+        }
+        factory.getCache().evictAllRegions();
+        RepositorioPartidaHibernate hibernate = new RepositorioPartidaHibernate(CONFIG_FILE);
+        LectorPartidaJSON lector = new LectorPartidaJSON("src/test/resources/partida_escoba1.json");
+        escritor = new EscritorDiferidoPartidas(hibernate, 10, 10, 10_000);
+
+        escritor.encolar(lector.obtenerPartida("p-1"));
+        // identificador más largo que la columna: falla al insertar, después de persistir el lote
+        escritor.encolar(lector.obtenerPartida("p".repeat(101)));
+        escritor.encolar(lector.obtenerPartida("p-2"));
+        assertThrows(IllegalStateException.class, () -> escritor.close());
+
+        assertEquals(2, escritor.getPartidasGuardadas());
+        assertEquals(1, escritor.getPartidasFallidas());
+        assertEquals(0, escritor.getLotesEscritos());
+        Partida guardada = hibernate.cargar("p-1", PerfilCarga.REPRODUCCION);
+        assertEquals(6, guardada.getRondas().size());
+        assertNotNull(hibernate.cargar("p-2", PerfilCarga.RESUMEN));
+        assertEquals(2, hibernate.obtenerEstadisticasJugador(guardada.getJugador1()).getJugadas());
+    }
+
+    @Test
+    void testEncolarNoValidoPartidaNula() {
+        replay(repositorio);
+        escritor = new EscritorDiferidoPartidas(repositorio);
+        assertThrows(IllegalArgumentException.class, () -> escritor.encolar(null));
+    }
+
+    @Test
+    void testEncolarNoValidoEscritorCerrado() {
+        replay(repositorio);
+        escritor = new EscritorDiferidoPartidas(repositorio);
+        escritor.close();
+
+        assertTrue(escritor.isCerrado());
+        assertThrows(IllegalStateException.class, () -> escritor.encolar(crearPartida("p-1")));
+    }
+
+    private Object registrarLote() {
+        List<?> lote = (List<?>) getCurrentArguments()[0];
+        tamanosLote.add(lote.size());
+        return null;
+    }
+
+    private Partida crearPartida(String id) {
+        return PartidasDePrueba.crearPartida(id, LocalDate.of(2024, 3, 1), "Ana", "Luis", 6, 4);
+    }
+}
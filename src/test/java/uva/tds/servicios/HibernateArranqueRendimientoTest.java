@@ -0,0 +1,67 @@
+package uva.tds.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Benchmark del tiempo hasta la primera consulta con la configuración de
+ * desarrollo (hbm2ddl.auto=create y eco de SQL) frente a la de producción
+ * (migraciones ya aplicadas, hbm2ddl.auto=validate y sin eco de SQL). No se
+ * ejecuta con el resto de tests; para lanzarlo: mvn test -Prendimiento
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+@Tag("Rendimiento")
+class HibernateArranqueRendimientoTest {
+
+    private static final String CONFIG_DESARROLLO = "hibernate-test.cfg.xml";
+    private static final String CONFIG_PRODUCCION = "hibernate-produccion-test.cfg.xml";
+    private static final int CALENTAMIENTO = 3;
+    private static final int REPETICIONES = 10;
+
+    @AfterEach
+    void tearDown() {
+        HibernateUtil.shutdown();
+    }
+
+    @Test
+    void testTiempoHastaPrimeraConsultaDesarrolloFrenteAProduccion() {
+        double desarrollo = medir(CONFIG_DESARROLLO);
+        double produccion = medir(CONFIG_PRODUCCION);
+
+        System.out.printf("create + show_sql:         %.2f ms hasta la primera consulta%n", desarrollo);
+        System.out.printf("migraciones + validate:    %.2f ms hasta la primera consulta%n", produccion);
+    }
+
+    /**
+     * Mide el tiempo medio desde que se pide la SessionFactory hasta que termina
+     * la primera consulta, cerrándola después de cada arranque.
+     */
+    private double medir(String configFile) {
+        for (int i = 0; i < CALENTAMIENTO; i++) {
+            primeraConsulta(configFile);
+        }
+        long nanos = 0;
+        for (int i = 0; i < REPETICIONES; i++) {
+            long inicio = System.nanoTime();
+            primeraConsulta(configFile);
+            nanos += System.nanoTime() - inicio;
+        }
+        return nanos / 1_000_000.0 / REPETICIONES;
+    }
+
+    private void primeraConsulta(String configFile) {
+        Session session = HibernateUtil.getSessionFactory(configFile).openSession();
+        try {
+            assertEquals(0L, session.createQuery("SELECT COUNT(P) FROM Partida P", Long.class).uniqueResult());
+        } finally {
+            session.close();
+            HibernateUtil.shutdown(configFile);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package uva.tds.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.hikaricp.internal.HikariCPConnectionProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests para la clase HibernateUtil.
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+class HibernateUtilTest {
+
+    private static final String CONFIG_FILE = "hibernate-test.cfg.xml";
+    private static final String CONFIG_PRODUCCION = "hibernate-produccion-test.cfg.xml";
+
+    @AfterEach
+    void tearDown() {
+        HibernateUtil.shutdown();
+    }
+
+    @Test
+    void testGetSessionFactoryValidoMismaInstancia() {
+        SessionFactory primera = HibernateUtil.getSessionFactory(CONFIG_FILE);
+        SessionFactory segunda = HibernateUtil.getSessionFactory(CONFIG_FILE);
+        assertSame(primera, segunda);
+    }
+
+    @Test
+    void testGetSessionFactoryValidoConcurrente() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<SessionFactory>> tareas = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                tareas.add(() -> HibernateUtil.getSessionFactory(CONFIG_FILE));
+            }
+            Set<SessionFactory> distintas = new HashSet<>();
+            for (Future<SessionFactory> resultado : executor.invokeAll(tareas)) {
+                distintas.add(resultado.get());
+            }
+            assertEquals(1, distintas.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testShutdownValidoCreaNuevaInstancia() {
+        SessionFactory primera = HibernateUtil.getSessionFactory(CONFIG_FILE);
+        HibernateUtil.shutdown(CONFIG_FILE);
+
+        assertTrue(primera.isClosed());
+        assertNotSame(primera, HibernateUtil.getSessionFactory(CONFIG_FILE));
+    }
+
+    @Test
+    void testConEsquemaValido() {
+        assertEquals(CONFIG_FILE + "#PARTIDAS_2024_03", HibernateUtil.conEsquema(CONFIG_FILE, "PARTIDAS_2024_03"));
+    }
+
+    @Test
+    void testConEsquemaNoValido() {
+        String conEsquema = HibernateUtil.conEsquema(CONFIG_FILE, "PARTIDAS_2024_03");
+        assertThrows(IllegalArgumentException.class, () -> HibernateUtil.conEsquema(null, "PARTIDAS"));
+        assertThrows(IllegalArgumentException.class, () -> HibernateUtil.conEsquema(CONFIG_FILE, null));
+        assertThrows(IllegalArgumentException.class, () -> HibernateUtil.conEsquema(CONFIG_FILE, "x; DROP"));
+        assertThrows(IllegalArgumentException.class, () -> HibernateUtil.conEsquema(conEsquema, "OTRO"));
+    }
+
+    @Test
+    void testShutdownValidoConfigNoRegistrada() {
+        HibernateUtil.shutdown("no-registrada.cfg.xml");
+        HibernateUtil.shutdown(null);
+    }
+
+    @Test
+    void testGetSessionFactoryValidoPoolDeConexiones() throws Exception {
+        SessionFactoryImplementor factory = (SessionFactoryImplementor) HibernateUtil.getSessionFactory(CONFIG_FILE);
+        ConnectionProvider provider = factory.getServiceRegistry().getService(ConnectionProvider.class);
+        assertInstanceOf(HikariCPConnectionProvider.class, provider);
+
+        // Con el pool antiguo de una sola conexión la segunda petición se bloqueaba
+        Connection primera = provider.getConnection();
+        Connection segunda = provider.getConnection();
+        try {
+            assertNotSame(primera, segunda);
+        } finally {
+            provider.closeConnection(primera);
+            provider.closeConnection(segunda);
+        }
+    }
+
+    @Test
+    void testGetTamanoPoolConexionesValido() {
+        assertEquals(4, HibernateUtil.getTamanoPoolConexiones(CONFIG_FILE));
+        assertThrows(IllegalArgumentException.class, () -> HibernateUtil.getTamanoPoolConexiones(null));
+    }
+
+    @Test
+    void testGetSessionFactoryNoValidoConfigNula() {
+        assertThrows(IllegalArgumentException.class, () -> HibernateUtil.getSessionFactory(null));
+        assertThrows(IllegalArgumentException.class, () -> HibernateUtil.getSessionFactory(""));
+    }
+
+    @Test
+    void testGetSessionFactoryValidoMigraYValidaEsquema() {
+        Session session = HibernateUtil.getSessionFactory(CONFIG_PRODUCCION).openSession();
+        try {
+            assertEquals(0L, session.createQuery("SELECT COUNT(P) FROM Partida P", Long.class).uniqueResult());
+            assertEquals(1, contarVersiones(session));
+        } finally {
+            session.close();
+        }
+
+        // En el segundo arranque el esquema ya está al día y no se vuelve a migrar
+        HibernateUtil.shutdown(CONFIG_PRODUCCION);
+        session = HibernateUtil.getSessionFactory(CONFIG_PRODUCCION).openSession();
+        try {
+            assertEquals(1, contarVersiones(session));
+        } finally {
+            session.close();
+        }
+    }
+
+    @Test
+    void testIniciarEnSegundoPlanoValidoMismaInstancia() {
+        CompletableFuture<SessionFactory> arranque = HibernateUtil.iniciarEnSegundoPlano(CONFIG_FILE);
+
+        SessionFactory factory = HibernateUtil.getSessionFactory(CONFIG_FILE);
+        assertSame(factory, arranque.join());
+        assertSame(arranque, HibernateUtil.iniciarEnSegundoPlano(CONFIG_FILE));
+    }
+
+    @Test
+    void testShutdownValidoDuranteArranque() {
+        CompletableFuture<SessionFactory> arranque = HibernateUtil.iniciarEnSegundoPlano(CONFIG_FILE);
+        HibernateUtil.shutdown(CONFIG_FILE);
+
+        assertTrue(arranque.join().isClosed());
+    }
+
+    @Test
+    void testGetSessionFactoryNoValidoConfigInexistenteNoSeRegistra() {
+        assertThrows(RuntimeException.class, () -> HibernateUtil.getSessionFactory("no-existe.cfg.xml"));
+        assertThrows(RuntimeException.class, () -> HibernateUtil.getSessionFactory("no-existe.cfg.xml"));
+        assertThrows(CompletionException.class, HibernateUtil.iniciarEnSegundoPlano("no-existe.cfg.xml")::join);
+    }
+
+    @Test
+    void testIniciarEnSegundoPlanoNoValidoConfigNula() {
+        assertThrows(IllegalArgumentException.class, () -> HibernateUtil.iniciarEnSegundoPlano(null));
+        assertThrows(IllegalArgumentException.class, () -> HibernateUtil.iniciarEnSegundoPlano(""));
+    }
+
+    private int contarVersiones(Session session) {
+        return ((Number) session.createNativeQuery("SELECT COUNT(*) FROM " + MigradorEsquema.TABLA_VERSIONES)
+                .uniqueResult()).intValue();
+    }
+}
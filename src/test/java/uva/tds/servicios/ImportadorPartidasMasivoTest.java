@@ -0,0 +1,190 @@
+package uva.tds.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import uva.tds.ejecutores.LectorPartidaJSON;
+import uva.tds.entidades.EstadisticasJugador;
+import uva.tds.entidades.Partida;
+
+/**
+ * Tests para la clase ImportadorPartidasMasivo.
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ImportadorPartidasMasivoTest {
+
+    private static final String CONFIG_FILE = "hibernate-test.cfg.xml";
+
+    private LectorPartidaJSON lectorJSON;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Session session = HibernateUtil.getSessionFactory(CONFIG_FILE).openSession();
+        try {
+            session.beginTransaction();
+            session.createNativeQuery("TRUNCATE SCHEMA PUBLIC AND COMMIT NO CHECK").executeUpdate();
+        } finally {
+            session.close();
+        }
+        lectorJSON = new LectorPartidaJSON("src/test/resources/partida_escoba1.json");
+    }
+
+    @AfterAll
+    void tearDown() {
+        HibernateUtil.shutdown();
+    }
+
+    @Test
+    void testImportarValidoVariosLotes() {
+        ImportadorPartidasMasivo importador = new ImportadorPartidasMasivo(CONFIG_FILE, 2);
+        List<Partida> partidas = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            partidas.add(crearPartida("p-masiva-" + i));
+        }
+
+        int importadas = importador.importar(partidas);
+
+        assertEquals(5, importadas);
+        assertEquals(5, contarFilas("partidas"));
+        assertEquals(5, contarFilas("resumen_partida"));
+        assertEquals(5 * 12, contarFilas("manos"));
+        assertEquals(5 * 6, contarFilas("rondas"));
+        assertEquals(5 * 36, contarFilas("turnos"));
+        assertEquals(5 * 36, contarFilas("jugadas"));
+        assertEquals(5 * 4, contarFilas("partida_mesa"));
+        assertEquals(5 * 36, contarFilas("mano_cartas"));
+    }
+
+    @Test
+    void testImportarValidoRelacionesEnlazadas() {
+        ImportadorPartidasMasivo importador = new ImportadorPartidasMasivo(CONFIG_FILE);
+        importador.importar(Arrays.asList(crearPartida("p-masiva-1")));
+
+        assertEquals(0, contarFilasSinPadre("rondas", "partida_id"));
+        assertEquals(0, contarFilasSinPadre("turnos", "ronda_id"));
+        assertEquals(0, contarFilasSinPadre("manos", "partida_id"));
+    }
+
+    @Test
+    void testImportarValidoCartasConIdentificadorNoSeVuelvenAInsertar() {
+        ImportadorPartidasMasivo importador = new ImportadorPartidasMasivo(CONFIG_FILE);
+        Partida primera = crearPartida("p-masiva-1");
+        importador.importar(Arrays.asList(primera));
+        long cartas = contarFilas("cartas");
+
+        // La mesa inicial de la segunda partida son las cartas ya guardadas de la primera
+        Partida segunda = crearPartida("p-masiva-2");
+        segunda.añadirMesaInicial(primera.getMesaInicial());
+        importador.importar(Arrays.asList(segunda));
+
+        assertEquals(cartas + (cartas - 4), contarFilas("cartas"));
+        assertEquals(2 * 4, contarFilas("partida_mesa"));
+    }
+
+    @Test
+    void testImportarValidoActualizaEstadisticas() {
+        ImportadorPartidasMasivo importador = new ImportadorPartidasMasivo(CONFIG_FILE, 2);
+        LocalDate fecha = LocalDate.of(2024, 3, 1);
+        importador.importar(Arrays.asList(PartidasDePrueba.crearPartida("e-1", fecha, "Luis", "Ana", 8, 4)));
+
+        // Ana y Luis ya tienen estadísticas; Maria no
+        importador.importar(Arrays.asList(PartidasDePrueba.crearPartida("e-2", fecha, "Ana", "Luis", 7, 5),
+                PartidasDePrueba.crearPartida("e-3", fecha, "Maria", "Ana", 9, 2),
+                PartidasDePrueba.crearPartida("e-4", fecha, "Ana", "Maria", 6, 1)));
+
+        RepositorioPartidaHibernate repositorio = new RepositorioPartidaHibernate(CONFIG_FILE);
+        EstadisticasJugador ana = repositorio.obtenerEstadisticasJugador("Ana");
+        assertEquals(4, ana.getJugadas());
+        assertEquals(2, ana.getGanadas());
+        assertEquals(2, ana.getPerdidas());
+        assertEquals(1, repositorio.obtenerEstadisticasJugador("Luis").getGanadas());
+        assertEquals(1, repositorio.obtenerEstadisticasJugador("Luis").getPerdidas());
+        assertEquals(2, repositorio.obtenerEstadisticasJugador("Maria").getJugadas());
+        assertEquals(1, repositorio.obtenerEstadisticasJugador("Maria").getGanadas());
+    }
+
+    @Test
+    void testImportarValidoIteradorVacio() {
+        ImportadorPartidasMasivo importador = new ImportadorPartidasMasivo(CONFIG_FILE);
+        assertEquals(0, importador.importar(new ArrayList<Partida>().iterator()));
+        assertEquals(0, contarFilas("partidas"));
+    }
+
+    @Test
+    void testImportarNoValidoIdDuplicadoConservaLotesAnteriores() {
+        ImportadorPartidasMasivo importador = new ImportadorPartidasMasivo(CONFIG_FILE, 1);
+        List<Partida> partidas = Arrays.asList(crearPartida("p-masiva-1"), crearPartida("p-masiva-1"));
+
+        assertThrows(IllegalStateException.class, () -> importador.importar(partidas));
+        assertEquals(1, contarFilas("partidas"));
+    }
+
+    @Test
+    void testImportarNoValidoPartidasNulas() {
+        ImportadorPartidasMasivo importador = new ImportadorPartidasMasivo(CONFIG_FILE);
+        assertThrows(IllegalArgumentException.class, () -> importador.importar((Iterable<Partida>) null));
+        assertThrows(IllegalArgumentException.class, () -> importador.importar((Iterator<Partida>) null));
+    }
+
+    @Test
+    void testImportarNoValidoPartidaNula() {
+        ImportadorPartidasMasivo importador = new ImportadorPartidasMasivo(CONFIG_FILE);
+        List<Partida> partidas = Arrays.asList((Partida) null);
+        assertThrows(IllegalArgumentException.class, () -> importador.importar(partidas));
+    }
+
+    @Test
+    void testConstructorNoValidoConfigNula() {
+        assertThrows(IllegalArgumentException.class, () -> new ImportadorPartidasMasivo(null));
+        assertThrows(IllegalArgumentException.class, () -> new ImportadorPartidasMasivo(""));
+    }
+
+    @Test
+    void testConstructorNoValidoTamanoLote() {
+        assertThrows(IllegalArgumentException.class, () -> new ImportadorPartidasMasivo(CONFIG_FILE, 0));
+    }
+
+    @Test
+    void testConstructorValidoTamanoLote() {
+        assertEquals(10, new ImportadorPartidasMasivo(CONFIG_FILE, 10).getTamanoLote());
+    }
+
+    private Partida crearPartida(String id) {
+        return PartidasDePrueba.leerPartida(lectorJSON, id, LocalDate.of(2024, 3, 1));
+    }
+
+    private long contarFilas(String tabla) {
+        Session session = HibernateUtil.getSessionFactory(CONFIG_FILE).openSession();
+        try {
+            return ((Number) session.createNativeQuery("SELECT COUNT(*) FROM " + tabla).uniqueResult()).longValue();
+        } finally {
+            session.close();
+        }
+    }
+
+    private long contarFilasSinPadre(String tabla, String columna) {
+        Session session = HibernateUtil.getSessionFactory(CONFIG_FILE).openSession();
+        try {
+            return ((Number) session.createNativeQuery("SELECT COUNT(*) FROM " + tabla + " WHERE " + columna + " IS NULL")
+                    .uniqueResult()).longValue();
+        } finally {
+            session.close();
+        }
+    }
+}
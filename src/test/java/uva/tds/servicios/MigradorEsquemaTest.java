@@ -0,0 +1,109 @@
+package uva.tds.servicios;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests para la clase MigradorEsquema.
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+class MigradorEsquemaTest {
+
+    private static final String URL = "jdbc:hsqldb:mem:migraciones";
+    private static final String INDICE_ROTO = "db/migracion-rota/indice.txt";
+
+    private ConnectionProvider conexiones;
+
+    @BeforeEach
+    void setUp() {
+        conexiones = new ConnectionProvider() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return DriverManager.getConnection(URL, "SA", "");
+            }
+
+            @Override
+            public void closeConnection(Connection conexion) throws SQLException {
+                conexion.close();
+            }
+
+            @Override
+            public boolean supportsAggressiveRelease() {
+                return false;
+            }
+
+            @Override
+            @SuppressWarnings("rawtypes")
+            public boolean isUnwrappableAs(Class unwrapType) {
+                return false;
+            }
+
+            @Override
+            public <T> T unwrap(Class<T> unwrapType) {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        ejecutar("TRUNCATE SCHEMA PUBLIC AND COMMIT NO CHECK");
+        ejecutar("DROP SCHEMA PUBLIC CASCADE");
+    }
+
+    @Test
+    void testMigrarValidoCadaScriptUnaSolaVez() throws SQLException {
+        assertEquals(1, MigradorEsquema.migrar(conexiones, "db/migracion/indice.txt"));
+        assertEquals(0, MigradorEsquema.migrar(conexiones, "db/migracion/indice.txt"));
+        assertEquals(1, contar("select count(*) from version_esquema where aplicada is not null"));
+    }
+
+    @Test
+    void testMigrarNoValidoScriptFallidoDejaElEsquemaAMedioMigrar() throws SQLException {
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> MigradorEsquema.migrar(conexiones, INDICE_ROTO));
+        assertTrue(e.getMessage().contains("a medio migrar"));
+
+        // HSQLDB ya ha confirmado la primera sentencia del script fallido
+        assertEquals(1, contar("select count(*) from information_schema.tables where table_name = 'TABLA_B'"));
+        assertEquals(1, contar("select count(*) from version_esquema where aplicada is null and version = 2"));
+
+        // No se vuelve a migrar hasta que se revise el esquema
+        e = assertThrows(IllegalStateException.class, () -> MigradorEsquema.migrar(conexiones, INDICE_ROTO));
+        assertTrue(e.getMessage().contains("a medio migrar en la versión 2"));
+    }
+
+    @Test
+    void testMigrarNoValidoArgumentos() {
+        assertThrows(IllegalArgumentException.class, () -> MigradorEsquema.migrar(null, INDICE_ROTO));
+        assertThrows(IllegalArgumentException.class, () -> MigradorEsquema.migrar(conexiones, null));
+        assertThrows(IllegalArgumentException.class, () -> MigradorEsquema.migrar(conexiones, ""));
+        assertThrows(IllegalStateException.class, () -> MigradorEsquema.migrar(conexiones, "no-existe.txt"));
+    }
+
+    private void ejecutar(String sql) throws SQLException {
+        try (Connection conexion = conexiones.getConnection(); Statement sentencia = conexion.createStatement()) {
+            sentencia.execute(sql);
+        }
+    }
+
+    private int contar(String sql) throws SQLException {
+        try (Connection conexion = conexiones.getConnection(); Statement sentencia = conexion.createStatement();
+                ResultSet resultado = sentencia.executeQuery(sql)) {
+            resultado.next();
+            return resultado.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package uva.tds.servicios;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static uva.tds.servicios.PartidasDePrueba.crearPartida;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uva.tds.entidades.Jugador;
+import uva.tds.entidades.Partida;
+import uva.tds.interfaces.PerfilCarga;
+
+/**
+ * Tests de la clase ParticionesHibernate
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+class ParticionesHibernateTest {
+
+    private static final String CONFIG_FILE = "hibernate-test.cfg.xml";
+    private static final YearMonth ENERO = YearMonth.of(2024, 1);
+    private static final YearMonth MARZO = YearMonth.of(2024, 3);
+
+    private ParticionesHibernate particiones;
+
+    @BeforeEach
+    void setUp() {
+        particiones = new ParticionesHibernate(CONFIG_FILE, "prueba");
+        for (YearMonth mes : particiones.getParticionesExistentes()) {
+            particiones.eliminar(mes, null);
+        }
+        try (Session session = HibernateUtil.getSessionFactory(CONFIG_FILE).openSession()) {
+            session.beginTransaction();
+            session.createNativeQuery("TRUNCATE SCHEMA PUBLIC AND COMMIT NO CHECK").executeUpdate();
+        }
+    }
+
+    @AfterAll
+    static void cerrarHibernate() {
+        HibernateUtil.shutdown();
+    }
+
+    @Test
+    void testConstructorNoValido() {
+        assertThrows(IllegalArgumentException.class, () -> new ParticionesHibernate(null, "prueba"));
+        assertThrows(IllegalArgumentException.class, () -> new ParticionesHibernate("", "prueba"));
+        assertThrows(IllegalArgumentException.class, () -> new ParticionesHibernate(CONFIG_FILE, null));
+        assertThrows(IllegalArgumentException.class, () -> new ParticionesHibernate(CONFIG_FILE, "1; DROP"));
+    }
+
+    @Test
+    void testGetEsquemaValido() {
+        assertEquals("PRUEBA_2024_03", particiones.getEsquema(MARZO));
+        assertThrows(IllegalArgumentException.class, () -> particiones.getEsquema(null));
+    }
+
+    @Test
+    void testGuardarValidoEnElEsquemaDelMes() {
+        RepositorioPartidaParticionado repositorio = particiones.crearRepositorio();
+
+        repositorio.guardar(crearPartida("e-1", ENERO.atDay(10), "Ana", "Luis", 8, 4));
+        repositorio.guardar(crearPartida("e-2", ENERO.atDay(20), "Ana", "Maria", 7, 5));
+        repositorio.guardar(crearPartida("m-1", MARZO.atDay(5), "Ana", "Maria", 2, 10));
+
+        assertEquals(List.of(ENERO, MARZO), particiones.getParticionesExistentes());
+        assertEquals(2, contarFilas("PRUEBA_2024_01.partidas"));
+        assertEquals(1, contarFilas("PRUEBA_2024_03.partidas"));
+        assertEquals(0, contarFilas("PUBLIC.partidas"));
+        assertEquals(2, repositorio.obtenerEstadisticasJugador("Ana").getGanadas());
+    }
+
+    @Test
+    void testCrearRepositorioValidoAbreLasParticionesExistentes() {
+        RepositorioPartidaParticionado anterior = particiones.crearRepositorio();
+        anterior.guardar(crearPartida("m-1", MARZO.atDay(5), "Ana", "Maria", 2, 10));
+
+        RepositorioPartidaParticionado repositorio = new ParticionesHibernate(CONFIG_FILE, "prueba")
+                .crearRepositorio();
+
+        assertEquals(List.of(MARZO), repositorio.getParticiones());
+        Partida partida = repositorio.cargar("m-1", PerfilCarga.RESUMEN);
+        partida.getResumenPartida().establecerResultados(new Jugador("Ana"), new Jugador("Maria"), 11, 10);
+        repositorio.actualizar(partida);
+        assertEquals(1, repositorio.obtenerEstadisticasJugador("Ana").getGanadas());
+    }
+
+    @Test
+    void testEliminarParticionValidoBorraElEsquema() {
+        RepositorioPartidaParticionado repositorio = particiones.crearRepositorio();
+        repositorio.guardar(crearPartida("e-1", ENERO.atDay(10), "Ana", "Luis", 8, 4));
+        repositorio.guardar(crearPartida("m-1", MARZO.atDay(5), "Ana", "Maria", 2, 10));
+
+        assertEquals(List.of(ENERO), repositorio.eliminarParticionesAnterioresA(MARZO.atDay(1)));
+
+        assertEquals(List.of(MARZO), particiones.getParticionesExistentes());
+        assertThrows(IllegalStateException.class, () -> repositorio.cargar("e-1"));
+        assertEquals(1, repositorio.obtenerEstadisticasJugador("Ana").getJugadas());
+    }
+
+    private long contarFilas(String tabla) {
+        try (Session session = HibernateUtil.getSessionFactory(CONFIG_FILE).openSession()) {
+            return ((Number) session.createNativeQuery("SELECT COUNT(*) FROM " + tabla).uniqueResult()).longValue();
+        }
+    }
+}
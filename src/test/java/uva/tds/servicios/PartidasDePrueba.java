@@ -0,0 +1,82 @@
+package uva.tds.servicios;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import uva.tds.ejecutores.LectorPartidaJSON;
+import uva.tds.entidades.Carta;
+import uva.tds.entidades.Jugador;
+import uva.tds.entidades.Partida;
+import uva.tds.entidades.ResumenPartida;
+import uva.tds.entidades.Ronda;
+import uva.tds.entidades.Turno;
+
+/**
+ * Partidas de ejemplo compartidas por los tests de los repositorios y de los
+ * servicios que los usan.
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+final class PartidasDePrueba {
+
+    private PartidasDePrueba() {
+    }
+
+    /**
+     * Partida completa sin rondas, solo con el resumen y el resultado indicado.
+     *
+     * @param id       identificador de la partida
+     * @param fecha    fecha de la partida
+     * @param jugador1 nombre del primer jugador
+     * @param jugador2 nombre del segundo jugador
+     * @param puntos1  puntos del primer jugador
+     * @param puntos2  puntos del segundo jugador
+     * @return partida con su resumen
+     */
+    static Partida crearPartida(String id, LocalDate fecha, String jugador1, String jugador2, int puntos1,
+            int puntos2) {
+        Partida partida = new Partida(id, fecha, jugador1, jugador2);
+        ResumenPartida resumen = new ResumenPartida(id, fecha, jugador1, jugador2);
+        resumen.marcarComoCompleta();
+        resumen.establecerResultados(new Jugador(jugador1), new Jugador(jugador2), puntos1, puntos2);
+        partida.setResumenPartida(resumen);
+        return partida;
+    }
+
+    /**
+     * Partida completa leída del fichero de ejemplo, con todas sus rondas, la
+     * fecha indicada y un resumen sin resultados.
+     *
+     * @param lector lector del fichero de ejemplo
+     * @param id     identificador de la partida
+     * @param fecha  fecha de la partida
+     * @return partida con sus rondas y su resumen
+     */
+    static Partida leerPartida(LectorPartidaJSON lector, String id, LocalDate fecha) {
+        ArrayList<String> nombres = lector.extraerNombresJugadores();
+        Partida partida = new Partida(id, fecha, nombres.get(0), nombres.get(1));
+        partida.añadirMesaInicial(lector.extraerMesaInicial());
+        ArrayList<ArrayList<Carta>> manos1 = new ArrayList<>();
+        ArrayList<ArrayList<Carta>> manos2 = new ArrayList<>();
+        List<Ronda> rondas = new ArrayList<>();
+        for (int ronda = 1; ronda <= 6; ronda++) {
+            manos1.add(lector.extraerManoJugador(ronda, nombres.get(0)));
+            manos2.add(lector.extraerManoJugador(ronda, nombres.get(1)));
+            List<Turno> turnos = new ArrayList<>();
+            for (int turno = 1; turno <= 6; turno++) {
+                turnos.add(new Turno(turno, lector.extraerJugada(ronda, turno)));
+            }
+            rondas.add(new Ronda(ronda, turnos));
+        }
+        partida.añadirManoJugador1(manos1);
+        partida.añadirManoJugador2(manos2);
+        partida.anadirRondas(rondas);
+
+        ResumenPartida resumen = new ResumenPartida(id, fecha, nombres.get(0), nombres.get(1));
+        resumen.marcarComoCompleta();
+        partida.setResumenPartida(resumen);
+        return partida;
+    }
+}
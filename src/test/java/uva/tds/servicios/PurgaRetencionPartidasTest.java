@@ -0,0 +1,245 @@
+package uva.tds.servicios;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.io.TempDir;
+
+import uva.tds.ejecutores.LectorPartidaJSON;
+import uva.tds.entidades.EstadisticasJugador;
+import uva.tds.entidades.Jugador;
+import uva.tds.entidades.Partida;
+import uva.tds.interfaces.PerfilCarga;
+
+/**
+ * Tests para la clase PurgaRetencionPartidas.
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class PurgaRetencionPartidasTest {
+
+    private static final String CONFIG_FILE = "hibernate-test.cfg.xml";
+    private static final LocalDate CORTE = LocalDate.of(2024, 1, 1);
+
+    @TempDir
+    Path archivo;
+
+    private LectorPartidaJSON lectorJSON;
+    private RepositorioPartidaHibernate repositorio;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Session session = HibernateUtil.getSessionFactory(CONFIG_FILE).openSession();
+        try {
+            session.beginTransaction();
+            session.createNativeQuery("TRUNCATE SCHEMA PUBLIC AND COMMIT NO CHECK").executeUpdate();
+        } finally {
+            session.close();
+        }
+        HibernateUtil.getSessionFactory(CONFIG_FILE).getCache().evictAllRegions();
+        lectorJSON = new LectorPartidaJSON("src/test/resources/partida_escoba1.json");
+        repositorio = new RepositorioPartidaHibernate(CONFIG_FILE);
+    }
+
+    @AfterAll
+    void tearDown() {
+        HibernateUtil.shutdown();
+    }
+
+    @Test
+    void testPurgarValidoArchivaYEliminaAnteriores() {
+        guardarPartidas(3, LocalDate.of(2023, 6, 1));
+        repositorio.guardar(crearPartida("nueva", CORTE));
+        repositorio.cargar("antigua-0", PerfilCarga.RESUMEN);
+        List<PurgaRetencionPartidas.Progreso> avances = new ArrayList<>();
+
+        PurgaRetencionPartidas.Progreso progreso = new PurgaRetencionPartidas(CONFIG_FILE, archivo, 2, 0)
+                .purgar(CORTE, avances::add);
+
+        assertEquals(3, progreso.getPurgadas());
+        assertEquals(3, progreso.getTotal());
+        assertEquals(2, progreso.getLotes());
+        assertTrue(progreso.isTerminada());
+        assertEquals(List.of(2L, 3L), avances.stream().map(PurgaRetencionPartidas.Progreso::getPurgadas)
+                .collect(Collectors.toList()));
+
+        assertEquals(1, contarFilas("partidas"));
+        assertEquals(1, contarFilas("resumen_partida"));
+        assertEquals(12, contarFilas("manos"));
+        assertEquals(6, contarFilas("rondas"));
+        assertEquals(36, contarFilas("turnos"));
+        assertEquals(36, contarFilas("jugadas"));
+        assertEquals(4, contarFilas("partida_mesa"));
+        assertEquals(36, contarFilas("mano_cartas"));
+        assertEquals(contarFilasDeJugadas("jugada_captura"), contarFilas("jugada_captura"));
+        assertEquals(contarFilasDeJugadas("jugada_mesa_resultante"), contarFilas("jugada_mesa_resultante"));
+        assertThrows(IllegalStateException.class,
+                () -> repositorio.cargar("antigua-0", PerfilCarga.RESUMEN));
+        assertEquals("nueva", repositorio.cargar("nueva").getId());
+
+        assertEquals(List.of("antigua-0", "antigua-1", "antigua-2"), idsArchivados());
+    }
+
+    @Test
+    void testPurgarValidoRestaEstadisticas() {
+        guardarPartidas(2, LocalDate.of(2023, 6, 1));
+        Partida nueva = crearPartida("nueva", CORTE);
+        repositorio.guardar(nueva);
+
+        new PurgaRetencionPartidas(CONFIG_FILE, archivo).purgar(CORTE);
+
+        EstadisticasJugador estadisticas = repositorio.obtenerEstadisticasJugador(nueva.getJugador1());
+        assertEquals(1, estadisticas.getJugadas());
+        assertEquals(1, estadisticas.getGanadas());
+        assertEquals(0, estadisticas.getPerdidas());
+    }
+
+    @Test
+    void testPurgarValidoDetenerYReanudar() {
+        guardarPartidas(5, LocalDate.of(2023, 6, 1));
+        PurgaRetencionPartidas purga = new PurgaRetencionPartidas(CONFIG_FILE, archivo, 2, 0);
+
+        PurgaRetencionPartidas.Progreso primera = purga.purgar(CORTE, progreso -> purga.detener());
+        assertEquals(2, primera.getPurgadas());
+        assertFalse(primera.isTerminada());
+        assertEquals(3, contarFilas("partidas"));
+
+        PurgaRetencionPartidas.Progreso segunda = purga.purgar(CORTE);
+        assertEquals(3, segunda.getPurgadas());
+        assertEquals(3, segunda.getTotal());
+        assertTrue(segunda.isTerminada());
+
+        assertEquals(0, contarFilas("partidas"));
+        assertEquals(List.of("antigua-0", "antigua-1", "antigua-2", "antigua-3", "antigua-4"), idsArchivados());
+    }
+
+    @Test
+    void testPurgarValidoLoteInterrumpidoSeRecupera() throws IOException {
+        guardarPartidas(1, LocalDate.of(2023, 6, 1));
+        // Lote cuya transacción se confirmó pero no llegó a renombrarse
+        escribirTemporal("partidas-000001.jsonl.gz.tmp", "borrada");
+        // Lote cuya transacción se deshizo: sus partidas siguen en la base de datos
+        escribirTemporal("partidas-000002.jsonl.gz.tmp", "antigua-0");
+
+        new PurgaRetencionPartidas(CONFIG_FILE, archivo).purgar(CORTE);
+
+        assertTrue(Files.exists(archivo.resolve("partidas-000001.jsonl.gz")));
+        assertFalse(Files.exists(archivo.resolve("partidas-000002.jsonl.gz.tmp")));
+        assertEquals(List.of("borrada", "antigua-0"), idsArchivados());
+    }
+
+    @Test
+    void testPurgarValidoNadaQuePurgar() {
+        repositorio.guardar(crearPartida("nueva", CORTE));
+
+        PurgaRetencionPartidas.Progreso progreso = new PurgaRetencionPartidas(CONFIG_FILE, archivo).purgar(CORTE);
+
+        assertEquals(0, progreso.getPurgadas());
+        assertEquals(0, progreso.getLotes());
+        assertTrue(progreso.isTerminada());
+        assertEquals(1, contarFilas("partidas"));
+    }
+
+    @Test
+    void testPurgarValidoLimitaVelocidad() {
+        guardarPartidas(4, LocalDate.of(2023, 6, 1));
+        long inicio = System.nanoTime();
+
+        new PurgaRetencionPartidas(CONFIG_FILE, archivo, 1, 20).purgar(CORTE);
+
+        assertTrue(System.nanoTime() - inicio >= 150_000_000L);
+        assertEquals(0, contarFilas("partidas"));
+    }
+
+    @Test
+    void testPurgarNoValido() {
+        PurgaRetencionPartidas purga = new PurgaRetencionPartidas(CONFIG_FILE, archivo);
+        assertThrows(IllegalArgumentException.class, () -> purga.purgar(null));
+        assertThrows(IllegalArgumentException.class, () -> purga.purgar(CORTE, null));
+        assertThrows(IllegalArgumentException.class, () -> PurgaRetencionPartidas.leerIdentificadores(null));
+    }
+
+    @Test
+    void testConstructorNoValido() {
+        assertThrows(IllegalArgumentException.class, () -> new PurgaRetencionPartidas(null, archivo));
+        assertThrows(IllegalArgumentException.class, () -> new PurgaRetencionPartidas("", archivo));
+        assertThrows(IllegalArgumentException.class, () -> new PurgaRetencionPartidas(CONFIG_FILE, null));
+        assertThrows(IllegalArgumentException.class, () -> new PurgaRetencionPartidas(CONFIG_FILE, archivo, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new PurgaRetencionPartidas(CONFIG_FILE, archivo, 1, -1));
+    }
+
+    private void guardarPartidas(int numero, LocalDate fecha) {
+        for (int i = 0; i < numero; i++) {
+            repositorio.guardar(crearPartida("antigua-" + i, fecha.plusDays(i)));
+        }
+    }
+
+    /**
+     * Partida del fichero de ejemplo con la fecha dada, ganada por el primer
+     * jugador.
+     */
+    private Partida crearPartida(String id, LocalDate fecha) {
+        Partida partida = PartidasDePrueba.leerPartida(lectorJSON, id, fecha);
+        partida.getResumenPartida().establecerResultados(new Jugador(partida.getJugador1()),
+                new Jugador(partida.getJugador2()), 6, 4);
+        return partida;
+    }
+
+    private void escribirTemporal(String nombre, String id) throws IOException {
+        try (Writer escritor = new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(archivo.resolve(nombre))), StandardCharsets.UTF_8)) {
+            escritor.write("{\"id\":\"" + id + "\"}\n");
+        }
+    }
+
+    private List<String> idsArchivados() {
+        try (Stream<Path> ficheros = Files.list(archivo)) {
+            return ficheros.sorted()
+                    .flatMap(fichero -> PurgaRetencionPartidas.leerIdentificadores(fichero).stream())
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private long contarFilas(String tabla) {
+        Session session = HibernateUtil.getSessionFactory(CONFIG_FILE).openSession();
+        try {
+            return ((Number) session.createNativeQuery("SELECT COUNT(*) FROM " + tabla).uniqueResult()).longValue();
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Cuenta las filas de una tabla de jugadas cuya jugada sigue existiendo.
+     */
+    private long contarFilasDeJugadas(String tabla) {
+        Session session = HibernateUtil.getSessionFactory(CONFIG_FILE).openSession();
+        try {
+            return ((Number) session.createNativeQuery("SELECT COUNT(*) FROM " + tabla + " X JOIN jugadas J "
+                    + "ON X.jugada_id = J.id").uniqueResult()).longValue();
+        } finally {
+            session.close();
+        }
+    }
+}
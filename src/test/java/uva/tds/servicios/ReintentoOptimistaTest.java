@@ -0,0 +1,75 @@
+package uva.tds.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import uva.tds.interfaces.PartidaModificadaException;
+
+/**
+ * Tests de la clase ReintentoOptimista
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+class ReintentoOptimistaTest {
+
+    @Test
+    void testConstructorValido() {
+        assertEquals(3, new ReintentoOptimista(3, 10).getMaxIntentos());
+    }
+
+    @Test
+    void testConstructorNoValidoParametros() {
+        assertThrows(IllegalArgumentException.class, () -> new ReintentoOptimista(0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new ReintentoOptimista(3, -1));
+    }
+
+    @Test
+    void testEjecutarValidoReintentaHastaConseguirlo() {
+        AtomicInteger intentos = new AtomicInteger();
+
+        String resultado = new ReintentoOptimista(3, 1).ejecutar(() -> {
+            if (intentos.incrementAndGet() < 3) {
+                throw new PartidaModificadaException("p-1", null);
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", resultado);
+        assertEquals(3, intentos.get());
+    }
+
+    @Test
+    void testEjecutarNoValidoAgotaIntentos() {
+        AtomicInteger intentos = new AtomicInteger();
+        ReintentoOptimista reintento = new ReintentoOptimista(2, 0);
+
+        assertThrows(PartidaModificadaException.class, () -> reintento.ejecutar(() -> {
+            intentos.incrementAndGet();
+            throw new PartidaModificadaException("p-1", null);
+        }));
+        assertEquals(2, intentos.get());
+    }
+
+    @Test
+    void testEjecutarNoValidoOtraExcepcionNoSeReintenta() {
+        AtomicInteger intentos = new AtomicInteger();
+        ReintentoOptimista reintento = new ReintentoOptimista(3, 0);
+
+        assertThrows(IllegalStateException.class, () -> reintento.ejecutar(() -> {
+            intentos.incrementAndGet();
+            throw new IllegalStateException("No existe");
+        }));
+        assertEquals(1, intentos.get());
+    }
+
+    @Test
+    void testEjecutarNoValidoOperacionNula() {
+        ReintentoOptimista reintento = new ReintentoOptimista(3, 0);
+        assertThrows(IllegalArgumentException.class, () -> reintento.ejecutar((Runnable) null));
+    }
+}
@@ -0,0 +1,234 @@
+package uva.tds.servicios;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.easymock.EasyMock;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uva.tds.entidades.Partida;
+import uva.tds.interfaces.PerfilCarga;
+import uva.tds.interfaces.RepositorioPartida;
+
+/**
+ * Tests de la clase RepositorioPartidaAsync
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+class RepositorioPartidaAsyncTest {
+
+    private RepositorioPartida repositorio;
+    private RepositorioPartidaAsync asincrono;
+    private Partida partida;
+
+    @BeforeEach
+    void setUp() {
+        repositorio = EasyMock.mock(RepositorioPartida.class);
+        partida = new Partida("p-async", LocalDate.of(2024, 3, 1), "Ana", "Luis");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (asincrono != null) {
+            asincrono.close();
+        }
+    }
+
+    @AfterAll
+    static void cerrarHibernate() {
+        HibernateUtil.shutdown();
+    }
+
+    @Test
+    void testConstructorNoValidoRepositorioNulo() {
+        assertThrows(IllegalArgumentException.class, () -> new RepositorioPartidaAsync(null));
+    }
+
+    @Test
+    void testConstructorNoValidoLimiteConcurrencia() {
+        assertThrows(IllegalArgumentException.class, () -> new RepositorioPartidaAsync(repositorio, 0));
+    }
+
+    @Test
+    void testConstructorValidoLimitePorDefecto() {
+        asincrono = new RepositorioPartidaAsync(repositorio);
+        assertEquals(RepositorioPartidaAsync.LIMITE_CONCURRENCIA_POR_DEFECTO, asincrono.getLimiteConcurrencia());
+        assertFalse(asincrono.isCerrado());
+    }
+
+    @Test
+    void testConstructorValidoLimiteDelPoolDeHibernate() {
+        asincrono = new RepositorioPartidaAsync(new RepositorioPartidaHibernate("hibernate-test.cfg.xml"));
+        assertEquals(4, asincrono.getLimiteConcurrencia());
+    }
+
+    @Test
+    void testGuardarLoteValido() {
+        List<Partida> partidas = List.of(partida);
+        repositorio.guardarLote(partidas);
+        expectLastCall();
+        replay(repositorio);
+        asincrono = new RepositorioPartidaAsync(repositorio);
+
+        asincrono.guardarLote(partidas).join();
+
+        verify(repositorio);
+    }
+
+    @Test
+    void testObtenerVictoriasPorJugadorValido() {
+        expect(repositorio.obtenerVictoriasPorJugador()).andReturn(Map.of("Ana", 2));
+        replay(repositorio);
+        asincrono = new RepositorioPartidaAsync(repositorio);
+
+        assertEquals(Map.of("Ana", 2), asincrono.obtenerVictoriasPorJugador().join());
+        verify(repositorio);
+    }
+
+    @Test
+    void testEnTransaccionValidoEjecutaElTrabajoEnElRepositorio() {
+        asincrono = new RepositorioPartidaAsync(new RepositorioPartidaMemoria());
+
+        long partidas = asincrono.enTransaccion(r -> {
+            r.guardar(partida);
+            return r.contarPartidasEntreFechas(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31));
+        }).join();
+
+        assertEquals(1L, partidas);
+        assertNotNull(asincrono.cargar("p-async").join());
+    }
+
+    @Test
+    void testEnTransaccionNoValidoPropagaExcepcion() {
+        asincrono = new RepositorioPartidaAsync(new RepositorioPartidaMemoria());
+
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> asincrono.enTransaccion(r -> r.cargar("no-existe")).join());
+        assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+
+    @Test
+    void testGuardarValido() {
+        repositorio.guardar(partida);
+        expectLastCall();
+        replay(repositorio);
+        asincrono = new RepositorioPartidaAsync(repositorio);
+
+        asincrono.guardar(partida).join();
+
+        verify(repositorio);
+    }
+
+    @Test
+    void testCargarValidoDevuelvePartida() {
+        expect(repositorio.cargar("p-async", PerfilCarga.RESUMEN)).andReturn(partida);
+        replay(repositorio);
+        asincrono = new RepositorioPartidaAsync(repositorio);
+
+        assertSame(partida, asincrono.cargar("p-async", PerfilCarga.RESUMEN).join());
+        verify(repositorio);
+    }
+
+    @Test
+    void testContarPartidasValido() {
+        LocalDate inicio = LocalDate.of(2024, 1, 1);
+        LocalDate fin = LocalDate.of(2024, 12, 31);
+        expect(repositorio.contarPartidasEntreFechas(inicio, fin)).andReturn(3L);
+        replay(repositorio);
+        asincrono = new RepositorioPartidaAsync(repositorio);
+
+        assertEquals(3L, asincrono.contarPartidasEntreFechas(inicio, fin).join());
+        verify(repositorio);
+    }
+
+    @Test
+    void testGuardarNoValidoPropagaExcepcion() {
+        repositorio.guardar(partida);
+        expectLastCall().andThrow(new IllegalStateException("Ya existe"));
+        replay(repositorio);
+        asincrono = new RepositorioPartidaAsync(repositorio);
+
+        CompletableFuture<Void> futuro = asincrono.guardar(partida);
+
+        CompletionException e = assertThrows(CompletionException.class, futuro::join);
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        assertTrue(futuro.isCompletedExceptionally());
+        verify(repositorio);
+    }
+
+    @Test
+    void testGuardarNoValidoRepositorioCerrado() {
+        replay(repositorio);
+        asincrono = new RepositorioPartidaAsync(repositorio);
+        asincrono.close();
+
+        CompletionException e = assertThrows(CompletionException.class, () -> asincrono.guardar(partida).join());
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        assertTrue(asincrono.isCerrado());
+    }
+
+    @Test
+    void testCerrarValidoEsperaOperacionesPendientes() {
+        AtomicInteger guardadas = new AtomicInteger();
+        repositorio.guardar(partida);
+        expectLastCall().andAnswer(() -> {
+            Thread.sleep(50);
+            guardadas.incrementAndGet();
+            return null;
+        }).times(3);
+        replay(repositorio);
+        asincrono = new RepositorioPartidaAsync(repositorio, 1);
+
+        for (int i = 0; i < 3; i++) {
+            asincrono.guardar(partida);
+        }
+        asincrono.close();
+
+        assertEquals(3, guardadas.get());
+        verify(repositorio);
+    }
+
+    @Test
+    void testGuardarValidoRespetaLimiteConcurrencia() throws InterruptedException {
+        int limite = 2;
+        int operaciones = 8;
+        AtomicInteger enCurso = new AtomicInteger();
+        AtomicInteger maximo = new AtomicInteger();
+        CountDownLatch terminadas = new CountDownLatch(operaciones);
+        repositorio.guardar(partida);
+        expectLastCall().andAnswer(() -> {
+            int actuales = enCurso.incrementAndGet();
+            maximo.accumulateAndGet(actuales, Math::max);
+            Thread.sleep(20);
+            enCurso.decrementAndGet();
+            terminadas.countDown();
+            return null;
+        }).times(operaciones);
+        replay(repositorio);
+        asincrono = new RepositorioPartidaAsync(repositorio, limite);
+
+        List<CompletableFuture<Void>> futuros = new ArrayList<>();
+        for (int i = 0; i < operaciones; i++) {
+            futuros.add(asincrono.guardar(partida));
+        }
+        CompletableFuture.allOf(futuros.toArray(new CompletableFuture[0])).join();
+
+        assertTrue(terminadas.await(1, TimeUnit.SECONDS));
+        assertTrue(maximo.get() <= limite);
+        verify(repositorio);
+    }
+}
@@ -0,0 +1,332 @@
+package uva.tds.servicios;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.easymock.EasyMock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uva.tds.entidades.Carta;
+import uva.tds.entidades.Jugada;
+import uva.tds.entidades.Palo;
+import uva.tds.entidades.Partida;
+import uva.tds.entidades.Ronda;
+import uva.tds.entidades.Turno;
+import uva.tds.interfaces.PartidaModificadaException;
+import uva.tds.interfaces.PerfilCarga;
+import uva.tds.interfaces.RepositorioPartida;
+
+/**
+ * Tests de la clase RepositorioPartidaCacheado
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+class RepositorioPartidaCacheadoTest {
+
+    private static final LocalDate FECHA = LocalDate.of(2024, 3, 1);
+
+    private RepositorioPartida delegado;
+    private AtomicLong nanos;
+    private RepositorioPartidaCacheado repositorio;
+
+    @BeforeEach
+    void setUp() {
+        delegado = EasyMock.mock(RepositorioPartida.class);
+        nanos = new AtomicLong();
+        repositorio = new RepositorioPartidaCacheado(delegado, 100, Duration.ofSeconds(30), nanos::get);
+    }
+
+    @Test
+    void testConstructorNoValido() {
+        assertThrows(IllegalArgumentException.class, () -> new RepositorioPartidaCacheado(null));
+        assertThrows(IllegalArgumentException.class,
+                () -> new RepositorioPartidaCacheado(delegado, 0, Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> new RepositorioPartidaCacheado(delegado, 10, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> new RepositorioPartidaCacheado(delegado, 10, Duration.ZERO));
+    }
+
+    @Test
+    void testCargarValidoSegundaVezDesdeCache() {
+        Partida partida = crearPartida("p-1", 0);
+        expect(delegado.cargar("p-1", PerfilCarga.REPRODUCCION)).andReturn(partida).once();
+        replay(delegado);
+
+        Partida primera = repositorio.cargar("p-1");
+        Partida segunda = repositorio.cargar("p-1", PerfilCarga.REPRODUCCION);
+
+        assertEquals("p-1", segunda.getId());
+        assertNotSame(partida, primera);
+        assertNotSame(primera, segunda);
+        assertEquals(1, repositorio.getAciertos());
+        assertEquals(1, repositorio.getFallos());
+        verify(delegado);
+    }
+
+    @Test
+    void testCargarValidoPerfilesSeparados() {
+        expect(delegado.cargar("p-1", PerfilCarga.RESUMEN)).andReturn(crearPartida("p-1", 0)).once();
+        expect(delegado.cargar("p-1", PerfilCarga.REPRODUCCION)).andReturn(crearPartida("p-1", 3)).once();
+        replay(delegado);
+
+        repositorio.cargar("p-1", PerfilCarga.RESUMEN);
+        repositorio.cargar("p-1", PerfilCarga.REPRODUCCION);
+
+        assertEquals(2, repositorio.getFallos());
+        assertEquals(1 + 4, repositorio.getPesoActual());
+        verify(delegado);
+    }
+
+    @Test
+    void testCargarValidoExpulsaPorPeso() {
+        for (int i = 0; i < 5; i++) {
+            expect(delegado.cargar("p-" + i, PerfilCarga.REPRODUCCION)).andReturn(crearPartida("p-" + i, 39));
+        }
+        replay(delegado);
+
+        for (int i = 0; i < 5; i++) {
+            repositorio.cargar("p-" + i);
+        }
+
+        assertEquals(3, repositorio.getExpulsiones());
+        assertTrue(repositorio.getPesoActual() <= 100);
+    }
+
+    @Test
+    void testCargarValidoCargaConcurrenteUnaSolaVez() throws Exception {
+        CountDownLatch cargando = new CountDownLatch(1);
+        CountDownLatch terminar = new CountDownLatch(1);
+        Partida partida = crearPartida("p-1", 0);
+        expect(delegado.cargar("p-1", PerfilCarga.REPRODUCCION)).andAnswer(() -> {
+            cargando.countDown();
+            terminar.await();
+            return partida;
+        }).once();
+        replay(delegado);
+
+        ExecutorService hilos = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Partida>> resultados = new ArrayList<>();
+            resultados.add(hilos.submit(() -> repositorio.cargar("p-1")));
+            assertTrue(cargando.await(1, TimeUnit.SECONDS));
+            for (int i = 0; i < 3; i++) {
+                resultados.add(hilos.submit(() -> repositorio.cargar("p-1")));
+            }
+            Thread.sleep(50);
+            terminar.countDown();
+
+            for (Future<Partida> resultado : resultados) {
+                assertEquals("p-1", resultado.get(1, TimeUnit.SECONDS).getId());
+            }
+        } finally {
+            hilos.shutdownNow();
+        }
+        verify(delegado);
+    }
+
+    @Test
+    void testCargarValidoNoGuardaErrores() {
+        expect(delegado.cargar("p-1", PerfilCarga.REPRODUCCION)).andThrow(new IllegalStateException("No existe"));
+        expect(delegado.cargar("p-1", PerfilCarga.REPRODUCCION)).andReturn(crearPartida("p-1", 0));
+        replay(delegado);
+
+        assertThrows(IllegalStateException.class, () -> repositorio.cargar("p-1"));
+        assertEquals("p-1", repositorio.cargar("p-1").getId());
+        verify(delegado);
+    }
+
+    @Test
+    void testCargarNoValidoParametros() {
+        replay(delegado);
+        assertThrows(IllegalArgumentException.class, () -> repositorio.cargar(null));
+        assertThrows(IllegalArgumentException.class, () -> repositorio.cargar(""));
+        assertThrows(IllegalArgumentException.class, () -> repositorio.cargar("p-1", null));
+    }
+
+    @Test
+    void testActualizarValidoInvalidaPartida() {
+        Partida partida = crearPartida("p-1", 0);
+        expect(delegado.cargar("p-1", PerfilCarga.REPRODUCCION)).andReturn(partida).times(2);
+        delegado.actualizar(partida);
+        replay(delegado);
+
+        repositorio.cargar("p-1");
+        repositorio.actualizar(partida);
+        repositorio.cargar("p-1");
+
+        assertEquals(2, repositorio.getFallos());
+        verify(delegado);
+    }
+
+    @Test
+    void testActualizarNoValidoDosEscritoresConLaMismaLectura() {
+        RepositorioPartidaCacheado cacheado = new RepositorioPartidaCacheado(new RepositorioPartidaMemoria());
+        cacheado.guardar(crearPartida("p-1", 2));
+        Partida primera = cacheado.cargar("p-1");
+        Partida segunda = cacheado.cargar("p-1");
+
+        cacheado.actualizar(primera);
+
+        assertEquals(1, primera.getVersion());
+        assertEquals(0, segunda.getVersion());
+        assertThrows(PartidaModificadaException.class, () -> cacheado.actualizar(segunda));
+        assertEquals(1, cacheado.cargar("p-1").getVersion());
+    }
+
+    @Test
+    void testObtenerPartidasPorJugadorValidoDevuelveCopias() {
+        Partida partida = crearPartida("p-1", 0);
+        partida.setVersion(3);
+        expect(delegado.obtenerPartidasPorJugador("Ana")).andReturn(List.of(partida)).once();
+        replay(delegado);
+
+        repositorio.obtenerPartidasPorJugador("Ana").get(0).setVersion(4);
+
+        assertEquals(3, repositorio.obtenerPartidasPorJugador("Ana").get(0).getVersion());
+        assertEquals(3, partida.getVersion());
+        verify(delegado);
+    }
+
+    @Test
+    void testEliminarValidoInvalidaPartidaYConsultas() {
+        Partida partida = crearPartida("p-1", 0);
+        expect(delegado.cargar("p-1", PerfilCarga.RESUMEN)).andReturn(partida);
+        expect(delegado.obtenerPartidasPorJugador("Ana")).andReturn(List.of(partida)).times(2);
+        delegado.eliminar("p-1");
+        expect(delegado.cargar("p-1", PerfilCarga.RESUMEN)).andThrow(new IllegalStateException("No existe"));
+        replay(delegado);
+
+        repositorio.cargar("p-1", PerfilCarga.RESUMEN);
+        repositorio.obtenerPartidasPorJugador("Ana");
+        repositorio.eliminar("p-1");
+
+        assertThrows(IllegalStateException.class, () -> repositorio.cargar("p-1", PerfilCarga.RESUMEN));
+        repositorio.obtenerPartidasPorJugador("Ana");
+        verify(delegado);
+    }
+
+    @Test
+    void testObtenerPartidasPorJugadorValidoCaducan() {
+        expect(delegado.obtenerPartidasPorJugador("Ana")).andReturn(new ArrayList<>(List.of(crearPartida("p-1", 0))))
+                .times(2);
+        replay(delegado);
+
+        repositorio.obtenerPartidasPorJugador("Ana");
+        List<Partida> cacheada = repositorio.obtenerPartidasPorJugador("Ana");
+        nanos.addAndGet(Duration.ofSeconds(31).toNanos());
+        repositorio.obtenerPartidasPorJugador("Ana");
+
+        assertThrows(UnsupportedOperationException.class, () -> cacheada.add(crearPartida("p-2", 0)));
+        assertEquals(1, repositorio.getAciertosConsultas());
+        assertEquals(2, repositorio.getFallosConsultas());
+        verify(delegado);
+    }
+
+    @Test
+    void testGuardarValidoInvalidaConsultasAfectadas() {
+        Partida nueva = crearPartida("p-2", 0);
+        LocalDate abril = LocalDate.of(2024, 4, 1);
+        LocalDate mayo = LocalDate.of(2024, 5, 1);
+        expect(delegado.obtenerPartidasPorJugador("Ana")).andReturn(List.of()).times(2);
+        expect(delegado.obtenerPartidasPorJugador("Pepe")).andReturn(List.of()).once();
+        expect(delegado.obtenerPartidasPorFecha(FECHA, abril)).andReturn(List.of()).times(2);
+        expect(delegado.obtenerPartidasPorFecha(abril, mayo)).andReturn(List.of()).once();
+        delegado.guardar(nueva);
+        replay(delegado);
+
+        repositorio.obtenerPartidasPorJugador("Ana");
+        repositorio.obtenerPartidasPorJugador("Pepe");
+        repositorio.obtenerPartidasPorFecha(FECHA, abril);
+        repositorio.obtenerPartidasPorFecha(abril, mayo);
+        repositorio.guardar(nueva);
+        repositorio.obtenerPartidasPorJugador("Ana");
+        repositorio.obtenerPartidasPorJugador("Pepe");
+        repositorio.obtenerPartidasPorFecha(FECHA, abril);
+        repositorio.obtenerPartidasPorFecha(abril, mayo);
+
+        verify(delegado);
+    }
+
+    @Test
+    void testGuardarValidoDescartaConsultaEnMarcha() throws Exception {
+        CountDownLatch consultando = new CountDownLatch(1);
+        CountDownLatch terminar = new CountDownLatch(1);
+        LocalDate abril = LocalDate.of(2024, 4, 1);
+        Partida nueva = crearPartida("p-2", 0);
+        // La primera consulta lee los datos antes del guardado y termina después
+        expect(delegado.obtenerPartidasPorFecha(FECHA, abril)).andAnswer(() -> {
+            consultando.countDown();
+            terminar.await();
+            return List.of();
+        }).once();
+        delegado.guardar(nueva);
+        expect(delegado.obtenerPartidasPorFecha(FECHA, abril)).andReturn(List.of(nueva)).once();
+        // El mock no debe serializar las llamadas: el guardado llega con la consulta en marcha
+        makeThreadSafe(delegado, false);
+        replay(delegado);
+
+        ExecutorService hilos = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<Partida>> anterior = hilos.submit(() -> repositorio.obtenerPartidasPorFecha(FECHA, abril));
+            assertTrue(consultando.await(1, TimeUnit.SECONDS));
+            repositorio.guardar(nueva);
+            terminar.countDown();
+
+            assertTrue(anterior.get(1, TimeUnit.SECONDS).isEmpty());
+        } finally {
+            hilos.shutdownNow();
+        }
+        assertEquals(1, repositorio.obtenerPartidasPorFecha(FECHA, abril).size());
+        assertEquals(1, repositorio.obtenerPartidasPorFecha(FECHA, abril).size());
+        verify(delegado);
+    }
+
+    @Test
+    void testObtenerPartidasPorFechaNoValido() {
+        replay(delegado);
+        assertThrows(IllegalArgumentException.class, () -> repositorio.obtenerPartidasPorFecha(null, FECHA));
+        assertThrows(IllegalArgumentException.class,
+                () -> repositorio.obtenerPartidasPorFecha(FECHA, FECHA.minusDays(1)));
+    }
+
+    @Test
+    void testEnTransaccionValidoVaciaCache() {
+        expect(delegado.cargar("p-1", PerfilCarga.REPRODUCCION)).andReturn(crearPartida("p-1", 0)).times(2);
+        expect(delegado.enTransaccion(anyObject())).andReturn("hecho");
+        replay(delegado);
+
+        repositorio.cargar("p-1");
+        assertEquals("hecho", repositorio.enTransaccion(r -> "hecho"));
+        repositorio.cargar("p-1");
+
+        assertEquals(2, repositorio.getFallos());
+        verify(delegado);
+    }
+
+    private Partida crearPartida(String id, int jugadas) {
+        Partida partida = new Partida(id, FECHA, "Ana", "Luis");
+        List<Turno> turnos = new ArrayList<>();
+        for (int i = 1; i <= jugadas; i++) {
+            turnos.add(new Turno(i, new Jugada(new Carta(Palo.OROS, 1), null, null)));
+        }
+        List<Ronda> rondas = new ArrayList<>();
+        if (jugadas > 0) {
+            rondas.add(new Ronda(1, turnos));
+        }
+        partida.anadirRondas(rondas);
+        return partida;
+    }
+}
@@ -0,0 +1,139 @@
+package uva.tds.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import uva.tds.entidades.Partida;
+
+/**
+ * Benchmark de las consultas de RepositorioPartidaHibernate con sesiones de
+ * solo lectura frente a sesiones de lectura y escritura. No se ejecuta con el
+ * resto de tests; para lanzarlo: mvn test -Prendimiento
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+@Tag("Rendimiento")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class RepositorioPartidaHibernateRendimientoTest {
+
+    private static final String CONFIG_FILE = "hibernate-test.cfg.xml";
+    private static final int NUMERO_PARTIDAS = 5000;
+    private static final int CALENTAMIENTO = 5;
+    private static final int REPETICIONES = 20;
+    private static final LocalDate INICIO = LocalDate.of(2024, 1, 1);
+    private static final LocalDate FIN = LocalDate.of(2024, 12, 31);
+
+    private SessionFactory factory;
+    private RepositorioPartidaHibernate repositorio;
+
+    @BeforeAll
+    void setUp() {
+        factory = HibernateUtil.getSessionFactory(CONFIG_FILE);
+        Session session = factory.openSession();
+        try {
+            session.beginTransaction();
+            session.createNativeQuery("TRUNCATE SCHEMA PUBLIC AND COMMIT NO CHECK").executeUpdate();
+        } finally {
+            session.close();
+        }
+
+        List<Partida> partidas = new ArrayList<>();
+        for (int i = 0; i < NUMERO_PARTIDAS; i++) {
+            partidas.add(PartidasDePrueba.crearPartida("p-" + i, INICIO.plusDays(i % 365), "Jugador" + (i % 50),
+                    "Jugador" + ((i + 1) % 50), i % 7, i % 5));
+        }
+        new ImportadorPartidasMasivo(CONFIG_FILE).importar(partidas);
+        repositorio = new RepositorioPartidaHibernate(CONFIG_FILE);
+    }
+
+    @AfterAll
+    void tearDown() {
+        HibernateUtil.shutdown();
+    }
+
+    @Test
+    void testObtenerPartidasPorFechaSoloLecturaFrenteALecturaEscritura() {
+        Medida lecturaEscritura = medir(this::obtenerPartidasLecturaEscritura);
+        Medida soloLectura = medir(() -> repositorio.obtenerPartidasPorFecha(INICIO, FIN));
+
+        System.out.printf("Lectura y escritura: %.2f ms, %d KB asignados por consulta%n",
+                lecturaEscritura.milisegundos, lecturaEscritura.bytesAsignados / 1024);
+        System.out.printf("Solo lectura:        %.2f ms, %d KB asignados por consulta%n",
+                soloLectura.milisegundos, soloLectura.bytesAsignados / 1024);
+        assertEquals(NUMERO_PARTIDAS, lecturaEscritura.partidas);
+        assertEquals(NUMERO_PARTIDAS, soloLectura.partidas);
+    }
+
+    /**
+     * Misma consulta que obtenerPartidasPorFecha, pero en una transacción normal
+     * de lectura y escritura (como se hacía antes).
+     */
+    private List<Partida> obtenerPartidasLecturaEscritura() {
+        Session session = factory.getCurrentSession();
+        try {
+            session.beginTransaction();
+            List<Partida> partidas = session
+                    .createQuery("FROM Partida P WHERE P.fecha BETWEEN :fechaInicial AND :fechaFinal", Partida.class)
+                    .setParameter("fechaInicial", INICIO)
+                    .setParameter("fechaFinal", FIN)
+                    .list();
+            session.getTransaction().commit();
+            return partidas;
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Mide el tiempo medio y la memoria asignada por el hilo en cada ejecución de
+     * la consulta, vaciando antes la caché de segundo nivel para que siempre se
+     * lea de la base de datos.
+     */
+    private Medida medir(Supplier<List<Partida>> consulta) {
+        com.sun.management.ThreadMXBean hilos = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        for (int i = 0; i < CALENTAMIENTO; i++) {
+            factory.getCache().evictAllRegions();
+            consulta.get();
+        }
+
+        long nanos = 0;
+        long bytes = 0;
+        int partidas = 0;
+        for (int i = 0; i < REPETICIONES; i++) {
+            factory.getCache().evictAllRegions();
+            long bytesAntes = hilos.getThreadAllocatedBytes(id);
+            long inicio = System.nanoTime();
+            partidas = consulta.get().size();
+            nanos += System.nanoTime() - inicio;
+            bytes += hilos.getThreadAllocatedBytes(id) - bytesAntes;
+        }
+        return new Medida(nanos / 1_000_000.0 / REPETICIONES, bytes / REPETICIONES, partidas);
+    }
+
+    private static class Medida {
+        private final double milisegundos;
+        private final long bytesAsignados;
+        private final int partidas;
+
+        Medida(double milisegundos, long bytesAsignados, int partidas) {
+            this.milisegundos = milisegundos;
+            this.bytesAsignados = bytesAsignados;
+            this.partidas = partidas;
+        }
+    }
+}
@@ -0,0 +1,733 @@
+package uva.tds.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static uva.tds.servicios.PartidasDePrueba.crearPartida;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.hibernate.LazyInitializationException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import uva.tds.ejecutores.LectorPartidaJSON;
+import uva.tds.entidades.Carta;
+import uva.tds.entidades.EstadisticasJugador;
+import uva.tds.entidades.Jugador;
+import uva.tds.entidades.Partida;
+import uva.tds.entidades.ResumenPartida;
+import uva.tds.entidades.Ronda;
+import uva.tds.interfaces.PartidaModificadaException;
+import uva.tds.interfaces.PerfilCarga;
+
+/**
+ * Tests para la clase RepositorioPartidaHibernate.
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class RepositorioPartidaHibernateTest {
+
+    private static final String CONFIG_FILE = "hibernate-test.cfg.xml";
+
+    private RepositorioPartidaHibernate repositorio;
+    private LectorPartidaJSON lectorJSON;
+    private Statistics estadisticas;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        SessionFactory factory = HibernateUtil.getSessionFactory(CONFIG_FILE);
+        Session session = factory.openSession();
+        try {
+            session.beginTransaction();
+            session.createNativeQuery("TRUNCATE SCHEMA PUBLIC AND COMMIT NO CHECK").executeUpdate();
+        } finally {
+            session.close();
+        }
+        factory.getCache().evictAllRegions();
+        estadisticas = factory.getStatistics();
+        estadisticas.setStatisticsEnabled(true);
+        estadisticas.clear();
+
+        repositorio = new RepositorioPartidaHibernate(CONFIG_FILE);
+        lectorJSON = new LectorPartidaJSON("src/test/resources/partida_escoba1.json");
+    }
+
+    @AfterAll
+    void tearDown() {
+        HibernateUtil.shutdown();
+    }
+
+    @Test
+    void testCargarValidoSegundaVezDesdeCache() {
+        importar("p-cache-1");
+
+        repositorio.cargar("p-cache-1", PerfilCarga.RESUMEN);
+        long lecturasBaseDatos = estadisticas.getEntityLoadCount();
+        Partida partida = repositorio.cargar("p-cache-1", PerfilCarga.RESUMEN);
+
+        assertEquals("p-cache-1", partida.getId());
+        assertEquals(lecturasBaseDatos, estadisticas.getEntityLoadCount());
+        assertTrue(estadisticas.getDomainDataRegionStatistics("partidas").getHitCount() > 0);
+        assertTrue(estadisticas.getDomainDataRegionStatistics("resumenes").getHitCount() > 0);
+    }
+
+    @Test
+    void testCargarValidoCartaDesdeCache() {
+        importar("p-cache-1");
+        Session session = HibernateUtil.getSessionFactory(CONFIG_FILE).openSession();
+        Long idCarta;
+        try {
+            idCarta = session.createQuery("SELECT MIN(C.id) FROM Carta C", Long.class).uniqueResult();
+        } finally {
+            session.close();
+        }
+        estadisticas.clear();
+        session = HibernateUtil.getSessionFactory(CONFIG_FILE).openSession();
+        try {
+            session.get(Carta.class, idCarta);
+        } finally {
+            session.close();
+        }
+        session = HibernateUtil.getSessionFactory(CONFIG_FILE).openSession();
+        try {
+            session.get(Carta.class, idCarta);
+        } finally {
+            session.close();
+        }
+
+        assertEquals(1, estadisticas.getDomainDataRegionStatistics("cartas").getHitCount());
+    }
+
+    @Test
+    void testEliminarValidoInvalidaCache() {
+        importar("p-cache-1");
+        repositorio.cargar("p-cache-1");
+
+        repositorio.eliminar("p-cache-1");
+
+        assertThrows(IllegalStateException.class, () -> repositorio.cargar("p-cache-1"));
+    }
+
+    @Test
+    void testCargarValidoPerfilReproduccionNumeroFijoDeConsultas() {
+        importar("p-grafo-1");
+        HibernateUtil.getSessionFactory(CONFIG_FILE).getCache().evictAllRegions();
+        estadisticas.clear();
+
+        Partida partida = repositorio.cargar("p-grafo-1", PerfilCarga.REPRODUCCION);
+
+        assertTrue(estadisticas.getPrepareStatementCount() <= 7);
+        assertEquals(4, partida.getMesaInicial().size());
+        assertEquals(6, partida.getManosJugador1().size());
+        assertEquals(6, partida.getRondas().size());
+        for (int i = 0; i < partida.getRondas().size(); i++) {
+            Ronda ronda = partida.getRondas().get(i);
+            assertEquals(i + 1, ronda.getNumero());
+            assertEquals(6, ronda.getTurnos().size());
+            ronda.getTurnos().get(0).getJugada().getCaptura().size();
+            ronda.getTurnos().get(0).getJugada().getMesaResultante().size();
+        }
+    }
+
+    @Test
+    void testCargarValidoPerfilReproduccionPermiteValidar() {
+        Partida partida = lectorJSON.obtenerPartida("p-grafo-1");
+        new ImportadorPartidasMasivo(CONFIG_FILE).importar(Arrays.asList(partida));
+
+        ServicioPartida servicio = new ServicioPartida(repositorio);
+
+        assertTrue(servicio.validarPartidaGuardada("p-grafo-1"));
+    }
+
+    @Test
+    void testCargarValidoPerfilResumenSoloPartidaYResumen() {
+        importar("p-resumen-1");
+        HibernateUtil.getSessionFactory(CONFIG_FILE).getCache().evictAllRegions();
+        estadisticas.clear();
+
+        Partida partida = repositorio.cargar("p-resumen-1", PerfilCarga.RESUMEN);
+
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+        assertTrue(partida.isCompleta());
+        assertThrows(LazyInitializationException.class, () -> partida.getRondas());
+    }
+
+    @Test
+    void testCargarNoValidoPerfilNulo() {
+        assertThrows(IllegalArgumentException.class, () -> repositorio.cargar("p-1", null));
+    }
+
+    @Test
+    void testObtenerPartidasPorJugadorValidoComoJugador1YJugador2() {
+        importar(crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+        importar(crearPartida("p-2", LocalDate.of(2024, 3, 2), "Luis", "Maria", 4, 2));
+        importar(crearPartida("p-3", LocalDate.of(2024, 3, 3), "Maria", "Ana", 1, 6));
+
+        assertEquals(2, repositorio.obtenerPartidasPorJugador("Luis").size());
+        assertEquals(0, repositorio.obtenerPartidasPorJugador("Pepe").size());
+    }
+
+    @Test
+    void testContarValidoEntreFechas() {
+        importar(crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+        importar(crearPartida("p-2", LocalDate.of(2024, 3, 2), "Luis", "Maria", 4, 2));
+        importar(crearPartida("p-3", LocalDate.of(2024, 5, 3), "Pepe", "Ana", 1, 6));
+
+        LocalDate marzo = LocalDate.of(2024, 3, 1);
+        LocalDate finMarzo = LocalDate.of(2024, 3, 31);
+        assertEquals(2, repositorio.contarPartidasEntreFechas(marzo, finMarzo));
+        assertEquals(3, repositorio.contarJugadoresEntreFechas(marzo, finMarzo));
+        assertEquals(0, repositorio.contarPartidasEntreFechas(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 12, 31)));
+        assertEquals(0, repositorio.contarJugadoresEntreFechas(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 12, 31)));
+    }
+
+    @Test
+    void testObtenerPartidasPorFechaValidoRangoIncluyeExtremos() {
+        importar(crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+        importar(crearPartida("p-2", LocalDate.of(2024, 3, 31), "Luis", "Maria", 4, 2));
+        importar(crearPartida("p-3", LocalDate.of(2024, 4, 1), "Pepe", "Ana", 1, 6));
+
+        List<Partida> partidas = repositorio.obtenerPartidasPorFecha(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31));
+
+        assertEquals(2, partidas.size());
+    }
+
+    @Test
+    void testObtenerPartidasPorFechaValidoSinVaciarSesion() {
+        importar(crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+        estadisticas.clear();
+
+        repositorio.obtenerPartidasPorFecha(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31));
+        repositorio.cargar("p-1");
+
+        assertEquals(0, estadisticas.getFlushCount());
+        repositorio.guardar(crearPartida("p-2", LocalDate.of(2024, 3, 2), "Ana", "Luis", 3, 5));
+        assertEquals(2, repositorio.contarPartidasEntreFechas(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31)));
+    }
+
+    @Test
+    void testObtenerPartidasPorFechaNoValidoFechas() {
+        LocalDate fecha = LocalDate.of(2024, 3, 1);
+        assertThrows(IllegalArgumentException.class, () -> repositorio.obtenerPartidasPorFecha(null, fecha));
+        assertThrows(IllegalArgumentException.class, () -> repositorio.contarPartidasEntreFechas(fecha, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> repositorio.contarJugadoresEntreFechas(fecha, fecha.minusDays(1)));
+    }
+
+    @Test
+    void testRecorrerPartidasPorFechaValidoOrdenadasYCierraSesion() {
+        List<Partida> partidas = new ArrayList<>();
+        for (int i = 0; i < RepositorioPartidaHibernate.TAMANO_FETCH + 5; i++) {
+            partidas.add(crearPartida(String.format("p-%03d", i), LocalDate.of(2024, 1, 1).plusDays(i % 30),
+                    "Ana", "Luis", 3, 5));
+        }
+        new ImportadorPartidasMasivo(CONFIG_FILE).importar(partidas);
+        estadisticas.clear();
+
+        List<Partida> recorridas;
+        try (Stream<Partida> stream = repositorio.recorrerPartidasPorFecha(LocalDate.of(2024, 1, 1),
+                LocalDate.of(2024, 12, 31))) {
+            recorridas = stream.collect(Collectors.toList());
+        }
+
+        assertEquals(partidas.size(), recorridas.size());
+        for (int i = 1; i < recorridas.size(); i++) {
+            Partida anterior = recorridas.get(i - 1);
+            Partida actual = recorridas.get(i);
+            assertTrue(anterior.getFecha().isBefore(actual.getFecha())
+                    || (anterior.getFecha().equals(actual.getFecha()) && anterior.getId().compareTo(actual.getId()) < 0));
+        }
+        assertEquals("Luis", recorridas.get(recorridas.size() - 1).getGanador());
+        assertEquals(estadisticas.getSessionOpenCount(), estadisticas.getSessionCloseCount());
+    }
+
+    @Test
+    void testRecorrerPartidasPorJugadorValido() {
+        importar(crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+        importar(crearPartida("p-2", LocalDate.of(2024, 3, 2), "Luis", "Maria", 4, 2));
+        importar(crearPartida("p-3", LocalDate.of(2024, 3, 3), "Maria", "Ana", 1, 6));
+
+        try (Stream<Partida> stream = repositorio.recorrerPartidasPorJugador("Ana")) {
+            assertEquals(List.of("p-1", "p-3"), stream.map(Partida::getId).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void testRecorrerPartidasNoValido() {
+        assertThrows(IllegalArgumentException.class, () -> repositorio.recorrerPartidasPorJugador(""));
+        assertThrows(IllegalArgumentException.class, () -> repositorio.recorrerPartidasPorFecha(null, null));
+    }
+
+    @Test
+    void testObtenerPaginaPorFechaValidoRecorreTodasLasPaginas() {
+        importar(crearPartida("p-b", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+        importar(crearPartida("p-a", LocalDate.of(2024, 3, 1), "Luis", "Maria", 4, 2));
+        importar(crearPartida("p-c", LocalDate.of(2024, 3, 2), "Maria", "Ana", 1, 6));
+        importar(crearPartida("p-e", LocalDate.of(2024, 3, 3), "Pepe", "Ana", 1, 6));
+        importar(crearPartida("p-d", LocalDate.of(2024, 3, 4), "Pepe", "Luis", 1, 6));
+        LocalDate inicio = LocalDate.of(2024, 1, 1);
+        LocalDate fin = LocalDate.of(2024, 12, 31);
+
+        List<Partida> pagina1 = repositorio.obtenerPaginaPorFecha(inicio, fin, null, 2);
+        List<Partida> pagina2 = repositorio.obtenerPaginaPorFecha(inicio, fin, pagina1.get(1), 2);
+        List<Partida> pagina3 = repositorio.obtenerPaginaPorFecha(inicio, fin, pagina2.get(1), 2);
+        List<Partida> pagina4 = repositorio.obtenerPaginaPorFecha(inicio, fin, pagina3.get(0), 2);
+
+        assertEquals(List.of("p-a", "p-b"), pagina1.stream().map(Partida::getId).collect(Collectors.toList()));
+        assertEquals(List.of("p-c", "p-e"), pagina2.stream().map(Partida::getId).collect(Collectors.toList()));
+        assertEquals(List.of("p-d"), pagina3.stream().map(Partida::getId).collect(Collectors.toList()));
+        assertTrue(pagina4.isEmpty());
+    }
+
+    @Test
+    void testObtenerPaginaPorJugadorValido() {
+        importar(crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+        importar(crearPartida("p-2", LocalDate.of(2024, 3, 2), "Luis", "Maria", 4, 2));
+        importar(crearPartida("p-3", LocalDate.of(2024, 3, 3), "Maria", "Ana", 1, 6));
+
+        List<Partida> pagina1 = repositorio.obtenerPaginaPorJugador("Ana", null, 1);
+        List<Partida> pagina2 = repositorio.obtenerPaginaPorJugador("Ana", pagina1.get(0), 5);
+
+        assertEquals("p-1", pagina1.get(0).getId());
+        assertEquals(List.of("p-3"), pagina2.stream().map(Partida::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void testObtenerPaginaNoValidoLimite() {
+        assertThrows(IllegalArgumentException.class, () -> repositorio.obtenerPaginaPorJugador("Ana", null, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> repositorio.obtenerPaginaPorFecha(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 2), null, 0));
+    }
+
+    @Test
+    void testPlanConsultasValidoUsaIndices() {
+        String planFecha = planDe("SELECT * FROM partidas WHERE fecha BETWEEN DATE '2024-01-01' AND DATE '2024-12-31'");
+        String planJugador = planDe("SELECT * FROM partidas WHERE jugador1 = 'Ana' OR jugador2 = 'Ana'");
+
+        assertTrue(planFecha.contains("IDX_PARTIDAS_FECHA"), planFecha);
+        assertFalse(planFecha.contains("FULL SCAN"), planFecha);
+        assertTrue(planJugador.contains("IDX_PARTIDAS_JUGADOR1_FECHA"), planJugador);
+        assertTrue(planJugador.contains("IDX_PARTIDAS_JUGADOR2_FECHA"), planJugador);
+        assertFalse(planJugador.contains("FULL SCAN"), planJugador);
+    }
+
+    private String planDe(String sql) {
+        Session session = HibernateUtil.getSessionFactory(CONFIG_FILE).openSession();
+        try {
+            StringBuilder plan = new StringBuilder();
+            for (Object linea : session.createNativeQuery("EXPLAIN PLAN FOR " + sql).list()) {
+                plan.append(linea).append('\n');
+            }
+            return plan.toString();
+        } finally {
+            session.close();
+        }
+    }
+
+    @Test
+    void testObtenerMejoresJugadoresValido() {
+        importar(crearPartida("p-1", LocalDate.of(2025, 5, 1), "Ana", "Luis", 10, 5));
+        importar(crearPartida("p-3", LocalDate.of(2025, 7, 1), "Carlos", "Ana", 2, 3));
+        importar(crearPartida("p-4", LocalDate.of(2025, 8, 1), "Luis", "Maria", 12, 0));
+        importar(crearPartida("p-5", LocalDate.of(2025, 9, 1), "Luis", "Carlos", 9, 8));
+        importar(crearPartida("p-2", LocalDate.of(2025, 6, 1), "Maria", "Diego", 8, 7));
+        importar(crearPartida("p-6", LocalDate.of(2025, 10, 1), "Pedro", "Sofia", 5, 5)); // empate
+
+        List<String> mejores = repositorio.obtenerMejoresJugadores(10);
+
+        assertEquals(List.of("Ana", "Luis", "Maria", "Carlos", "Diego", "Pedro", "Sofia"), mejores);
+        assertEquals(Map.of("Ana", 2, "Luis", 2, "Maria", 1, "Carlos", 0, "Diego", 0, "Pedro", 0, "Sofia", 0),
+                repositorio.obtenerVictoriasPorJugador());
+    }
+
+    @Test
+    void testObtenerMejoresJugadoresValidoComparacionAlfabetica() {
+        importar(crearPartida("p-1", LocalDate.of(2025, 5, 1), "Ana", "Pedro", 10, 5));
+        importar(crearPartida("p-2", LocalDate.of(2025, 6, 1), "Carlos", "Sofia", 8, 3));
+        importar(crearPartida("p-3", LocalDate.of(2025, 7, 1), "Pedro", "Sofia", 5, 5));
+        importar(crearPartida("p-4", LocalDate.of(2025, 8, 1), "Beatriz", "Diego", 7, 6));
+
+        assertEquals(List.of("Ana", "Beatriz", "Carlos", "Diego", "Pedro", "Sofia"),
+                repositorio.obtenerMejoresJugadores(10));
+        assertEquals(List.of("Ana", "Beatriz"), repositorio.obtenerMejoresJugadores(2));
+        assertEquals(List.of("Ana", "Beatriz", "Carlos", "Diego"), repositorio.obtenerMejoresJugadores(4));
+    }
+
+    @Test
+    void testObtenerMejoresJugadoresValidoSinPartidas() {
+        assertTrue(repositorio.obtenerMejoresJugadores(10).isEmpty());
+    }
+
+    @Test
+    void testObtenerMejoresJugadoresNoValidoLimite() {
+        assertThrows(IllegalArgumentException.class, () -> repositorio.obtenerMejoresJugadores(0));
+    }
+
+    @Test
+    void testGuardarValidoActualizaEstadisticas() {
+        repositorio.guardar(crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+        repositorio.guardar(crearPartida("p-2", LocalDate.of(2024, 3, 2), "Luis", "Maria", 4, 2));
+
+        EstadisticasJugador luis = repositorio.obtenerEstadisticasJugador("Luis");
+        assertEquals(2, luis.getJugadas());
+        assertEquals(2, luis.getGanadas());
+        assertEquals(0, luis.getPerdidas());
+        assertEquals(1, repositorio.obtenerEstadisticasJugador("Ana").getPerdidas());
+        assertEquals(List.of("Luis", "Ana", "Maria"), repositorio.obtenerMejoresJugadores(10));
+    }
+
+    @Test
+    void testGuardarNoValidoIdDuplicadoPorRestriccion() {
+        repositorio.guardar(crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+        Partida duplicada = crearPartida("p-1", LocalDate.of(2024, 3, 2), "Ana", "Maria", 6, 1);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> repositorio.guardar(duplicada));
+        assertEquals("Ya existe una partida con el mismo identificador", e.getMessage());
+        HibernateUtil.getSessionFactory(CONFIG_FILE).getCache().evictAllRegions();
+        Partida sinCache = crearPartida("p-1", LocalDate.of(2024, 3, 2), "Ana", "Maria", 6, 1);
+        e = assertThrows(IllegalStateException.class, () -> repositorio.guardar(sinCache));
+        assertEquals("Ya existe una partida con el mismo identificador", e.getMessage());
+        assertEquals(1, repositorio.obtenerEstadisticasJugador("Ana").getJugadas());
+        assertEquals(0, repositorio.obtenerEstadisticasJugador("Maria").getJugadas());
+    }
+
+    @Test
+    void testActualizarNoValidoErrorDeBaseDeDatosSePropaga() {
+        repositorio.guardar(crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+        Partida partida = repositorio.cargar("p-1", PerfilCarga.RESUMEN);
+        // nombre más largo que la columna del jugador
+        partida.añadirJugadores(new ArrayList<>(List.of("A".repeat(300), "Luis")));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> repositorio.actualizar(partida));
+        assertEquals("No se ha podido actualizar la partida", e.getMessage());
+        assertEquals(1, repositorio.obtenerEstadisticasJugador("Luis").getGanadas());
+    }
+
+    @Test
+    void testGuardarNoValidoErrorQueNoEsDuplicadoSePropaga() {
+        Partida partida = crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5);
+        repositorio.guardar(partida);
+        // la misma instancia ya tiene versión: se guarda una copia, que choca con la clave primaria
+        IllegalStateException repetida = assertThrows(IllegalStateException.class, () -> repositorio.guardar(partida));
+        assertEquals("Ya existe una partida con el mismo identificador", repetida.getMessage());
+
+        // identificador más largo que la columna
+        Partida idLargo = crearPartida("p".repeat(101), LocalDate.of(2024, 3, 2), "Ana", "Maria", 6, 1);
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> repositorio.guardar(idLargo));
+        assertEquals("No se ha podido guardar la partida", e.getMessage());
+        assertEquals(1, repositorio.obtenerEstadisticasJugador("Ana").getJugadas());
+        assertEquals(0, repositorio.obtenerEstadisticasJugador("Maria").getJugadas());
+    }
+
+    @Test
+    void testActualizarValidoSinCargarPartidaPrevia() {
+        repositorio.guardar(crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+        estadisticas.clear();
+
+        repositorio.actualizar(crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 6, 5));
+
+        assertEquals(0, estadisticas.getQueryExecutionCount());
+        assertEquals(6, repositorio.cargar("p-1", PerfilCarga.RESUMEN).getResumenPartida().getPuntosJugador1());
+    }
+
+    @Test
+    void testActualizarValidoIncrementaVersion() {
+        Partida partida = crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5);
+        repositorio.guardar(partida);
+        assertEquals(0, partida.getVersion());
+
+        partida.getResumenPartida().establecerResultados(new Jugador("Ana"), new Jugador("Luis"), 6, 5);
+        repositorio.actualizar(partida);
+        repositorio.actualizar(partida);
+
+        Partida cargada = repositorio.cargar("p-1", PerfilCarga.RESUMEN);
+        assertEquals(partida.getVersion(), cargada.getVersion());
+        assertEquals(6, cargada.getResumenPartida().getPuntosJugador1());
+    }
+
+    @Test
+    void testActualizarNoValidoVersionObsoleta() {
+        repositorio.guardar(crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+        Partida primera = repositorio.cargar("p-1", PerfilCarga.RESUMEN);
+        Partida segunda = repositorio.cargar("p-1", PerfilCarga.RESUMEN);
+
+        primera.getResumenPartida().establecerResultados(new Jugador("Ana"), new Jugador("Luis"), 6, 5);
+        repositorio.actualizar(primera);
+        segunda.getResumenPartida().establecerResultados(new Jugador("Ana"), new Jugador("Luis"), 1, 7);
+
+        PartidaModificadaException e = assertThrows(PartidaModificadaException.class,
+                () -> repositorio.actualizar(segunda));
+        assertEquals("p-1", e.getIdentificador());
+        assertEquals(6, repositorio.cargar("p-1", PerfilCarga.RESUMEN).getResumenPartida().getPuntosJugador1());
+        assertEquals(1, repositorio.obtenerEstadisticasJugador("Ana").getGanadas());
+    }
+
+    @Test
+    void testActualizarValidoReintentoReleyendoPartida() {
+        repositorio.guardar(crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+        Partida obsoleta = repositorio.cargar("p-1", PerfilCarga.RESUMEN);
+        repositorio.actualizar(repositorio.cargar("p-1", PerfilCarga.RESUMEN));
+
+        boolean[] primerIntento = { true };
+        new ReintentoOptimista(3, 0).ejecutar(() -> {
+            Partida partida = primerIntento[0] ? obsoleta : repositorio.cargar("p-1", PerfilCarga.RESUMEN);
+            primerIntento[0] = false;
+            partida.getResumenPartida().establecerResultados(new Jugador("Ana"), new Jugador("Luis"), 6, 5);
+            repositorio.actualizar(partida);
+        });
+
+        assertEquals(6, repositorio.cargar("p-1", PerfilCarga.RESUMEN).getResumenPartida().getPuntosJugador1());
+    }
+
+    @Test
+    void testActualizarNoValidoPartidaInexistente() {
+        Partida partida = crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5);
+        assertThrows(IllegalStateException.class, () -> repositorio.actualizar(partida));
+        assertEquals(0, repositorio.obtenerEstadisticasJugador("Ana").getJugadas());
+    }
+
+    @Test
+    void testEnTransaccionValidoUnaTransaccionReutilizaPartida() {
+        repositorio.guardar(crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+        long transacciones = estadisticas.getTransactionCount();
+
+        boolean reutilizada = repositorio.enTransaccion(r -> {
+            Partida partida = r.cargar("p-1", PerfilCarga.RESUMEN);
+            partida.getResumenPartida().establecerResultados(new Jugador("Ana"), new Jugador("Luis"), 6, 5);
+            r.actualizar(partida);
+            return r.cargar("p-1", PerfilCarga.RESUMEN) == partida;
+        });
+
+        assertTrue(reutilizada);
+        assertEquals(1, estadisticas.getTransactionCount() - transacciones);
+        assertEquals(6, repositorio.cargar("p-1", PerfilCarga.RESUMEN).getResumenPartida().getPuntosJugador1());
+        assertEquals(1, repositorio.obtenerEstadisticasJugador("Ana").getGanadas());
+        assertEquals(1, repositorio.obtenerEstadisticasJugador("Luis").getPerdidas());
+    }
+
+    @Test
+    void testEnTransaccionNoValidoExcepcionDeshaceOperaciones() {
+        assertThrows(IllegalStateException.class, () -> repositorio.enTransaccion(r -> {
+            r.guardar(crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+            throw new IllegalStateException("Fallo del trabajo");
+        }));
+
+        assertEquals(0, repositorio.contarPartidasEntreFechas(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31)));
+        assertEquals(0, repositorio.obtenerEstadisticasJugador("Ana").getJugadas());
+    }
+
+    @Test
+    void testEnTransaccionNoValidoOperacionFallidaCapturada() {
+        assertThrows(IllegalStateException.class, () -> repositorio.enTransaccion(r -> {
+            r.guardar(crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+            try {
+                r.eliminar("p-inexistente");
+            } catch (IllegalStateException e) {
+                // El error se ignora, pero la transacción ya no puede confirmarse
+            }
+            return null;
+        }));
+
+        assertEquals(0, repositorio.contarPartidasEntreFechas(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31)));
+    }
+
+    @Test
+    void testEnTransaccionNoValidoConsultaFallidaSePropaga() {
+        repositorio.guardar(crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> repositorio.enTransaccion(r -> {
+            Partida partida = r.cargar("p-1", PerfilCarga.RESUMEN);
+            // nombre más largo que la columna: la consulta vacía la sesión y falla
+            partida.añadirJugadores(new ArrayList<>(List.of("A".repeat(300), "Luis")));
+            return r.obtenerPartidasPorJugador("Luis");
+        }));
+
+        assertEquals("No se ha podido consultar la base de datos", e.getMessage());
+        assertEquals("Ana", repositorio.cargar("p-1", PerfilCarga.RESUMEN).getJugador1());
+    }
+
+    @Test
+    void testEnTransaccionNoValidoConsultaFallidaCapturada() {
+        repositorio.guardar(crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> repositorio.enTransaccion(r -> {
+            r.guardar(crearPartida("p-2", LocalDate.of(2024, 3, 2), "Ana", "Maria", 6, 1));
+            Partida partida = r.cargar("p-1", PerfilCarga.RESUMEN);
+            partida.añadirJugadores(new ArrayList<>(List.of("A".repeat(300), "Luis")));
+            try {
+                r.obtenerPartidasPorJugador("Luis");
+            } catch (IllegalStateException ignorada) {
+                // El error se ignora, pero la transacción ya no puede confirmarse
+            }
+            return null;
+        }));
+
+        assertEquals("Una de las operaciones de la transacción ha fallado", e.getMessage());
+        assertEquals(1, repositorio.contarPartidasEntreFechas(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31)));
+    }
+
+    @Test
+    void testEnTransaccionNoValidoTrabajoNulo() {
+        assertThrows(IllegalArgumentException.class, () -> repositorio.enTransaccion(null));
+    }
+
+    @Test
+    void testGuardarLoteValidoUnaTransaccion() {
+        long transacciones = estadisticas.getTransactionCount();
+
+        repositorio.guardarLote(Arrays.asList(
+                crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5),
+                crearPartida("p-2", LocalDate.of(2024, 3, 2), "Luis", "Maria", 4, 2),
+                crearPartida("p-3", LocalDate.of(2024, 3, 3), "Ana", "Maria", 6, 1)));
+
+        assertEquals(1, estadisticas.getTransactionCount() - transacciones);
+        assertEquals(3, repositorio.contarPartidasEntreFechas(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31)));
+        EstadisticasJugador luis = repositorio.obtenerEstadisticasJugador("Luis");
+        assertEquals(2, luis.getJugadas());
+        assertEquals(2, luis.getGanadas());
+        assertEquals(1, repositorio.obtenerEstadisticasJugador("Ana").getGanadas());
+    }
+
+    @Test
+    void testGuardarLoteNoValidoIdExistenteNoGuardaNinguna() {
+        repositorio.guardar(crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+        List<Partida> lote = Arrays.asList(
+                crearPartida("p-2", LocalDate.of(2024, 3, 2), "Luis", "Maria", 4, 2),
+                crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+
+        assertThrows(IllegalStateException.class, () -> repositorio.guardarLote(lote));
+        assertEquals(1, repositorio.contarPartidasEntreFechas(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31)));
+        assertEquals(1, repositorio.obtenerEstadisticasJugador("Luis").getJugadas());
+    }
+
+    @Test
+    void testGuardarValidoPartidaDeUnLoteDeshecho() {
+        Partida partida = crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5);
+        // identificador más largo que la columna: falla después de persistir la primera
+        List<Partida> lote = Arrays.asList(partida,
+                crearPartida("p".repeat(101), LocalDate.of(2024, 3, 2), "Luis", "Maria", 4, 2));
+        assertThrows(IllegalStateException.class, () -> repositorio.guardarLote(lote));
+        assertNotNull(partida.getVersion());
+
+        repositorio.guardar(partida);
+
+        assertEquals(0, partida.getVersion());
+        assertEquals(0, repositorio.cargar("p-1", PerfilCarga.RESUMEN).getVersion());
+        assertEquals(1, repositorio.obtenerEstadisticasJugador("Luis").getGanadas());
+    }
+
+    @Test
+    void testGuardarLoteNoValidoIdRepetidoEnLote() {
+        List<Partida> lote = Arrays.asList(
+                crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5),
+                crearPartida("p-1", LocalDate.of(2024, 3, 2), "Luis", "Maria", 4, 2));
+        assertThrows(IllegalStateException.class, () -> repositorio.guardarLote(lote));
+    }
+
+    @Test
+    void testGuardarLoteNoValidoNulos() {
+        assertThrows(IllegalArgumentException.class, () -> repositorio.guardarLote(null));
+        assertThrows(IllegalArgumentException.class, () -> repositorio.guardarLote(Arrays.asList((Partida) null)));
+    }
+
+    @Test
+    void testActualizarValidoAplicaDiferencia() {
+        repositorio.guardar(crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+
+        repositorio.actualizar(crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 6, 5));
+
+        EstadisticasJugador ana = repositorio.obtenerEstadisticasJugador("Ana");
+        assertEquals(1, ana.getJugadas());
+        assertEquals(1, ana.getGanadas());
+        assertEquals(0, ana.getPerdidas());
+        assertEquals(1, repositorio.obtenerEstadisticasJugador("Luis").getPerdidas());
+    }
+
+    @Test
+    void testActualizarValidoSinLeerDosVecesLaPartida() {
+        repositorio.guardar(crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+        Partida partida = repositorio.cargar("p-1", PerfilCarga.RESUMEN);
+        partida.getResumenPartida().establecerResultados(new Jugador("Ana"), new Jugador("Luis"), 6, 5);
+        estadisticas.clear();
+
+        repositorio.actualizar(partida);
+
+        // una lectura de la partida, el bloqueo de las estadísticas y las escrituras, sin consultas HQL
+        assertEquals(0, estadisticas.getQueryExecutionCount());
+        assertEquals(4, estadisticas.getPrepareStatementCount());
+
+        partida.getResumenPartida().establecerResultados(new Jugador("Ana"), new Jugador("Luis"), 7, 5);
+        HibernateUtil.getSessionFactory(CONFIG_FILE).getCache().evictAllRegions();
+        estadisticas.clear();
+
+        repositorio.actualizar(partida);
+
+        // sin caché la partida y su resumen se leen con una sola sentencia, que merge reutiliza
+        assertEquals(0, estadisticas.getQueryExecutionCount());
+        assertEquals(4, estadisticas.getPrepareStatementCount());
+        assertEquals(2, partida.getResumenPartida().getVersion());
+        assertEquals(1, repositorio.obtenerEstadisticasJugador("Ana").getGanadas());
+    }
+
+    @Test
+    void testEliminarValidoRestaEstadisticas() {
+        repositorio.guardar(crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+        repositorio.guardar(crearPartida("p-2", LocalDate.of(2024, 3, 2), "Ana", "Maria", 4, 2));
+
+        repositorio.eliminar("p-1");
+
+        EstadisticasJugador ana = repositorio.obtenerEstadisticasJugador("Ana");
+        assertEquals(1, ana.getJugadas());
+        assertEquals(1, ana.getGanadas());
+        assertEquals(0, ana.getPerdidas());
+        assertEquals(0, repositorio.obtenerEstadisticasJugador("Luis").getJugadas());
+        assertEquals(List.of("Ana", "Maria"), repositorio.obtenerMejoresJugadores(10));
+    }
+
+    @Test
+    void testObtenerEstadisticasJugadorValidoImportacionMasiva() {
+        repositorio.guardar(crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+        repositorio.obtenerEstadisticasJugador("Luis");
+
+        new ImportadorPartidasMasivo(CONFIG_FILE, 1).importar(Arrays.asList(
+                crearPartida("p-2", LocalDate.of(2024, 3, 2), "Luis", "Maria", 4, 2),
+                crearPartida("p-3", LocalDate.of(2024, 3, 3), "Maria", "Luis", 1, 6)));
+
+        EstadisticasJugador luis = repositorio.obtenerEstadisticasJugador("Luis");
+        assertEquals(3, luis.getJugadas());
+        assertEquals(3, luis.getGanadas());
+        assertEquals(2, repositorio.obtenerEstadisticasJugador("Maria").getPerdidas());
+    }
+
+    @Test
+    void testObtenerEstadisticasJugadorValidoSinPartidas() {
+        EstadisticasJugador pepe = repositorio.obtenerEstadisticasJugador("Pepe");
+        assertEquals("Pepe", pepe.getNombre());
+        assertEquals(0, pepe.getJugadas());
+    }
+
+    private void importar(Partida partida) {
+        new ImportadorPartidasMasivo(CONFIG_FILE).importar(Arrays.asList(partida));
+    }
+
+    private void importar(String id) {
+        importar(PartidasDePrueba.leerPartida(lectorJSON, id, LocalDate.of(2024, 3, 1)));
+    }
+}
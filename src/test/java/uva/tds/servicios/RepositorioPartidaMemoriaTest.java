@@ -0,0 +1,262 @@
+package uva.tds.servicios;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static uva.tds.servicios.PartidasDePrueba.crearPartida;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uva.tds.entidades.EstadisticasJugador;
+import uva.tds.entidades.Jugador;
+import uva.tds.entidades.Partida;
+import uva.tds.interfaces.PartidaModificadaException;
+import uva.tds.interfaces.PerfilCarga;
+
+/**
+ * Tests de la clase RepositorioPartidaMemoria
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+class RepositorioPartidaMemoriaTest {
+
+    private static final LocalDate INICIO = LocalDate.of(2024, 1, 1);
+    private static final LocalDate FIN = LocalDate.of(2024, 12, 31);
+
+    private RepositorioPartidaMemoria repositorio;
+
+    @BeforeEach
+    void setUp() {
+        repositorio = new RepositorioPartidaMemoria();
+    }
+
+    @Test
+    void testGuardarValidoYCargar() {
+        Partida partida = crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5);
+        repositorio.guardar(partida);
+
+        Partida cargada = repositorio.cargar("p-1");
+        assertNotSame(partida, cargada);
+        assertEquals("p-1", cargada.getId());
+        assertEquals(0, cargada.getVersion());
+        assertEquals(0, repositorio.cargar("p-1", PerfilCarga.RESUMEN).getVersion());
+        assertEquals(0, partida.getVersion());
+    }
+
+    @Test
+    void testCargarValidoModificarLaCopiaNoCambiaLaGuardada() {
+        Partida partida = crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5);
+        repositorio.guardar(partida);
+        partida.getResumenPartida().establecerResultados(new Jugador("Ana"), new Jugador("Luis"), 6, 5);
+        Partida cargada = repositorio.cargar("p-1");
+        cargada.getResumenPartida().establecerResultados(new Jugador("Ana"), new Jugador("Luis"), 7, 5);
+        repositorio.obtenerPartidasPorJugador("Ana").get(0).setVersion(4);
+
+        Partida otra = repositorio.cargar("p-1");
+        assertEquals(3, otra.getResumenPartida().getPuntosJugador1());
+        assertEquals(0, otra.getVersion());
+    }
+
+    @Test
+    void testGuardarNoValido() {
+        repositorio.guardar(crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+
+        assertThrows(IllegalArgumentException.class, () -> repositorio.guardar(null));
+        assertThrows(IllegalStateException.class,
+                () -> repositorio.guardar(crearPartida("p-1", LocalDate.of(2024, 3, 2), "Ana", "Maria", 3, 5)));
+        assertEquals(1, repositorio.obtenerEstadisticasJugador("Ana").getJugadas());
+    }
+
+    @Test
+    void testCargarNoValido() {
+        assertThrows(IllegalArgumentException.class, () -> repositorio.cargar(null));
+        assertThrows(IllegalArgumentException.class, () -> repositorio.cargar(""));
+        assertThrows(IllegalArgumentException.class, () -> repositorio.cargar("p-1", null));
+        assertThrows(IllegalStateException.class, () -> repositorio.cargar("p-1"));
+    }
+
+    @Test
+    void testGuardarLoteValido() {
+        repositorio.guardarLote(Arrays.asList(
+                crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5),
+                crearPartida("p-2", LocalDate.of(2024, 3, 2), "Luis", "Maria", 4, 2)));
+
+        assertEquals(2, repositorio.contarPartidasEntreFechas(INICIO, FIN));
+        assertEquals(2, repositorio.obtenerEstadisticasJugador("Luis").getGanadas());
+    }
+
+    @Test
+    void testGuardarLoteNoValidoNoGuardaNinguna() {
+        repositorio.guardar(crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+        List<Partida> conExistente = Arrays.asList(
+                crearPartida("p-2", LocalDate.of(2024, 3, 2), "Luis", "Maria", 4, 2),
+                crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+        List<Partida> conRepetida = Arrays.asList(
+                crearPartida("p-3", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5),
+                crearPartida("p-3", LocalDate.of(2024, 3, 2), "Luis", "Maria", 4, 2));
+
+        assertThrows(IllegalStateException.class, () -> repositorio.guardarLote(conExistente));
+        assertThrows(IllegalStateException.class, () -> repositorio.guardarLote(conRepetida));
+        assertThrows(IllegalArgumentException.class, () -> repositorio.guardarLote(null));
+        assertThrows(IllegalArgumentException.class, () -> repositorio.guardarLote(Arrays.asList((Partida) null)));
+        assertEquals(1, repositorio.contarPartidasEntreFechas(INICIO, FIN));
+        assertEquals(1, repositorio.obtenerEstadisticasJugador("Luis").getJugadas());
+    }
+
+    @Test
+    void testActualizarValidoAplicaDiferenciaEIncrementaVersion() {
+        Partida partida = crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5);
+        repositorio.guardar(partida);
+
+        partida.getResumenPartida().establecerResultados(new Jugador("Ana"), new Jugador("Luis"), 6, 5);
+        assertEquals(1, repositorio.obtenerEstadisticasJugador("Luis").getGanadas());
+        repositorio.actualizar(partida);
+
+        assertEquals(1, partida.getVersion());
+        assertEquals(1, repositorio.obtenerEstadisticasJugador("Ana").getGanadas());
+        assertEquals(1, repositorio.obtenerEstadisticasJugador("Luis").getPerdidas());
+        assertEquals(List.of("Ana", "Luis"), repositorio.obtenerMejoresJugadores(10));
+    }
+
+    @Test
+    void testActualizarNoValido() {
+        repositorio.guardar(crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+        Partida actualizada = crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 6, 5);
+        actualizada.setVersion(0);
+        repositorio.actualizar(actualizada);
+        Partida obsoleta = crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 1, 7);
+        obsoleta.setVersion(0);
+        Partida sinVersion = crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 1, 7);
+
+        assertThrows(IllegalArgumentException.class, () -> repositorio.actualizar(null));
+        assertThrows(IllegalStateException.class,
+                () -> repositorio.actualizar(crearPartida("p-2", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5)));
+        PartidaModificadaException e = assertThrows(PartidaModificadaException.class,
+                () -> repositorio.actualizar(obsoleta));
+        assertEquals("p-1", e.getIdentificador());
+        assertThrows(PartidaModificadaException.class, () -> repositorio.actualizar(sinVersion));
+        assertEquals(1, repositorio.obtenerEstadisticasJugador("Ana").getGanadas());
+    }
+
+    @Test
+    void testEliminarValidoRestaEstadisticasEIndices() {
+        repositorio.guardar(crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+        repositorio.guardar(crearPartida("p-2", LocalDate.of(2024, 3, 2), "Ana", "Maria", 4, 2));
+
+        repositorio.eliminar("p-1");
+
+        assertThrows(IllegalStateException.class, () -> repositorio.cargar("p-1"));
+        assertEquals(0, repositorio.obtenerEstadisticasJugador("Luis").getJugadas());
+        assertTrue(repositorio.obtenerPartidasPorJugador("Luis").isEmpty());
+        assertEquals(List.of("Ana", "Maria"), repositorio.obtenerMejoresJugadores(10));
+        assertEquals(Map.of("Ana", 1, "Maria", 0), repositorio.obtenerVictoriasPorJugador());
+        assertEquals(1, repositorio.contarPartidasEntreFechas(INICIO, FIN));
+    }
+
+    @Test
+    void testEliminarNoValido() {
+        assertThrows(IllegalArgumentException.class, () -> repositorio.eliminar(null));
+        assertThrows(IllegalStateException.class, () -> repositorio.eliminar("p-1"));
+    }
+
+    @Test
+    void testObtenerPartidasPorFechaValidoOrdenadas() {
+        repositorio.guardar(crearPartida("p-b", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+        repositorio.guardar(crearPartida("p-c", LocalDate.of(2024, 2, 1), "Luis", "Maria", 4, 2));
+        repositorio.guardar(crearPartida("p-a", LocalDate.of(2024, 3, 1), "Maria", "Ana", 1, 6));
+        repositorio.guardar(crearPartida("p-d", LocalDate.of(2024, 5, 1), "Pepe", "Ana", 1, 6));
+
+        assertEquals(List.of("p-c", "p-a", "p-b"),
+                ids(repositorio.obtenerPartidasPorFecha(INICIO, LocalDate.of(2024, 3, 31))));
+        assertEquals(List.of("p-a", "p-b"), ids(repositorio.recorrerPartidasPorFecha(LocalDate.of(2024, 3, 1),
+                LocalDate.of(2024, 3, 1)).collect(Collectors.toList())));
+        assertEquals(3, repositorio.contarJugadoresEntreFechas(INICIO, LocalDate.of(2024, 3, 31)));
+        assertThrows(IllegalArgumentException.class, () -> repositorio.obtenerPartidasPorFecha(null, FIN));
+        assertThrows(IllegalArgumentException.class, () -> repositorio.contarPartidasEntreFechas(FIN, INICIO));
+    }
+
+    @Test
+    void testObtenerPartidasPorJugadorValido() {
+        repositorio.guardar(crearPartida("p-2", LocalDate.of(2024, 3, 2), "Luis", "Ana", 4, 2));
+        repositorio.guardar(crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+        repositorio.guardar(crearPartida("p-3", LocalDate.of(2024, 3, 3), "Maria", "Pepe", 1, 6));
+
+        assertEquals(List.of("p-1", "p-2"), ids(repositorio.obtenerPartidasPorJugador("Ana")));
+        assertTrue(repositorio.obtenerPartidasPorJugador("Nadie").isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> repositorio.obtenerPartidasPorJugador(""));
+    }
+
+    @Test
+    void testObtenerPaginaValidoRecorreTodas() {
+        for (int i = 0; i < 7; i++) {
+            repositorio.guardar(crearPartida("p-" + i, LocalDate.of(2024, 3, 1 + i / 2), "Ana", "Luis", 3, 5));
+        }
+
+        List<String> porFecha = new ArrayList<>();
+        List<String> porJugador = new ArrayList<>();
+        Partida ultimaFecha = null;
+        Partida ultimaJugador = null;
+        List<Partida> pagina;
+        while (!(pagina = repositorio.obtenerPaginaPorFecha(INICIO, FIN, ultimaFecha, 3)).isEmpty()) {
+            porFecha.addAll(ids(pagina));
+            ultimaFecha = pagina.get(pagina.size() - 1);
+        }
+        while (!(pagina = repositorio.obtenerPaginaPorJugador("Luis", ultimaJugador, 2)).isEmpty()) {
+            porJugador.addAll(ids(pagina));
+            ultimaJugador = pagina.get(pagina.size() - 1);
+        }
+
+        List<String> esperado = List.of("p-0", "p-1", "p-2", "p-3", "p-4", "p-5", "p-6");
+        assertEquals(esperado, porFecha);
+        assertEquals(esperado, porJugador);
+        assertThrows(IllegalArgumentException.class, () -> repositorio.obtenerPaginaPorJugador("Ana", null, 0));
+    }
+
+    @Test
+    void testObtenerEstadisticasJugadorValidoCopia() {
+        repositorio.guardar(crearPartida("p-1", LocalDate.of(2024, 3, 1), "Ana", "Luis", 3, 5));
+
+        EstadisticasJugador luis = repositorio.obtenerEstadisticasJugador("Luis");
+        luis.sumarPartida(crearPartida("p-2", LocalDate.of(2024, 3, 2), "Luis", "Ana", 5, 3));
+
+        assertEquals(1, repositorio.obtenerEstadisticasJugador("Luis").getJugadas());
+        assertEquals(0, repositorio.obtenerEstadisticasJugador("Pepe").getJugadas());
+        assertThrows(IllegalArgumentException.class, () -> repositorio.obtenerMejoresJugadores(0));
+    }
+
+    @Test
+    void testGuardarValidoConcurrente() throws Exception {
+        ExecutorService hilos = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String id = "p-" + i;
+                LocalDate fecha = INICIO.plusDays(i % 30);
+                tareas.add(hilos.submit(() -> repositorio.guardar(crearPartida(id, fecha, "Ana", "Luis", 3, 5))));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+        } finally {
+            hilos.shutdown();
+        }
+
+        assertEquals(200, repositorio.contarPartidasEntreFechas(INICIO, FIN));
+        assertEquals(200, repositorio.obtenerEstadisticasJugador("Luis").getGanadas());
+        assertEquals(200, repositorio.obtenerPartidasPorJugador("Ana").size());
+    }
+
+    private List<String> ids(List<Partida> partidas) {
+        return partidas.stream().map(Partida::getId).collect(Collectors.toList());
+    }
+}
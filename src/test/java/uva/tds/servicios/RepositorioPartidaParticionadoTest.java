@@ -0,0 +1,339 @@
+package uva.tds.servicios;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static uva.tds.servicios.PartidasDePrueba.crearPartida;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uva.tds.entidades.EstadisticasJugador;
+import uva.tds.entidades.Jugador;
+import uva.tds.entidades.Partida;
+import uva.tds.interfaces.PerfilCarga;
+
+/**
+ * Tests de la clase RepositorioPartidaParticionado
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+class RepositorioPartidaParticionadoTest {
+
+    private static final YearMonth ENERO = YearMonth.of(2024, 1);
+    private static final YearMonth FEBRERO = YearMonth.of(2024, 2);
+    private static final YearMonth MARZO = YearMonth.of(2024, 3);
+
+    private Map<YearMonth, ParticionContada> creadas;
+    private List<YearMonth> eliminadas;
+    private RepositorioPartidaParticionado repositorio;
+
+    @BeforeEach
+    void setUp() {
+        creadas = new TreeMap<>();
+        eliminadas = new ArrayList<>();
+        repositorio = new RepositorioPartidaParticionado(mes -> {
+            ParticionContada particion = new ParticionContada();
+            creadas.put(mes, particion);
+            return particion;
+        }, (mes, particion) -> eliminadas.add(mes), List.of());
+    }
+
+    @Test
+    void testConstructorNoValido() {
+        assertThrows(IllegalArgumentException.class, () -> new RepositorioPartidaParticionado(null));
+        assertThrows(IllegalArgumentException.class,
+                () -> new RepositorioPartidaParticionado(mes -> null, null, List.of()));
+        assertThrows(IllegalArgumentException.class,
+                () -> new RepositorioPartidaParticionado(mes -> new RepositorioPartidaMemoria(), (m, p) -> {
+                }, null));
+        assertThrows(IllegalStateException.class,
+                () -> new RepositorioPartidaParticionado(mes -> null, (m, p) -> {
+                }, List.of(ENERO)));
+    }
+
+    @Test
+    void testGuardarValidoEnParticionDelMes() {
+        guardarPartidas();
+
+        assertEquals(List.of(ENERO, FEBRERO, MARZO), repositorio.getParticiones());
+        assertEquals(2, creadas.get(ENERO).contarPartidasEntreFechas(ENERO.atDay(1), ENERO.atEndOfMonth()));
+        assertEquals(1, creadas.get(MARZO).contarPartidasEntreFechas(MARZO.atDay(1), MARZO.atEndOfMonth()));
+        assertEquals("f-1", repositorio.cargar("f-1").getId());
+    }
+
+    @Test
+    void testGuardarNoValido() {
+        guardarPartidas();
+
+        assertThrows(IllegalArgumentException.class, () -> repositorio.guardar(null));
+        assertThrows(IllegalStateException.class,
+                () -> repositorio.guardar(crearPartida("e-1", MARZO.atDay(9), "Ana", "Luis", 6, 5)));
+    }
+
+    @Test
+    void testObtenerPartidasPorFechaValidoSoloParticionesDelRango() {
+        guardarPartidas();
+
+        List<Partida> partidas = repositorio.obtenerPartidasPorFecha(LocalDate.of(2024, 2, 10),
+                LocalDate.of(2024, 3, 31));
+
+        assertEquals(List.of("f-1", "m-1"), ids(partidas));
+        assertEquals(0, creadas.get(ENERO).consultasPorFecha);
+        assertEquals(1, creadas.get(FEBRERO).consultasPorFecha);
+        assertEquals(1, creadas.get(MARZO).consultasPorFecha);
+        assertEquals(2, repositorio.contarPartidasEntreFechas(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 12, 31)));
+        assertEquals(0, creadas.get(ENERO).consultasPorFecha);
+    }
+
+    @Test
+    void testObtenerPartidasPorFechaNoValido() {
+        assertThrows(IllegalArgumentException.class, () -> repositorio.obtenerPartidasPorFecha(null, LocalDate.MAX));
+        assertThrows(IllegalArgumentException.class,
+                () -> repositorio.obtenerPartidasPorFecha(MARZO.atDay(2), MARZO.atDay(1)));
+    }
+
+    @Test
+    void testRecorrerPartidasPorFechaValidoOrdenado() {
+        guardarPartidas();
+
+        try (Stream<Partida> partidas = repositorio.recorrerPartidasPorFecha(LocalDate.of(2024, 1, 1),
+                LocalDate.of(2024, 3, 31))) {
+            assertEquals(List.of("e-1", "e-2", "f-1", "m-1"), partidas.map(Partida::getId)
+                    .collect(Collectors.toList()));
+        }
+        try (Stream<Partida> partidas = repositorio.recorrerPartidasPorJugador("Luis")) {
+            assertEquals(List.of("e-1", "f-1"), partidas.map(Partida::getId).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void testObtenerPaginaPorFechaValidoAtraviesaParticiones() {
+        guardarPartidas();
+        LocalDate inicio = LocalDate.of(2024, 1, 1);
+        LocalDate fin = LocalDate.of(2024, 3, 31);
+
+        List<Partida> primera = repositorio.obtenerPaginaPorFecha(inicio, fin, null, 3);
+        assertEquals(0, creadas.get(MARZO).consultasPorFecha);
+        creadas.get(ENERO).consultasPorFecha = 0;
+        List<Partida> segunda = repositorio.obtenerPaginaPorFecha(inicio, fin, primera.get(2), 3);
+
+        assertEquals(List.of("e-1", "e-2", "f-1"), ids(primera));
+        assertEquals(List.of("m-1"), ids(segunda));
+        assertEquals(0, creadas.get(ENERO).consultasPorFecha);
+    }
+
+    @Test
+    void testObtenerPaginaPorJugadorValido() {
+        guardarPartidas();
+
+        List<Partida> primera = repositorio.obtenerPaginaPorJugador("Ana", null, 2);
+        List<Partida> segunda = repositorio.obtenerPaginaPorJugador("Ana", primera.get(1), 2);
+
+        assertEquals(List.of("e-1", "e-2"), ids(primera));
+        assertEquals(List.of("m-1"), ids(segunda));
+        assertThrows(IllegalArgumentException.class, () -> repositorio.obtenerPaginaPorJugador("Ana", null, 0));
+    }
+
+    @Test
+    void testContarJugadoresEntreFechasValidoSinRepetir() {
+        guardarPartidas();
+
+        assertEquals(3, repositorio.contarJugadoresEntreFechas(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31)));
+        assertEquals(2, repositorio.contarJugadoresEntreFechas(FEBRERO.atDay(1), FEBRERO.atEndOfMonth()));
+        assertEquals(0, repositorio.contarJugadoresEntreFechas(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 12, 31)));
+    }
+
+    @Test
+    void testEstadisticasValidoSumanParticiones() {
+        guardarPartidas();
+
+        EstadisticasJugador ana = repositorio.obtenerEstadisticasJugador("Ana");
+
+        assertEquals(3, ana.getJugadas());
+        assertEquals(2, ana.getGanadas());
+        assertEquals(1, ana.getPerdidas());
+        assertEquals(List.of("Ana", "Maria", "Luis"), repositorio.obtenerMejoresJugadores(10));
+    }
+
+    @Test
+    void testObtenerMejoresJugadoresValidoUnaConsultaPorParticion() {
+        guardarPartidas();
+        creadas.values().forEach(particion -> particion.consultasEstadisticas = 0);
+
+        assertEquals(List.of("Ana", "Maria"), repositorio.obtenerMejoresJugadores(2));
+        assertEquals(Map.of("Ana", 2, "Maria", 2, "Luis", 0), repositorio.obtenerVictoriasPorJugador());
+
+        creadas.values().forEach(particion -> assertEquals(2, particion.consultasEstadisticas));
+    }
+
+    @Test
+    void testGuardarValidoFalloLiberaElIdentificador() {
+        repositorio.guardar(crearPartida("m-1", MARZO.atDay(1), "Ana", "Luis", 6, 5));
+        creadas.get(MARZO).rechazarLotes = true;
+
+        assertThrows(IllegalStateException.class,
+                () -> repositorio.guardarLote(List.of(crearPartida("m-2", MARZO.atDay(2), "Ana", "Luis", 6, 5))));
+
+        creadas.get(MARZO).rechazarLotes = false;
+        repositorio.guardar(crearPartida("m-2", MARZO.atDay(2), "Ana", "Luis", 6, 5));
+        assertEquals("m-2", repositorio.cargar("m-2").getId());
+    }
+
+    @Test
+    void testGuardarLoteValidoRepartePorMes() {
+        repositorio.guardarLote(List.of(crearPartida("m-1", MARZO.atDay(1), "Ana", "Luis", 6, 5),
+                crearPartida("e-1", ENERO.atDay(1), "Ana", "Luis", 6, 5)));
+
+        assertEquals(List.of(ENERO, MARZO), repositorio.getParticiones());
+        assertEquals(2, repositorio.obtenerPartidasPorJugador("Luis").size());
+    }
+
+    @Test
+    void testGuardarLoteNoValidoDeshaceMesesAnteriores() {
+        repositorio.guardar(crearPartida("m-1", MARZO.atDay(1), "Ana", "Luis", 6, 5));
+        creadas.get(MARZO).rechazarLotes = true;
+
+        assertThrows(IllegalStateException.class,
+                () -> repositorio.guardarLote(List.of(crearPartida("e-1", ENERO.atDay(1), "Ana", "Luis", 6, 5),
+                        crearPartida("m-2", MARZO.atDay(2), "Ana", "Luis", 6, 5))));
+
+        assertEquals(0, repositorio.contarPartidasEntreFechas(ENERO.atDay(1), ENERO.atEndOfMonth()));
+        assertThrows(IllegalStateException.class, () -> repositorio.cargar("e-1"));
+        assertThrows(IllegalStateException.class,
+                () -> repositorio.guardarLote(List.of(crearPartida("m-1", MARZO.atDay(3), "Ana", "Luis", 6, 5))));
+    }
+
+    @Test
+    void testActualizarYEliminarValido() {
+        guardarPartidas();
+        Partida partida = repositorio.cargar("f-1");
+        partida.getResumenPartida().establecerResultados(new Jugador("Luis"), new Jugador("Maria"), 9, 2);
+
+        repositorio.actualizar(partida);
+        repositorio.eliminar("e-2");
+
+        assertEquals(1, repositorio.obtenerEstadisticasJugador("Maria").getGanadas());
+        assertThrows(IllegalStateException.class, () -> repositorio.cargar("e-2", PerfilCarga.RESUMEN));
+        assertThrows(IllegalStateException.class, () -> repositorio.eliminar("e-2"));
+        assertThrows(IllegalStateException.class,
+                () -> repositorio.actualizar(crearPartida("x", MARZO.atDay(1), "Ana", "Luis", 1, 2)));
+    }
+
+    @Test
+    void testActualizarNoValidoCambioDeMes() {
+        guardarPartidas();
+        Partida partida = repositorio.cargar("f-1");
+        Partida movida = crearPartida("f-1", MARZO.atDay(2), "Luis", "Maria", 9, 2);
+        movida.setVersion(partida.getVersion());
+
+        assertThrows(IllegalArgumentException.class, () -> repositorio.actualizar(movida));
+        assertEquals("f-1", creadas.get(FEBRERO).cargar("f-1").getId());
+        assertThrows(IllegalStateException.class, () -> creadas.get(MARZO).cargar("f-1"));
+    }
+
+    @Test
+    void testCargarValidoParticionExistenteSinIndice() {
+        RepositorioPartidaMemoria existente = new RepositorioPartidaMemoria();
+        existente.guardar(crearPartida("e-1", ENERO.atDay(5), "Ana", "Luis", 6, 5));
+        RepositorioPartidaParticionado abierto = new RepositorioPartidaParticionado(
+                mes -> mes.equals(ENERO) ? existente : new RepositorioPartidaMemoria(), (mes, particion) -> {
+                }, List.of(ENERO, FEBRERO));
+
+        assertEquals("e-1", abierto.cargar("e-1").getId());
+        abierto.eliminar("e-1");
+        assertEquals(0, existente.contarPartidasEntreFechas(ENERO.atDay(1), ENERO.atEndOfMonth()));
+    }
+
+    @Test
+    void testEliminarParticionesAnterioresAValido() {
+        guardarPartidas();
+
+        assertEquals(List.of(ENERO, FEBRERO), repositorio.eliminarParticionesAnterioresA(LocalDate.of(2024, 3, 15)));
+
+        assertEquals(List.of(ENERO, FEBRERO), eliminadas);
+        assertEquals(List.of(MARZO), repositorio.getParticiones());
+        assertEquals(1, repositorio.obtenerEstadisticasJugador("Ana").getJugadas());
+        assertThrows(IllegalStateException.class, () -> repositorio.cargar("e-1"));
+        assertFalse(repositorio.eliminarParticion(ENERO));
+        repositorio.guardar(crearPartida("e-1", ENERO.atDay(1), "Ana", "Luis", 6, 5));
+    }
+
+    @Test
+    void testEliminarParticionNoValido() {
+        assertThrows(IllegalArgumentException.class, () -> repositorio.eliminarParticion(null));
+        assertThrows(IllegalArgumentException.class, () -> repositorio.eliminarParticionesAnterioresA(null));
+    }
+
+    /**
+     * Enero: Ana gana a Luis y a Maria. Febrero: Maria gana a Luis. Marzo: Maria
+     * gana a Ana.
+     */
+    private void guardarPartidas() {
+        repositorio.guardar(crearPartida("e-1", ENERO.atDay(10), "Ana", "Luis", 8, 4));
+        repositorio.guardar(crearPartida("e-2", ENERO.atDay(20), "Ana", "Maria", 7, 5));
+        repositorio.guardar(crearPartida("f-1", FEBRERO.atDay(15), "Luis", "Maria", 3, 9));
+        repositorio.guardar(crearPartida("m-1", MARZO.atDay(5), "Ana", "Maria", 2, 10));
+        creadas.values().forEach(particion -> particion.consultasPorFecha = 0);
+    }
+
+    private List<String> ids(List<Partida> partidas) {
+        return partidas.stream().map(Partida::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * Partición en memoria que cuenta las consultas por fecha que recibe y que
+     * puede rechazar los lotes.
+     */
+    private static class ParticionContada extends RepositorioPartidaMemoria {
+        private int consultasPorFecha = 0;
+        private boolean rechazarLotes = false;
+        private int consultasEstadisticas = 0;
+
+        @Override
+        public EstadisticasJugador obtenerEstadisticasJugador(String nombreJugador) {
+            consultasEstadisticas++;
+            return super.obtenerEstadisticasJugador(nombreJugador);
+        }
+
+        @Override
+        public Map<String, Integer> obtenerVictoriasPorJugador() {
+            consultasEstadisticas++;
+            return super.obtenerVictoriasPorJugador();
+        }
+
+        @Override
+        public List<String> obtenerMejoresJugadores(int limite) {
+            consultasEstadisticas++;
+            return super.obtenerMejoresJugadores(limite);
+        }
+
+        @Override
+        public List<Partida> obtenerPartidasPorFecha(LocalDate fechaInicial, LocalDate fechaFinal) {
+            consultasPorFecha++;
+            return super.obtenerPartidasPorFecha(fechaInicial, fechaFinal);
+        }
+
+        @Override
+        public long contarPartidasEntreFechas(LocalDate fechaInicial, LocalDate fechaFinal) {
+            consultasPorFecha++;
+            return super.contarPartidasEntreFechas(fechaInicial, fechaFinal);
+        }
+
+        @Override
+        public void guardarLote(List<Partida> lote) {
+            if (rechazarLotes) {
+                throw new IllegalStateException("Lote rechazado");
+            }
+            super.guardarLote(lote);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package uva.tds.servicios;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uva.tds.ejecutores.EjecutarPartida;
+import uva.tds.ejecutores.LectorPartidaJSON;
+import uva.tds.entidades.Jugada;
+import uva.tds.entidades.Jugador;
+import uva.tds.entidades.Partida;
+import uva.tds.entidades.Ronda;
+import uva.tds.entidades.Turno;
+
+/**
+ * Tests para la clase ReproductorPartida.
+ *
+ * @author Marta Pérez Alonso
+ * @author Elisa Martínez Lafuente
+ */
+class ReproductorPartidaTest {
+
+    private Partida partida;
+    private ReproductorPartida reproductor;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        partida = new LectorPartidaJSON("src/test/resources/partida_escoba1.json").obtenerPartida("p-reproductor");
+        reproductor = new ReproductorPartida(partida);
+    }
+
+    @Test
+    void testConstructorValidoSituadoAlPrincipio() {
+        assertEquals(6, reproductor.getNumeroRondas());
+        assertEquals(6, reproductor.getNumeroTurnos(1));
+        assertEquals(1, reproductor.getRonda());
+        assertEquals(0, reproductor.getTurno());
+        assertFalse(reproductor.hayAnterior());
+        assertTrue(reproductor.haySiguiente());
+    }
+
+    @Test
+    void testGetEstadoFinalValidoCoincideConEjecutarPartida() throws IOException {
+        GestorPartida esperado = new EjecutarPartida(partida).ejecutarPartidaCompleta();
+        GestorPartida estadoFinal = reproductor.getEstadoFinal();
+
+        assertArrayEquals(serializar(esperado), serializar(estadoFinal));
+        assertEquals(0, estadoFinal.calcularPuntuacionFinal(estadoFinal.getJugador1()));
+        assertEquals(5, estadoFinal.calcularPuntuacionFinal(estadoFinal.getJugador2()));
+    }
+
+    @Test
+    void testEstadoEnValidoCoincideConReproducirDesdeElPrincipio() throws IOException {
+        for (int ronda = 1; ronda <= 6; ronda++) {
+            for (int turno = 0; turno <= 6; turno++) {
+                assertArrayEquals(serializar(reproducirHasta(ronda, turno)),
+                        serializar(reproductor.estadoEn(ronda, turno)), "ronda " + ronda + ", turno " + turno);
+                assertEquals(ronda, reproductor.getRonda());
+                assertEquals(turno, reproductor.getTurno());
+            }
+        }
+    }
+
+    @Test
+    void testAdelanteYAtrasValidoRecorrenTodasLasPosiciones() throws IOException {
+        List<byte[]> estados = new ArrayList<>();
+        estados.add(serializar(reproductor.estadoEn(1, 0)));
+        while (reproductor.haySiguiente()) {
+            estados.add(serializar(reproductor.adelante()));
+        }
+        // 6 rondas con el reparto y 6 turnos cada una
+        assertEquals(42, estados.size());
+        assertEquals(6, reproductor.getRonda());
+        assertEquals(6, reproductor.getTurno());
+
+        for (int i = estados.size() - 2; i >= 0; i--) {
+            assertArrayEquals(estados.get(i), serializar(reproductor.atras()));
+        }
+        assertEquals(1, reproductor.getRonda());
+        assertEquals(0, reproductor.getTurno());
+    }
+
+    @Test
+    void testAdelanteValidoDespuesDeEstadoEn() throws IOException {
+        reproductor.estadoEn(3, 6);
+        assertArrayEquals(serializar(reproducirHasta(4, 0)), serializar(reproductor.adelante()));
+        assertArrayEquals(serializar(reproducirHasta(4, 1)), serializar(reproductor.adelante()));
+
+        reproductor.estadoEn(4, 0);
+        assertArrayEquals(serializar(reproducirHasta(3, 6)), serializar(reproductor.atras()));
+    }
+
+    @Test
+    void testEstadoEnValidoDevuelveCopiaIndependiente() throws IOException {
+        GestorPartida estado = reproductor.estadoEn(2, 0);
+        Jugada siguiente = partida.getRondas().get(1).getTurnos().get(0).getJugada();
+        estado.jugarCarta(siguiente.getJuega(), new ArrayList<>(siguiente.getCaptura()));
+
+        assertArrayEquals(serializar(reproducirHasta(2, 0)), serializar(reproductor.estadoEn(2, 0)));
+        assertArrayEquals(serializar(reproducirHasta(2, 1)), serializar(reproductor.adelante()));
+    }
+
+    @Test
+    void testAdelanteNoValidoEnLaUltimaPosicion() {
+        reproductor.estadoEn(6, 6);
+        assertFalse(reproductor.haySiguiente());
+        assertThrows(IllegalStateException.class, () -> reproductor.adelante());
+    }
+
+    @Test
+    void testAtrasNoValidoEnLaPrimeraPosicion() {
+        assertThrows(IllegalStateException.class, () -> reproductor.atras());
+    }
+
+    @Test
+    void testEstadoEnNoValidoFueraDeRango() {
+        assertThrows(IllegalArgumentException.class, () -> reproductor.estadoEn(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> reproductor.estadoEn(7, 0));
+        assertThrows(IllegalArgumentException.class, () -> reproductor.estadoEn(1, -1));
+        assertThrows(IllegalArgumentException.class, () -> reproductor.estadoEn(1, 7));
+        assertThrows(IllegalArgumentException.class, () -> reproductor.getNumeroTurnos(7));
+    }
+
+    @Test
+    void testConstructorNoValido() {
+        assertThrows(IllegalArgumentException.class, () -> new ReproductorPartida(null));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ReproductorPartida(new Partida("p-vacia", LocalDate.now(), "Ana", "Luis")));
+    }
+
+    @Test
+    void testReanudarValidoPartidaSinCambiosReutilizaTodasLasRondas() throws IOException {
+        ReproductorPartida reanudado = reproductor.reanudar(partida);
+
+        assertEquals(6, reanudado.getRondasReutilizadas());
+        assertArrayEquals(serializar(reproductor.getEstadoFinal()), serializar(reanudado.getEstadoFinal()));
+    }
+
+    @Test
+    void testReanudarValidoReproduceDesdeLaRondaCorregida() throws IOException {
+        Partida corregida = corregirRonda3(partida);
+
+        ReproductorPartida reanudado = reproductor.reanudar(corregida);
+
+        assertEquals(3, reanudado.getRondasReutilizadas());
+        ReproductorPartida completo = new ReproductorPartida(corregida);
+        assertEquals(0, completo.getRondasReutilizadas());
+        assertArrayEquals(serializar(completo.getEstadoFinal()), serializar(reanudado.getEstadoFinal()));
+        for (int ronda = 1; ronda <= 6; ronda++) {
+            for (int turno = 0; turno <= 6; turno++) {
+                assertArrayEquals(serializar(completo.estadoEn(ronda, turno)),
+                        serializar(reanudado.estadoEn(ronda, turno)), "ronda " + ronda + ", turno " + turno);
+            }
+        }
+    }
+
+    @Test
+    void testReanudarValidoOtraPartidaSeReproduceEntera() throws IOException {
+        Partida otra = new LectorPartidaJSON("src/test/resources/partida_escoba3.json").obtenerPartida("p-otra");
+
+        ReproductorPartida reanudado = reproductor.reanudar(otra);
+
+        assertEquals(0, reanudado.getRondasReutilizadas());
+        assertArrayEquals(serializar(new ReproductorPartida(otra).getEstadoFinal()),
+                serializar(reanudado.getEstadoFinal()));
+    }
+
+    @Test
+    void testGetPesoValidoCuentaPuntosDeControlYJugadas() throws IOException {
+        int estados = serializar(reproductor.getEstadoFinal()).length;
+        for (int ronda = 1; ronda <= 6; ronda++) {
+            estados += serializar(reproductor.estadoEn(ronda, 0)).length;
+        }
+
+        assertEquals(estados + 36 * 64, reproductor.getPeso());
+    }
+
+    @Test
+    void testReanudarNoValido() {
+        assertThrows(IllegalArgumentException.class, () -> reproductor.reanudar(null));
+        assertThrows(IllegalArgumentException.class,
+                () -> reproductor.reanudar(new Partida("p-vacia", LocalDate.now(), "Ana", "Luis")));
+    }
+
+    /**
+     * Copia de la partida en la que Ana juega en la tercera ronda sus dos cartas
+     * sin captura en el orden contrario, lo que sigue siendo una partida válida.
+     */
+    static Partida corregirRonda3(Partida original) {
+        Partida corregida = new Partida(original.getId(), original.getFecha(), original.getJugador1(),
+                original.getJugador2());
+        corregida.añadirMesaInicial(original.getMesaInicial());
+        corregida.añadirManoJugador1(original.getManosJugador1());
+        corregida.añadirManoJugador2(original.getManosJugador2());
+        List<Ronda> rondas = new ArrayList<>(original.getRondas());
+        List<Turno> turnos = new ArrayList<>();
+        for (Turno turno : rondas.get(2).getTurnos()) {
+            turnos.add(new Turno(turno.getNumero(), turno.getJugada()));
+        }
+        Jugada tercera = turnos.get(2).getJugada();
+        turnos.set(2, new Turno(3, turnos.get(4).getJugada()));
+        turnos.set(4, new Turno(5, tercera));
+        rondas.set(2, new Ronda(3, turnos));
+        corregida.anadirRondas(rondas);
+        return corregida;
+    }
+
+    /**
+     * Reproduce la partida desde el principio, sin puntos de control, hasta la
+     * posición indicada.
+     */
+    private GestorPartida reproducirHasta(int ronda, int turno) {
+        GestorPartida gestor = new GestorPartida(new Jugador(partida.getJugador1()), new Jugador(partida.getJugador2()));
+        gestor.repartoInicial(partida.getManosJugador1().get(0), partida.getManosJugador2().get(0),
+                partida.getMesaInicial());
+        for (int r = 1; r <= ronda; r++) {
+            if (r > 1) {
+                gestor.avanzarRonda();
+                gestor.repartoRonda(partida.getManosJugador1().get(r - 1), partida.getManosJugador2().get(r - 1));
+            }
+            Ronda actual = partida.getRondas().get(r - 1);
+            int turnos = (r == ronda) ? turno : actual.getTurnos().size();
+            for (int t = 0; t < turnos; t++) {
+                Jugada jugada = actual.getTurnos().get(t).getJugada();
+                gestor.jugarCarta(jugada.getJuega(), new ArrayList<>(jugada.getCaptura()));
+            }
+        }
+        return gestor;
+    }
+
+    private byte[] serializar(GestorPartida gestor) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream salida = new DataOutputStream(bytes)) {
+            gestor.escribirEstado(salida);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -3,8 +3,10 @@ package uva.tds.servicios;
 import static org.easymock.EasyMock.*;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletionException;
 
 import org.easymock.EasyMock;
 import org.easymock.Mock;
@@ -16,6 +18,8 @@ import org.junit.jupiter.api.Test;
 import uva.tds.ejecutores.AdaptadorCartaJson;
 import uva.tds.entidades.Carta;
 import uva.tds.entidades.Jugador;
+import uva.tds.entidades.Partida;
+import uva.tds.interfaces.RepositorioPartida;
 import uva.tds.interfaces.ServicioMultijugador;
 
 /**
@@ -355,6 +359,50 @@ public class ServicioJuegoMultijugadorTest {
         verify(multijugador);
     }
 
+    @Test
+    void testFinalizarPartidaValidoGuardaLaPartidaTerminada() {
+        multijugador.crearSala(ID_SALA_VALIDO, CREADOR_VALIDO, false);
+        EasyMock.expectLastCall();
+        multijugador.unirseASala(ID_SALA_VALIDO, JUGADOR2_VALIDO, null);
+        EasyMock.expectLastCall();
+        replay(multijugador);
+        RepositorioPartidaMemoria repositorio = new RepositorioPartidaMemoria();
+
+        try (RepositorioPartidaAsync asincrono = new RepositorioPartidaAsync(repositorio)) {
+            ServicioJuegoMultijugador servicio = new ServicioJuegoMultijugador(multijugador, asincrono);
+            servicio.crearPartida(ID_SALA_VALIDO, CREADOR_VALIDO, false);
+            servicio.unirseASala(ID_SALA_VALIDO, JUGADOR2_VALIDO, null);
+            servicio.inicializarPartida();
+
+            servicio.finalizarPartida().join();
+        }
+
+        List<Partida> guardadas = repositorio.obtenerPartidasPorJugador(CREADOR_VALIDO);
+        assertEquals(1, guardadas.size());
+        Partida guardada = guardadas.get(0);
+        assertTrue(guardada.getId().startsWith(ID_SALA_VALIDO + "-"));
+        assertEquals(JUGADOR2_VALIDO, guardada.getJugador2());
+        assertTrue(guardada.getResumenPartida().isCompleta());
+        assertEquals(0, guardada.getResumenPartida().getPuntosJugador1());
+        verify(multijugador);
+    }
+
+    @Test
+    void testFinalizarPartidaValidoSinRepositorioNoGuarda() {
+        multijugador.crearSala(ID_SALA_VALIDO, CREADOR_VALIDO, false);
+        EasyMock.expectLastCall();
+        multijugador.unirseASala(ID_SALA_VALIDO, JUGADOR2_VALIDO, null);
+        EasyMock.expectLastCall();
+        replay(multijugador);
+
+        servicioJuego.crearPartida(ID_SALA_VALIDO, CREADOR_VALIDO, false);
+        servicioJuego.unirseASala(ID_SALA_VALIDO, JUGADOR2_VALIDO, null);
+        servicioJuego.inicializarPartida();
+
+        assertTrue(servicioJuego.finalizarPartida().isDone());
+        verify(multijugador);
+    }
+
     // ========== TESTS REPARTIR CARTAS INICIAL ==========
 
     @Test
@@ -1328,4 +1376,59 @@ public class ServicioJuegoMultijugadorTest {
         verify(multijugador);
     }
 
-}
\ No newline at end of file
+    // ========== TESTS GUARDAR PARTIDA TERMINADA ==========
+
+    @Test
+    void testConstructorNoValidoRepositorioNulo() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ServicioJuegoMultijugador(multijugador, null));
+    }
+
+    @Test
+    void testGuardarPartidaTerminadaValido() {
+        RepositorioPartida repositorio = EasyMock.mock(RepositorioPartida.class);
+        Partida partida = new Partida("p-multi", LocalDate.of(2024, 3, 1), CREADOR_VALIDO, JUGADOR2_VALIDO);
+        repositorio.guardar(partida);
+        EasyMock.expectLastCall();
+        replay(repositorio);
+
+        try (RepositorioPartidaAsync asincrono = new RepositorioPartidaAsync(repositorio)) {
+            ServicioJuegoMultijugador servicio = new ServicioJuegoMultijugador(multijugador, asincrono);
+            servicio.guardarPartidaTerminada(partida).join();
+        }
+
+        verify(repositorio);
+    }
+
+    @Test
+    void testGuardarPartidaTerminadaNoValidoErrorRepositorio() {
+        RepositorioPartida repositorio = EasyMock.mock(RepositorioPartida.class);
+        Partida partida = new Partida("p-multi", LocalDate.of(2024, 3, 1), CREADOR_VALIDO, JUGADOR2_VALIDO);
+        repositorio.guardar(partida);
+        EasyMock.expectLastCall().andThrow(new IllegalStateException("Ya existe"));
+        replay(repositorio);
+
+        try (RepositorioPartidaAsync asincrono = new RepositorioPartidaAsync(repositorio)) {
+            ServicioJuegoMultijugador servicio = new ServicioJuegoMultijugador(multijugador, asincrono);
+            CompletionException e = assertThrows(CompletionException.class,
+                    () -> servicio.guardarPartidaTerminada(partida).join());
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    void testGuardarPartidaTerminadaNoValidoPartidaNula() {
+        RepositorioPartida repositorio = EasyMock.mock(RepositorioPartida.class);
+        try (RepositorioPartidaAsync asincrono = new RepositorioPartidaAsync(repositorio)) {
+            ServicioJuegoMultijugador servicio = new ServicioJuegoMultijugador(multijugador, asincrono);
+            assertThrows(IllegalArgumentException.class, () -> servicio.guardarPartidaTerminada(null));
+        }
+    }
+
+    @Test
+    void testGuardarPartidaTerminadaNoValidoSinRepositorio() {
+        Partida partida = new Partida("p-multi", LocalDate.of(2024, 3, 1), CREADOR_VALIDO, JUGADOR2_VALIDO);
+        assertThrows(IllegalStateException.class, () -> servicioJuego.guardarPartidaTerminada(partida));
+    }
+
+}
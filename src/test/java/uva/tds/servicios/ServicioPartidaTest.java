@@ -7,18 +7,23 @@ import java.io.IOException;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 
 import org.easymock.EasyMock;
 import org.easymock.Mock;
 import org.easymock.TestSubject;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
 import uva.tds.ejecutores.LectorPartidaJSON;
 import uva.tds.entidades.Carta;
+import uva.tds.entidades.EstadisticasJugador;
 import uva.tds.entidades.Partida;
 import uva.tds.entidades.ResumenPartida;
+import uva.tds.interfaces.PerfilCarga;
 import uva.tds.interfaces.RepositorioPartida;
 import uva.tds.entidades.Jugador;
 import uva.tds.entidades.Palo;
@@ -42,6 +47,12 @@ public class ServicioPartidaTest {
     private final LocalDate FECHA_PARTIDA = LocalDate.of(2025, 11, 25);
     private final String JUGADOR1 = "Ana";
     private final String JUGADOR2 = "Luis";
+    private static final String CONFIG_HIBERNATE = "hibernate-test.cfg.xml";
+
+    @AfterAll
+    static void cerrarHibernate() {
+        HibernateUtil.shutdown();
+    }
 
     @BeforeEach
     void setUp() {
@@ -138,6 +149,143 @@ public class ServicioPartidaTest {
         verify(repositorioPartida);
     }
 
+    @Test
+    void testActualizarPartidaValidoAsignaResumenCalculado() throws IOException {
+        Partida partida = leerPartidaEditada();
+        repositorioPartida.actualizar(partida);
+        replay(repositorioPartida);
+
+        servicioPartida.actualizarPartida(partida);
+
+        assertEquals(0, partida.getResumenPartida().getPuntosJugador1());
+        assertEquals(5, partida.getResumenPartida().getPuntosJugador2());
+        verify(repositorioPartida);
+    }
+
+    @Test
+    void testActualizarPartidaValidoReanudaLaVersionGuardada() throws IOException {
+        servicioPartida = new ServicioPartida(repositorioPartida, 1);
+        Partida guardada = leerPartidaEditada();
+        guardada.setVersion(0);
+        Partida corregida = ReproductorPartidaTest.corregirRonda3(guardada);
+        corregida.setVersion(0);
+        Partida deshecha = ReproductorPartidaTest.corregirRonda3(corregida);
+        // Ninguna versión se vuelve a cargar del repositorio
+        repositorioPartida.actualizar(corregida);
+        expectLastCall().andAnswer(() -> {
+            corregida.setVersion(1);
+            return null;
+        });
+        repositorioPartida.actualizar(deshecha);
+        replay(repositorioPartida);
+
+        servicioPartida.validarPartida(guardada);
+        servicioPartida.actualizarPartida(corregida);
+        deshecha.setVersion(1);
+        servicioPartida.actualizarPartida(deshecha);
+
+        assertEquals(5, corregida.getResumenPartida().getPuntosJugador2());
+        assertEquals(5, deshecha.getResumenPartida().getPuntosJugador2());
+        assertTrue(servicioPartida.reproductorGuardado("p-editada", 1).getRondasReutilizadas() > 0);
+        verify(repositorioPartida);
+    }
+
+    @Test
+    void testActualizarPartidaValidoReanudaLaPartidaValidadaAlGuardarla() throws IOException {
+        Partida nueva = leerPartidaEditada();
+        repositorioPartida.guardar(nueva);
+        expectLastCall().andAnswer(() -> {
+            nueva.setVersion(0);
+            return null;
+        });
+        Partida corregida = ReproductorPartidaTest.corregirRonda3(nueva);
+        corregida.setVersion(0);
+        repositorioPartida.actualizar(corregida);
+        expectLastCall().andAnswer(() -> {
+            corregida.setVersion(1);
+            return null;
+        });
+        replay(repositorioPartida);
+
+        assertTrue(servicioPartida.validarPartida(nueva));
+        servicioPartida.guardarPartida(nueva);
+        assertNotNull(servicioPartida.reproductorGuardado("p-editada", 0));
+        servicioPartida.actualizarPartida(corregida);
+
+        assertTrue(servicioPartida.reproductorGuardado("p-editada", 1).getRondasReutilizadas() > 0);
+        verify(repositorioPartida);
+    }
+
+    @Test
+    void testActualizarPartidaNoValidoResumenNoCoincide() throws IOException {
+        Partida partida = leerPartidaEditada();
+        partida.establecerResultados(construirAnaFinal("Ana"), construirLuisFinal("Luis"), 5, 0);
+        replay(repositorioPartida);
+
+        assertThrows(IllegalStateException.class, () -> servicioPartida.actualizarPartida(partida));
+        verify(repositorioPartida);
+    }
+
+    @Test
+    void testActualizarPartidaNoValidoRechazadaNoSeGuardaComoBase() throws IOException {
+        Partida guardada = leerPartidaEditada();
+        guardada.setVersion(0);
+        Partida rechazada = leerPartidaEditada();
+        rechazada.setVersion(0);
+        rechazada.establecerResultados(construirAnaFinal("Ana"), construirLuisFinal("Luis"), 5, 0);
+        Partida corregida = ReproductorPartidaTest.corregirRonda3(guardada);
+        corregida.setVersion(0);
+        repositorioPartida.actualizar(corregida);
+        replay(repositorioPartida);
+
+        servicioPartida.validarPartida(guardada);
+        assertThrows(IllegalStateException.class, () -> servicioPartida.actualizarPartida(rechazada));
+        servicioPartida.actualizarPartida(corregida);
+
+        assertEquals(5, corregida.getResumenPartida().getPuntosJugador2());
+        verify(repositorioPartida);
+    }
+
+    @Test
+    void testActualizarPartidaValidoPartidaNoGuardadaReproduceEntera() throws IOException {
+        Partida partida = leerPartidaEditada();
+        repositorioPartida.actualizar(partida);
+        expectLastCall().andThrow(new IllegalStateException("No existe"));
+        replay(repositorioPartida);
+
+        assertThrows(IllegalStateException.class, () -> servicioPartida.actualizarPartida(partida));
+        assertEquals(5, partida.getResumenPartida().getPuntosJugador2());
+        verify(repositorioPartida);
+    }
+
+    @Test
+    void testActualizarPartidaValidoCargadaSinRondasEnHibernate() throws IOException {
+        try (Session session = HibernateUtil.getSessionFactory(CONFIG_HIBERNATE).openSession()) {
+            session.beginTransaction();
+            session.createNativeQuery("TRUNCATE SCHEMA PUBLIC AND COMMIT NO CHECK").executeUpdate();
+        }
+        HibernateUtil.getSessionFactory(CONFIG_HIBERNATE).getCache().evictAllRegions();
+        LectorPartidaJSON lector = new LectorPartidaJSON("src/test/resources/partida_escoba1.json");
+        new ImportadorPartidasMasivo(CONFIG_HIBERNATE).importar(List.of(
+                PartidasDePrueba.leerPartida(lector, "p-resumen", FECHA_PARTIDA)));
+        RepositorioPartidaHibernate hibernate = new RepositorioPartidaHibernate(CONFIG_HIBERNATE);
+        ServicioPartida servicio = new ServicioPartida(hibernate);
+
+        Partida resumen = hibernate.cargar("p-resumen", PerfilCarga.RESUMEN);
+        assertFalse(resumen.isRondasCargadas());
+        servicio.actualizarPartida(resumen);
+        Partida dePartidas = hibernate.obtenerPartidasPorJugador("Ana").get(0);
+        assertFalse(dePartidas.isRondasCargadas());
+        servicio.actualizarPartida(dePartidas);
+
+        assertEquals(6, hibernate.cargar("p-resumen", PerfilCarga.REPRODUCCION).getRondas().size());
+    }
+
+    @Test
+    void testConstructorNoValidoPesoReproductores() {
+        assertThrows(IllegalArgumentException.class, () -> new ServicioPartida(repositorioPartida, 10, 0));
+    }
+
     @Test
     void testActualizarPartidaPartidaNula() {
         replay(repositorioPartida);
@@ -185,7 +333,7 @@ public class ServicioPartidaTest {
     public void testValidarPartidaValidoCreaResumenSiNoExiste() throws IOException {
         // Cargamos la partida desde el JSON (no contiene ResumenPartida en el objeto)
         LectorPartidaJSON lector = new LectorPartidaJSON("src/test/resources/partida_escoba1.json");
-        Partida partida = lector.obtenerPartida();
+        Partida partida = lector.obtenerPartida("p-test-json1");
 
         assertNull(partida.getResumenPartida(), "Antes de validar, la partida no debe contener resumen");
 
@@ -202,6 +350,48 @@ public class ServicioPartidaTest {
         assertEquals(27, resumen.getCartasCapturadasJugador2(), "Cartas capturadas Luis");
     }
 
+    @Test
+    void testValidarPartidaGuardadaValidoCargaPartidaCompleta() {
+        expect(repositorioPartida.cargar("p-test-json1", PerfilCarga.REPRODUCCION)).andReturn(crearPartidaDeDatos1());
+        replay(repositorioPartida);
+
+        assertTrue(servicioPartida.validarPartidaGuardada("p-test-json1"));
+        verify(repositorioPartida);
+    }
+
+    @Test
+    void testValidarYCompletarPartidaGuardadaValidoGuardaResumenEnLaTransaccion() throws IOException {
+        Partida partida = new LectorPartidaJSON("src/test/resources/partida_escoba1.json").obtenerPartida("p-test-json1");
+        ejecutarTransaccionesDelMock();
+        expect(repositorioPartida.cargar("p-test-json1", PerfilCarga.REPRODUCCION)).andReturn(partida);
+        repositorioPartida.actualizar(partida);
+        replay(repositorioPartida);
+
+        assertTrue(servicioPartida.validarYCompletarPartidaGuardada("p-test-json1"));
+        assertEquals(5, partida.getResumenPartida().getPuntosJugador2());
+        verify(repositorioPartida);
+    }
+
+    @Test
+    void testValidarYCompletarPartidaGuardadaValidoConResumenNoActualiza() {
+        ejecutarTransaccionesDelMock();
+        expect(repositorioPartida.cargar("p-test-json1", PerfilCarga.REPRODUCCION)).andReturn(crearPartidaDeDatos1());
+        replay(repositorioPartida);
+
+        assertTrue(servicioPartida.validarYCompletarPartidaGuardada("p-test-json1"));
+        verify(repositorioPartida);
+    }
+
+    @Test
+    void testValidarYCompletarPartidaGuardadaNoValidoIdNulo() {
+        assertThrows(IllegalArgumentException.class, () -> servicioPartida.validarYCompletarPartidaGuardada(null));
+    }
+
+    @Test
+    void testValidarPartidaGuardadaNoValidoIdNulo() {
+        assertThrows(IllegalArgumentException.class, () -> servicioPartida.validarPartidaGuardada(null));
+    }
+
     @Test
     void testValidarPartidaValidoConDatosJSON() {
         Partida partida = crearPartidaDeDatos1();
@@ -217,7 +407,7 @@ public class ServicioPartidaTest {
     @Test
     void testValidarPartidaValidoCoincideConResumen() throws IOException {
         LectorPartidaJSON lector = new LectorPartidaJSON("src/test/resources/partida_escoba1.json");
-        Partida partidaSinMeta = lector.obtenerPartida();
+        Partida partidaSinMeta = lector.obtenerPartida("p-test-json1");
 
         Partida partida = new Partida("p-1", LocalDate.now(),
                 partidaSinMeta.getNombres().get(0), partidaSinMeta.getNombres().get(1));
@@ -239,11 +429,69 @@ public class ServicioPartidaTest {
         assertTrue(servicioPartida.validarPartida(partida));
     }
 
+    @Test
+    void testValidarPartidaValidoReutilizaResumenDePartidaIdentica() throws IOException {
+        LectorPartidaJSON lector = new LectorPartidaJSON("src/test/resources/partida_escoba1.json");
+        Partida primera = lector.obtenerPartida("p-subida-1");
+        Partida repetida = lector.obtenerPartida("p-subida-2");
+
+        assertTrue(servicioPartida.validarPartida(primera));
+        assertTrue(servicioPartida.validarPartida(repetida));
+
+        assertEquals(1, servicioPartida.estadisticasValidaciones().hitCount());
+        ResumenPartida resumen = repetida.getResumenPartida();
+        assertNotSame(primera.getResumenPartida(), resumen);
+        assertEquals("p-subida-2", resumen.getId());
+        assertEquals(0, resumen.getPuntosJugador1());
+        assertEquals(5, resumen.getPuntosJugador2());
+        assertEquals(27, resumen.getCartasCapturadasJugador2());
+        assertEquals("Luis", resumen.getGanador());
+    }
+
+    @Test
+    void testValidarPartidaValidoCacheDetectaResumenDistinto() throws IOException {
+        LectorPartidaJSON lector = new LectorPartidaJSON("src/test/resources/partida_escoba1.json");
+        assertTrue(servicioPartida.validarPartida(lector.obtenerPartida("p-subida-1")));
+
+        Partida repetida = lector.obtenerPartida("p-subida-2");
+        repetida.establecerResultados(construirAnaFinal("Ana"), construirLuisFinal("Luis"), 5, 0);
+
+        assertFalse(servicioPartida.validarPartida(repetida));
+        assertEquals(1, servicioPartida.estadisticasValidaciones().hitCount());
+    }
+
+    @Test
+    void testCalcularHuellaValidoSoloDependeDelContenido() throws IOException {
+        LectorPartidaJSON lector = new LectorPartidaJSON("src/test/resources/partida_escoba1.json");
+        Partida original = lector.obtenerPartida("p-huella-1");
+        Partida otraSubida = new Partida("p-huella-2", LocalDate.of(2020, 1, 1), "Ana", "Luis");
+        otraSubida.añadirMesaInicial(original.getMesaInicial());
+        otraSubida.añadirManoJugador1(original.getManosJugador1());
+        otraSubida.añadirManoJugador2(original.getManosJugador2());
+        otraSubida.anadirRondas(original.getRondas());
+        Partida otrosJugadores = new Partida("p-huella-1", original.getFecha(), "Luis", "Ana");
+        otrosJugadores.añadirMesaInicial(original.getMesaInicial());
+        otrosJugadores.añadirManoJugador1(original.getManosJugador2());
+        otrosJugadores.añadirManoJugador2(original.getManosJugador1());
+        otrosJugadores.anadirRondas(original.getRondas());
+
+        assertEquals(64, ServicioPartida.calcularHuella(original).length());
+        assertEquals(ServicioPartida.calcularHuella(original), ServicioPartida.calcularHuella(otraSubida));
+        assertNotEquals(ServicioPartida.calcularHuella(original), ServicioPartida.calcularHuella(otrosJugadores));
+        assertNotEquals(ServicioPartida.calcularHuella(original),
+                ServicioPartida.calcularHuella(new Partida("p-vacia", FECHA_PARTIDA, JUGADOR1, JUGADOR2)));
+    }
+
+    @Test
+    void testConstructorNoValidoCacheValidaciones() {
+        assertThrows(IllegalArgumentException.class, () -> new ServicioPartida(repositorioPartida, 0));
+    }
+
     @Tag("Cobertura")
     @Test
     void testValidarPartidaValidoDetectaDiferenciaPuntosJ1() throws IOException {
         LectorPartidaJSON lector = new LectorPartidaJSON("src/test/resources/partida_escoba1.json");
-        Partida partidaSinMeta = lector.obtenerPartida();
+        Partida partidaSinMeta = lector.obtenerPartida("p-test-json1");
 
         Partida partida = new Partida("p-2", LocalDate.now(),
                 partidaSinMeta.getNombres().get(0), partidaSinMeta.getNombres().get(1));
@@ -268,7 +516,7 @@ public class ServicioPartidaTest {
     @Test
     void testValidarPartidaValidoDetectaDiferenciaPuntosJ2() throws IOException {
         LectorPartidaJSON lector = new LectorPartidaJSON("src/test/resources/partida_escoba1.json");
-        Partida partidaSinMeta = lector.obtenerPartida();
+        Partida partidaSinMeta = lector.obtenerPartida("p-test-json1");
 
         Partida partida = new Partida("p-2", LocalDate.now(),
                 partidaSinMeta.getNombres().get(0), partidaSinMeta.getNombres().get(1));
@@ -487,7 +735,7 @@ public class ServicioPartidaTest {
     @Test
     void testCalcularPuntosJugadorValido() throws IOException {
         LectorPartidaJSON lector = new LectorPartidaJSON("src/test/resources/partida_escoba1.json");
-        Partida partida = lector.obtenerPartida();
+        Partida partida = lector.obtenerPartida("p-test-json1");
 
         int puntosLuis = servicioPartida.calcularPuntos(partida, "Luis");
         int puntosAna = servicioPartida.calcularPuntos(partida, "Ana");
@@ -522,7 +770,7 @@ public class ServicioPartidaTest {
     void testCalcularPuntosJugadorNoParticipaNoValido() throws IOException {
         // jugador que no participa en JSON
         LectorPartidaJSON lector = new LectorPartidaJSON("src/test/resources/partida_escoba1.json");
-        Partida partida = lector.obtenerPartida();
+        Partida partida = lector.obtenerPartida("p-test-json1");
         assertThrows(IllegalArgumentException.class, () -> servicioPartida.calcularPuntos(partida, "Pepito"));
     }
 
@@ -535,19 +783,11 @@ public class ServicioPartidaTest {
     @Test
     void testObtenerEstadisticasEntreFechasValido() {
         LocalDate fechaInicio = LocalDate.of(2025, 1, 1);
-        String inicio = fechaInicio.toString();
         LocalDate fechaFin = LocalDate.of(2025, 12, 31);
-        String fin = fechaFin.toString();
-        LocalDate fechaPartida2 = LocalDate.of(2025, 6, 15);
 
-        Partida partida2 = new Partida("p-2", fechaPartida2, "Luis", "Maria");
-
-        // Lista simulada
-        List<Partida> partidasEntreFechas = new ArrayList<>();
-        partidasEntreFechas.add(partidaCompleta);
-        partidasEntreFechas.add(partida2);
-
-        expect(repositorioPartida.obtenerPartidasPorFecha(inicio, fin)).andReturn(partidasEntreFechas);
+        // 2 partidas: Ana-Luis y Luis-Maria
+        expect(repositorioPartida.contarPartidasEntreFechas(fechaInicio, fechaFin)).andReturn(2L);
+        expect(repositorioPartida.contarJugadoresEntreFechas(fechaInicio, fechaFin)).andReturn(3L);
         replay(repositorioPartida);
 
         ArrayList<Integer> resultado = servicioPartida.obtenerEstadisticasEntreFechas(fechaInicio, fechaFin);
@@ -560,15 +800,12 @@ public class ServicioPartidaTest {
 
     @Tag("Cobertura")
     @Test
-    void testObtenerEstadisticasEntreFechasRepoDevuelveNull() {
+    void testObtenerEstadisticasEntreFechasValidoSinPartidas() {
         LocalDate fechaInicio = LocalDate.of(2025, 1, 1);
         LocalDate fechaFin = LocalDate.of(2025, 12, 31);
-        String inicio = fechaInicio.toString();
-        String fin = fechaFin.toString();
 
-        // El repositorio devuelve null -> el método debe crear una lista vacía
-        // internamente
-        expect(repositorioPartida.obtenerPartidasPorFecha(inicio, fin)).andReturn(null);
+        expect(repositorioPartida.contarPartidasEntreFechas(fechaInicio, fechaFin)).andReturn(0L);
+        expect(repositorioPartida.contarJugadoresEntreFechas(fechaInicio, fechaFin)).andReturn(0L);
         replay(repositorioPartida);
 
         ArrayList<Integer> resultado = servicioPartida.obtenerEstadisticasEntreFechas(fechaInicio, fechaFin);
@@ -652,7 +889,7 @@ public class ServicioPartidaTest {
         partidasJugador.add(partida3);
         partidasJugador.add(partida4);
 
-        expect(repositorioPartida.obtenerPartidasPorJugador(nombre)).andReturn(partidasJugador);
+        expect(repositorioPartida.obtenerEstadisticasJugador(nombre)).andReturn(estadisticasDe(nombre, partidasJugador));
         replay(repositorioPartida);
 
         ArrayList<Integer> resultado = servicioPartida.obtenerEstadisticasJugador(nombre);
@@ -701,7 +938,7 @@ public class ServicioPartidaTest {
         partidasJugador.add(partida2);
         partidasJugador.add(partida3);
 
-        expect(repositorioPartida.obtenerPartidasPorJugador(nombre)).andReturn(partidasJugador);
+        expect(repositorioPartida.obtenerEstadisticasJugador(nombre)).andReturn(estadisticasDe(nombre, partidasJugador));
         replay(repositorioPartida);
 
         ArrayList<Integer> resultado = servicioPartida.obtenerEstadisticasJugador(nombre);
@@ -719,9 +956,7 @@ public class ServicioPartidaTest {
     void testValidoObtenerEstadisticasJugadorSinPartidas() {
         String nombre = "Maria";
 
-        List<Partida> partidasJugador = new ArrayList<>();
-
-        expect(repositorioPartida.obtenerPartidasPorJugador(nombre)).andReturn(partidasJugador);
+        expect(repositorioPartida.obtenerEstadisticasJugador(nombre)).andReturn(new EstadisticasJugador(nombre));
         replay(repositorioPartida);
 
         ArrayList<Integer> resultado = servicioPartida.obtenerEstadisticasJugador(nombre);
@@ -750,7 +985,8 @@ public class ServicioPartidaTest {
 
     @Test
     void testResumenPartidaValidoJSON1() {
-        expect(repositorioPartida.cargar("p-test-json1")).andReturn(crearPartidaDeDatos1()).times(2);
+        expect(repositorioPartida.cargar("p-test-json1")).andReturn(crearPartidaDeDatos1());
+        expect(repositorioPartida.cargar("p-test-json1", PerfilCarga.RESUMEN)).andReturn(crearPartidaDeDatos1());
         replay(repositorioPartida);
         servicioPartida.obtenerPartida("p-test-json1");
         ArrayList<ArrayList<Integer>> resumen = servicioPartida.resumenPartida("p-test-json1");
@@ -767,7 +1003,7 @@ public class ServicioPartidaTest {
     void testNoValidoResumenPartidaNula() {
         String idPartida = "partida-1";
 
-        expect(repositorioPartida.cargar(idPartida)).andReturn(null);
+        expect(repositorioPartida.cargar(idPartida, PerfilCarga.RESUMEN)).andReturn(null);
         replay(repositorioPartida);
 
         assertThrows(IllegalArgumentException.class, () -> {
@@ -791,58 +1027,15 @@ public class ServicioPartidaTest {
 
     @Test
     void testValidoObtenerTop10() {
-        Partida partida1 = new Partida("p-1", LocalDate.of(2025, 5, 1), "Ana", "Luis");
-        ResumenPartida resumen1 = new ResumenPartida("p-1", LocalDate.of(2025, 5, 1), "Ana", "Luis");
-        resumen1.marcarComoCompleta();
-        resumen1.establecerResultados(new Jugador("Ana"), new Jugador("Luis"), 10, 5);
-        partida1.setResumenPartida(resumen1);
-
-        Partida partida2 = new Partida("p-3", LocalDate.of(2025, 7, 1), "Carlos", "Ana");
-        ResumenPartida resumen2 = new ResumenPartida("p-3", LocalDate.of(2025, 7, 1), "Carlos", "Ana");
-        resumen2.marcarComoCompleta();
-        resumen2.establecerResultados(new Jugador("Carlos"), new Jugador("Ana"), 2, 3);
-        partida2.setResumenPartida(resumen2);
-
-        Partida partida3 = new Partida("p-4", LocalDate.of(2025, 8, 1), "Luis", "Maria");
-        ResumenPartida resumen3 = new ResumenPartida("p-4", LocalDate.of(2025, 8, 1), "Luis", "Maria");
-        resumen3.marcarComoCompleta();
-        resumen3.establecerResultados(new Jugador("Luis"), new Jugador("Maria"), 12, 0);
-        partida3.setResumenPartida(resumen3);
-
-        Partida partida4 = new Partida("p-5", LocalDate.of(2025, 9, 1), "Luis", "Carlos");
-        ResumenPartida resumen4 = new ResumenPartida("p-5", LocalDate.of(2025, 9, 1), "Luis", "Carlos");
-        resumen4.marcarComoCompleta();
-        resumen4.establecerResultados(new Jugador("Luis"), new Jugador("Carlos"), 9, 8);
-        partida4.setResumenPartida(resumen4);
-
-        Partida partida5 = new Partida("p-2", LocalDate.of(2025, 6, 1), "Maria", "Diego");
-        ResumenPartida resumen5 = new ResumenPartida("p-2", LocalDate.of(2025, 6, 1), "Maria", "Diego");
-        resumen5.marcarComoCompleta();
-        resumen5.establecerResultados(new Jugador("Maria"), new Jugador("Diego"), 8, 7);
-        partida5.setResumenPartida(resumen5);
-
-        Partida partida6 = new Partida("p-6", LocalDate.of(2025, 10, 1), "Pedro", "Sofia");
-        ResumenPartida resumen6 = new ResumenPartida("p-6", LocalDate.of(2025, 10, 1), "Pedro", "Sofia");
-        resumen6.marcarComoCompleta();
-        resumen6.establecerResultados(new Jugador("Pedro"), new Jugador("Sofia"), 5, 5); // EMPATE
-        partida6.setResumenPartida(resumen6);
-
-        List<Partida> partidas = new ArrayList<>(List.of(
-                partida1, partida2, partida3, partida4, partida5, partida6));
-
-        expect(repositorioPartida.obtenerPartidasPorFecha("0001-01-01", LocalDate.now().toString()))
-                .andReturn(partidas);
+        List<String> mejores = List.of("Ana", "Luis", "Maria", "Carlos", "Diego", "Pedro", "Sofia");
+        expect(repositorioPartida.obtenerMejoresJugadores(10)).andReturn(mejores);
         replay(repositorioPartida);
 
         ArrayList<Jugador> top10 = servicioPartida.obtenerTop10();
         assertEquals(7, top10.size());
-        assertEquals("Ana", top10.get(0).getNombre());
-        assertEquals("Luis", top10.get(1).getNombre());
-        assertEquals("Maria", top10.get(2).getNombre());
-        assertEquals("Carlos", top10.get(3).getNombre());
-        assertEquals("Diego", top10.get(4).getNombre());
-        assertEquals("Pedro", top10.get(5).getNombre());
-        assertEquals("Sofia", top10.get(6).getNombre());
+        for (int i = 0; i < mejores.size(); i++) {
+            assertEquals(mejores.get(i), top10.get(i).getNombre());
+        }
 
         verify(repositorioPartida);
     }
@@ -850,7 +1043,7 @@ public class ServicioPartidaTest {
     @Tag("Cobertura")
     @Test
     void testValidoObtenerTop10ConPartidasNull() {
-        expect(repositorioPartida.obtenerPartidasPorFecha("0001-01-01", LocalDate.now().toString())).andReturn(null);
+        expect(repositorioPartida.obtenerMejoresJugadores(10)).andReturn(null);
         replay(repositorioPartida);
         ArrayList<Jugador> top10 = servicioPartida.obtenerTop10();
         assertEquals(0, top10.size());
@@ -860,65 +1053,13 @@ public class ServicioPartidaTest {
     @Tag("Cobertura")
     @Test
     void testValidoObtenerTop10ConListaVacia() {
-        expect(repositorioPartida.obtenerPartidasPorFecha("0001-01-01", LocalDate.now().toString()))
-                .andReturn(new ArrayList<>());
+        expect(repositorioPartida.obtenerMejoresJugadores(10)).andReturn(new ArrayList<>());
         replay(repositorioPartida);
         ArrayList<Jugador> top10 = servicioPartida.obtenerTop10();
         assertEquals(0, top10.size());
         verify(repositorioPartida);
     }
 
-    @Tag("Cobertura")
-    @Test
-    void testValidoObtenerTop10ConComparacionAlfabetica() {
-        // Partida 1: Ana gana
-        Partida partida1 = new Partida("p-1", LocalDate.of(2025, 5, 1), "Ana", "Pedro");
-        ResumenPartida resumen1 = new ResumenPartida("p-1", LocalDate.of(2025, 5, 1), "Ana", "Pedro");
-        resumen1.marcarComoCompleta();
-        resumen1.establecerResultados(new Jugador("Ana"), new Jugador("Pedro"), 10, 5);
-        partida1.setResumenPartida(resumen1);
-
-        // Partida 2: Carlos gana
-        Partida partida2 = new Partida("p-2", LocalDate.of(2025, 6, 1), "Carlos", "Sofia");
-        ResumenPartida resumen2 = new ResumenPartida("p-2", LocalDate.of(2025, 6, 1), "Carlos", "Sofia");
-        resumen2.marcarComoCompleta();
-        resumen2.establecerResultados(new Jugador("Carlos"), new Jugador("Sofia"), 8, 3);
-        partida2.setResumenPartida(resumen2);
-
-        // Partida 3: Empate
-        Partida partida3 = new Partida("p-3", LocalDate.of(2025, 7, 1), "Pedro", "Sofia");
-        ResumenPartida resumen3 = new ResumenPartida("p-3", LocalDate.of(2025, 7, 1), "Pedro", "Sofia");
-        resumen3.marcarComoCompleta();
-        resumen3.establecerResultados(new Jugador("Pedro"), new Jugador("Sofia"), 5, 5);
-        partida3.setResumenPartida(resumen3);
-
-        // Partida 4: Beatriz gana
-        Partida partida4 = new Partida("p-4", LocalDate.of(2025, 8, 1), "Beatriz", "Diego");
-        ResumenPartida resumen4 = new ResumenPartida("p-4", LocalDate.of(2025, 8, 1), "Beatriz", "Diego");
-        resumen4.marcarComoCompleta();
-        resumen4.establecerResultados(new Jugador("Beatriz"), new Jugador("Diego"), 7, 6);
-        partida4.setResumenPartida(resumen4);
-
-        List<Partida> partidas = new ArrayList<>(List.of(partida1, partida2, partida3, partida4));
-
-        expect(repositorioPartida.obtenerPartidasPorFecha("0001-01-01", LocalDate.now().toString()))
-                .andReturn(partidas);
-        replay(repositorioPartida);
-
-        ArrayList<Jugador> top10 = servicioPartida.obtenerTop10();
-
-        assertEquals(6, top10.size());
-        // Jugadores con 1 victoria: Ana, Beatriz, Carlos (orden alfabético)
-        assertEquals("Ana", top10.get(0).getNombre());
-        assertEquals("Beatriz", top10.get(1).getNombre());
-        assertEquals("Carlos", top10.get(2).getNombre());
-        // Jugadores con 0 victorias: Diego, Pedro, Sofia (orden alfabético)
-        assertEquals("Diego", top10.get(3).getNombre());
-        assertEquals("Pedro", top10.get(4).getNombre());
-        assertEquals("Sofia", top10.get(5).getNombre());
-        verify(repositorioPartida);
-    }
-
 
         private static final int[] INDICES_VALIDOS = { 1, 2, 3, 4, 5, 6, 7, 10, 11, 12 }; // 10 valores
 
@@ -991,11 +1132,22 @@ public class ServicioPartidaTest {
      * incluyendo el resumen esperado basado en el estado final de las cartas
      * y el estado final de los jugadores.
      */
+    /**
+     * Los mocks no ejecutan los métodos por defecto: enTransaccion se limita a
+     * aplicar el trabajo sobre el propio mock.
+     */
+    @SuppressWarnings("unchecked")
+    private void ejecutarTransaccionesDelMock() {
+        expect(repositorioPartida.enTransaccion(anyObject()))
+                .andAnswer(() -> ((Function<RepositorioPartida, Object>) getCurrentArguments()[0])
+                        .apply(repositorioPartida));
+    }
+
     private Partida crearPartidaDeDatos1() {
         try {
             // Leemos la partida real desde el JSON de recursos para garantizar consistencia
             LectorPartidaJSON lector = new LectorPartidaJSON("src/test/resources/partida_escoba1.json");
-            Partida partida = lector.obtenerPartida();
+            Partida partida = lector.obtenerPartida("p-test-json1");
 
             // Construimos los jugadores finales esperados (igual que antes)
             String jugador1Nombre = partida.getNombres().get(0);
@@ -1012,4 +1164,20 @@ public class ServicioPartidaTest {
         }
     }
 
-}
\ No newline at end of file
+
+    /**
+     * Calcula las estadísticas acumuladas que mantendría el repositorio para las
+     * partidas dadas.
+     */
+    private EstadisticasJugador estadisticasDe(String nombre, List<Partida> partidas) {
+        EstadisticasJugador estadisticas = new EstadisticasJugador(nombre);
+        for (Partida p : partidas) {
+            estadisticas.sumarPartida(p);
+        }
+        return estadisticas;
+    }
+
+    private Partida leerPartidaEditada() throws IOException {
+        return new LectorPartidaJSON("src/test/resources/partida_escoba1.json").obtenerPartida("p-editada");
+    }
+}
@@ -0,0 +1 @@
+create table tabla_a (id integer not null, primary key (id));
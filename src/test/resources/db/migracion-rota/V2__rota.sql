@@ -0,0 +1,3 @@
+-- La primera sentencia se confirma sola; la segunda falla.
+create table tabla_b (id integer not null, primary key (id));
+create table tabla_a (id integer not null, primary key (id));